@@ -0,0 +1,214 @@
+/**
+* The ApproximateTrending counter works out the trending hashtags using a fixed amount of memory, however many different hashtags are used.
+* It is made of a Count-Min Sketch, which estimates how many times any hashtag has been used, and a Space-Saving summary which tracks the most used hashtags.
+* The sketch is a depth x width grid of counters. Each row hashes the hashtag to one counter which is increased, and the estimate is the smallest of those counters.
+* The estimate is never below the true count, and with probability 1 - delta it is at most epsilon * (total hashtags used) above it,
+* which is why the width is e / epsilon and the depth is ln(1 / delta).
+* The Space-Saving summary holds a fixed number of hashtags in a min-heap by count, with a small open addressing table to find them.
+* When a hashtag that isn't being tracked arrives and the summary is full, it replaces the hashtag with the smallest count and takes over that count plus one.
+* Both of these over-estimate, so the count kept for a hashtag is the smaller of the two, which is still never below the true count.
+* Any hashtag used more than (total / capacity) times is guaranteed to be in the summary, so the top hashtags come out of it.
+* Adding a hashtag is O(depth + log capacity) and getting the trending hashtags only depends on the capacity, not on the number of hashtags or weets.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+class ApproximateTrending implements ITrendingCounter {
+	private final int[][] sketch; // The Count-Min Sketch counters, depth rows of width counters
+	private final int width; // The number of counters in each row
+	private final Counter[] heap; // Min-heap of the tracked hashtags by count
+	private int heapSize; // The number of hashtags being tracked
+	private final Counter[] table; // Open addressing table to find a tracked hashtag, a null slot is empty
+	private final int k; // The number of hashtags to return
+	private long total; // The total number of hashtags counted
+
+	static class Counter { // Each tracked hashtag and its estimated count
+		private String tag; // The hashtag
+		private long count; // The estimated number of times it has been used, never less than the true number
+		private int heapIndex; // Its position in the heap
+
+		Counter(String tag, long count) { // Constructor
+			this.tag = tag;
+			this.count = count;
+		}
+	}
+
+	// Constructor, the estimates are within epsilon * total with probability 1 - delta, and capacity hashtags are tracked
+	public ApproximateTrending(double epsilon, double delta, int capacity, int k) {
+		if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1 || capacity < k) { // Check the bounds make sense
+			throw new IllegalArgumentException("epsilon and delta must be between 0 and 1, and capacity must be at least " + k);
+		}
+		this.width = (int) Math.ceil(Math.E / epsilon); // Wider rows give smaller errors
+		int depth = (int) Math.ceil(Math.log(1 / delta)); // More rows make a bad estimate less likely
+		this.sketch = new int[Math.max(depth, 1)][width]; // Create the counters
+		this.heap = new Counter[capacity]; // Create the heap
+		this.heapSize = 0;
+		int tableSize = 1; // The table is at least twice the capacity, so it is never more than half full
+		while (tableSize < capacity * 2) {
+			tableSize <<= 1;
+		}
+		this.table = new Counter[tableSize];
+		this.k = k;
+		this.total = 0;
+	}
+
+	// Method to mix a hash code, used to get a second independent hash for the sketch rows
+	private static int mix(int h) {
+		h ^= h >>> 16; // Murmur3 finaliser
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	// Method to get the counter a hashtag maps to in a row, using double hashing so each row acts like a different hash
+	private int column(int h1, int h2, int row) {
+		return Math.floorMod(h1 + row * h2, width);
+	}
+
+	// Method to count one use of a hashtag, the date doesn't matter as every use is counted
+	public void add(String tag, long date) { // O(depth + log capacity)
+		total++; // Count it in the total
+		int h1 = mix(tag.hashCode()); // First hash
+		int h2 = mix(h1 ^ 0x5BD1E995) | 1; // Second hash, made odd so it never repeats the same column
+		long estimate = Long.MAX_VALUE; // The smallest counter across the rows
+		for (int row = 0; row < sketch.length; row++) {
+			int column = column(h1, h2, row); // Find the counter for this row
+			sketch[row][column]++; // Increase it
+			estimate = Math.min(estimate, sketch[row][column]); // Keep the smallest
+		}
+		int slot = slot(tag); // Look the hashtag up in the summary
+		Counter counter = table[slot];
+		if (counter != null) { // If it is already being tracked
+			counter.count = Math.min(counter.count + 1, estimate); // Both over-estimate, so take the smaller
+			siftDown(counter.heapIndex); // Its count went up so it might need to move down
+		} else if (heapSize < heap.length) { // If the summary isn't full yet
+			counter = new Counter(tag, estimate); // Track it with the sketch's estimate
+			table[slot] = counter; // Add it to the table
+			heap[heapSize] = counter; // Add it to the end of the heap
+			counter.heapIndex = heapSize++;
+			siftUp(counter.heapIndex); // Move it up into place
+		} else { // The summary is full, so replace the hashtag with the smallest count
+			counter = heap[0]; // The root has the smallest count
+			remove(counter.tag); // Take the old hashtag out of the table
+			counter.tag = tag; // Reuse the counter for the new hashtag
+			counter.count = Math.min(counter.count + 1, estimate); // It takes over the old count plus one, unless the sketch knows better
+			table[slot(tag)] = counter; // Add it to the table
+			siftDown(0); // Move it down into place
+		}
+	}
+
+	// Method to find the slot for a hashtag in the table, either where it is or the empty slot where it would go
+	private int slot(String tag) {
+		int mask = table.length - 1; // The table length is a power of two
+		int slot = mix(tag.hashCode()) & mask; // Hash and mask it
+		while (table[slot] != null && !table[slot].tag.equals(tag)) { // Probe until we find the hashtag or an empty slot
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	// Method to remove a hashtag from the table, shifting back any entries after it so probing still finds them
+	private void remove(String tag) {
+		int mask = table.length - 1;
+		int hole = slot(tag); // Where the hashtag is
+		table[hole] = null; // Empty the slot
+		int slot = (hole + 1) & mask; // Look at the entries after it
+		while (table[slot] != null) { // Until we hit an empty slot
+			int home = mix(table[slot].tag.hashCode()) & mask; // Where this entry would like to be
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) { // If its home is at or before the hole, it can move into the hole
+				table[hole] = table[slot]; // Move it back
+				table[slot] = null; // Its old slot is now the hole
+				hole = slot;
+			}
+			slot = (slot + 1) & mask; // Move on to the next entry
+		}
+	}
+
+	// Method to move a counter up the heap until its parent has a smaller count
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2; // Get the parent's index
+			if (heap[parent].count <= heap[i].count) { // If the parent is smaller we are done
+				break;
+			}
+			swap(i, parent); // Otherwise swap with the parent
+			i = parent;
+		}
+	}
+
+	// Method to move a counter down the heap until both children have a larger count
+	private void siftDown(int i) {
+		while (true) {
+			int smallest = i; // Assume this counter is the smallest
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < heapSize && heap[left].count < heap[smallest].count) {
+				smallest = left; // The left child is smaller
+			}
+			if (right < heapSize && heap[right].count < heap[smallest].count) {
+				smallest = right; // The right child is smaller
+			}
+			if (smallest == i) { // If neither child is smaller we are done
+				break;
+			}
+			swap(i, smallest); // Otherwise swap with the smaller child
+			i = smallest;
+		}
+	}
+
+	// Method to swap two counters in the heap
+	private void swap(int i, int j) {
+		Counter temp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = temp;
+		heap[i].heapIndex = i; // Update where they are
+		heap[j].heapIndex = j;
+	}
+
+	// Method to get the estimated number of times a hashtag has been used, never less than the true number
+	public long estimate(String tag) {
+		Counter counter = table[slot(tag)]; // If the hashtag is tracked its count is the best estimate
+		if (counter != null) {
+			return counter.count;
+		}
+		int h1 = mix(tag.hashCode());
+		int h2 = mix(h1 ^ 0x5BD1E995) | 1;
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < sketch.length; row++) {
+			estimate = Math.min(estimate, sketch[row][column(h1, h2, row)]); // Otherwise ask the sketch
+		}
+		return estimate;
+	}
+
+	// Method to get the total number of hashtags counted, the estimates are within epsilon times this
+	public long getTotal() {
+		return total;
+	}
+
+	// Method to get the top hashtags, the highest estimate first
+	public String[] top() { // O(capacity * k), independent of the number of hashtags and weets
+		String[] top = new String[k]; // The result always has k places
+		long[] topCounts = new long[k]; // The counts of the hashtags in top
+		int size = 0; // The number of hashtags in top
+		for (int j = 0; j < heapSize; j++) { // Insert each tracked hashtag into the sorted top k
+			long count = heap[j].count;
+			if (size == k && (k == 0 || count <= topCounts[k - 1])) { // Not good enough to get in
+				continue;
+			}
+			int i = size < k ? size++ : k - 1; // Start from the end, dropping the last one if we are full
+			while (i > 0 && topCounts[i - 1] < count) { // Move smaller counts to the right
+				top[i] = top[i - 1];
+				topCounts[i] = topCounts[i - 1];
+				i--;
+			}
+			top[i] = heap[j].tag; // Put the hashtag in its place
+			topCounts[i] = count;
+		}
+		return top; // Return the top k
+	}
+
+}
@@ -0,0 +1,103 @@
+/**
+* The AutocompleteService gives "as you type" suggestions for the search box, for user names and for hashtags, using an AutocompleteTrie for each.
+* User names are ranked by their number of followers from the FollowerStore, and hashtags by the number of times they have been used.
+* Both tries are filled from whatever is already in the stores when the service is made, and after that they are updated as users, weets and follows are added
+* through the service, one step up the ranking at a time, so nothing is ever rebuilt and each keystroke only walks the prefix.
+* Hashtags are found in the weets in exactly the same way as for trending, and every use is counted, whatever the WeetStore's trending is set to, apart from a '#' on its own which has nothing to suggest.
+* Suggestions ignore case, so "ja" suggests both "#Java" and "#java", and the '#' is optional when typing a hashtag.
+* Users, weets and follows have to be added through the service rather than the stores, otherwise the suggestions won't know about them.
+* Like the stores it isn't thread safe on its own.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+import java.util.Date;
+
+public class AutocompleteService {
+	private final UserStore userStore; // The users
+	private final WeetStore weetStore; // The weets
+	private final FollowerStore followerStore; // Who follows who
+	private final AutocompleteTrie users; // User names, scored by their number of followers, with their id
+	private final AutocompleteTrie hashtags; // Hashtags without the '#', scored by the number of uses
+	private final ITagCounter tagCounter; // Counts each hashtag found in a weet into the trie
+
+	// Constructor for AutocompleteService which keeps the top k suggestions for every prefix
+	public AutocompleteService(UserStore userStore, WeetStore weetStore, FollowerStore followerStore, int k) {
+		this.userStore = userStore;
+		this.weetStore = weetStore;
+		this.followerStore = followerStore;
+		this.users = new AutocompleteTrie(k, true);
+		this.hashtags = new AutocompleteTrie(k, true);
+		this.tagCounter = (tag, date) -> { // Lets the WeetStore's hashtag finder feed the trie
+			if (tag.length() > 1) { // A '#' on its own has no text to suggest
+				hashtags.add(tag.substring(1), 0, 1); // Drop the '#' so it doesn't have to be typed, hashtags are told apart by their text
+			}
+		};
+		User[] existing = userStore.getUsers(); // Fill the tries from what is already in the stores
+		for (int i = 0; i < existing.length; i++) {
+			users.add(existing[i].getName(), existing[i].getId(), followerStore.getNumFollowers(existing[i].getId()));
+		}
+		Weet[] weets = weetStore.getWeets();
+		for (int i = 0; i < weets.length; i++) {
+			WeetStore.countHashtags(weets[i].getMessage(), weets[i].getDateWeeted().getTime(), tagCounter);
+		}
+	}
+
+	// Method to add a user to the user store, and to the suggestions with the followers they already have
+	public boolean addUser(User usr) { // O(m k) for a name of length m
+		if (!userStore.addUser(usr)) { // If the user id is already taken
+			return false;
+		}
+		users.add(usr.getName(), usr.getId(), followerStore.getNumFollowers(usr.getId()));
+		return true;
+	}
+
+	// Method to add a weet to the weet store, and count its hashtags
+	public boolean addWeet(Weet weet) { // O(m k) for a message of length m
+		if (!weetStore.addWeet(weet)) { // If the weet id is already in use
+			return false;
+		}
+		WeetStore.countHashtags(weet.getMessage(), weet.getDateWeeted().getTime(), tagCounter);
+		return true;
+	}
+
+	// Method to add a follower to the follower store, and move the user followed up the suggestions
+	public boolean addFollower(int uid1, int uid2, Date followDate) { // O(m k) for a name of length m
+		if (!followerStore.addFollower(uid1, uid2, followDate)) { // If uid1 already followed uid2
+			return false;
+		}
+		User followed = userStore.getUser(uid2);
+		if (followed != null) { // Users who haven't been added yet get their followers counted when they are
+			users.add(followed.getName(), uid2, 1);
+		}
+		return true;
+	}
+
+	// Method to get the users whose name starts with a prefix, the most followers first, at most limit and never more than k
+	public User[] suggestUsers(String prefix, int limit) { // O(p + k)
+		Cursor.checkLimit(limit); // Check the number of suggestions makes sense
+		AutocompleteTrie.Entry[] entries = users.complete(prefix, limit);
+		User[] result = new User[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			result[i] = userStore.getUser(entries[i].getId()); // Turn each id back into the user
+		}
+		return result;
+	}
+
+	// Method to get the hashtags which start with a prefix, with or without the '#', the most used first, at most limit and never more than k
+	public String[] suggestHashtags(String prefix, int limit) { // O(p + k)
+		Cursor.checkLimit(limit); // Check the number of suggestions makes sense
+		AutocompleteTrie.Entry[] entries = hashtags.complete(prefix.startsWith("#") ? prefix.substring(1) : prefix, limit);
+		String[] result = new String[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			result[i] = "#" + entries[i].getText(); // Put the '#' back
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,206 @@
+/**
+* The AutocompleteTrie suggests the most popular completions of a prefix as it is typed, e.g. user names by number of followers or hashtags by how often they are used.
+* Every entry is a piece of text with an id and a score, and the text is stored one character per level of a trie, so each node is one prefix.
+* Every node keeps the top k entries whose text starts with its prefix, best first, so a suggestion is just walking down the prefix and copying that list,
+* which is O(p + k) for a prefix of length p no matter how many entries there are.
+* Scores only ever go up, so when an entry's score goes up it can only move up the lists on its path, or get into a list by beating the last one,
+* which means updating is O(m k) for text of length m with nothing else to recount.
+* Children are kept in small sorted arrays of characters, grown as needed, rather than an array of every possible character, to keep the nodes small.
+* Different entries can have the same text, e.g. two users with the same name, as entries are told apart by their id as well as their text.
+* When case folding is turned on the text and prefixes are lower cased first, so typing "ja" suggests both "#Java" and "#java".
+* Ties on the score go to the smaller id, and then to the text, so the suggestions are always in the same order.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+
+class AutocompleteTrie {
+	private final Node root; // The node for the empty prefix, its list is the top k overall
+	private final int k; // The number of completions kept at each node
+	private final boolean foldCase; // Whether text is lower cased before going in the trie
+	private int size; // The number of entries
+
+	static final class Entry { // Inner class for one completion
+		private final String text; // The text, as it was given
+		private final int id; // The id, to tell apart entries with the same text
+		private long score; // How popular it is, only ever goes up
+
+		Entry(String text, int id) { // Constructor
+			this.text = text;
+			this.id = id;
+			this.score = 0;
+		}
+
+		// Method to get the text
+		public String getText() {
+			return text;
+		}
+
+		// Method to get the id
+		public int getId() {
+			return id;
+		}
+
+		// Method to get the score
+		public long getScore() {
+			return score;
+		}
+	}
+
+	static final class Node { // Inner class for one prefix
+		private char[] chars; // The next character of each child, sorted
+		private Node[] children; // The child for each character
+		private int childCount; // The number of children
+		private Entry[] top; // The best entries with this prefix, best first
+		private int topCount; // The number of entries in top
+		private Entry[] ends; // The entries whose text ends at this node
+		private int endCount; // The number of entries in ends
+
+		Node() { // Constructor, the arrays are made when they are first needed as most nodes only have one child
+			this.childCount = 0;
+			this.topCount = 0;
+			this.endCount = 0;
+		}
+
+		// Method to get the child for a character, or null if there isn't one
+		Node child(char c) { // O(log d) for d children
+			int i = chars == null ? -1 : Arrays.binarySearch(chars, 0, childCount, c);
+			return i >= 0 ? children[i] : null;
+		}
+
+		// Method to get the child for a character, making it if there isn't one
+		Node addChild(char c) {
+			int i = chars == null ? -1 : Arrays.binarySearch(chars, 0, childCount, c);
+			if (i >= 0) { // If it is already there
+				return children[i];
+			}
+			i = -i - 1; // Where it goes
+			if (chars == null) { // If this is the first child
+				chars = new char[1];
+				children = new Node[1];
+			} else if (childCount == chars.length) { // If the arrays are full
+				chars = Arrays.copyOf(chars, childCount * 2); // Double their size
+				children = Arrays.copyOf(children, childCount * 2);
+			}
+			System.arraycopy(chars, i, chars, i + 1, childCount - i); // Shift the later children up by one
+			System.arraycopy(children, i, children, i + 1, childCount - i);
+			chars[i] = c;
+			Node child = new Node();
+			children[i] = child;
+			childCount++;
+			return child;
+		}
+	}
+
+	// Constructor for AutocompleteTrie which keeps the top k completions of every prefix
+	public AutocompleteTrie(int k, boolean foldCase) {
+		if (k < 1) { // Check k makes sense
+			throw new IllegalArgumentException("k must be positive");
+		}
+		this.root = new Node();
+		this.k = k;
+		this.foldCase = foldCase;
+		this.size = 0;
+	}
+
+	// Method to lower case the text if case folding is turned on
+	private String normalise(String text) {
+		return foldCase ? text.toLowerCase() : text;
+	}
+
+	// Method to check whether entry a comes before entry b, i.e. has a higher score, or the smaller id or text on a tie
+	private static boolean better(Entry a, Entry b) {
+		if (a.score != b.score) {
+			return a.score > b.score;
+		}
+		if (a.id != b.id) {
+			return a.id < b.id;
+		}
+		return a.text.compareTo(b.text) < 0;
+	}
+
+	// Method to add to the score of an entry, adding it first with a score of 0 if it isn't there, returns the new score
+	public long add(String text, int id, long by) { // O(m k) for text of length m
+		if (by < 0) { // Scores only go up, the top lists rely on it
+			throw new IllegalArgumentException("by must not be negative");
+		}
+		String normalised = normalise(text);
+		Node[] path = new Node[normalised.length() + 1]; // The node for each prefix of the text
+		path[0] = root;
+		for (int i = 0; i < normalised.length(); i++) {
+			path[i + 1] = path[i].addChild(normalised.charAt(i)); // Walk down, making nodes as needed
+		}
+		Node last = path[normalised.length()];
+		Entry entry = null; // Find the entry among those ending here
+		for (int i = 0; i < last.endCount && entry == null; i++) {
+			if (last.ends[i].id == id && last.ends[i].text.equals(text)) {
+				entry = last.ends[i];
+			}
+		}
+		if (entry == null) { // If it is new
+			entry = new Entry(text, id);
+			if (last.ends == null) {
+				last.ends = new Entry[1];
+			} else if (last.endCount == last.ends.length) {
+				last.ends = Arrays.copyOf(last.ends, last.endCount * 2);
+			}
+			last.ends[last.endCount++] = entry;
+			size++;
+		}
+		entry.score += by;
+		for (int i = 0; i < path.length; i++) { // Every prefix of the text might now have it in its top k
+			offer(path[i], entry);
+		}
+		return entry.score;
+	}
+
+	// Method to move an entry whose score has gone up into its place in a node's top list, if it is good enough
+	private void offer(Node node, Entry entry) { // O(k)
+		int i = 0; // Find it if it is already in the list
+		while (i < node.topCount && node.top[i] != entry) {
+			i++;
+		}
+		if (i == node.topCount) { // If it isn't in the list
+			if (node.topCount < k) { // If the list isn't full, put it on the end
+				if (node.top == null) {
+					node.top = new Entry[Math.min(k, 2)]; // Start small, most prefixes only have a few completions
+				} else if (node.topCount == node.top.length) {
+					node.top = Arrays.copyOf(node.top, Math.min(node.topCount * 2, k));
+				}
+				node.topCount++;
+			} else if (!better(entry, node.top[k - 1])) { // If it doesn't beat the last one it doesn't get in
+				return;
+			}
+			i = node.topCount - 1; // It takes the last place
+			node.top[i] = entry;
+		}
+		while (i > 0 && better(node.top[i], node.top[i - 1])) { // Move it up past any entries it now beats
+			Entry temp = node.top[i];
+			node.top[i] = node.top[i - 1];
+			node.top[i - 1] = temp;
+			i--;
+		}
+	}
+
+	// Method to get the best completions of a prefix, best first, at most limit and never more than k
+	public Entry[] complete(String prefix, int limit) { // O(p + k)
+		String normalised = normalise(prefix);
+		Node node = root;
+		for (int i = 0; i < normalised.length() && node != null; i++) {
+			node = node.child(normalised.charAt(i)); // Walk down the prefix
+		}
+		if (node == null) { // If nothing starts with the prefix
+			return new Entry[0];
+		}
+		return Arrays.copyOf(node.top == null ? new Entry[0] : node.top, Math.min(node.topCount, Math.max(limit, 0))); // Copy the list
+	}
+
+	// Method to get the number of entries
+	public int size() {
+		return size;
+	}
+
+}
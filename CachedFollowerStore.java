@@ -0,0 +1,128 @@
+/**
+* The CachedFollowerStore wraps any IFollowerStore and caches the results of its queries in a ResultCache, so a hot query is only worked out once until a follow changes it.
+* The results are kept in least recently used order within a memory budget, and each query's result is copied on the way out so callers can't change the cached copy.
+* Adding a follow drops exactly the results it changes: the followers of the user followed, the follows of the follower,
+* the mutual followers of any pair including the user followed, the mutual follows of any pair including the follower, and the top users.
+* Finding the mutuals to drop looks through every cached result, so a new follow costs O(c) for c cached results whenever any mutuals are cached,
+* and O(1) when none are. The top users are dropped on every follow.
+* Checking a follow and counting followers are already O(1) so they aren't cached.
+* Follows have to be added through the CachedFollowerStore rather than the store it wraps, otherwise the cache won't know what to drop.
+* It can be shared between threads if the store it wraps can, e.g. a ConcurrentFollowerStore.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Date;
+import java.util.function.Supplier;
+
+public class CachedFollowerStore implements IFollowerStore {
+	private static final int FOLLOWERS = 0; // The kinds of query which are cached
+	private static final int FOLLOWS = 1;
+	private static final int MUTUAL_FOLLOWERS = 2;
+	private static final int MUTUAL_FOLLOWS = 3;
+	private static final int TOP_USERS = 4;
+
+	private final IFollowerStore store; // The store being cached
+	private final ResultCache cache; // The cached results
+
+	// Constructor for CachedFollowerStore, caching up to roughly maxBytes of results
+	public CachedFollowerStore(IFollowerStore store, long maxBytes) {
+		this.store = store;
+		this.cache = new ResultCache(maxBytes, 5);
+	}
+
+	// Method to get a query's result from the cache, or work it out and cache it
+	private int[] cached(ResultCache.Query query, Supplier<int[]> compute) { // O(k) to copy on a hit
+		ResultCache.Result hit = cache.get(query);
+		if (hit != null) { // If it is cached
+			int[] value = (int[]) hit.value;
+			return value == null ? null : value.clone(); // Hand out a copy, so the cached one can't be changed
+		}
+		long since = cache.getVersion(); // So it isn't cached if a follow is added meanwhile
+		int[] value = compute.get();
+		cache.put(query, value == null ? null : value.clone(), ResultCache.weigh(value == null ? 0 : value.length), since); // Keep our own copy
+		return value;
+	}
+
+	// Method to pack a pair of users into one number, in the order given, as a store we wrap might give the mutuals in a different order when they are swapped
+	private static long pair(int uid1, int uid2) {
+		return ((long) uid1 << 32) | (uid2 & 0xFFFFFFFFL);
+	}
+
+	// Method to check whether a user is in a pair packed by pair
+	private static boolean inPair(long pair, int uid) {
+		return (int) (pair >> 32) == uid || (int) pair == uid;
+	}
+
+	// Method to add a follow to the store, dropping the cached results it changes
+	public boolean addFollower(int uid1, int uid2, Date followDate) { // O(1), plus O(c) if mutuals are cached
+		if (!store.addFollower(uid1, uid2, followDate)) { // If uid1 already followed uid2 nothing has changed
+			return false;
+		}
+		cache.write(); // Results being worked out now might have missed the follow
+		cache.invalidate(new ResultCache.Query(FOLLOWERS, uid2, null));
+		cache.invalidate(new ResultCache.Query(FOLLOWS, uid1, null));
+		cache.invalidate(MUTUAL_FOLLOWERS, query -> inPair(query.number, uid2)); // uid2 has a new follower
+		cache.invalidate(MUTUAL_FOLLOWS, query -> inPair(query.number, uid1)); // uid1 follows someone new
+		cache.invalidate(new ResultCache.Query(TOP_USERS, 0, null));
+		return true;
+	}
+
+	// Method to check whether a user follows another, straight from the store
+	public boolean isAFollower(int uidFollower, int uidFollows) {
+		return store.isAFollower(uidFollower, uidFollows);
+	}
+
+	// Method to get the followers of a user
+	public int[] getFollowers(int uid) {
+		return cached(new ResultCache.Query(FOLLOWERS, uid, null), () -> store.getFollowers(uid));
+	}
+
+	// Method to get the users a user follows
+	public int[] getFollows(int uid) {
+		return cached(new ResultCache.Query(FOLLOWS, uid, null), () -> store.getFollows(uid));
+	}
+
+	// Method to get the users who follow both users
+	public int[] getMutualFollowers(int uid1, int uid2) {
+		return cached(new ResultCache.Query(MUTUAL_FOLLOWERS, pair(uid1, uid2), null), () -> store.getMutualFollowers(uid1, uid2));
+	}
+
+	// Method to get the users who both users follow
+	public int[] getMutualFollows(int uid1, int uid2) {
+		return cached(new ResultCache.Query(MUTUAL_FOLLOWS, pair(uid1, uid2), null), () -> store.getMutualFollows(uid1, uid2));
+	}
+
+	// Method to get the users with the most followers
+	public int[] getTopUsers() {
+		return cached(new ResultCache.Query(TOP_USERS, 0, null), store::getTopUsers);
+	}
+
+	// Method to get the number of followers of a user, straight from the store
+	public int getNumFollowers(int uid) {
+		return store.getNumFollowers(uid);
+	}
+
+	// Method to get the number of queries answered from the cache
+	public long getHits() {
+		return cache.getHits();
+	}
+
+	// Method to get the number of queries which had to go to the store
+	public long getMisses() {
+		return cache.getMisses();
+	}
+
+	// Method to get the number of results dropped to stay within the memory budget
+	public long getEvictions() {
+		return cache.getEvictions();
+	}
+
+	// Method to get roughly how much memory the cached results are using
+	public long getCachedBytes() {
+		return cache.getBytes();
+	}
+
+}
@@ -0,0 +1,115 @@
+/**
+* The CachedUserStore wraps any IUserStore and caches the results of its queries in a ResultCache, so a hot query is only worked out once until a new user changes it.
+* The results are kept in least recently used order within a memory budget, and each query's result is copied on the way out so callers can't change the cached copy.
+* Adding a user drops exactly the results it changes: every user, the users who joined before any later date, and the searches whose query is in their name.
+* A search matches a name the same way the store it wraps does, ignoring case if it is a UserStore which ignores case. When it isn't a UserStore there is no way
+* to know how it matches, so every cached search is dropped instead.
+* Finding the date queries and searches to drop looks through every cached result, so a new user costs O(c) for c cached results
+* whenever any of those kinds are cached, and O(1) when none are.
+* Getting a single user by id is already O(1) so it isn't cached.
+* Users have to be added through the CachedUserStore rather than the store it wraps, otherwise the cache won't know what to drop.
+* It can be shared between threads if the store it wraps can, e.g. a ConcurrentUserStore.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+
+import java.util.Date;
+import java.util.function.Supplier;
+
+public class CachedUserStore implements IUserStore {
+	private static final int USERS = 0; // The kinds of query which are cached
+	private static final int JOINED_BEFORE = 1;
+	private static final int CONTAINING = 2;
+
+	private final IUserStore store; // The store being cached
+	private final ResultCache cache; // The cached results
+	private final boolean knownCase; // Whether we know how the store matches names, i.e. it is a UserStore
+	private final boolean ignoreCase; // Whether the store's searches ignore case
+
+	// Constructor for CachedUserStore, caching up to roughly maxBytes of results
+	public CachedUserStore(IUserStore store, long maxBytes) {
+		this.store = store;
+		this.cache = new ResultCache(maxBytes, 3);
+		this.knownCase = store instanceof UserStore;
+		this.ignoreCase = knownCase && ((UserStore) store).isIgnoreCase();
+	}
+
+	// Method to get a query's result from the cache, or work it out and cache it
+	private User[] cached(ResultCache.Query query, Supplier<User[]> compute) { // O(k) to copy on a hit
+		ResultCache.Result hit = cache.get(query);
+		if (hit != null) { // If it is cached
+			User[] value = (User[]) hit.value;
+			return value == null ? null : value.clone(); // Hand out a copy, so the cached one can't be changed
+		}
+		long since = cache.getVersion(); // So it isn't cached if a user is added meanwhile
+		User[] value = compute.get();
+		cache.put(query, value == null ? null : value.clone(), ResultCache.weigh(value == null ? 0 : value.length), since); // Keep our own copy
+		return value;
+	}
+
+	// Method to add a user to the store, dropping the cached results it changes
+	public boolean addUser(User usr) { // O(1), plus O(c) if searches or date queries are cached
+		if (!store.addUser(usr)) { // If the user id was already in use nothing has changed
+			return false;
+		}
+		cache.write(); // Results being worked out now might have missed the user
+		long date = usr.getDateJoined().getTime();
+		String name = usr.getName();
+		cache.invalidate(new ResultCache.Query(USERS, 0, null));
+		cache.invalidate(JOINED_BEFORE, query -> date < query.number); // Only the dates after they joined
+		if (!knownCase) { // We can't tell which searches match, so drop them all
+			cache.invalidate(CONTAINING, query -> true);
+		} else if (ignoreCase) { // Compare them lower cased, like the store
+			String lower = name.toLowerCase();
+			cache.invalidate(CONTAINING, query -> lower.contains(query.text.toLowerCase()));
+		} else {
+			cache.invalidate(CONTAINING, query -> name.contains(query.text)); // Only the searches which match their name
+		}
+		return true;
+	}
+
+	// Method to get a user by their unique id, straight from the store
+	public User getUser(int uid) {
+		return store.getUser(uid);
+	}
+
+	// Method to get every user
+	public User[] getUsers() {
+		return cached(new ResultCache.Query(USERS, 0, null), store::getUsers);
+	}
+
+	// Method to get the users who joined before a date
+	public User[] getUsersJoinedBefore(Date dateBefore) {
+		return cached(new ResultCache.Query(JOINED_BEFORE, dateBefore.getTime(), null), () -> store.getUsersJoinedBefore(dateBefore));
+	}
+
+	// Method to get the users whose name contains a query
+	public User[] getUsersContaining(String query) {
+		return cached(new ResultCache.Query(CONTAINING, 0, query), () -> store.getUsersContaining(query));
+	}
+
+	// Method to get the number of queries answered from the cache
+	public long getHits() {
+		return cache.getHits();
+	}
+
+	// Method to get the number of queries which had to go to the store
+	public long getMisses() {
+		return cache.getMisses();
+	}
+
+	// Method to get the number of results dropped to stay within the memory budget
+	public long getEvictions() {
+		return cache.getEvictions();
+	}
+
+	// Method to get roughly how much memory the cached results are using
+	public long getCachedBytes() {
+		return cache.getBytes();
+	}
+
+}
@@ -0,0 +1,128 @@
+/**
+* The CachedWeetStore wraps any IWeetStore and caches the results of its queries in a ResultCache, so a hot query is only worked out once until a weet changes it.
+* The results are kept in least recently used order within a memory budget, and each query's result is copied on the way out so callers can't change the cached copy.
+* Adding a weet drops exactly the results it changes: every weet, the author's weets, the weets on that day, the weets before any later date,
+* the searches whose query is in the message, and the trending hashtags, which can change with any weet when trending uses a window of time.
+* Searches are matched against the message case sensitively, the same as every weet store here.
+* Finding the date queries and searches to drop looks through every cached result, so a new weet costs O(c) for c cached results
+* whenever any of those kinds are cached, and O(1) when none are.
+* The trending hashtags are dropped on every weet, so with a steady stream of weets trending is worked out again on nearly every read.
+* Getting a single weet by id is already O(1) so it isn't cached.
+* Weets have to be added through the CachedWeetStore rather than the store it wraps, otherwise the cache won't know what to drop.
+* It can be shared between threads if the store it wraps can, e.g. a ConcurrentWeetStore.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+import java.util.Date;
+import java.util.function.Supplier;
+
+public class CachedWeetStore implements IWeetStore {
+	private static final int WEETS = 0; // The kinds of query which are cached
+	private static final int BY_USER = 1;
+	private static final int ON = 2;
+	private static final int BEFORE = 3;
+	private static final int CONTAINING = 4;
+	private static final int TRENDING = 5;
+
+	private final IWeetStore store; // The store being cached
+	private final ResultCache cache; // The cached results
+
+	// Constructor for CachedWeetStore, caching up to roughly maxBytes of results
+	public CachedWeetStore(IWeetStore store, long maxBytes) {
+		this.store = store;
+		this.cache = new ResultCache(maxBytes, 6);
+	}
+
+	// Method to get a query's result from the cache, or work it out and cache it
+	private <T> T[] cached(ResultCache.Query query, Supplier<T[]> compute) { // O(k) to copy on a hit
+		ResultCache.Result hit = cache.get(query);
+		if (hit != null) { // If it is cached
+			@SuppressWarnings("unchecked")
+			T[] value = (T[]) hit.value;
+			return value == null ? null : value.clone(); // Hand out a copy, so the cached one can't be changed
+		}
+		long since = cache.getVersion(); // So it isn't cached if a weet is added meanwhile
+		T[] value = compute.get();
+		cache.put(query, value == null ? null : value.clone(), ResultCache.weigh(value == null ? 0 : value.length), since); // Keep our own copy
+		return value;
+	}
+
+	// Method to add a weet to the store, dropping the cached results it changes
+	public boolean addWeet(Weet weet) { // O(1), plus O(c) if searches or date queries are cached
+		if (!store.addWeet(weet)) { // If the weet id was already in use nothing has changed
+			return false;
+		}
+		cache.write(); // Results being worked out now might have missed the weet
+		long date = weet.getDateWeeted().getTime();
+		String message = weet.getMessage();
+		cache.invalidate(new ResultCache.Query(WEETS, 0, null));
+		cache.invalidate(new ResultCache.Query(BY_USER, weet.getUserId(), null));
+		cache.invalidate(new ResultCache.Query(ON, WeetStore.startOfDay(weet.getDateWeeted(), 0), null));
+		cache.invalidate(BEFORE, query -> date < query.number); // Only the dates after the weet
+		cache.invalidate(CONTAINING, query -> message.contains(query.text)); // Only the searches which match the weet
+		cache.invalidate(new ResultCache.Query(TRENDING, 0, null));
+		return true;
+	}
+
+	// Method to get a weet by its unique id, straight from the store
+	public Weet getWeet(int wid) {
+		return store.getWeet(wid);
+	}
+
+	// Method to get every weet
+	public Weet[] getWeets() {
+		return cached(new ResultCache.Query(WEETS, 0, null), store::getWeets);
+	}
+
+	// Method to get the weets made before a date
+	public Weet[] getWeetsBefore(Date dateBefore) {
+		return cached(new ResultCache.Query(BEFORE, dateBefore.getTime(), null), () -> store.getWeetsBefore(dateBefore));
+	}
+
+	// Method to get the weets made on a day, every time on the same day shares one result
+	public Weet[] getWeetsOn(Date dateOn) {
+		return cached(new ResultCache.Query(ON, WeetStore.startOfDay(dateOn, 0), null), () -> store.getWeetsOn(dateOn));
+	}
+
+	// Method to get the weets made by a user
+	public Weet[] getWeetsByUser(User usr) {
+		return cached(new ResultCache.Query(BY_USER, usr.getId(), null), () -> store.getWeetsByUser(usr));
+	}
+
+	// Method to get the weets which contain a query
+	public Weet[] getWeetsContaining(String query) {
+		return cached(new ResultCache.Query(CONTAINING, 0, query), () -> store.getWeetsContaining(query));
+	}
+
+	// Method to get the trending hashtags
+	public String[] getTrending() {
+		return cached(new ResultCache.Query(TRENDING, 0, null), store::getTrending);
+	}
+
+	// Method to get the number of queries answered from the cache
+	public long getHits() {
+		return cache.getHits();
+	}
+
+	// Method to get the number of queries which had to go to the store
+	public long getMisses() {
+		return cache.getMisses();
+	}
+
+	// Method to get the number of results dropped to stay within the memory budget
+	public long getEvictions() {
+		return cache.getEvictions();
+	}
+
+	// Method to get roughly how much memory the cached results are using
+	public long getCachedBytes() {
+		return cache.getBytes();
+	}
+
+}
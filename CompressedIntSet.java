@@ -0,0 +1,385 @@
+/**
+* The CompressedIntSet is a set of ints stored as a compressed bitmap, in the same way as a Roaring bitmap.
+* Each int is split into its high 16 bits, which pick a container, and its low 16 bits, which are stored in that container.
+* The containers are kept in an array sorted by their high bits, and each one uses whichever of three layouts is smallest:
+* - an array container holds up to 4096 sorted low values, 2 bytes each, for sparse containers
+* - a bitmap container holds 65536 bits in 1024 longs (8KB), for dense containers
+* - a run container holds sorted runs of consecutive values as a start and a length, for values which come in long runs
+* Adding switches an array container to a bitmap once it goes over 4096 values, and compact() turns containers into runs where that is smaller.
+* This means a set of user ids costs between 1 and 2 bytes an id instead of an object per id, checking for an id is O(log n) at worst,
+* and intersecting two sets is done container by container, with bitmaps being intersected 64 ids at a time with a bitwise AND.
+* The containers are ordered by the unsigned value of their high bits, so toArray starts from the containers of negative ints to give them out in the same order as Arrays.sort.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+
+class CompressedIntSet {
+	private static final int ARRAY_MAX = 4096; // The most values an array container holds before it becomes a bitmap
+
+	private char[] keys; // The high 16 bits of each container, sorted
+	private Container[] containers; // The containers, in the same order as keys
+	private int size; // The number of containers
+	private int cardinality; // The number of ints in the set
+
+	abstract static class Container { // The low 16 bits of the ints which share the same high 16 bits
+		abstract Container add(char low); // Add a value, returning the container to use from now on as it might change layout
+		abstract boolean contains(char low); // Check whether a value is in the container
+		abstract int cardinality(); // The number of values in the container
+		abstract int fill(int[] out, int offset, int high); // Write the ints in the container to out, returning the new offset
+		abstract BitmapContainer toBitmap(); // Get the container as a bitmap
+	}
+
+	static class ArrayContainer extends Container { // Sorted array of values, for sparse containers
+		char[] values; // The values, sorted
+		int count; // The number of values
+
+		ArrayContainer(int capacity) { // Constructor
+			this.values = new char[capacity];
+			this.count = 0;
+		}
+
+		Container add(char low) {
+			int index = Arrays.binarySearch(values, 0, count, low); // Look for the value
+			if (index >= 0) { // It is already here
+				return this;
+			}
+			if (count == ARRAY_MAX) { // Too many values, so switch to a bitmap
+				return toBitmap().add(low);
+			}
+			index = -index - 1; // Where the value should go
+			if (count == values.length) { // If the array is full
+				values = Arrays.copyOf(values, Math.min(Math.max(count * 2, 4), ARRAY_MAX)); // Double its size, up to the maximum
+			}
+			System.arraycopy(values, index, values, index + 1, count - index); // Shift the bigger values up by one
+			values[index] = low; // Put the value in its place
+			count++;
+			return this;
+		}
+
+		boolean contains(char low) {
+			return Arrays.binarySearch(values, 0, count, low) >= 0; // Binary search for the value
+		}
+
+		int cardinality() {
+			return count;
+		}
+
+		int fill(int[] out, int offset, int high) {
+			for (int i = 0; i < count; i++) {
+				out[offset++] = (high << 16) | values[i]; // Put the high bits back on
+			}
+			return offset;
+		}
+
+		BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer(); // Create an empty bitmap
+			for (int i = 0; i < count; i++) {
+				bitmap.words[values[i] >>> 6] |= 1L << values[i]; // Set the bit for each value
+			}
+			bitmap.count = count;
+			return bitmap;
+		}
+	}
+
+	static class BitmapContainer extends Container { // One bit for every possible value, for dense containers
+		long[] words; // 1024 longs of 64 bits
+		int count; // The number of bits set
+
+		BitmapContainer() { // Constructor
+			this.words = new long[1024];
+			this.count = 0;
+		}
+
+		Container add(char low) {
+			long bit = 1L << low; // The bit within its word, shifts only use the bottom 6 bits
+			if ((words[low >>> 6] & bit) == 0) { // If it isn't set already
+				words[low >>> 6] |= bit; // Set it
+				count++;
+			}
+			return this;
+		}
+
+		boolean contains(char low) {
+			return (words[low >>> 6] & (1L << low)) != 0; // Check the bit
+		}
+
+		int cardinality() {
+			return count;
+		}
+
+		int fill(int[] out, int offset, int high) {
+			for (int w = 0; w < words.length; w++) {
+				long word = words[w];
+				while (word != 0) { // Go through each set bit
+					out[offset++] = (high << 16) | (w << 6) | Long.numberOfTrailingZeros(word);
+					word &= word - 1; // Clear the lowest set bit
+				}
+			}
+			return offset;
+		}
+
+		BitmapContainer toBitmap() {
+			return this;
+		}
+
+		// Method to get the container as a sorted array, for when it has become sparse
+		ArrayContainer toArrayContainer() {
+			ArrayContainer array = new ArrayContainer(count);
+			int[] temp = new int[count];
+			fill(temp, 0, 0); // Get the values in order
+			for (int i = 0; i < count; i++) {
+				array.values[i] = (char) temp[i];
+			}
+			array.count = count;
+			return array;
+		}
+
+		// Method to count the runs of consecutive set bits
+		int countRuns() {
+			int runs = 0;
+			for (int w = 0; w < words.length; w++) {
+				long word = words[w];
+				runs += Long.bitCount(word & ~(word << 1)); // Bits which start a run within the word...
+				if ((word & 1) != 0 && w > 0 && (words[w - 1] >>> 63) != 0) { // ...apart from a run carried on from the word before
+					runs--;
+				}
+			}
+			return runs;
+		}
+	}
+
+	static class RunContainer extends Container { // Runs of consecutive values, for containers with long runs
+		char[] starts; // The first value of each run, sorted
+		char[] lengths; // The number of values in each run minus one
+		int runs; // The number of runs
+		int count; // The number of values
+
+		RunContainer(BitmapContainer bitmap, int runs) { // Constructor, building the runs from a bitmap
+			this.starts = new char[runs];
+			this.lengths = new char[runs];
+			this.runs = 0;
+			this.count = bitmap.count;
+			int value = 0;
+			while (value < 65536) { // Walk through the bits looking for runs
+				if (!bitmap.contains((char) value)) {
+					value++;
+					continue;
+				}
+				int start = value; // The start of a run
+				while (value < 65536 && bitmap.contains((char) value)) {
+					value++; // Find its end
+				}
+				starts[this.runs] = (char) start;
+				lengths[this.runs++] = (char) (value - start - 1);
+			}
+		}
+
+		Container add(char low) {
+			if (contains(low)) { // Nothing to do if it is already here
+				return this;
+			}
+			Container expanded = count < ARRAY_MAX ? toBitmap().toArrayContainer() : toBitmap(); // Go back to an array or bitmap to add to it
+			return expanded.add(low);
+		}
+
+		boolean contains(char low) {
+			int lo = 0; // Binary search for the last run starting at or before the value
+			int hi = runs - 1;
+			while (lo <= hi) {
+				int middle = (lo + hi) >>> 1;
+				if (starts[middle] <= low) {
+					lo = middle + 1;
+				} else {
+					hi = middle - 1;
+				}
+			}
+			return hi >= 0 && low - starts[hi] <= lengths[hi]; // Check the value is inside that run
+		}
+
+		int cardinality() {
+			return count;
+		}
+
+		int fill(int[] out, int offset, int high) {
+			for (int r = 0; r < runs; r++) {
+				for (int v = starts[r]; v <= starts[r] + lengths[r]; v++) {
+					out[offset++] = (high << 16) | v; // Write every value in the run
+				}
+			}
+			return offset;
+		}
+
+		BitmapContainer toBitmap() {
+			BitmapContainer bitmap = new BitmapContainer();
+			for (int r = 0; r < runs; r++) {
+				for (int v = starts[r]; v <= starts[r] + lengths[r]; v++) {
+					bitmap.words[v >>> 6] |= 1L << v; // Set the bit for each value in the run
+				}
+			}
+			bitmap.count = count;
+			return bitmap;
+		}
+	}
+
+	// Constructor for an empty set
+	public CompressedIntSet() {
+		this.keys = new char[4]; // Start small, the arrays grow as containers are added
+		this.containers = new Container[4];
+		this.size = 0;
+		this.cardinality = 0;
+	}
+
+	// Method to find the container for some high bits, or where it would go as (-index - 1)
+	private int find(char high) {
+		return Arrays.binarySearch(keys, 0, size, high);
+	}
+
+	// Method to add an int to the set, returns false if it was already there
+	public boolean add(int value) { // O(log c) to find the container, then O(log 4096) at worst
+		char high = (char) (value >>> 16); // Split the int
+		char low = (char) value;
+		int index = find(high); // Find its container
+		if (index < 0) { // If there isn't one yet
+			index = -index - 1; // Where it should go
+			if (size == keys.length) { // If the arrays are full
+				keys = Arrays.copyOf(keys, size * 2); // Double their size
+				containers = Arrays.copyOf(containers, size * 2);
+			}
+			System.arraycopy(keys, index, keys, index + 1, size - index); // Shift the later containers up
+			System.arraycopy(containers, index, containers, index + 1, size - index);
+			keys[index] = high;
+			containers[index] = new ArrayContainer(4); // New containers start as small arrays
+			size++;
+		}
+		Container container = containers[index];
+		int before = container.cardinality(); // Remember the size so we know if it was added
+		containers[index] = container.add(low); // Add the value, the container may have changed layout
+		if (containers[index].cardinality() == before) { // Nothing changed so it was already there
+			return false;
+		}
+		cardinality++;
+		return true;
+	}
+
+	// Method to check whether an int is in the set
+	public boolean contains(int value) {
+		int index = find((char) (value >>> 16)); // Find its container
+		return index >= 0 && containers[index].contains((char) value); // Check the container
+	}
+
+	// Method to get the number of ints in the set
+	public int cardinality() {
+		return cardinality;
+	}
+
+	// Method to get the ints in the set, sorted the same as Arrays.sort, so negative ints first
+	public int[] toArray() {
+		int[] out = new int[cardinality]; // Create an array of the exact size
+		int negative = find((char) 0x8000); // The containers of negative ints come last by their high bits, so start from there
+		negative = negative < 0 ? -negative - 1 : negative;
+		int offset = 0;
+		for (int n = 0; n < size; n++) {
+			int i = (negative + n) % size; // Then wrap round to the positive ones
+			offset = containers[i].fill(out, offset, keys[i]); // Each container writes its ints in order
+		}
+		return out;
+	}
+
+	// Method to change any container into a run container where that would be smaller
+	public void compact() {
+		for (int i = 0; i < size; i++) {
+			Container container = containers[i];
+			BitmapContainer bitmap = container.toBitmap(); // Counting runs is easiest on a bitmap
+			int runs = bitmap.countRuns();
+			int runBytes = 4 * runs; // Each run is a start and a length
+			int arrayBytes = container.cardinality() <= ARRAY_MAX ? 2 * container.cardinality() : Integer.MAX_VALUE; // Each value is 2 bytes
+			int bitmapBytes = 8192; // A bitmap is always 8KB
+			if (runBytes < arrayBytes && runBytes < bitmapBytes) {
+				containers[i] = new RunContainer(bitmap, runs); // Runs are smallest
+			} else if (arrayBytes < bitmapBytes) {
+				containers[i] = container instanceof ArrayContainer ? container : bitmap.toArrayContainer(); // An array is smallest
+			} else {
+				containers[i] = bitmap; // A bitmap is smallest
+			}
+		}
+	}
+
+	// Method to get the ints which are in both this set and another one
+	public CompressedIntSet and(CompressedIntSet other) { // Container by container, bitmaps a word at a time
+		CompressedIntSet result = new CompressedIntSet();
+		int i = 0;
+		int j = 0;
+		while (i < size && j < other.size) { // Walk both sorted lists of containers
+			if (keys[i] < other.keys[j]) {
+				i++; // Only in this set
+			} else if (keys[i] > other.keys[j]) {
+				j++; // Only in the other set
+			} else {
+				Container both = and(containers[i], other.containers[j]); // Intersect the two containers
+				if (both.cardinality() > 0) { // Keep it if it isn't empty
+					if (result.size == result.keys.length) {
+						result.keys = Arrays.copyOf(result.keys, result.size * 2);
+						result.containers = Arrays.copyOf(result.containers, result.size * 2);
+					}
+					result.keys[result.size] = keys[i];
+					result.containers[result.size++] = both;
+					result.cardinality += both.cardinality();
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	// Method to intersect two containers
+	private static Container and(Container a, Container b) {
+		if (a instanceof ArrayContainer && b instanceof ArrayContainer) { // Two arrays are merged
+			ArrayContainer x = (ArrayContainer) a;
+			ArrayContainer y = (ArrayContainer) b;
+			ArrayContainer result = new ArrayContainer(Math.max(1, Math.min(x.count, y.count)));
+			int i = 0;
+			int j = 0;
+			while (i < x.count && j < y.count) {
+				if (x.values[i] < y.values[j]) {
+					i++;
+				} else if (x.values[i] > y.values[j]) {
+					j++;
+				} else {
+					result.values[result.count++] = x.values[i]; // In both
+					i++;
+					j++;
+				}
+			}
+			return result;
+		}
+		if (b instanceof ArrayContainer) { // Make sure if there is an array it is a
+			Container temp = a;
+			a = b;
+			b = temp;
+		}
+		if (a instanceof ArrayContainer) { // An array is checked against the other container
+			ArrayContainer x = (ArrayContainer) a;
+			ArrayContainer result = new ArrayContainer(Math.max(1, x.count));
+			for (int i = 0; i < x.count; i++) {
+				if (b.contains(x.values[i])) {
+					result.values[result.count++] = x.values[i]; // In both
+				}
+			}
+			return result;
+		}
+		BitmapContainer x = a.toBitmap(); // Otherwise both become bitmaps and are ANDed a word at a time
+		BitmapContainer y = b.toBitmap();
+		BitmapContainer result = new BitmapContainer();
+		for (int w = 0; w < result.words.length; w++) {
+			result.words[w] = x.words[w] & y.words[w];
+			result.count += Long.bitCount(result.words[w]);
+		}
+		return result.count <= ARRAY_MAX ? result.toArrayContainer() : result; // Go back to an array if it is sparse
+	}
+
+}
@@ -0,0 +1,169 @@
+/**
+* The ConcurrentFollowerStore is a FollowerStore which can be shared between threads, e.g. by every request thread in the servlet container.
+* It uses a ReentrantReadWriteLock, so any number of threads can query at the same time and only adding a follower waits for everyone else.
+* Adding a follower updates the followers list of one user, the follows list of the other and the leaderboard all under the write lock,
+* so the follow is added to both sides at once and a reader never sees one side without the other.
+* Splitting the lock into stripes by user wouldn't give the same guarantee, as a follow touches two users' lists and the shared leaderboard.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Date;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ConcurrentFollowerStore extends FollowerStore {
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // Lock which lets many readers in at once, or a single writer
+
+	// Constructor for ConcurrentFollowerStore
+	public ConcurrentFollowerStore() {
+		this(false); // Use the normal follow lists by default
+	}
+
+	// Constructor, when compressed is true the follow lists use compressed bitmaps
+	public ConcurrentFollowerStore(boolean compressed) {
+		super(compressed); // Create the normal follower store
+	}
+
+	// Method to add a new Follower, to both sides at once
+	public boolean addFollower(int uid1, int uid2, Date followDate) {
+		lock.writeLock().lock(); // Wait until nobody is reading or writing
+		try {
+			return super.addFollower(uid1, uid2, followDate);
+		} finally {
+			lock.writeLock().unlock(); // Always let the lock go, even if something went wrong
+		}
+	}
+
+	// Method to get the followers of a specific user
+	public int[] getFollowers(int uid) {
+		lock.readLock().lock();
+		try {
+			return super.getFollowers(uid);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the users a specific user follows
+	public int[] getFollows(int uid) {
+		lock.readLock().lock();
+		try {
+			return super.getFollows(uid);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to check whether a user is a follower of another user
+	public boolean isAFollower(int uidFollower, int uidFollows) {
+		lock.readLock().lock();
+		try {
+			return super.isAFollower(uidFollower, uidFollows);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the number of followers of a specific user
+	public int getNumFollowers(int uid) {
+		lock.readLock().lock();
+		try {
+			return super.getNumFollowers(uid);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to see the same followers between two users
+	public int[] getMutualFollowers(int uid1, int uid2) {
+		lock.readLock().lock();
+		try {
+			return super.getMutualFollowers(uid1, uid2);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to see the same follows between two users
+	public int[] getMutualFollows(int uid1, int uid2) {
+		lock.readLock().lock();
+		try {
+			return super.getMutualFollows(uid1, uid2);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a list of users sorted by those who have the most followers at the top
+	public int[] getTopUsers() {
+		lock.readLock().lock();
+		try {
+			return super.getTopUsers();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the n users with the most followers
+	public int[] getTopUsers(int n) {
+		lock.readLock().lock();
+		try {
+			return super.getTopUsers(n);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of the users with the most followers, skipping the first offset places
+	public int[] getTopUsers(int offset, int limit) {
+		lock.readLock().lock();
+		try {
+			return super.getTopUsers(offset, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of the followers of a specific user
+	public Page<Integer> getFollowers(int uid, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getFollowers(uid, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of the users a specific user follows
+	public Page<Integer> getFollows(int uid, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getFollows(uid, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of the users with the most followers
+	public Page<Integer> getTopUsers(int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getTopUsers(limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to shrink the compressed follow lists down to as little memory as possible
+	public void compact() {
+		lock.writeLock().lock();
+		try {
+			super.compact();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/**
+* The ConcurrentUserStore is a UserStore which can be shared between threads, e.g. by every request thread in the servlet container.
+* It uses a ReentrantReadWriteLock, so any number of threads can read at the same time and only adding a user has to wait for everyone else.
+* Adding a user updates the hash map, the sorted snapshot and the name index together under the write lock, so readers never see one without the others.
+* The sorted query methods read from the SortedSnapshot, which is never changed once it has been made, so they always see every user added
+* before the query started and none added during it, and the streams it hands out stay consistent after the lock is released.
+* Splitting the lock into stripes wouldn't help here, as every user added goes into the same snapshot.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+public class ConcurrentUserStore extends UserStore {
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // Lock which lets many readers in at once, or a single writer
+
+	// Constructor for ConcurrentUserStore
+	public ConcurrentUserStore() {
+		super(); // Create the normal user store
+	}
+
+	// Constructor for ConcurrentUserStore, choosing whether searches ignore case
+	public ConcurrentUserStore(boolean ignoreCase) {
+		super(ignoreCase);
+	}
+
+	// Method to add a user to the data store
+	public boolean addUser(User usr) {
+		lock.writeLock().lock(); // Wait until nobody is reading or writing
+		try {
+			return super.addUser(usr);
+		} finally {
+			lock.writeLock().unlock(); // Always let the lock go, even if something went wrong
+		}
+	}
+
+	// Method to get a specified User Object by their unique ID
+	public User getUser(int uid) {
+		lock.readLock().lock(); // Wait until nobody is writing
+		try {
+			return super.getUser(uid);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the array of users
+	public User[] getUsers() {
+		lock.readLock().lock();
+		try {
+			return super.getUsers();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get every user as an unmodifiable list, the list never changes so it can be read without the lock
+	public List<User> getUsersView() {
+		lock.readLock().lock();
+		try {
+			return super.getUsersView();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the array of users containing a certain string
+	public User[] getUsersContaining(String query) {
+		lock.readLock().lock();
+		try {
+			return super.getUsersContaining(query);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the array of users before a certain date
+	public User[] getUsersJoinedBefore(Date dateBefore) {
+		lock.readLock().lock();
+		try {
+			return super.getUsersJoinedBefore(dateBefore);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to stream every user, the stream reads from a snapshot so it can be used without the lock
+	public Stream<User> streamUsers() {
+		lock.readLock().lock();
+		try {
+			return super.streamUsers();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to stream the users whose name contains a query, the matches from the index are found while holding the lock
+	public Stream<User> streamUsersContaining(String query) {
+		lock.readLock().lock();
+		try {
+			return super.streamUsersContaining(query);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to stream the users who joined before a certain date, from a snapshot
+	public Stream<User> streamUsersJoinedBefore(Date dateBefore) {
+		lock.readLock().lock();
+		try {
+			return super.streamUsersJoinedBefore(dateBefore);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of users
+	public Page<User> getUsers(int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getUsers(limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of users whose name contains a query
+	public Page<User> getUsersContaining(String query, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getUsersContaining(query, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of users who joined before a certain date
+	public Page<User> getUsersJoinedBefore(Date dateBefore, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getUsersJoinedBefore(dateBefore, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the array of users who joined between two dates
+	public User[] getUsersJoinedBetween(Date from, Date to) {
+		lock.readLock().lock();
+		try {
+			return super.getUsersJoinedBetween(from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to stream the users who joined between two dates, from a snapshot
+	public Stream<User> streamUsersJoinedBetween(Date from, Date to) {
+		lock.readLock().lock();
+		try {
+			return super.streamUsersJoinedBetween(from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of users who joined between two dates
+	public Page<User> getUsersJoinedBetween(Date from, Date to, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getUsersJoinedBetween(from, to, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+}
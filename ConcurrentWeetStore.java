@@ -0,0 +1,254 @@
+/**
+* The ConcurrentWeetStore is a WeetStore which can be shared between threads, e.g. by every request thread in the servlet container.
+* It uses a ReentrantReadWriteLock, so any number of threads can query at the same time and only adding a weet or changing how trending works waits for everyone else.
+* Adding a weet updates the hash map, the user's list, the date index, the search index, the hashtag counts and the snapshot together under the write lock,
+* so a query never sees a weet in one index and not another.
+* The skip list and the users' lists are changed in place, so streams over them are read into an array while holding the lock,
+* but streams of every weet come from the SortedSnapshot, which never changes, so those stay lazy.
+* The TimelineService reads users' lists directly, so it is given a copy of the part of each list it needs, made under the lock.
+* Splitting the lock into stripes wouldn't help here, as every weet goes into the same date index, search index and hashtag counts.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+public class ConcurrentWeetStore extends WeetStore {
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // Lock which lets many readers in at once, or a single writer
+
+	// Constructor for ConcurrentWeetStore
+	public ConcurrentWeetStore() {
+		super(); // Create the normal weet store
+	}
+
+	// Method to add a weet to the data store
+	public boolean addWeet(Weet weet) {
+		lock.writeLock().lock(); // Wait until nobody is reading or writing
+		try {
+			return super.addWeet(weet);
+		} finally {
+			lock.writeLock().unlock(); // Always let the lock go, even if something went wrong
+		}
+	}
+
+	// Method to get a weet by its unique id
+	public Weet getWeet(int wid) {
+		lock.readLock().lock();
+		try {
+			return super.getWeet(wid);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the array of weets
+	public Weet[] getWeets() {
+		lock.readLock().lock();
+		try {
+			return super.getWeets();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get every weet as an unmodifiable list, the list never changes so it can be read without the lock
+	public List<Weet> getWeetsView() {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsView();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to stream every weet, the stream reads from a snapshot so it can be used without the lock
+	public Stream<Weet> streamWeets() {
+		lock.readLock().lock();
+		try {
+			return super.streamWeets();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get an array of weets by a certain user
+	public Weet[] getWeetsByUser(User usr) {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsByUser(usr);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get an array of weets which contain a query
+	public Weet[] getWeetsContaining(String query) {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsContaining(query);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to stream the weets which contain a query, the matches are found while holding the lock
+	public Stream<Weet> streamWeetsContaining(String query) {
+		lock.readLock().lock();
+		try {
+			return super.streamWeetsContaining(query);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of weets which contain a query
+	public Page<Weet> getWeetsContaining(String query, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsContaining(query, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of every weet
+	public Page<Weet> getWeets(int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getWeets(limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of the weets made by a user
+	public Page<Weet> getWeetsByUser(User usr, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsByUser(usr, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get at most limit weets made on a certain date
+	public Weet[] getWeetsOn(Date dateOn, int limit) {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsOn(dateOn, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to stream the weets made on a certain date, read into an array while holding the lock as the skip list changes in place
+	public Stream<Weet> streamWeetsOn(Date dateOn) {
+		lock.readLock().lock();
+		try {
+			return Arrays.stream(super.getWeetsOn(dateOn, Integer.MAX_VALUE));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of the weets made on a certain date
+	public Page<Weet> getWeetsOn(Date dateOn, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsOn(dateOn, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get at most limit weets before a certain date
+	public Weet[] getWeetsBefore(Date dateBefore, int limit) {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsBefore(dateBefore, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to stream the weets before a certain date, read into an array while holding the lock as the skip list changes in place
+	public Stream<Weet> streamWeetsBefore(Date dateBefore) {
+		lock.readLock().lock();
+		try {
+			return Arrays.stream(super.getWeetsBefore(dateBefore, Integer.MAX_VALUE));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get a page of the weets before a certain date
+	public Page<Weet> getWeetsBefore(Date dateBefore, int limit, String cursor) {
+		lock.readLock().lock();
+		try {
+			return super.getWeetsBefore(dateBefore, limit, cursor);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to copy the most recent weets after the cursor from a user's list while holding the lock, as the list changes in place
+	WeetList weetList(int uid, Cursor after, int limit) { // O(log n + k)
+		lock.readLock().lock();
+		try {
+			WeetList list = super.weetList(uid, after, limit);
+			return list == null ? null : list.copy(after, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to get the trending topics
+	public String[] getTrending() {
+		lock.readLock().lock();
+		try {
+			return super.getTrending();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Method to make trending only count hashtags used in a sliding window
+	public void setTrendingWindow(long bucketMillis, int bucketCount, double decay) {
+		lock.writeLock().lock();
+		try {
+			super.setTrendingWindow(bucketMillis, bucketCount, decay);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Method to make trending use a fixed amount of memory
+	public void setApproximateTrending(double epsilon, double delta, int capacity) {
+		lock.writeLock().lock();
+		try {
+			super.setApproximateTrending(epsilon, delta, capacity);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Method to make trending count every hashtag ever used again
+	public void setTrendingAllTime() {
+		lock.writeLock().lock();
+		try {
+			super.setTrendingAllTime();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+}
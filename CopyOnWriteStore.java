@@ -0,0 +1,340 @@
+/**
+* The CopyOnWriteStore keeps the weets and followers for a read heavy workload, where readers never take a lock or wait for a writer.
+* It implements both IWeetStore and IFollowerStore, so it can be used in place of the WeetStore and the FollowerStore.
+* Everything readers can see is held in one immutable View: the weets by id and by date, each user's weets, each user's followers and follows,
+* the leaderboard of users by number of followers, and the trending hashtags.
+* A writer builds a new View from the current one and publishes it with a single write to an AtomicReference, so a reader sees either all of a write or none of it.
+* Readers take the current View once and can then make as many queries on it as they like, e.g. a user's weets, their followers and the trending hashtags,
+* and all of them come from the same point in time even if writers publish newer Views meanwhile.
+* The maps in a View are PersistentIntMaps, so a new View only copies the path to the keys that changed and shares everything else with the old one.
+* The weets by date, each user's weets and follow lists, and the leaderboard are PersistentDateIndexes, immutable treaps where adding copies only the path
+* to the new entry, so a write is O(log n) however many weets or followers the user already has, and nothing is ever copied in full.
+* Searching the weets in a View scans them, as there is no search index here.
+* Writers are rare, so they simply take turns on a lock, and the hashtag counts they need are kept by the writers in a HashtagCounter
+* with only the top 10 copied into each View.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CopyOnWriteStore implements IWeetStore, IFollowerStore {
+	private final AtomicReference<View> current; // The View readers see, swapped in whole by writers
+	private final Object writeLock = new Object(); // Writers take turns on this, readers never touch it
+	private final HashtagCounter trending; // The hashtag counts, only used by writers while holding the write lock
+
+	static final class FollowList { // Inner class for one follow list, never changed once made
+		private final PersistentDateIndex<Void> byDate; // The users, ordered by the date they followed and then by id
+		private final PersistentIntMap<Long> members; // Map from each user's id to the date they followed, for checking who is in the list
+
+		FollowList(PersistentDateIndex<Void> byDate, PersistentIntMap<Long> members) { // Constructor
+			this.byDate = byDate;
+			this.members = members;
+		}
+
+		// Method to check whether a user is in the list
+		boolean contains(int uid) { // O(log32 k)
+			return members.containsKey(uid);
+		}
+
+		// Method to get the number of users in the list
+		int size() {
+			return byDate.size();
+		}
+
+		// Method to get a new list with a user added, the user must not be in it already
+		FollowList with(int uid, long date) { // O(log k), copying only the paths to the new user
+			return new FollowList(byDate.add(date, uid, null), members.put(uid, date));
+		}
+
+		// Method to get the users' ids, most recent first
+		int[] newestFirst() { // O(k)
+			int[] result = new int[byDate.size()];
+			Iterator<PersistentDateIndex.Entry<Void>> entries = byDate.iterator();
+			for (int i = 0; i < result.length; i++) {
+				result[i] = entries.next().getId();
+			}
+			return result;
+		}
+	}
+
+	public static final class View { // Inner class for one point in time, nothing in it ever changes so it can be read from any thread without locking
+		private final PersistentIntMap<Weet> weets; // Map from the weet id to the weet
+		private final PersistentDateIndex<Weet> weetsByDate; // Every weet, ordered by date and then id
+		private final PersistentIntMap<PersistentDateIndex<Weet>> weetsByUser; // Map from a user's id to their weets
+		private final PersistentIntMap<FollowList> followers; // Map from a user's id to the users following them
+		private final PersistentIntMap<FollowList> follows; // Map from a user's id to the users they follow
+		private final PersistentDateIndex<Void> leaderboard; // Every user with a follower, ordered by their number of followers and then by ~id
+		private final String[] trending; // The top 10 hashtags at this point in time
+		private final long version; // The number of writes before this View was published
+
+		View(PersistentIntMap<Weet> weets, PersistentDateIndex<Weet> weetsByDate, PersistentIntMap<PersistentDateIndex<Weet>> weetsByUser,
+				PersistentIntMap<FollowList> followers, PersistentIntMap<FollowList> follows, PersistentDateIndex<Void> leaderboard,
+				String[] trending, long version) { // Constructor
+			this.weets = weets;
+			this.weetsByDate = weetsByDate;
+			this.weetsByUser = weetsByUser;
+			this.followers = followers;
+			this.follows = follows;
+			this.leaderboard = leaderboard;
+			this.trending = trending;
+			this.version = version;
+		}
+
+		// Method to get the number of writes before this View was published
+		public long getVersion() {
+			return version;
+		}
+
+		// Method to get a weet by its unique id, or null if there isn't one
+		public Weet getWeet(int wid) {
+			return weets.get(wid);
+		}
+
+		// Method to get the number of weets
+		public int getNumWeets() {
+			return weets.size();
+		}
+
+		// Method to read weets most recent first until one is older than a date, keeping those which contain the query, or all of them if it is null
+		private static Weet[] read(Iterator<PersistentDateIndex.Entry<Weet>> entries, long from, String query) { // O(k)
+			Weet[] result = new Weet[16]; // Start small, the array grows if we need more room
+			int count = 0;
+			while (entries.hasNext()) {
+				PersistentDateIndex.Entry<Weet> entry = entries.next();
+				if (entry.getDate() < from) { // Everything after this is older too
+					break;
+				}
+				if (query == null || entry.getValue().getMessage().contains(query)) {
+					if (count == result.length) { // If the array is full
+						result = Arrays.copyOf(result, count * 2); // Double its size
+					}
+					result[count++] = entry.getValue();
+				}
+			}
+			return Arrays.copyOf(result, count); // Return an array of the exact size
+		}
+
+		// Method to get every weet, most recent first
+		public Weet[] getWeets() { // O(n)
+			return read(weetsByDate.iterator(), Long.MIN_VALUE, null);
+		}
+
+		// Method to get the weets made before a date, most recent first
+		public Weet[] getWeetsBefore(Date dateBefore) { // O(log n + k)
+			return read(weetsByDate.olderThan(dateBefore.getTime(), Integer.MIN_VALUE), Long.MIN_VALUE, null);
+		}
+
+		// Method to get the weets made on the same day as a date, most recent first
+		public Weet[] getWeetsOn(Date dateOn) { // O(log n + k)
+			return read(weetsByDate.olderThan(WeetStore.startOfDay(dateOn, 1), Integer.MIN_VALUE), WeetStore.startOfDay(dateOn, 0), null); // From the start of the next day back to the start of the day
+		}
+
+		// Method to get the weets which contain a query, most recent first
+		public Weet[] getWeetsContaining(String query) { // O(n), there is no search index in a View
+			return read(weetsByDate.iterator(), Long.MIN_VALUE, query);
+		}
+
+		// Method to get the weets made by a user, most recent first
+		public Weet[] getWeetsByUser(int uid) { // O(k)
+			PersistentDateIndex<Weet> list = weetsByUser.get(uid); // Look up the user's weets
+			if (list == null) { // If they haven't made any
+				return new Weet[0];
+			}
+			return read(list.iterator(), Long.MIN_VALUE, null);
+		}
+
+		// Method to get the followers of a user, most recent first, or null if they have none
+		public int[] getFollowers(int uid) { // O(k)
+			FollowList list = followers.get(uid);
+			return list == null ? null : list.newestFirst();
+		}
+
+		// Method to get the users a user follows, most recent first, or null if they follow nobody
+		public int[] getFollows(int uid) { // O(k)
+			FollowList list = follows.get(uid);
+			return list == null ? null : list.newestFirst();
+		}
+
+		// Method to check whether a user is a follower of another user
+		public boolean isAFollower(int uidFollower, int uidFollows) { // O(1) effectively
+			FollowList list = followers.get(uidFollows);
+			return list != null && list.contains(uidFollower);
+		}
+
+		// Method to get the number of followers of a user
+		public int getNumFollowers(int uid) {
+			FollowList list = followers.get(uid);
+			return list == null ? 0 : list.size();
+		}
+
+		// Method to get the users who follow both users, sorted by id
+		public int[] getMutualFollowers(int uid1, int uid2) { // O(min(n, m)) plus sorting the mutuals
+			return mutual(followers.get(uid1), followers.get(uid2));
+		}
+
+		// Method to get the users who both users follow, sorted by id
+		public int[] getMutualFollows(int uid1, int uid2) { // O(min(n, m)) plus sorting the mutuals
+			return mutual(follows.get(uid1), follows.get(uid2));
+		}
+
+		// Method to check each user in the smaller list against the bigger one, then sort the mutuals by id, using the same helper as the FollowerStore
+		private static int[] mutual(FollowList first, FollowList second) {
+			if (first == null || second == null) { // If either user has nobody in their list
+				return new int[0];
+			}
+			FollowList small = first.size() <= second.size() ? first : second;
+			FollowList big = small == first ? second : first;
+			return FollowerStore.probe(small.newestFirst(), big::contains); // A fresh array, so probe can write over it
+		}
+
+		// Method to get every user with a follower, the most followers first and the smaller id first on a tie, the same as the FollowerStore
+		public int[] getTopUsers() { // O(n)
+			return FollowerStore.Leaderboard.read(leaderboard, 0, leaderboard.size());
+		}
+
+		// Method to get the top 10 hashtags at this point in time
+		public String[] getTrending() {
+			return trending.clone(); // Copy it so the caller can't change the View
+		}
+	}
+
+	// Constructor for CopyOnWriteStore
+	public CopyOnWriteStore() {
+		PersistentIntMap<Weet> noWeets = PersistentIntMap.empty(); // Everything starts empty
+		PersistentIntMap<PersistentDateIndex<Weet>> noLists = PersistentIntMap.empty();
+		PersistentIntMap<FollowList> noFollows = PersistentIntMap.empty();
+		this.trending = new HashtagCounter(10); // Keep track of the top 10
+		this.current = new AtomicReference<View>(new View(noWeets, PersistentDateIndex.<Weet>empty(), noLists, noFollows, noFollows,
+				PersistentDateIndex.<Void>empty(), trending.top(), 0));
+	}
+
+	// Method to get the current View, every query on it comes from the same point in time
+	public View snapshot() { // O(1), never blocks
+		return current.get();
+	}
+
+	// Method to add a weet, publishing a new View with it in
+	public boolean addWeet(Weet weet) { // O(log n), copying only the paths to the new weet
+		synchronized (writeLock) { // Writers take turns
+			View view = current.get(); // Build on the latest View
+			if (view.weets.containsKey(weet.getId())) { // If the weet id is already in use
+				return false; // Return false as nothing was added
+			}
+			long date = weet.getDateWeeted().getTime(); // Get the date as epoch millis
+			PersistentDateIndex<Weet> list = view.weetsByUser.get(weet.getUserId()); // Get the user's weets
+			if (list == null) { // If this is their first weet
+				list = PersistentDateIndex.empty();
+			}
+			WeetStore.countHashtags(weet.getMessage(), date, trending); // Count any hashtags in the message
+			current.set(new View(view.weets.put(weet.getId(), weet), view.weetsByDate.add(date, weet.getId(), weet),
+					view.weetsByUser.put(weet.getUserId(), list.add(date, weet.getId(), weet)), view.followers, view.follows,
+					view.leaderboard, trending.top(), view.version + 1)); // Publish the new View
+			return true; // Return true as the weet was added
+		}
+	}
+
+	// Method to add a follower to both sides at once, publishing a new View with it in
+	public boolean addFollower(int uid1, int uid2, Date followDate) { // O(log n + log k), copying only the paths to the new follow
+		synchronized (writeLock) { // Writers take turns
+			View view = current.get(); // Build on the latest View
+			FollowList followersOf2 = view.followers.get(uid2); // The users following uid2
+			FollowList followsOf1 = view.follows.get(uid1); // The users uid1 follows
+			if (followersOf2 != null && followersOf2.contains(uid1)) { // If uid1 already follows uid2
+				return false; // Return false as nothing was added
+			}
+			FollowList empty = new FollowList(PersistentDateIndex.<Void>empty(), PersistentIntMap.<Long>empty());
+			long date = followDate.getTime(); // Get the date as epoch millis
+			followersOf2 = (followersOf2 == null ? empty : followersOf2).with(uid1, date); // Add the follow to both lists
+			followsOf1 = (followsOf1 == null ? empty : followsOf1).with(uid2, date);
+			PersistentDateIndex<Void> leaderboard = FollowerStore.Leaderboard.promote(view.leaderboard, uid2, followersOf2.size()); // Move uid2 up the leaderboard
+			current.set(new View(view.weets, view.weetsByDate, view.weetsByUser, view.followers.put(uid2, followersOf2),
+					view.follows.put(uid1, followsOf1), leaderboard, view.trending, view.version + 1)); // Publish the new View
+			return true; // Return true as the follow was added
+		}
+	}
+
+	// Method to get a weet by its unique id from the current View
+	public Weet getWeet(int wid) {
+		return snapshot().getWeet(wid);
+	}
+
+	// Method to get every weet from the current View, most recent first
+	public Weet[] getWeets() {
+		return snapshot().getWeets();
+	}
+
+	// Method to get the weets made before a date from the current View, most recent first
+	public Weet[] getWeetsBefore(Date dateBefore) {
+		return snapshot().getWeetsBefore(dateBefore);
+	}
+
+	// Method to get the weets made on the same day as a date from the current View, most recent first
+	public Weet[] getWeetsOn(Date dateOn) {
+		return snapshot().getWeetsOn(dateOn);
+	}
+
+	// Method to get the weets made by a user from the current View, most recent first
+	public Weet[] getWeetsByUser(User usr) {
+		return snapshot().getWeetsByUser(usr.getId());
+	}
+
+	// Method to get the weets made by a user from the current View, most recent first
+	public Weet[] getWeetsByUser(int uid) {
+		return snapshot().getWeetsByUser(uid);
+	}
+
+	// Method to get the weets which contain a query from the current View, most recent first
+	public Weet[] getWeetsContaining(String query) {
+		return snapshot().getWeetsContaining(query);
+	}
+
+	// Method to get the top 10 hashtags from the current View
+	public String[] getTrending() {
+		return snapshot().getTrending();
+	}
+
+	// Method to check whether a user is a follower of another user in the current View
+	public boolean isAFollower(int uidFollower, int uidFollows) {
+		return snapshot().isAFollower(uidFollower, uidFollows);
+	}
+
+	// Method to get the followers of a user from the current View, most recent first
+	public int[] getFollowers(int uid) {
+		return snapshot().getFollowers(uid);
+	}
+
+	// Method to get the users a user follows from the current View, most recent first
+	public int[] getFollows(int uid) {
+		return snapshot().getFollows(uid);
+	}
+
+	// Method to get the users who follow both users from the current View, sorted by id
+	public int[] getMutualFollowers(int uid1, int uid2) {
+		return snapshot().getMutualFollowers(uid1, uid2);
+	}
+
+	// Method to get the users who both users follow from the current View, sorted by id
+	public int[] getMutualFollows(int uid1, int uid2) {
+		return snapshot().getMutualFollows(uid1, uid2);
+	}
+
+	// Method to get the users with the most followers from the current View
+	public int[] getTopUsers() {
+		return snapshot().getTopUsers();
+	}
+
+	// Method to get the number of followers of a user in the current View
+	public int getNumFollowers(int uid) {
+		return snapshot().getNumFollowers(uid);
+	}
+
+}
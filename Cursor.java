@@ -0,0 +1,85 @@
+/**
+* The Cursor turns the position of the last item on a page into an opaque string and back again, for the paged queries.
+* Date ordered queries use the date as epoch millis and the unique id of the last item, written in base 36 and joined by a '.',
+* so the next page starts with the first item strictly older than it, in the same order as the DateIndex.
+* The top users are ordered by a count which changes as followers are added, so their cursor is just the position of the next user.
+* A cursor that can't be read throws an IllegalArgumentException, the same as any other bad argument.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+class Cursor {
+	private static final int RADIX = 36; // Base 36 keeps the cursors short
+	private static final String OFFSET = "o"; // Prefix for a position cursor
+
+	private final long date; // The date of the last item as epoch millis
+	private final int id; // The unique id of the last item
+
+	// Constructor for Cursor
+	Cursor(long date, int id) {
+		this.date = date;
+		this.id = id;
+	}
+
+	// Method to get the date of the last item
+	public long getDate() {
+		return date;
+	}
+
+	// Method to get the unique id of the last item
+	public int getId() {
+		return id;
+	}
+
+	// Method to write the date and id of the last item on a page as a cursor
+	public static String encode(long date, int id) {
+		return Long.toString(date, RADIX) + "." + Integer.toString(id, RADIX);
+	}
+
+	// Method to read a cursor written by encode, or return null for the first page
+	public static Cursor decode(String cursor) {
+		if (cursor == null) { // No cursor means start from the beginning
+			return null;
+		}
+		int dot = cursor.indexOf('.'); // Find where the date ends and the id starts
+		try {
+			if (dot > 0) {
+				return new Cursor(Long.parseLong(cursor.substring(0, dot), RADIX), Integer.parseInt(cursor.substring(dot + 1), RADIX));
+			}
+		} catch (NumberFormatException e) { // Fall through to the error below
+		}
+		throw new IllegalArgumentException("Invalid cursor: " + cursor);
+	}
+
+	// Method to write the position of the next item as a cursor
+	public static String encodeOffset(int offset) {
+		return OFFSET + Integer.toString(offset, RADIX);
+	}
+
+	// Method to read a cursor written by encodeOffset, where no cursor means position 0
+	public static int decodeOffset(String cursor) {
+		if (cursor == null) { // No cursor means start from the beginning
+			return 0;
+		}
+		try {
+			if (cursor.startsWith(OFFSET)) {
+				int offset = Integer.parseInt(cursor.substring(OFFSET.length()), RADIX);
+				if (offset >= 0) {
+					return offset;
+				}
+			}
+		} catch (NumberFormatException e) { // Fall through to the error below
+		}
+		throw new IllegalArgumentException("Invalid cursor: " + cursor);
+	}
+
+	// Method to check that a page size makes sense
+	public static void checkLimit(int limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException("limit must be positive");
+		}
+	}
+
+}
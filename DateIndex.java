@@ -0,0 +1,173 @@
+/**
+* The DateIndex is a skip list which keeps values ordered by a date, most recent first, with ties broken by the unique id (highest first).
+* Each entry is given a random number of levels when it is added, every level skipping over roughly four times as many entries as the level below.
+* This means adding an entry and seeking to a date are both O(log n) on average, without needing to rebalance like a tree would.
+* Once we have seeked to a date the entries can be walked in order using next(), so range queries come out already sorted and can stop after a limit.
+* The dates are stored as epoch millis so comparing entries doesn't need to go through the Date objects.
+* The entries can also be read lazily through an Iterator or a Stream, which only walks as far as the caller reads.
+* Like the other data structures there is no remove operation, since its not required.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+class DateIndex<V> {
+	private static final int MAX_LEVEL = 32; // The most levels an entry can have, enough for far more than 2^32 entries
+
+	private Entry<V> head; // Sentinel entry before the most recent entry, it has every level
+	private int level; // The number of levels currently in use
+	private int count; // Variable for counting how many entries we currently have
+	private int seed; // State of the random number generator used to pick levels
+
+	static class Entry<V> { // Each date-id-value object inner class
+		private final long date; // The date as epoch millis
+		private final int id; // The unique id, used to break ties between equal dates
+		private final V value; // The value stored against the date
+		private final Entry<V>[] next; // The next entry on each level
+
+		@SuppressWarnings({"rawtypes", "unchecked"}) // Java can't make a generic array, so make a raw one
+		Entry(long date, int id, V value, int levels) { // Constructor for when a new entry is made
+			this.date = date;
+			this.id = id;
+			this.value = value;
+			this.next = new Entry[levels];
+		}
+
+		// Method to get the date as epoch millis
+		public long getDate() {
+			return this.date;
+		}
+
+		// Method to get the unique id
+		public int getId() {
+			return this.id;
+		}
+
+		// Method to get the value
+		public V getValue() {
+			return this.value;
+		}
+
+		// Method to get the next (older) entry
+		public Entry<V> getNext() {
+			return this.next[0];
+		}
+	}
+
+	// Constructor for DateIndex
+	public DateIndex() {
+		this.head = new Entry<V>(Long.MAX_VALUE, Integer.MAX_VALUE, null, MAX_LEVEL); // The head comes before every real entry
+		this.level = 1; // Start with a single level
+		this.count = 0; // Set the number of entries to 0
+		this.seed = 0x2545F491; // Any non zero seed will do
+	}
+
+	// Method to check whether entry a comes after the date and id given, i.e. is older
+	private static boolean isOlder(Entry<?> a, long date, int id) {
+		return a.date < date || (a.date == date && a.id < id); // Older date, or the same date and a lower id
+	}
+
+	// Method to pick how many levels a new entry gets
+	private int randomLevel() {
+		seed ^= seed << 13; // Xorshift random number generator
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		int levels = 1; // Every entry has at least one level
+		int bits = seed; // Use two bits at a time, so each extra level has a 1 in 4 chance
+		while ((bits & 3) == 0 && levels < MAX_LEVEL) {
+			levels++; // Add another level
+			bits >>>= 2; // Move on to the next two bits
+			if (bits == 0) { // Ran out of random bits
+				break;
+			}
+		}
+		return levels; // Return the number of levels
+	}
+
+	// Method to add a value into its place in the index
+	public void add(long date, int id, V value) { // O(log n) on average
+		@SuppressWarnings({"rawtypes", "unchecked"}) // Java can't make a generic array, so make a raw one
+		Entry<V>[] update = new Entry[MAX_LEVEL]; // The last entry on each level before the new one
+		Entry<V> current = head; // Start at the head
+		for (int i = level - 1; i >= 0; i--) { // Go down from the top level
+			while (current.next[i] != null && !isOlder(current.next[i], date, id)) { // Move right while the next entry is newer
+				current = current.next[i];
+			}
+			update[i] = current; // This is where the new entry will be linked in on this level
+		}
+		int levels = randomLevel(); // Pick the height of the new entry
+		if (levels > level) { // If it is taller than any entry so far
+			for (int i = level; i < levels; i++) {
+				update[i] = head; // The head comes before it on the new levels
+			}
+			level = levels; // Use the extra levels from now on
+		}
+		Entry<V> entry = new Entry<V>(date, id, value, levels); // Create the new entry
+		for (int i = 0; i < levels; i++) { // Link it in on each of its levels
+			entry.next[i] = update[i].next[i];
+			update[i].next[i] = entry;
+		}
+		count++; // Increase the count
+	}
+
+	// Method to get the most recent entry, null if the index is empty
+	public Entry<V> first() {
+		return head.next[0]; // The entry after the head
+	}
+
+	// Method to get the first entry which is older than the date and id given, null if there is none
+	public Entry<V> seekBefore(long date, int id) { // O(log n) on average
+		Entry<V> current = head; // Start at the head
+		for (int i = level - 1; i >= 0; i--) { // Go down from the top level
+			while (current.next[i] != null && !isOlder(current.next[i], date, id)) { // Move right while the next entry isn't older
+				current = current.next[i];
+			}
+		}
+		return current.next[0]; // The entry after where we stopped is the first older one
+	}
+
+	// Method to get the first entry after the last item of a page, or the most recent entry if there is no cursor
+	public Entry<V> after(Cursor cursor) { // O(log n) on average
+		return cursor == null ? first() : seekBefore(cursor.getDate(), cursor.getId()); // The entry after the cursor is the first one older than it
+	}
+
+	// Method to lazily walk the values from an entry until they are older than a date, most recent first
+	public Iterator<V> iterator(final Entry<V> start, final long oldest) {
+		return new Iterator<V>() { // Nothing is copied, each value is found when it is asked for
+			private Entry<V> next = start; // The next entry to return
+
+			public boolean hasNext() {
+				return next != null && next.date >= oldest; // Stop once we pass the oldest date
+			}
+
+			public V next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				V value = next.value;
+				next = next.next[0]; // Move on to the next entry
+				return value;
+			}
+		};
+	}
+
+	// Method to lazily stream the values from an entry until they are older than a date, most recent first
+	public Stream<V> stream(Entry<V> start, long oldest) {
+		Spliterator<V> spliterator = Spliterators.spliteratorUnknownSize(iterator(start, oldest), Spliterator.ORDERED | Spliterator.NONNULL); // The size isn't known without walking
+		return StreamSupport.stream(spliterator, false);
+	}
+
+	// Get the current number of entries
+	public int size() {
+		return count; // Return the count variable as that keeps count of the number of entries
+	}
+
+}
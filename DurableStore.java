@@ -0,0 +1,314 @@
+/**
+* The DurableStore keeps a UserStore, a WeetStore and a FollowerStore on disk, so they come back as they were after a restart or a crash.
+* Every user, weet and follow added through it is appended to a WriteAheadLog and only then applied to its store, and it is only acknowledged once the log is synced,
+* so nothing which has been acknowledged is lost, apart from the last few when syncing in batches or on an interval.
+* If appending fails the store isn't changed, so the store never has anything the log doesn't.
+* A change is applied before its sync finishes, so readers can see a change a moment before it is acknowledged, and a power cut in that moment loses it,
+* in the same way as any change which hasn't been acknowledged yet.
+* Changes which don't change anything, e.g. a weet id which is already in use, are spotted before appending and aren't logged.
+* Now and then the log is compacted into a snapshot: every user, weet and follow is written to a new snapshot file, which is synced and then renamed over the old one
+* in one step, and the directory is synced so the rename is on disk before the log is emptied.
+* A crash part way through leaves either the old snapshot and the whole log, or the new one, never half of one.
+* Opening the store loads the snapshot and then replays the log on top of it, stopping at the first record which is cut short or fails its CRC,
+* which is where the crash was. Replaying something which is already in the snapshot does nothing, as the stores ignore ids they already have,
+* so a crash between writing the snapshot and emptying the log is also safe.
+* Records are a type byte followed by the fields of the user, weet or follow, with the dates as epoch millis and the text as UTF-8.
+* Reads go straight to the stores, e.g. getWeetStore().getWeetsContaining(query), but writes have to go through the DurableStore to be saved.
+* Writes can come from many threads: they are appended and applied one at a time, but they wait for the sync together, so one fsync covers them all.
+* The stores it makes itself are the Concurrent ones, so reads can run while a write is being applied. When plain stores are passed in instead,
+* reads mustn't run at the same time as writes unless the caller locks around them.
+* If writing to the disk fails the store should be closed and opened again, which brings it back to what was saved.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+
+public class DurableStore implements Closeable {
+	private static final int LOG_MAGIC = 0x57414C31; // "WAL1", at the start of the log
+	private static final int SNAPSHOT_MAGIC = 0x534E5031; // "SNP1", at the start of the snapshot
+	private static final byte USER = 1; // The types of record
+	private static final byte WEET = 2;
+	private static final byte FOLLOW = 3;
+
+	private final File logFile; // The log of changes since the snapshot
+	private final File snapshotFile; // The snapshot
+	private final File tempFile; // Where a new snapshot is written before it replaces the old one
+	private final UserStore userStore; // The users
+	private final WeetStore weetStore; // The weets
+	private final FollowerStore followerStore; // Who follows who
+	private final WriteAheadLog log; // The log, open for appending
+	private final Object writeLock = new Object(); // Writers take turns applying and appending, so the log is in the same order as the stores
+	private volatile long checkpointBytes; // Compact the log into a snapshot once it is longer than this, or 0 to only do it when asked
+
+	// Constructor for DurableStore, keeping new empty thread safe stores in the directory
+	public DurableStore(File directory) throws IOException {
+		this(directory, new ConcurrentUserStore(), new ConcurrentWeetStore(), new ConcurrentFollowerStore());
+	}
+
+	// Constructor for DurableStore, loading what was saved in the directory into the stores given, which should be empty
+	public DurableStore(File directory, UserStore userStore, WeetStore weetStore, FollowerStore followerStore) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) { // Make the directory if it isn't there
+			throw new IOException("Couldn't create " + directory);
+		}
+		this.logFile = new File(directory, "witter.log");
+		this.snapshotFile = new File(directory, "witter.snapshot");
+		this.tempFile = new File(directory, "witter.snapshot.tmp");
+		this.userStore = userStore;
+		this.weetStore = weetStore;
+		this.followerStore = followerStore;
+		this.checkpointBytes = 64L << 20; // 64MB of log by default
+		long length = WriteAheadLog.replay(snapshotFile, SNAPSHOT_MAGIC, this::apply); // Load the snapshot
+		if (snapshotFile.exists() && length != snapshotFile.length()) { // A snapshot is only renamed into place once it is complete, so it can't be cut short
+			throw new IOException(snapshotFile + " is damaged");
+		}
+		length = WriteAheadLog.replay(logFile, LOG_MAGIC, this::apply); // Then replay the changes since
+		this.log = new WriteAheadLog(logFile, LOG_MAGIC, length); // Carry on after the last good record
+	}
+
+	// Method to get the users, for reading
+	public UserStore getUserStore() {
+		return userStore;
+	}
+
+	// Method to get the weets, for reading
+	public WeetStore getWeetStore() {
+		return weetStore;
+	}
+
+	// Method to get who follows who, for reading
+	public FollowerStore getFollowerStore() {
+		return followerStore;
+	}
+
+	// Method to sync the log after every write before acknowledging it, which is the default
+	public void setSyncEveryWrite() {
+		log.setBatch(1);
+	}
+
+	// Method to sync the log once every batch of writes, so up to records - 1 acknowledged writes can be lost in a power cut
+	public void setSyncBatched(int records) {
+		log.setBatch(records);
+	}
+
+	// Method to sync the log on a background thread every so many milliseconds, so the writes in the last interval can be lost in a power cut
+	public void setSyncInterval(long millis) {
+		log.setInterval(millis);
+	}
+
+	// Method to compact the log into a snapshot whenever it gets longer than a number of bytes, or 0 to only do it when checkpoint is called
+	public void setCheckpointBytes(long bytes) {
+		if (bytes < 0) {
+			throw new IllegalArgumentException("bytes must not be negative");
+		}
+		checkpointBytes = bytes;
+	}
+
+	// Method to write a string as its length and its UTF-8 bytes
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	// Method to read a string written by writeString
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// Method to make the record for a user
+	private static byte[] record(User usr) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(USER);
+		out.writeInt(usr.getId());
+		out.writeLong(usr.getDateJoined().getTime());
+		writeString(out, usr.getName());
+		return bytes.toByteArray();
+	}
+
+	// Method to make the record for a weet
+	private static byte[] record(Weet weet) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(WEET);
+		out.writeInt(weet.getId());
+		out.writeInt(weet.getUserId());
+		out.writeLong(weet.getDateWeeted().getTime());
+		writeString(out, weet.getMessage());
+		return bytes.toByteArray();
+	}
+
+	// Method to make the record for a follow
+	private static byte[] record(int uid1, int uid2, long date) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(FOLLOW);
+		out.writeInt(uid1);
+		out.writeInt(uid2);
+		out.writeLong(date);
+		return bytes.toByteArray();
+	}
+
+	// Method to apply a record read back from the snapshot or the log to the stores
+	private void apply(byte[] record) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+		byte type = in.readByte();
+		if (type == USER) {
+			int id = in.readInt();
+			Date date = new Date(in.readLong());
+			userStore.addUser(new User(readString(in), id, date));
+		} else if (type == WEET) {
+			int id = in.readInt();
+			int uid = in.readInt();
+			Date date = new Date(in.readLong());
+			weetStore.addWeet(new Weet(id, uid, readString(in), date));
+		} else if (type == FOLLOW) {
+			followerStore.addFollower(in.readInt(), in.readInt(), new Date(in.readLong()));
+		} else { // The CRC was good, so this was written by something else
+			throw new IOException("Unknown record type " + type);
+		}
+	}
+
+	// Method to make sure a write is saved as the policy says, and compact the log if it has got too long
+	private void commit(long position) {
+		try {
+			log.commit(position); // Wait for the sync if there is one, along with any other writers
+			long limit = checkpointBytes;
+			if (limit > 0 && log.size() > limit) { // If the log has got too long
+				synchronized (writeLock) {
+					if (log.size() > limit) { // Unless another writer has just compacted it
+						checkpoint();
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Method to add a user and save it
+	public boolean addUser(User usr) {
+		long position;
+		synchronized (writeLock) { // Only writers change the stores, so nothing can change between the check and applying it
+			if (userStore.getUser(usr.getId()) != null) { // If the user id is already taken there is nothing to save
+				return false;
+			}
+			try {
+				position = log.append(record(usr)); // Log it first, so the store never has a change the log doesn't
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			userStore.addUser(usr);
+		}
+		commit(position);
+		return true;
+	}
+
+	// Method to add a weet and save it
+	public boolean addWeet(Weet weet) {
+		long position;
+		synchronized (writeLock) {
+			if (weetStore.getWeet(weet.getId()) != null) { // If the weet id is already in use there is nothing to save
+				return false;
+			}
+			try {
+				position = log.append(record(weet)); // Log it first, so the store never has a change the log doesn't
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			weetStore.addWeet(weet);
+		}
+		commit(position);
+		return true;
+	}
+
+	// Method to add a follower and save it
+	public boolean addFollower(int uid1, int uid2, Date followDate) {
+		long position;
+		synchronized (writeLock) {
+			if (followerStore.isAFollower(uid1, uid2)) { // If uid1 already followed uid2 there is nothing to save
+				return false;
+			}
+			try {
+				position = log.append(record(uid1, uid2, followDate.getTime())); // Log it first, so the store never has a change the log doesn't
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			followerStore.addFollower(uid1, uid2, followDate);
+		}
+		commit(position);
+		return true;
+	}
+
+	// Method to compact the log into a snapshot of everything in the stores, and then empty the log
+	public void checkpoint() throws IOException { // O(n) for n users, weets and follows, writers wait until it is done
+		synchronized (writeLock) {
+			try (FileOutputStream file = new FileOutputStream(tempFile)) {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+				out.writeInt(SNAPSHOT_MAGIC);
+				User[] users = userStore.getUsers(); // Most recent first, so write them backwards to replay in date order
+				for (int i = users.length - 1; i >= 0; i--) {
+					WriteAheadLog.writeFrame(out, record(users[i]));
+				}
+				Weet[] weets = weetStore.getWeets();
+				for (int i = weets.length - 1; i >= 0; i--) {
+					WriteAheadLog.writeFrame(out, record(weets[i]));
+				}
+				IOException[] failed = new IOException[1]; // The visitor can't throw, so remember the first failure
+				followerStore.forEachFollow((uid1, uid2, date) -> {
+					try {
+						if (failed[0] == null) {
+							WriteAheadLog.writeFrame(out, record(uid1, uid2, date));
+						}
+					} catch (IOException e) {
+						failed[0] = e;
+					}
+				});
+				if (failed[0] != null) {
+					throw failed[0];
+				}
+				out.flush();
+				file.getFD().sync(); // The snapshot must be on disk before it replaces the old one
+			}
+			Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); // Swap it in
+			WriteAheadLog.syncDirectory(snapshotFile.getAbsoluteFile().getParentFile()); // The rename must be on disk before the log is emptied, or a power cut could keep the old snapshot and lose the log
+			log.reset(); // Everything in the log is in the snapshot now
+		}
+	}
+
+	// Method to write a MappedSnapshot of the stores, with the writers waiting so it is of one moment
+	public void writeMappedSnapshot(File file) throws IOException { // O(n log n) for n users, weets and follows
+		synchronized (writeLock) {
+			MappedSnapshot.write(file, userStore, weetStore, followerStore);
+		}
+	}
+
+	// Method to sync anything not synced yet and close the log
+	public void close() throws IOException {
+		synchronized (writeLock) {
+			log.close();
+		}
+	}
+
+}
@@ -1,13 +1,26 @@
 /**
 * The FollowerStore is implemented by using two HashMaps which uses a Key-Value Pair. One Map contains the followers of each user and the other map contains the users each user follows
-* Each HashMap contains an Integer as a key which is the user's unique id, and the value is a linked list where each node in the linked list contains a user and the date they followed.
+* Each HashMap contains an Integer as a key which is the user's unique id, and the value is a follow list containing each user and the date they followed.
 * The reason behind this is so that instead of traversing the whole map for either followers or follows, each one can be done respectively.
 * My implementation of the HashMap sdoes not contain the remove operation, since its not required for it, but does have a put and get operation.
-* The put and get methods are just there to put and get the linked lists.
-* Using an initial capacity of 128 means that both hashmaps will be balanced as the user id's are modded after they are hashed.
-* Inserting a follower/follows requires one to check if there is a LinkedList which has the best case O(1) and worst case O(n) 
-* After which, inserting the data about the user, requires comparing therefore best case O(1) and worst case O(n).
-* This means the total worse case will be O(n) and best case would be O(1)
+* The put and get methods are just there to put and get the follow lists.
+* Both hashmaps are backed by the shared IntHashMap, which uses open addressing on primitive int keys and doubles its table as it fills up, so both stay balanced.
+* Inserting a follower/follows requires one to check if there is a FollowList which is O(1) on average 
+* Each FollowList has its own IntHashMap of members, so checking whether someone already follows is O(1) on average,
+* and a DateIndex skip list of the same UserFollow objects, so adding one in date order is O(log n) and getting them all in order is O(n).
+* This means adding a follower stays fast even for users with millions of followers
+* Mutual followers/follows are found by walking the smaller list once and checking each user against the bigger list's map, which is O(min(n, m)) on average,
+* and then only the r matches are sorted by user id, so they come back in the same order whichever mode the store is in, negative ids first
+* Stores which keep their lists sorted by id use intersectSorted instead, which merges them, or gallops through the bigger one when it is much bigger
+* The store can also be created in compressed mode, where each list is a CompressedFollowList keeping the ids in a CompressedIntSet (a Roaring style bitmap)
+* and the dates in a separate column, which is many times smaller than an object per follow, and mutuals become a bitwise AND of the two bitmaps
+* The columns are only appended to, so adding is O(1) in any order. Follows which arrive out of date order are sorted and merged in the next time the list
+* is read in order or compacted, so a bulk import in any order costs one sort rather than shifting the columns for every follow,
+* but a read straight after an out of order follow is O(n) to merge it in, rather than the O(log n) insert of the skip list in the normal mode
+* The users with followers are also kept in a leaderboard ordered by their number of followers and then by id, smaller first, so ties always come out the same way
+* whatever order the follows arrived in. It is a PersistentDateIndex keyed on the count and the flipped id, the same as the CopyOnWriteStore's, so moving a user up
+* is O(log n), and getting a page of the top users is O(log n + k) as the sizes in the tree skip straight to the first place, with no sorting.
+* Followers and follows can also be read a page at a time, seeking to the cursor from the last page in the skip list (or binary searching the compressed columns)
 * Hashing the unique Id means that there is a reduced chance of collisions
 * The reason hash maps were chosen were because there's no fixed size, therefore they are scalable
 * @author_name: Rushil Gala-Shah
@@ -19,16 +32,21 @@ package uk.ac.warwick.java.cs126.services;
 import uk.ac.warwick.java.cs126.models.Weet;
 import uk.ac.warwick.java.cs126.models.User;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
 
 public class FollowerStore implements IFollowerStore {
-	private HashMap<Integer,LinkedList> followersList; // HashMap containing the users following a user
-	private HashMap<Integer,LinkedList> followsList; // HashMap containing the users a user follows
+	private HashMap followersList; // HashMap containing the users following a user
+	private HashMap followsList; // HashMap containing the users a user follows
+	private Leaderboard leaderboard; // The users with followers, in order of how many followers they have
 	
 	class UserFollow { // Inner class UserFollow object containing the user's ID, the Date the follow happens and who they followed/are following.
 		private int uid; // The user's ID who is being stored
 		private Date dateFollowed; // The date on which the follow happened
-		private int owner; // The owner of the linked list of which this object resides in
+		private int owner; // The owner of the follow list of which this object resides in
 		
 		// Constructor for when a new instance of UserFollow is made
 		public UserFollow(int uid, Date dateFollowed, int owner) {
@@ -54,363 +72,377 @@ public class FollowerStore implements IFollowerStore {
 		
 	}
 
-	class LinkedList { // Inner class LinkedList to contain a sorted list of all the users a user follows or all the users that follow a user
-		private Node head; // head variable - the first element in the linked list object
-		private int count; // Count keeps track of the number of users in the list
-		
-		@SuppressWarnings("unchecked")
-		public LinkedList() { // Constructor
-			this.head = null; // Give head a null value since there's no users in here
-			this.count = 0; // Reset the number of follow(er)s to 0
-		}
-		
-		class Node { // Each UserFollow object stored within an inner class
-			UserFollow userFollow; // The UserFollow object
-			Node next; // The next Node in the list
-			
-			// Constructors
-			public Node(UserFollow userFollow, Node next) { // When we know which the next node is going to be
-				this.userFollow = userFollow;
-				this.next = next;
-			}
-			
-			public Node(UserFollow userFollow) { // When we know the node is going to be at the end of a list
-				this.userFollow = userFollow;
-				this.next = null;
-			}
-			
-			// Method to get the UserFollow object
-			public UserFollow getUserFollow() {
-				return this.userFollow;
-			}
-			
-			// Method to set the UserFollow object
-			public void setUserFollow(UserFollow userFollow) {
-				this.userFollow = userFollow;
-			}
-			
-			// Method to get the next Node
-			public Node getNext() {
-				return this.next;
-			}
-			
-			// Method to set the next Node
-			public void setNext(Node e) {
-				this.next = e;
-			}
-			
+	interface Follows { // Interface for the list of users a user follows or the users that follow a user, so the store can use either layout
+		boolean isEmpty(); // Check whether the list is empty
+		int getOwner(); // Get the user who owns the list
+		boolean add(int uid, Date dateFollowed); // Add a user, returning false if they are already in the list
+		int size(); // Get the number of users in the list
+		int[] getFollow(); // Get the users' ids, most recent first
+		boolean checkFollow(int uid); // Check whether a user is in the list
+		int after(Cursor cursor, int[] ids, long[] dates); // Fill the arrays with the users after the cursor, most recent first, returning how many there were
+	}
+	
+	interface FollowVisitor { // Interface for going through every follow, e.g. to save them
+		void visit(int uidFollower, int uidFollows, long dateFollowed); // Called once for each follow, with the date as epoch millis
+	}
+	
+	class FollowList implements Follows { // Inner class FollowList to contain all the users a user follows or all the users that follow a user, sorted by date
+		private int owner; // The user who owns the list
+		private IntHashMap<UserFollow> members; // Map from a user's id to their UserFollow object, so checking for a user is O(1)
+		private DateIndex<UserFollow> order; // Skip list of the UserFollow objects, most recent first, so adding in date order is O(log n)
+		
+		public FollowList(int owner) { // Constructor
+			this.owner = owner; // Remember who owns the list
+			this.members = new IntHashMap<UserFollow>(); // Create the map of members
+			this.order = new DateIndex<UserFollow>(); // Create the date ordered index
 		}
 		
 		// Method to check whether the list is empty
 		public boolean isEmpty() {
-			return (head == null); // Returns true if the list is empty, false if not
+			return members.size() == 0; // Returns true if the list is empty, false if not
 		}
 		
-		// Method to get the owner of the sorted linked list
+		// Method to get the owner of the list
 		public int getOwner() {
-			if (!isEmpty()) { // If the list is not empty
-				return head.getUserFollow().getOwner(); // Get the first elements userfollow object's owner
-			}
-			return 0; // Return 0 if we call this method and there is no owner/list is empty
+			return owner; // Return the owner
 		}
 		
-		// Method to add a new userFollow Object the linked list
-		public boolean add(UserFollow newUserFollow) {
-			Node newFollow = new Node(newUserFollow); // Create a new node, with next set to null
-			
-			if (isEmpty()) { // If the list is currently empty...
-				this.head = newFollow; // Set the head to this userFollow object
-				increaseCount(); // Increase the count as we have added a new follow
-				return true; // Return true as we have successfully added to the data store
-			} else {
-				// Head element contains something, therefore the list is not empty
-				// Perform a check to see if we already have this uid...
-				Node user = this.head;
-				while (user != null) { // Traverse through the elements
-					if (newUserFollow.getUid() == user.getUserFollow().getUid()) { // If we find a match
-						return false; // Then return false, as we already added this user follow
-					}
-					user = user.getNext(); // Get the next one, until we hit the end of the list
-				}
-				
-				// Loop through the userFollow objects until there is a date that is before than the one being added
-				Node before = null;
-				Node current = this.head;
-				for (; newUserFollow.getDateFollowed().before(current.getUserFollow().getDateFollowed()); before = current, current = current.getNext()) {
-					if (current.getNext() == null) { // If we reached the end before finding one before, this means this userfollow was one of the first to follow
-						current.setNext(newFollow); // Add the userfollow to the end of the list
-						increaseCount(); // Increase the count
-						return true; // Return true to indicate we have successfully added to the data store
-					}
-				}
-				if (before != null) { // If before isn't null, then we have are in the middle of the list somewhere
-					before.setNext(newFollow); // Set before's link as the userFollow
-					newFollow.setNext(current); // Set userfollow's link to current so we get before -> newFollow -> current
-				} else { // Before is null therefore the date is more recent than the current head
-					newFollow.setNext(this.head); // Set the current head as this object's next node
-					this.head = newFollow; // This userfollow is now the new head element
-				}
-				increaseCount(); // We've successfully added it & sorted the newFollow, so increase the count
-				return true; // Return true as we have successfully added to the data store
+		// Method to add a new userFollow Object the list
+		public boolean add(int uid, Date dateFollowed) { // O(1) on average to check for duplicates, O(log n) to add in date order
+			UserFollow newUserFollow = new UserFollow(uid, dateFollowed, owner); // Create a new UserFollow object for the list
+			if (!members.put(uid, newUserFollow)) { // Try to add the user to the map of members
+				return false; // Return false, as we already added this user follow
 			}
-		}
-		
-		// Method to increase the count, as count variable is private
-		private void increaseCount() {
-			count++; // Increases the count
+			order.add(newUserFollow.getDateFollowed().getTime(), newUserFollow.getUid(), newUserFollow); // Add it in its place in the date order
+			return true; // Return true as we have successfully added to the data store
 		}
 		
 		// Method to get the UserFollow object based on user id
-		public UserFollow get(int uid) {
-			Node current = head; // Set the head as a temp variable
-			while (current.getNext() != null) { // Traverse through the list
-				if (current.getUserFollow().getUid() == uid) { // If we find a match
-					return current.getUserFollow(); // Return the userfollow object
-				}
-				current = current.getNext(); // Get the next element in the list
-			}
-			return null; // If we didn't find any matches, return null
+		public UserFollow get(int uid) { // Average O(1)
+			return members.get(uid); // Returns null if we didn't find any matches
 		}
 		
 		// Method to get the size of the list i.e. The number of follow(er)s someome has
 		public int size() {
-			return count; // Return the count variable as its been keeping track everytime we added someone
+			return members.size(); // The map keeps count of the number of members
 		}
 		
 		// Method to return all the follow(er)s' unique id's
 		public int[] getFollow() {
 			int counter = 0; // Set counter to 0
 			int[] list = new int[size()]; // Set the size to the number of followers
-			Node current = head; // Set the head to a temp variable
-			
-			while (current != null) { // Until we hit a null point,
-				list[counter++] = current.getUserFollow().getUid(); // Add each user id to a list
-				current = current.getNext(); // Get the next element
+			for (DateIndex.Entry<UserFollow> current = order.first(); current != null; current = current.getNext()) { // Walk the date index
+				list[counter++] = current.getId(); // Add each user id to a list
 			}
 			return list; // Return the array - we don't need to sort as we sorted on insertion
 		}
 		
+		// Method to fill the arrays with the users who come after the cursor, most recent first
+		public int after(Cursor cursor, int[] ids, long[] dates) { // O(log n + k)
+			int count = 0; // The number of users so far
+			for (DateIndex.Entry<UserFollow> e = order.after(cursor); e != null && count < ids.length; e = e.getNext()) { // Walk the skip list from the cursor
+				ids[count] = e.getId(); // Copy the user id and date across
+				dates[count++] = e.getDate();
+			}
+			return count; // Return the number of users
+		}
+		
 		// Method to check if we have a follower
 		public boolean checkFollow(int uid) { 
-			return (get(uid)!=null); // Checks to see if we can use a get method and return a userfollow object which isn't null
+			return members.containsKey(uid); // Checks to see if the user is in the map of members
 		}
 		
 	}
 	
-	class HashMap<K,V> { // Inner class HashMap for ADT implmentation
-		private followEntry<K,V>[] table; // Array of Nodes which will contain the key (unique id) and value (the linkedlist object)
-		private int capacity = 128; // Initial Capacity of HashMap
-		private int count; // Variable for counting how many linkedlists we currently have
-		
-		class followEntry<K,V> { // Each Key-Value Pair object inner class
-			K key; // Key - the hashed value of the unique id
-			V value; // The linked list object
-			followEntry<K,V> next; // The next Key-Value Pair in the list
-			
-			// Constructor for when a new Key-Value Pair is initialized
-			public followEntry(K key, V value, followEntry next) {
-				this.key = key;
-				this.value = value;
-				this.next = next;
+	class CompressedFollowList implements Follows { // Inner class for a follow list which keeps the ids in a compressed bitmap, to save memory
+		private int owner; // The user who owns the list
+		private CompressedIntSet members; // Compressed bitmap of the users' ids, so checking for a user is fast and mutuals are a bitwise AND
+		private int[] ids; // Column of the users' ids, sorted by the date they followed and then by id, apart from any added out of order since the last read
+		private long[] dates; // Column of the dates they followed as epoch millis, in the same order as ids
+		private int count; // The number of users in the list
+		private int sorted; // The number of entries at the start of the columns which are in order, the rest are sorted when the list is next read in order
+		
+		public CompressedFollowList(int owner) { // Constructor
+			this.owner = owner; // Remember who owns the list
+			this.members = new CompressedIntSet(); // Create the bitmap
+			this.ids = new int[4]; // Start small, the columns grow as users are added
+			this.dates = new long[4];
+			this.count = 0; // Set the number of users to 0
+			this.sorted = 0;
+		}
+		
+		// Method to check whether the list is empty
+		public boolean isEmpty() {
+			return count == 0; // Returns true if the list is empty, false if not
+		}
+		
+		// Method to get the owner of the list
+		public int getOwner() {
+			return owner; // Return the owner
+		}
+		
+		// Method to add a user and the date they followed to the list
+		public boolean add(int uid, Date dateFollowed) { // O(1) apart from growing the columns, whatever order follows arrive in
+			if (!members.add(uid)) { // Try to add the user to the bitmap
+				return false; // Return false, as we already added this user follow
+			}
+			long date = dateFollowed.getTime(); // Get the date as epoch millis
+			if (count == ids.length) { // If the columns are full
+				ids = Arrays.copyOf(ids, count * 2); // Double their size
+				dates = Arrays.copyOf(dates, count * 2);
+			}
+			ids[count] = uid; // Put the entry on the end
+			dates[count] = date;
+			if (sorted == count && (count == 0 || dates[count - 1] < date || (dates[count - 1] == date && ids[count - 1] < uid))) { // If it comes after everything so far
+				sorted++; // The columns are still in order
+			}
+			count++; // Increase the count
+			return true; // Return true as we have successfully added to the data store
+		}
+		
+		// Method to put the columns back in order if follows were added out of order, synchronized as a ConcurrentFollowerStore lets several readers in at once
+		private synchronized void sort() { // O(k) to radix sort the k entries added out of order, then O(n) to merge them in
+			if (sorted == count) { // Nothing has been added out of order
+				return;
+			}
+			Sorting.sortOldestFirst(dates, ids, sorted, count); // Sort the entries added since the columns were last in order
+			int[] mergedIds = new int[ids.length]; // Then merge them with the ones which were already in order
+			long[] mergedDates = new long[dates.length];
+			for (int i = 0, j = sorted, k = 0; k < count; k++) {
+				if (j == count || (i < sorted && (dates[i] < dates[j] || (dates[i] == dates[j] && ids[i] < ids[j])))) { // Take the older entry
+					mergedIds[k] = ids[i];
+					mergedDates[k] = dates[i++];
+				} else {
+					mergedIds[k] = ids[j];
+					mergedDates[k] = dates[j++];
+				}
+			}
+			ids = mergedIds;
+			dates = mergedDates;
+			sorted = count; // Everything is in order again
+		}
+		
+		// Method to get the size of the list i.e. The number of follow(er)s someome has
+		public int size() {
+			return count; // Return the count
+		}
+		
+		// Method to return all the follow(er)s' unique id's
+		public int[] getFollow() {
+			sort(); // Make sure the columns are in order
+			int[] list = new int[count]; // Set the size to the number of followers
+			for (int i = 0; i < count; i++) {
+				list[i] = ids[count - 1 - i]; // Copy the ids across backwards so the most recent is first
+			}
+			return list; // Return the array - we don't need to sort as we sorted on insertion
+		}
+		
+		// Method to fill the arrays with the users who come after the cursor, most recent first
+		public int after(Cursor cursor, int[] ids, long[] dates) { // O(log n + k), once the columns are in order
+			sort(); // Make sure the columns are in order
+			int end = count; // The entries before end in the columns are older than the cursor
+			if (cursor != null) {
+				int lo = 0; // Binary search for the first entry which isn't older than the cursor
+				while (lo < end) {
+					int middle = (lo + end) >>> 1; // Get the middle index
+					if (this.dates[middle] < cursor.getDate() || (this.dates[middle] == cursor.getDate() && this.ids[middle] < cursor.getId())) { // If the middle entry is older
+						lo = middle + 1; // Search the upper half
+					} else {
+						end = middle; // Search the lower half
+					}
+				}
+			}
+			int length = Math.min(end, ids.length); // The number of users to copy
+			for (int i = 0; i < length; i++) {
+				ids[i] = this.ids[end - 1 - i]; // Copy them across backwards so the most recent is first
+				dates[i] = this.dates[end - 1 - i];
 			}
-			
+			return length; // Return the number of users
 		}
 		
-		@SuppressWarnings("unchecked")
-		public HashMap() { // Constructor for HashMap
-			this.table = new followEntry[capacity]; // Create the initial array of nodes using the capacity given
-			this.count = 0; // Set the number of linked lists to 0
+		// Method to check if we have a follower
+		public boolean checkFollow(int uid) {
+			return members.contains(uid); // Checks to see if the user is in the bitmap
 		}
 		
-		// Method to hash a key value
-		private int hash(K key){ // The hash is modded by the capacity so we can be certain there won't be an array out of bounds exception
-			return Math.abs(key.hashCode()) % capacity; // Return the positive value of the hash
+		// Method to shrink the list down to as little memory as possible, for after a bulk import
+		public void compact() {
+			members.compact(); // Use run containers where they are smaller
+			sort(); // Put the columns in order before trimming them
+			ids = Arrays.copyOf(ids, count); // Trim the columns to the exact size
+			dates = Arrays.copyOf(dates, count);
 		}
 		
-		// Method to increase the counter
-		private void increaseCount() {
-			count++; // Increases the variable count by 1
+	}
+	
+	class HashMap { // Inner class HashMap for ADT implmentation
+		private IntHashMap<Follows> table; // Open addressing map from the unique id (key) to the follow list object (value)
+		private boolean compressed; // Whether new follow lists use compressed bitmaps
+		
+		public HashMap(boolean compressed) { // Constructor for HashMap
+			this.table = new IntHashMap<Follows>(); // Create the table, it will resize itself as lists are added
+			this.compressed = compressed; // Remember which kind of follow list to create
 		}
 		
-		// Method to get the number linked lists
+		// Method to get the number follow lists
 		public int getSize() {
-			return count; // Returns the number of linked lists in the hash map
+			return table.size(); // Returns the number of follow lists in the hash map
 		}
 		
-		// Method to put a new linked list in the hash map
-		public boolean put(K key, V list, UserFollow newFollower) { // Worse case O(n), best case O(1)
-			if (key == null) {
-				return false; // No Key was supplied so return false
+		// Method to add a user to the follow list for a key, creating the list if there isn't one yet
+		public boolean put(int key, int uid, Date dateFollowed) { // Average O(1) to find the list
+			Follows list = table.get(key); // Get the follow list object from the key
+			if (list == null) { // If there are no follow lists for this key yet
+				list = compressed ? new CompressedFollowList(key) : new FollowList(key); // Create a new follow list owned by the key
+				table.put(key, list); // Store it in the table
 			}
-			
-			int location = hash(key); // Hash the key so we know the location to store the Key-Value Pair
-			
-			// Construct a new Key-Value Pair Object consisting of the key and value where the next object points to null
-			followEntry<K,V> newFollow = new followEntry<K,V>(key, list, null);
-
-			if (table[location] == null) { // If there are no linked lists who's hashed value locates here
-				table[location] = newFollow; // Add the Key-Value Pair Object to the first slot
-				increaseCount(); // Increase the counter for number of linked lists
-				return add(key,newFollower); // Add the user who follow into this linked list, and return true if successful
-			} else {
-				followEntry<K,V> current = table[location]; // Get the first Key-Value Pair from the current pointer in the array
-				while(current.next != null){ // Traverse through the keys
-					if(current.key.equals(key)) { // If the key we are trying to store is found in the data structure
-						return add(key,newFollower); // We already have the linked list here, so let's attempt to add the new user follow(er) to this list					
-					}
-					current = current.next; // Get the next element
+			return list.add(uid, dateFollowed); // Add the user who follow into this follow list, and return true if successful
+		}
+		
+		// Method to shrink every compressed follow list down to as little memory as possible
+		public void compact() {
+			for (int i = 0; i < table.capacity(); i++) { // Go through each slot
+				Follows list = table.valueAt(i);
+				if (list instanceof CompressedFollowList) { // Only compressed lists can be compacted
+					((CompressedFollowList) list).compact();
 				}
-				// Keep going until we reach the end of the list of keys
-				current.next = newFollow; // We are at the end of the list so assign the next space to this linked list (key-value pair)
-				increaseCount(); // Increase the counter for number of linked lists
-				return add(key,newFollower); // Add the user who follow into this linked list, and return true if successful
 			}
 		}
 		
-		// Method to get the linked list from the data store
-		public V get(K key) { // Worse case O(n), best case O(1)
-			int location = hash(key); // Hash the key value
-			if (table[location] == null) { // If the location in the array returns null, then there are no linked lists objects here
-				return null; // Return null as there are no linked lists objects here
-			} else {
-				followEntry<K,V> temp = table[location]; // Get the first key-value pair object and assign it to a temporary object
-				while(temp != null) { // Traverse through the keys
-					if (temp.key.equals(key)) { // If the key is the one we are looking for, then
-						return temp.value; // Return the linked list object
-					}
-					temp = temp.next; // Get the next key-value pair
-				} // Keep traversring until we get to a null object
-				return null; // Reached the end of the list, the linked list is not here so return null
+		// Method to go through every user in every list, with the key of the list first
+		public void forEach(FollowVisitor visitor) { // O(n) for n follows
+			for (int i = 0; i < table.capacity(); i++) { // Go through each slot
+				Follows list = table.valueAt(i);
+				if (list == null) { // Skip the empty slots
+					continue;
+				}
+				int[] ids = new int[list.size()]; // Read the whole list
+				long[] dates = new long[ids.length];
+				int count = list.after(null, ids, dates);
+				for (int j = count - 1; j >= 0; j--) { // Oldest first
+					visitor.visit(list.getOwner(), ids[j], dates[j]);
+				}
 			}
 		}
 		
-		// Method to add user follow object to the linked list
-		private boolean add(K key, UserFollow userFollow) {
-			LinkedList temp = (LinkedList) get(key); // Get the linked list object from the key
-			return temp.add(userFollow); // Attempt to use the add method in linkedlist class to add the user follow
+		// Method to get the follow list from the data store
+		public Follows get(int key) { // Average O(1)
+			return table.get(key); // Returns null if there is no list for this key
 		}
 		
 		// Method to get the size of a list
-		public int listSize(K key) {
-			LinkedList temp = (LinkedList) get(key); // Get the linked list object from the key
+		public int listSize(int key) {
+			Follows temp = get(key); // Get the follow list object from the key
 			if (temp == null) { // If the list cannot be found
 				return 0; // Return 0 as the size
 			}
-			return temp.size(); // Return the size of the list using the size method in the linked list class
+			return temp.size(); // Return the size of the list using the size method in the follow list class
 		}
 		
 		// Method to get the users of a specific user
-		public int[] getFollow(K key) {
-			LinkedList temp = (LinkedList) get(key); // Get the linked list object from the key
+		public int[] getFollow(int key) {
+			Follows temp = get(key); // Get the follow list object from the key
 			if (temp == null) { // If the list cannot be found
 				return null; // Return null
 			}
-			return temp.getFollow(); // Return the array containing the user id's using the getFollow method in the linked list class
+			return temp.getFollow(); // Return the array containing the user id's using the getFollow method in the follow list class
 		}
 		
 		// Method to check if a specific user is in a list
-		public boolean checkFollow(K key, int uid) {
-			LinkedList temp = (LinkedList) get(key); // Get the linked list object from the key
+		public boolean checkFollow(int key, int uid) {
+			Follows temp = get(key); // Get the follow list object from the key
 			if (temp == null) { // If there's no list
 				return false; // Return false
 			}
-			return temp.checkFollow(uid); // Return whether a user id is found in the list or not using checkFollow method in the linked list class
-		}
-		
-		// Method to get the top followers
-		public int[][] getTop() {
-			int maxSize = getSize(); // Get the total number of linked lists
-			int[][] topUsers = new int[maxSize][2]; // Create a new 2d array which will contain the user's id and the number of followers they have
-			int counter = 0; // Set the counter to 0
-			for (int i = 0; i < capacity; i++) { // Traverse through each bucket
-				if (table[i] != null) { // If the head element is null, then move to the next value of i
-					followEntry<K,V> temp = table[i]; // Get the first key-value pair object and assign it to a temporary object
-					while(temp != null) { // Traverse through the keys
-						LinkedList tempList = (LinkedList) temp.value; // Set the value as a tempory linked list
-						if (!tempList.isEmpty()) { // If the list is not empty, then 
-							topUsers[counter][0] = tempList.getOwner(); // Get the owner of the linked list
-							topUsers[counter][1] = tempList.size(); // Get the size of the linked list as that is the number of followers
-							counter++; // Increase the counter
-						}
-						temp = temp.next; // Get the next pair
-					}
-				}
-			}
-			return topUsers; // Return the unsorted array
+			return temp.checkFollow(uid); // Return whether a user id is found in the list or not using checkFollow method in the follow list class
 		}
 		
 	}
 	
-	// Sort method for the top followers method
-	public static void sort(int[][] usersArray, int low, int n) {
-		int lo = low; // Set the lowest index from the parameters
-		int hi = n; // Set the number of elements to the highet index
-		int middle = low + (n - low) / 2; // Get the middle element
-		if (usersArray == null || usersArray.length == 0) { // If the array is null, or the length is 0
-			return; // Return as there is nothing to sort now
-		}
-		if (low >= n) { // If the lowest index is greater than the number of elements, then
-			return; // Return as there is nothing to sort
-		}
-		int pivot = usersArray[middle][1]; // Place the pivot as the middle element of the array
-		while (lo <= hi) { // Whilst, lo is less than or equal to high
-			while (usersArray[lo][1] > pivot) { // While lower element is more than the pivot, then
-				lo++; // Increase the value && move to the next element
-			} // Do this until we get to an element which is less than the pivot
-			while (usersArray[hi][1] < pivot) { // While higher element is less than the pivot, then
-				hi--; // Decrease the hi value && go down to the next element
-			} // Do this until we get to an element which is more than the pivot
-			if (lo <= hi) { // If lo is still less than hi
-				// Swapping elements
-				int tempId = usersArray[lo][0]; // Assign the element at index lo to a temp value
-				int tempVal = usersArray[lo][1]; // Assign the element at index lo to a temp value
-				usersArray[lo][0] = usersArray[hi][0]; // Move the element at index hi to the lo index
-				usersArray[lo][1] = usersArray[hi][1]; // Move the element at index hi to the lo index
-				usersArray[hi][0] = tempId; // Move the temp value to the high index
-				usersArray[hi][1] = tempVal; // Move the temp value to the high index
-				lo++; // Increase the lo index
-				hi--; // Decrease the hi index
-			}
-		} // Keep doing this until lo > hi
-		// Recursively sort the two parts
-		if (low < hi) { // If the initial low index is still less than the hi index, then
-			sort(usersArray, low, hi); // Sort the lower side of the pivot
+	static final class Leaderboard { // Inner class which keeps every user with a follower in order of their number of followers, updated as followers are added
+		private PersistentDateIndex<Void> order; // The users keyed on their number of followers and then ~id, so reading it most recent first gives the most followers first
+		
+		public Leaderboard() { // Constructor
+			this.order = PersistentDateIndex.empty(); // Nobody has a follower yet
+		}
+		
+		// Method to give a user one more follower, moving them up the order
+		public void increment(int uid, int count) { // O(log n) on average, count is their new number of followers
+			order = promote(order, uid, count);
+		}
+		
+		// Method to get the users in places offset to offset + limit - 1, the most followers first
+		public int[] get(int offset, int limit) { // O(log n + limit), nothing has to be sorted
+			return read(order, offset, limit);
 		}
-		if (n > lo) { // If the initial high value is still greater than lo index, then
-			sort(usersArray, lo, n); // Sort the higher side of the pivot
+		
+		// Method to get the number of users with at least one follower
+		public int size() {
+			return order.size();
+		}
+		
+		// Method to move a user up an order by one follower, giving a new order, shared with the CopyOnWriteStore so both break ties the same way
+		static PersistentDateIndex<Void> promote(PersistentDateIndex<Void> order, int uid, int count) { // O(log n) on average
+			return order.remove(count - 1, ~uid).add(count, ~uid, null); // The id is flipped so the smaller id comes first on a tie
+		}
+		
+		// Method to read the users in places offset to offset + limit - 1 of an order, the most followers first and then the smaller id
+		static int[] read(PersistentDateIndex<Void> order, int offset, int limit) { // O(log n + limit)
+			if (offset < 0 || limit < 0) { // Check the page makes sense
+				throw new IllegalArgumentException("offset and limit must not be negative");
+			}
+			int from = Math.min(offset, order.size()); // Don't go past the end
+			int to = (int) Math.min((long) from + limit, order.size());
+			int[] users = new int[to - from]; // Create an array of the exact size
+			Iterator<PersistentDateIndex.Entry<Void>> entries = order.from(from); // Skip straight to the first place
+			for (int i = 0; i < users.length; i++) {
+				users[i] = ~entries.next().getId(); // Flip the id back
+			}
+			return users; // Return the array
 		}
+		
 	}
 	
 	// Constructor
 	public FollowerStore() {
-		followersList = new HashMap<Integer, LinkedList>(); // Create a new instance of the HashMap, the key being an Integer, and the value the LinkedList object
-		followsList = new HashMap<Integer, LinkedList>(); // Create a new instance of the HashMap, the key being an Integer, and the value the LinkedList object
+		this(false); // Use the normal follow lists by default
 	}
 	
-	// Method to count the number of non 0 objects
-	public int countNotNull(int[] array) {
-		int counter = 0; // Set the counter to 0
-		for (int i = 0; i < array.length; i++) { // Traverse through the specified array
-			if (array[i] != -1) { // If the element is found, then
-				counter++; // Increase the counter
-			}
-		}
-		return counter; // Return the number of non-0 objects
+	// Constructor, when compressed is true each follow list keeps its ids in a compressed bitmap with the dates in a separate column, to save memory
+	public FollowerStore(boolean compressed) {
+		followersList = new HashMap(compressed); // Create a new instance of the HashMap, the key being the unique id, and the value the follow list object
+		followsList = new HashMap(compressed); // Create a new instance of the HashMap, the key being the unique id, and the value the follow list object
+		leaderboard = new Leaderboard(); // Create the leaderboard, which is kept up to date as followers are added
+	}
+	
+	// Method to shrink the compressed follow lists down to as little memory as possible, useful after a bulk import
+	public void compact() {
+		followersList.compact(); // Compact both maps
+		followsList.compact();
 	}
 	
 	// Method to add a new Follower to followersList and a new Follows to followsList
 	public boolean addFollower(int uid1, int uid2, Date followDate) {
-		UserFollow newFollows = new UserFollow(uid2, followDate, uid1); // Create a new UserFollow object for followsList
-		UserFollow newFollower = new UserFollow(uid1, followDate, uid2); // Create a new UserFollow object for followersList
 		boolean checkFollowers = false; // Set the boolean check to false
 		boolean checkFollows = false; // Set the boolean check to false
-		LinkedList newFollowerList = new LinkedList(); // Create a new instance of the linked list which may be used in followers
-		LinkedList newFollowsList = new LinkedList(); // Create a new instance of the linked list which may be used in follows
-		checkFollowers = followersList.put(uid2,newFollowerList,newFollower); // Check if a linked list already exists && attempt to add a new follower
-		checkFollows = followsList.put(uid1,newFollowsList,newFollows); // Check if a linked list already exists && attempt to add a new follows
+		checkFollowers = followersList.put(uid2,uid1,followDate); // Create the follow list if needed && attempt to add a new follower
+		checkFollows = followsList.put(uid1,uid2,followDate); // Create the follow list if needed && attempt to add a new follows
+		if (checkFollowers) { // If uid2 has a new follower
+			leaderboard.increment(uid2, followersList.listSize(uid2)); // Move them up the leaderboard
+		}
 		return (checkFollows && checkFollowers); // Return whether adding a new Follow/Follower was successful or not
 	}
 	
+	// Method to go through every follow, each user's follows oldest first, for saving the store
+	void forEachFollow(FollowVisitor visitor) { // O(n) for n follows
+		followsList.forEach(visitor); // Each follow is in both maps, so only go through one of them
+	}
+	
+	// Method to go through every follow, each user's followers oldest first, for saving the store
+	void forEachFollower(FollowVisitor visitor) { // O(n) for n follows
+		followersList.forEach((owner, uid, date) -> visitor.visit(uid, owner, date)); // The key of each list is the user being followed
+	}
+	
 	// Method to get the followers of a specific user
 	public int[] getFollowers(int uid) {
 		int[] followers = followersList.getFollow(uid); // Call the method in the hash map to get the number of followers
@@ -439,60 +471,151 @@ public class FollowerStore implements IFollowerStore {
 		return followersList.listSize(uid); // Calls a method in the hashmap to return the size of a list
 	}
 	
-	// Method that takes two arrays and gets the common elements into another array
-	public int[] mutual(int[] uid1, int[] uid2) {
-		int length = Math.min(uid1.length, uid2.length); // Takes the smaller length, as that will be the greatest size
-		int[] mutual = new int[length]; // Create a new array using the length
-		int count = 0; // Set the counter to 0
-		for (int i = 0; i < uid1.length; i++) { // Go through the entire array
-			for (int j = 0; j < uid2.length; j++) { // Go through the entire array
-				if (uid2[j] == uid1[i]) { // Compare the two user ids,
-					mutual[count++] = uid2[i]; // If they match, add the user id to the new array and increase the counter
-				}
+	// Method that takes two ranges of ids sorted by id, read through a and b, and gets the ids in both, sorted by id
+	static int[] intersectSorted(IntUnaryOperator a, int aFrom, int aTo, IntUnaryOperator b, int bFrom, int bTo) { // O(n + m) merging, or O(n log(m / n)) galloping when one is much smaller
+		if (aTo - aFrom > bTo - bFrom) { // Make a the smaller range
+			IntUnaryOperator temp = a;
+			a = b;
+			b = temp;
+			int tempFrom = aFrom;
+			int tempTo = aTo;
+			aFrom = bFrom;
+			aTo = bTo;
+			bFrom = tempFrom;
+			bTo = tempTo;
+		}
+		boolean gallop = (long) (aTo - aFrom) * 16 < bTo - bFrom; // Gallop through b when it is much bigger than a
+		int[] mutual = new int[aTo - aFrom]; // There can't be more matches than ids in the smaller range
+		int count = 0;
+		for (int i = aFrom, j = bFrom; i < aTo && j < bTo; i++) { // Each id in a is looked for once
+			int value = a.applyAsInt(i);
+			j = gallop ? gallop(b, j, bTo, value) : advance(b, j, bTo, value); // Find the first id in b not smaller than it
+			if (j < bTo && b.applyAsInt(j) == value) { // If it is a match
+				mutual[count++] = value;
+			}
+		}
+		return count == mutual.length ? mutual : Arrays.copyOf(mutual, count); // Return the matches in an array of the exact size
+	}
+	
+	// Method to step through a sorted range from index from to the first id not smaller than target
+	private static int advance(IntUnaryOperator ids, int from, int to, int target) {
+		while (from < to && ids.applyAsInt(from) < target) {
+			from++; // Move on to the next id
+		}
+		return from;
+	}
+	
+	// Method to gallop through a sorted range from index from to the first id not smaller than target
+	private static int gallop(IntUnaryOperator ids, int from, int to, int target) {
+		int step = 1; // Double the step each time until we jump past the target
+		int hi = from; // The end of the range to binary search
+		while (hi < to && ids.applyAsInt(hi) < target) {
+			from = hi + 1; // Everything up to hi is smaller, so the answer is after it
+			hi += step; // Jump further
+			step <<= 1; // Double the step
+		}
+		hi = Math.min(hi, to); // Don't go off the end
+		while (from < hi) { // Binary search in the range we jumped into
+			int middle = (from + hi) >>> 1;
+			if (ids.applyAsInt(middle) < target) {
+				from = middle + 1;
+			} else {
+				hi = middle;
+			}
+		}
+		return from;
+	}
+	
+	// Method that keeps the ids in candidates which are also in another list, sorted by id, candidates is written over so it must be a copy
+	static int[] probe(int[] candidates, IntPredicate other) { // O(n) checks on average, plus O(r log r) to sort the r matches
+		int count = 0;
+		for (int i = 0; i < candidates.length; i++) { // Each id is checked once
+			if (other.test(candidates[i])) { // If the user is in both lists
+				candidates[count++] = candidates[i]; // Move it to the front
 			}
 		}
-		return mutual; // Return the array
+		Arrays.sort(candidates, 0, count); // Sort only the matches by id, so every store gives the same order
+		return count == candidates.length ? candidates : Arrays.copyOf(candidates, count); // Return the matches in an array of the exact size
+	}
+	
+	// Method that takes two follow lists and gets the users in both, sorted by id
+	public int[] mutual(Follows first, Follows second) {
+		if (first == null || second == null) { // If either user has nobody in their list
+			return new int[0]; // Then there can't be anyone in both
+		}
+		if (first instanceof CompressedFollowList && second instanceof CompressedFollowList) { // Two bitmaps are intersected with a bitwise AND
+			return ((CompressedFollowList) first).members.and(((CompressedFollowList) second).members).toArray(); // Already sorted by id
+		}
+		Follows small = first.size() <= second.size() ? first : second; // Otherwise walk the smaller list, O(min(n, m)) on average
+		Follows big = small == first ? second : first; // And look each user up in the bigger one
+		return probe(small.getFollow(), big::checkFollow); // getFollow gives us a new array, so it can be written over
 	}
 	
 	// Method to see the same followers between two users
 	public int[] getMutualFollowers(int uid1, int uid2) {
-		int firstSize = followersList.listSize(uid1); // Get the size of the list
-		int secondSize = followersList.listSize(uid2); // Get the size of the list
-		int[] firstUser = followersList.getFollow(uid1); // Get the followers of the user
-		int[] secondUser = followersList.getFollow(uid2); // Get the followers of the user
-		int[] mutualFollowers = mutual(firstUser, secondUser); // Use the mutual method to return the list of mutal user ids
-		int count = countNotNull(mutualFollowers); // Count the number of non null elements
-		int[] mutual = new int[count]; // Create a new array
-		for (int i = 0; i < count; i++) {
-			mutual[i] = mutualFollowers[i]; // Copy the non null elements to the new array
-		}
-		return mutual; // Return the array
+		return mutual(followersList.get(uid1), followersList.get(uid2)); // Intersect the two users' follower lists
 	}
 	
 	// Method to see a list of users that two users both follow
-	public int[] getMutualFollows(int uid1, int uid2) {		
-		int firstSize = followsList.listSize(uid1); // Get the size of the list
-		int secondSize = followsList.listSize(uid1); // Get the size of the list
-		int[] firstUser = followsList.getFollow(uid1); // Get the follows of the user
-		int[] secondUser = followsList.getFollow(uid2); // Get the follows of the user
-		int[] mutualFollows = mutual(firstUser, secondUser); // Use the mutual method to return the list of mutal user ids
-		int count = countNotNull(mutualFollows); // Count the number of non null elements
-		int[] mutual = new int[count]; // Create a new array
-		for (int i = 0; i < count; i++) {
-			mutual[i] = mutualFollows[i]; // Copy the non null elements to the new array
-		}
-		return mutual; // Return the array
+	public int[] getMutualFollows(int uid1, int uid2) {
+		return mutual(followsList.get(uid1), followsList.get(uid2)); // Intersect the two users' follows lists
 	}
 	
 	// Method to get a list of users sorted by those who have the most followers at the top
-	public int[] getTopUsers() {
-		int[][] topUsers = followersList.getTop(); // Use the method in the hash map class to get the array of all users and the number of followers they have
-		sort(topUsers, 0, topUsers.length - 1); // Sorting by number of followers - biggest number first
-		int[] sortedTopUsers = new int[topUsers.length]; // Create a new array to hold the sorted data
-		for (int i = 0; i < sortedTopUsers.length; i++) {
-			sortedTopUsers[i] = topUsers[i][0]; // Copy the sorted user id's into the new array
-		}
-		return sortedTopUsers; // Return the array
+	public int[] getTopUsers() { // O(n), the leaderboard is already in order
+		return leaderboard.get(0, leaderboard.size()); // Every user with a follower
+	}
+	
+	// Method to get the n users with the most followers, the most followers first
+	public int[] getTopUsers(int n) { // O(n)
+		return leaderboard.get(0, n); // The first n places
+	}
+	
+	// Method to get a page of the users with the most followers, skipping the first offset places
+	public int[] getTopUsers(int offset, int limit) { // O(log n + limit)
+		return leaderboard.get(offset, limit); // The places from offset onwards
 	}
 	
+	// Method to get one page of a follow list, most recent first
+	private Page<Integer> page(Follows list, int limit, String cursor) { // O(log n + k)
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		Cursor after = Cursor.decode(cursor); // Where the last page finished
+		if (list == null) { // If the user has nobody in their list
+			return new Page<Integer>(new Integer[0], null); // Return an empty page
+		}
+		int fetch = (int) Math.min((long) limit + 1, list.size()); // Fetch one more than a page, to see if there is another
+		int[] ids = new int[fetch];
+		long[] dates = new long[fetch];
+		int count = list.after(after, ids, dates); // Fill them in from the cursor
+		Integer[] items = new Integer[Math.min(count, limit)]; // The users on this page
+		for (int i = 0; i < items.length; i++) {
+			items[i] = ids[i];
+		}
+		String next = count > limit ? Cursor.encode(dates[limit - 1], ids[limit - 1]) : null; // If there was one more then there is another page
+		return new Page<Integer>(items, next);
+	}
+	
+	// Method to get a page of the followers of a specific user, most recent first
+	public Page<Integer> getFollowers(int uid, int limit, String cursor) { // O(log n + k)
+		return page(followersList.get(uid), limit, cursor); // Page through their followers list
+	}
+	
+	// Method to get a page of the users a specific user follows, most recent first
+	public Page<Integer> getFollows(int uid, int limit, String cursor) { // O(log n + k)
+		return page(followsList.get(uid), limit, cursor); // Page through their follows list
+	}
+	
+	// Method to get a page of the users with the most followers, where the cursor is the place the next page starts from
+	public Page<Integer> getTopUsers(int limit, String cursor) { // O(log n + k)
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		int offset = Cursor.decodeOffset(cursor); // The place to start from
+		int[] top = leaderboard.get(offset, limit); // Read the page from the leaderboard
+		Integer[] items = new Integer[top.length];
+		for (int i = 0; i < top.length; i++) {
+			items[i] = top[i];
+		}
+		boolean more = (long) offset + top.length < leaderboard.size(); // Whether there are more users after this page
+		return new Page<Integer>(items, more ? Cursor.encodeOffset(offset + top.length) : null);
+	}
+
 }
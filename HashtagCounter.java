@@ -0,0 +1,161 @@
+/**
+* The HashtagCounter keeps a running count of every hashtag as weets are added, along with the current top k hashtags, so trending never has to re-count.
+* The counts are kept in a HashMap keyed on the hashtag string, using open addressing in the same way as the IntHashMap.
+* The top k hashtags are kept in a min-heap ordered by count, so the least popular of the top k is always at the root.
+* Counts only ever go up by one, so when a hashtag in the heap is counted it only needs to sift down, and a hashtag outside the heap
+* can only get into the top k by overtaking the root, which it then replaces.
+* This means counting a hashtag is O(1) on average plus O(log k) for the heap, and getting the top k only depends on k, no matter how many weets there are.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+class HashtagCounter implements ITrendingCounter {
+	private static final float LOAD_FACTOR = 0.75f; // The fraction of slots that can be used before the table is resized
+
+	private Tag[] table; // Open addressing table of hashtags, a null slot is empty
+	private int count; // The number of different hashtags seen
+	private Tag[] heap; // Min-heap of the top k hashtags by count
+	private int heapSize; // The number of hashtags in the heap
+
+	static class Tag { // Each hashtag and its count
+		private final String name; // The hashtag, including the '#'
+		private int count; // The number of times it has been used
+		private int heapIndex; // Its position in the heap, or -1 if it isn't in the top k
+
+		Tag(String name) { // Constructor for when a hashtag is seen for the first time
+			this.name = name;
+			this.count = 0;
+			this.heapIndex = -1;
+		}
+	}
+
+	// Constructor for HashtagCounter which keeps track of the top k hashtags
+	public HashtagCounter(int k) {
+		this.table = new Tag[64]; // Start small, the table doubles as it fills up
+		this.count = 0; // Set the number of hashtags to 0
+		this.heap = new Tag[k]; // The heap never holds more than k hashtags
+		this.heapSize = 0; // The heap starts empty
+	}
+
+	// Method to find the slot for a hashtag, either where it is or the empty slot where it would go
+	private int slot(Tag[] tags, String name) {
+		int h = name.hashCode() * 0x9E3779B9; // Mix the hash code
+		int mask = tags.length - 1; // The table length is a power of two
+		int slot = (h ^ (h >>> 16)) & mask; // Fold the high bits in and mask it
+		while (tags[slot] != null && !tags[slot].name.equals(name)) { // Probe until we find the hashtag or an empty slot
+			slot = (slot + 1) & mask;
+		}
+		return slot; // Return the slot
+	}
+
+	// Method to get the number of times a hashtag has been used
+	public int count(String name) {
+		Tag tag = table[slot(table, name)]; // Look the hashtag up
+		return tag == null ? 0 : tag.count; // It hasn't been used if it isn't there
+	}
+
+	// Method to count one use of a hashtag, the date doesn't matter as every use is counted
+	public void add(String name, long date) {
+		add(name); // Count it
+	}
+
+	// Method to count one use of a hashtag
+	public void add(String name) { // O(1) on average plus O(log k)
+		int slot = slot(table, name); // Find the hashtag
+		Tag tag = table[slot]; // Get it from the table
+		if (tag == null) { // If it is the first time we've seen it
+			tag = new Tag(name); // Create it
+			table[slot] = tag; // Store it in the table
+			if (++count > table.length * LOAD_FACTOR) { // Increase the count and check the load factor
+				resize(); // Too full, so double the table
+			}
+		}
+		tag.count++; // Count this use
+		if (tag.heapIndex >= 0) { // If it is already in the top k
+			siftDown(tag.heapIndex); // Its count went up so it might need to move down the heap
+		} else if (heapSize < heap.length) { // If we don't have k hashtags yet
+			heap[heapSize] = tag; // Add it to the end of the heap
+			tag.heapIndex = heapSize++; // Remember where it is
+			siftUp(tag.heapIndex); // Move it up into place
+		} else if (heap.length > 0 && tag.count > heap[0].count) { // If it has overtaken the least popular of the top k
+			heap[0].heapIndex = -1; // The old root drops out of the top k
+			heap[0] = tag; // This hashtag takes its place
+			tag.heapIndex = 0; // Remember where it is
+			siftDown(0); // Move it down into place
+		}
+	}
+
+	// Method to double the size of the table and re-insert every hashtag
+	private void resize() {
+		Tag[] bigger = new Tag[table.length * 2]; // Create a table twice the size
+		for (int i = 0; i < table.length; i++) { // Go through the old table
+			if (table[i] != null) {
+				bigger[slot(bigger, table[i].name)] = table[i]; // Move the hashtag across
+			}
+		}
+		table = bigger; // Use the new table from now on
+	}
+
+	// Method to move a hashtag up the heap until its parent has a smaller count
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2; // Get the parent's index
+			if (heap[parent].count <= heap[i].count) { // If the parent is smaller we are done
+				break;
+			}
+			swap(i, parent); // Otherwise swap with the parent
+			i = parent; // And carry on from there
+		}
+	}
+
+	// Method to move a hashtag down the heap until both children have a larger count
+	private void siftDown(int i) {
+		while (true) {
+			int smallest = i; // Assume this hashtag is the smallest
+			int left = 2 * i + 1; // Index of the left child
+			int right = left + 1; // Index of the right child
+			if (left < heapSize && heap[left].count < heap[smallest].count) {
+				smallest = left; // The left child is smaller
+			}
+			if (right < heapSize && heap[right].count < heap[smallest].count) {
+				smallest = right; // The right child is smaller
+			}
+			if (smallest == i) { // If neither child is smaller we are done
+				break;
+			}
+			swap(i, smallest); // Otherwise swap with the smaller child
+			i = smallest; // And carry on from there
+		}
+	}
+
+	// Method to swap two hashtags in the heap
+	private void swap(int i, int j) {
+		Tag temp = heap[i]; // Swapping hashtags
+		heap[i] = heap[j];
+		heap[j] = temp;
+		heap[i].heapIndex = i; // Update where they are
+		heap[j].heapIndex = j;
+	}
+
+	// Method to get the top k hashtags, the most used first, with nulls on the end if there are fewer than k
+	public String[] top() { // Only depends on k, not the number of weets
+		Tag[] sorted = new Tag[heapSize]; // Copy the heap so it can be sorted
+		for (int i = 0; i < heapSize; i++) {
+			Tag tag = heap[i]; // Insertion sort, fine for the handful of hashtags in the heap
+			int j = i;
+			while (j > 0 && sorted[j - 1].count < tag.count) { // Move smaller counts to the right
+				sorted[j] = sorted[j - 1];
+				j--;
+			}
+			sorted[j] = tag; // Put the hashtag in its place
+		}
+		String[] top = new String[heap.length]; // The result always has k places
+		for (int i = 0; i < heapSize; i++) {
+			top[i] = sorted[i].name; // Copy the names across
+		}
+		return top; // Return the top k
+	}
+
+}
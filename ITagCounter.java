@@ -0,0 +1,15 @@
+/**
+* The ITagCounter is told about each hashtag WeetStore.countHashtags finds in a weet, along with the date of the weet.
+* The trending counters are ITagCounters, and anything else which needs the hashtags found in the same way, e.g. the AutocompleteService, can pass in its own.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+interface ITagCounter {
+
+	// Method to count one use of a hashtag in a weet made on the date given (as epoch millis)
+	void add(String tag, long date);
+
+}
@@ -0,0 +1,16 @@
+/**
+* The ITrendingCounter is the interface for the different ways the WeetStore can work out the trending hashtags.
+* The WeetStore tells the counter about every hashtag as weets are added, along with the date of the weet, through ITagCounter.add, and asks it for the top hashtags.
+* The default is the HashtagCounter which counts every hashtag ever used, and the other counters can be swapped in from the WeetStore.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+interface ITrendingCounter extends ITagCounter {
+
+	// Method to get the top hashtags, the most popular first, with nulls on the end if there aren't enough
+	String[] top();
+
+}
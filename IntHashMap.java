@@ -0,0 +1,128 @@
+/**
+* The IntHashMap is a HashMap keyed directly on primitive ints, which is shared by the UserStore, WeetStore and FollowerStore.
+* It uses open addressing with linear probing, so the keys and values live in two flat arrays and there are no entry objects and no Integer boxing.
+* The table capacity is always a power of two so a slot can be found by masking the mixed hash instead of using the modulus.
+* When the number of entries goes over the load factor the table is doubled and every entry is re-inserted, so probe sequences stay short.
+* This means inserting and searching are O(1) on average no matter how many users/weets are stored, with an amortised O(1) cost for resizing.
+* Like the old store HashMaps there is no remove operation, since its not required, which also means no tombstones are needed when probing.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+class IntHashMap<V> {
+	private static final int DEFAULT_CAPACITY = 16; // Initial capacity of the table, must be a power of two
+	private static final float LOAD_FACTOR = 0.75f; // The fraction of slots that can be used before the table is resized
+
+	private int[] keys; // Array of keys (the unique ids)
+	private Object[] values; // Array of values, a null value means the slot is empty
+	private int count; // Variable for counting how many entries we currently have
+	private int mask; // capacity - 1, used to turn a hash into a slot
+	private int threshold; // The number of entries at which we resize the table
+
+	// Constructor for IntHashMap using the default capacity
+	public IntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	// Constructor for IntHashMap when we roughly know how many entries there will be
+	public IntHashMap(int expectedSize) {
+		int capacity = DEFAULT_CAPACITY; // Start at the default capacity
+		while (capacity * LOAD_FACTOR < expectedSize) { // Keep doubling until the expected entries fit under the load factor
+			capacity <<= 1;
+		}
+		allocate(capacity); // Create the arrays
+	}
+
+	// Method to create empty arrays for a given capacity
+	private void allocate(int capacity) {
+		this.keys = new int[capacity]; // Create the key array
+		this.values = new Object[capacity]; // Create the value array
+		this.mask = capacity - 1; // Capacity is a power of two so this gives all the low bits
+		this.threshold = (int) (capacity * LOAD_FACTOR); // Work out when we next need to resize
+	}
+
+	// Method to hash a key value
+	private int hash(int key) { // Multiplying by the golden ratio spreads ids that only increment by 1 over the whole table
+		int h = key * 0x9E3779B9; // Mix the key
+		return (h ^ (h >>> 16)) & mask; // Fold the high bits in and mask so there won't be an array out of bounds exception
+	}
+
+	// Adding a value to the map, returns false if the key is already in use
+	public boolean put(int key, V value) { // Average O(1)
+		if (value == null) {
+			return false; // A null value can't be stored as null marks an empty slot
+		}
+		int slot = hash(key); // Hash the key so we know where to start probing
+		while (values[slot] != null) { // Probe until we find an empty slot
+			if (keys[slot] == key) { // If the key we are trying to store is already in the map
+				return false; // Return false as the key is not unique
+			}
+			slot = (slot + 1) & mask; // Move to the next slot, wrapping round to the start
+		}
+		keys[slot] = key; // Store the key in the empty slot
+		values[slot] = value; // Store the value next to it
+		if (++count > threshold) { // Increase the count and check the load factor
+			resize(); // Too full, so double the table
+		}
+		return true; // Return that the value was added successfully
+	}
+
+	// Retrieving a value from the map
+	@SuppressWarnings("unchecked")
+	public V get(int key) { // Average O(1)
+		int slot = hash(key); // Hash the key so we know where to start probing
+		while (values[slot] != null) { // Keep probing until we hit an empty slot
+			if (keys[slot] == key) { // If the key is the one we are looking for, then
+				return (V) values[slot]; // Return the value
+			}
+			slot = (slot + 1) & mask; // Move to the next slot
+		}
+		return null; // Reached an empty slot, so the key is not here
+	}
+
+	// Method to check whether a key is in the map
+	public boolean containsKey(int key) {
+		return get(key) != null; // Values are never null so a null means the key is missing
+	}
+
+	// Method to double the size of the table and re-insert every entry
+	private void resize() { // O(n), but only happens each time the size doubles
+		int[] oldKeys = keys; // Keep hold of the old keys
+		Object[] oldValues = values; // Keep hold of the old values
+		allocate(oldKeys.length << 1); // Create arrays twice the size
+		for (int i = 0; i < oldKeys.length; i++) { // Go through the old table
+			if (oldValues[i] != null) { // Skip the empty slots
+				int slot = hash(oldKeys[i]); // Find the new home of the key
+				while (values[slot] != null) { // No duplicates exist so just look for an empty slot
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i]; // Move the key across
+				values[slot] = oldValues[i]; // Move the value across
+			}
+		}
+	}
+
+	// Get the current number of entries
+	public int size() {
+		return count; // Return the count variable as that keeps count of the number of entries
+	}
+
+	// Get the number of slots, used with keyAt/valueAt to go through every entry
+	public int capacity() {
+		return values.length; // The length of the table
+	}
+
+	// Get the key stored in a slot, only meaningful when valueAt(slot) isn't null
+	public int keyAt(int slot) {
+		return keys[slot]; // Return the key
+	}
+
+	// Get the value stored in a slot, null if the slot is empty
+	@SuppressWarnings("unchecked")
+	public V valueAt(int slot) {
+		return (V) values[slot]; // Return the value
+	}
+
+}
@@ -0,0 +1,704 @@
+/**
+* The MappedSnapshot is a read only copy of the three stores in one binary file, which is memory mapped and queried where it is, so nothing is loaded or built at startup.
+* Everything is laid out in flat arrays of fixed width columns: the users and the weets each have an id and a date column, and the weets a user id column too, sorted most recent first
+* in the same order as the stores, and their names and messages are UTF-8 in one heap each, with an offset column saying where each one starts.
+* Looking up by id binary searches a column of ids sorted by id, next to a column of the row each id is in,
+* and the date queries binary search the date column, which is already in order, so they are a slice of the rows.
+* Each user's weets, followers and follows are prebuilt adjacency lists: a sorted column of user ids, a column of where each user's list starts,
+* and then all the lists one after another, most recent first, with a second copy of each list sorted by id, so checking a follow or finding mutual follows is a binary search.
+* The top users and the trending hashtags are saved as they were when the snapshot was written.
+* Searching the names or messages compares the UTF-8 bytes of the query with the heap directly, so only the matches are turned into objects.
+* The file is written to a temporary file first and then renamed into place, so a crash never leaves half a snapshot, and it starts with a magic number and a table
+* of where each array is, which is checked when it is opened. A single mapping is limited to 2GB, so a snapshot has to fit in that.
+* The Users, Weets and Followers views implement the store interfaces, so a restarted node can serve reads from them straight away, and adding to them isn't allowed.
+* Writing reads each store in turn, so nothing should be added to them meanwhile; DurableStore.writeMappedSnapshot holds off its writers while it does this.
+* The file is mapped read only and never changed, so the views can be shared between any number of threads without locking.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.function.IntUnaryOperator;
+
+public class MappedSnapshot {
+	private static final int MAGIC = 0x4D415031; // "MAP1", at the start of the file
+	private static final int VERSION = 1; // The version of the layout
+
+	private static final int USER_IDS = 0; // The arrays in the file, users most recent first
+	private static final int USER_DATES = 1;
+	private static final int USER_NAME_OFFSETS = 2; // Where each name starts in the heap, with one more for the end of the last
+	private static final int USER_NAMES = 3;
+	private static final int USER_ID_SORTED = 4; // The user ids sorted by id
+	private static final int USER_ID_ROWS = 5; // The row of each id in USER_ID_SORTED
+	private static final int WEET_IDS = 6; // Weets most recent first
+	private static final int WEET_UIDS = 7;
+	private static final int WEET_DATES = 8;
+	private static final int WEET_MESSAGE_OFFSETS = 9;
+	private static final int WEET_MESSAGES = 10;
+	private static final int WEET_ID_SORTED = 11;
+	private static final int WEET_ID_ROWS = 12;
+	private static final int BY_USER_KEYS = 13; // The users with weets, sorted by id
+	private static final int BY_USER_STARTS = 14; // Where each user's rows start, with one more for the end of the last
+	private static final int BY_USER_ROWS = 15; // The rows of each user's weets, most recent first
+	private static final int FOLLOWERS = 16; // The four arrays of the followers lists, in the order of the offsets below
+	private static final int FOLLOWS = 20; // The four arrays of the follows lists
+	private static final int TOP_USERS = 24; // The users with the most followers, the most first
+	private static final int TRENDING_OFFSETS = 25; // The trending hashtags, an empty one is a null
+	private static final int TRENDING = 26;
+	private static final int ARRAYS = 27; // The number of arrays
+
+	private static final int KEYS = 0; // The offsets of the arrays of an adjacency list from FOLLOWERS or FOLLOWS
+	private static final int STARTS = 1; // Where each user's list starts
+	private static final int IDS = 2; // The users in each list, most recent first
+	private static final int BY_ID = 3; // Each list again, sorted by id
+
+	private final MappedByteBuffer buffer; // The file
+	private final int[] offsets; // Where each array starts in the file
+	private final int[] lengths; // The number of elements in each array
+	private final Users users; // The read only views
+	private final Weets weets;
+	private final Followers followers;
+
+	static final class Edges { // Inner class for collecting the follows while writing, in the order the store gives them, which is each list oldest first
+		private int[] keys = new int[16]; // The owner of the list each follow is in
+		private int[] others = new int[16]; // The other user
+		private int count; // The number of follows
+
+		void add(int key, int other) {
+			if (count == keys.length) { // If the arrays are full
+				keys = Arrays.copyOf(keys, count * 2); // Double their size
+				others = Arrays.copyOf(others, count * 2);
+			}
+			keys[count] = key;
+			others[count] = other;
+			count++;
+		}
+	}
+
+	// Constructor for MappedSnapshot, mapping a file written by write
+	public MappedSnapshot(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) { // One mapping can't be bigger than this
+				throw new IOException(file + " is too big to map");
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // The mapping stays valid once the channel is closed
+		}
+		if (buffer.capacity() < headerBytes() || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != ARRAYS) { // Check it is a snapshot we can read
+			throw new IOException(file + " is not a snapshot this version can read");
+		}
+		offsets = new int[ARRAYS];
+		lengths = new int[ARRAYS];
+		for (int a = 0; a < ARRAYS; a++) { // Read the table of arrays
+			long offset = buffer.getLong(12 + a * 12);
+			int length = buffer.getInt(12 + a * 12 + 8);
+			if (offset < headerBytes() || length < 0 || offset + (long) length * width(a) > buffer.capacity()) { // Every array has to be inside the file
+				throw new IOException(file + " is damaged");
+			}
+			offsets[a] = (int) offset;
+			lengths[a] = length;
+		}
+		if (!valid()) { // The arrays are inside the file, but what is in them has to make sense too
+			throw new IOException(file + " is damaged");
+		}
+		users = new Users();
+		weets = new Weets();
+		followers = new Followers();
+	}
+
+	// Method to check the arrays fit together, so nothing read from them can point outside the file
+	private boolean valid() { // O(n), only the offset, start and row columns are read
+		int userCount = lengths[USER_IDS];
+		int weetCount = lengths[WEET_IDS];
+		boolean valid = lengths[USER_DATES] == userCount && lengths[USER_ID_SORTED] == userCount && lengths[USER_ID_ROWS] == userCount
+				&& lengths[WEET_UIDS] == weetCount && lengths[WEET_DATES] == weetCount && lengths[WEET_ID_SORTED] == weetCount
+				&& lengths[WEET_ID_ROWS] == weetCount && lengths[BY_USER_ROWS] == weetCount
+				&& starts(USER_NAME_OFFSETS, userCount + 1, USER_NAMES) && starts(WEET_MESSAGE_OFFSETS, weetCount + 1, WEET_MESSAGES)
+				&& lengths[TRENDING_OFFSETS] > 0 && starts(TRENDING_OFFSETS, lengths[TRENDING_OFFSETS], TRENDING)
+				&& starts(BY_USER_STARTS, lengths[BY_USER_KEYS] + 1, BY_USER_ROWS)
+				&& rows(USER_ID_ROWS, userCount) && rows(WEET_ID_ROWS, weetCount) && rows(BY_USER_ROWS, weetCount);
+		for (int base = FOLLOWERS; base <= FOLLOWS && valid; base += FOLLOWS - FOLLOWERS) { // Both adjacency lists
+			valid = lengths[base + BY_ID] == lengths[base + IDS] && starts(base + STARTS, lengths[base + KEYS] + 1, base + IDS);
+		}
+		return valid;
+	}
+
+	// Method to check an array of where things start has the right length, starts at 0, never goes down, and ends at the length of the array it points into
+	private boolean starts(int array, int expected, int into) {
+		if (lengths[array] != expected || intAt(array, 0) != 0 || intAt(array, expected - 1) != lengths[into]) {
+			return false;
+		}
+		for (int i = 1; i < expected; i++) {
+			if (intAt(array, i) < intAt(array, i - 1)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Method to check every row number in an array is a real row
+	private boolean rows(int array, int count) {
+		for (int i = 0; i < lengths[array]; i++) {
+			int row = intAt(array, i);
+			if (row < 0 || row >= count) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Method to get the size of the header, the magic number, version and number of arrays, then the offset and length of each array
+	private static int headerBytes() {
+		return 12 + ARRAYS * 12;
+	}
+
+	// Method to get the number of bytes in each element of an array
+	private static int width(int array) {
+		if (array == USER_DATES || array == WEET_DATES) {
+			return 8; // The dates are longs
+		}
+		if (array == USER_NAMES || array == WEET_MESSAGES || array == TRENDING) {
+			return 1; // The heaps are bytes
+		}
+		return 4; // Everything else is ints
+	}
+
+	// Method to get the read only view of the users
+	public IUserStore getUserStore() {
+		return users;
+	}
+
+	// Method to get the read only view of the weets
+	public IWeetStore getWeetStore() {
+		return weets;
+	}
+
+	// Method to get the read only view of the follows
+	public IFollowerStore getFollowerStore() {
+		return followers;
+	}
+
+	// Method to get an int from an array
+	private int intAt(int array, int i) {
+		return buffer.getInt(offsets[array] + (i << 2));
+	}
+
+	// Method to get a long from an array
+	private long longAt(int array, int i) {
+		return buffer.getLong(offsets[array] + (i << 3));
+	}
+
+	// Method to copy part of an int array out of the file
+	private int[] ints(int array, int from, int to) {
+		int[] result = new int[to - from];
+		for (int i = from; i < to; i++) {
+			result[i - from] = intAt(array, i);
+		}
+		return result;
+	}
+
+	// Method to get a string from a heap, using its offset array
+	private String string(int offsetArray, int heap, int i) {
+		int from = intAt(offsetArray, i);
+		byte[] bytes = new byte[intAt(offsetArray, i + 1) - from];
+		ByteBuffer view = buffer.duplicate(); // A view of our own, so setting the position doesn't affect other threads
+		view.position(offsets[heap] + from);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// Method to check whether a string in a heap contains the UTF-8 bytes of a query, without making the string
+	private boolean contains(int offsetArray, int heap, int i, byte[] query) { // O(m q) for a string of m bytes
+		int from = offsets[heap] + intAt(offsetArray, i);
+		int last = offsets[heap] + intAt(offsetArray, i + 1) - query.length; // The last place the query could start
+		for (int start = from; start <= last; start++) {
+			int j = 0;
+			while (j < query.length && buffer.get(start + j) == query[j]) {
+				j++;
+			}
+			if (j == query.length) { // Every byte matched
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Method to binary search a sorted int array for a value, returns its index or -1
+	private int find(int array, int from, int to, int value) { // O(log n)
+		int lo = from;
+		int hi = to;
+		while (lo < hi) {
+			int middle = (lo + hi) >>> 1;
+			int v = intAt(array, middle);
+			if (v < value) {
+				lo = middle + 1;
+			} else if (v > value) {
+				hi = middle;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	// Method to find the row of an id, using the id sorted array and its rows, or -1 if it isn't there
+	private int row(int sorted, int rows, int id) { // O(log n)
+		int i = find(sorted, 0, lengths[sorted], id);
+		return i < 0 ? -1 : intAt(rows, i);
+	}
+
+	// Method to find the first row, most recent first, whose date is before a date
+	private int firstBefore(int dates, long date) { // O(log n)
+		int lo = 0;
+		int hi = lengths[dates];
+		while (lo < hi) {
+			int middle = (lo + hi) >>> 1;
+			if (longAt(dates, middle) < date) { // If the middle row is before the date
+				hi = middle; // Search the lower half
+			} else {
+				lo = middle + 1; // Search the upper half
+			}
+		}
+		return lo;
+	}
+
+	// Method to make the user in a row
+	private User user(int row) {
+		return new User(string(USER_NAME_OFFSETS, USER_NAMES, row), intAt(USER_IDS, row), new Date(longAt(USER_DATES, row)));
+	}
+
+	// Method to make the weet in a row
+	private Weet weet(int row) {
+		return new Weet(intAt(WEET_IDS, row), intAt(WEET_UIDS, row), string(WEET_MESSAGE_OFFSETS, WEET_MESSAGES, row), new Date(longAt(WEET_DATES, row)));
+	}
+
+	public final class Users implements IUserStore { // Inner class for the read only view of the users
+
+		// Method to add a user, which isn't allowed
+		public boolean addUser(User usr) {
+			throw new UnsupportedOperationException("The snapshot is read only");
+		}
+
+		// Method to get a user by their unique id
+		public User getUser(int uid) { // O(log n)
+			int row = row(USER_ID_SORTED, USER_ID_ROWS, uid);
+			return row < 0 ? null : user(row);
+		}
+
+		// Method to get the users from one row up to another, most recent first
+		private User[] rows(int from, int to) {
+			User[] result = new User[Math.max(to - from, 0)];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = user(from + i);
+			}
+			return result;
+		}
+
+		// Method to get every user, most recent first
+		public User[] getUsers() { // O(n)
+			return rows(0, lengths[USER_IDS]);
+		}
+
+		// Method to get the users who joined before a date, most recent first
+		public User[] getUsersJoinedBefore(Date dateBefore) { // O(log n + k)
+			return rows(firstBefore(USER_DATES, dateBefore.getTime()), lengths[USER_IDS]);
+		}
+
+		// Method to get the users whose name contains a query, most recent first
+		public User[] getUsersContaining(String query) { // O(n) to check every name, but only the matches are made into users
+			byte[] bytes = query.getBytes(StandardCharsets.UTF_8);
+			User[] result = new User[16]; // Start small, the array grows if we need more room
+			int count = 0;
+			for (int row = 0; row < lengths[USER_IDS]; row++) {
+				if (contains(USER_NAME_OFFSETS, USER_NAMES, row, bytes)) {
+					if (count == result.length) { // If the array is full
+						result = Arrays.copyOf(result, count * 2); // Double its size
+					}
+					result[count++] = user(row);
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+	}
+
+	public final class Weets implements IWeetStore { // Inner class for the read only view of the weets
+
+		// Method to add a weet, which isn't allowed
+		public boolean addWeet(Weet weet) {
+			throw new UnsupportedOperationException("The snapshot is read only");
+		}
+
+		// Method to get a weet by its unique id
+		public Weet getWeet(int wid) { // O(log n)
+			int row = row(WEET_ID_SORTED, WEET_ID_ROWS, wid);
+			return row < 0 ? null : weet(row);
+		}
+
+		// Method to get the weets from one row up to another, most recent first
+		private Weet[] rows(int from, int to) {
+			Weet[] result = new Weet[Math.max(to - from, 0)];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = weet(from + i);
+			}
+			return result;
+		}
+
+		// Method to get every weet, most recent first
+		public Weet[] getWeets() { // O(n)
+			return rows(0, lengths[WEET_IDS]);
+		}
+
+		// Method to get the weets made before a date, most recent first
+		public Weet[] getWeetsBefore(Date dateBefore) { // O(log n + k)
+			return rows(firstBefore(WEET_DATES, dateBefore.getTime()), lengths[WEET_IDS]);
+		}
+
+		// Method to get the weets made on the same day as a date, most recent first
+		public Weet[] getWeetsOn(Date dateOn) { // O(log n + k)
+			return rows(firstBefore(WEET_DATES, WeetStore.startOfDay(dateOn, 1)), firstBefore(WEET_DATES, WeetStore.startOfDay(dateOn, 0))); // Between the start of the next day and the start of the day
+		}
+
+		// Method to get the weets made by a user, most recent first
+		public Weet[] getWeetsByUser(User usr) { // O(log u + k)
+			int i = find(BY_USER_KEYS, 0, lengths[BY_USER_KEYS], usr.getId()); // Find the user's list
+			if (i < 0) { // If they haven't made any weets
+				return new Weet[0];
+			}
+			int from = intAt(BY_USER_STARTS, i);
+			Weet[] result = new Weet[intAt(BY_USER_STARTS, i + 1) - from];
+			for (int j = 0; j < result.length; j++) {
+				result[j] = weet(intAt(BY_USER_ROWS, from + j));
+			}
+			return result;
+		}
+
+		// Method to get the weets which contain a query, most recent first
+		public Weet[] getWeetsContaining(String query) { // O(n) to check every message, but only the matches are made into weets
+			byte[] bytes = query.getBytes(StandardCharsets.UTF_8);
+			Weet[] result = new Weet[16]; // Start small, the array grows if we need more room
+			int count = 0;
+			for (int row = 0; row < lengths[WEET_IDS]; row++) {
+				if (contains(WEET_MESSAGE_OFFSETS, WEET_MESSAGES, row, bytes)) {
+					if (count == result.length) { // If the array is full
+						result = Arrays.copyOf(result, count * 2); // Double its size
+					}
+					result[count++] = weet(row);
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+
+		// Method to get the trending hashtags when the snapshot was written
+		public String[] getTrending() {
+			String[] result = new String[lengths[TRENDING_OFFSETS] - 1];
+			for (int i = 0; i < result.length; i++) {
+				String tag = string(TRENDING_OFFSETS, TRENDING, i);
+				result[i] = tag.isEmpty() ? null : tag; // An empty one was a null
+			}
+			return result;
+		}
+	}
+
+	public final class Followers implements IFollowerStore { // Inner class for the read only view of the follows
+
+		// Method to add a follower, which isn't allowed
+		public boolean addFollower(int uid1, int uid2, Date followDate) {
+			throw new UnsupportedOperationException("The snapshot is read only");
+		}
+
+		// Method to find a user's list in FOLLOWERS or FOLLOWS, or -1 if they haven't got one
+		private int list(int base, int uid) { // O(log u)
+			return find(base + KEYS, 0, lengths[base + KEYS], uid);
+		}
+
+		// Method to get the users in a list, most recent first, or null if there isn't one
+		private int[] ids(int base, int uid) { // O(log u + k)
+			int i = list(base, uid);
+			return i < 0 ? null : ints(base + IDS, intAt(base + STARTS, i), intAt(base + STARTS, i + 1));
+		}
+
+		// Method to get the users in both of two lists, sorted by id like the stores
+		private int[] mutual(int base, int uid1, int uid2) { // O(n + m), or O(n log(m / n)) when one list is much smaller
+			int i = list(base, uid1);
+			int j = list(base, uid2);
+			if (i < 0 || j < 0) { // If either user has nobody in their list
+				return new int[0]; // Then there can't be anyone in both
+			}
+			IntUnaryOperator byId = k -> intAt(base + BY_ID, k); // Both lists are read where they are in the file, already sorted by id
+			return FollowerStore.intersectSorted(byId, intAt(base + STARTS, i), intAt(base + STARTS, i + 1), byId, intAt(base + STARTS, j), intAt(base + STARTS, j + 1));
+		}
+
+		// Method to check whether a user is a follower of another user
+		public boolean isAFollower(int uidFollower, int uidFollows) { // O(log u + log k)
+			int i = list(FOLLOWERS, uidFollows);
+			return i >= 0 && find(FOLLOWERS + BY_ID, intAt(FOLLOWERS + STARTS, i), intAt(FOLLOWERS + STARTS, i + 1), uidFollower) >= 0;
+		}
+
+		// Method to get the followers of a user, most recent first, or null if they have none
+		public int[] getFollowers(int uid) {
+			return ids(FOLLOWERS, uid);
+		}
+
+		// Method to get the users a user follows, most recent first, or null if they follow nobody
+		public int[] getFollows(int uid) {
+			return ids(FOLLOWS, uid);
+		}
+
+		// Method to get the users who follow both users, sorted by id
+		public int[] getMutualFollowers(int uid1, int uid2) {
+			return mutual(FOLLOWERS, uid1, uid2);
+		}
+
+		// Method to get the users who both users follow, sorted by id
+		public int[] getMutualFollows(int uid1, int uid2) {
+			return mutual(FOLLOWS, uid1, uid2);
+		}
+
+		// Method to get the users with the most followers when the snapshot was written, the most first
+		public int[] getTopUsers() {
+			return ints(TOP_USERS, 0, lengths[TOP_USERS]);
+		}
+
+		// Method to get the number of followers of a user
+		public int getNumFollowers(int uid) { // O(log u)
+			int i = list(FOLLOWERS, uid);
+			return i < 0 ? 0 : intAt(FOLLOWERS + STARTS, i + 1) - intAt(FOLLOWERS + STARTS, i);
+		}
+	}
+
+	// Method to write a snapshot of the stores to a file, which can then be opened with the constructor,
+	// nothing can be added to the stores until it is done or the snapshot may have only some of it, DurableStore.writeMappedSnapshot does this for its stores
+	public static void write(File file, UserStore userStore, WeetStore weetStore, FollowerStore followerStore) throws IOException { // O(n log n)
+		Object[] arrays = new Object[ARRAYS]; // Each array to write, an int[], long[] or byte[]
+		// The follows are read first and the users last, so if the stores are written to meanwhile, a follow or weet is less likely to be in the snapshot without its user
+		Edges followersEdges = new Edges(); // The followers lists, keyed on the user followed
+		followerStore.forEachFollower((uidFollower, uidFollows, date) -> followersEdges.add(uidFollows, uidFollower));
+		adjacency(followersEdges, arrays, FOLLOWERS);
+		Edges followsEdges = new Edges(); // The follows lists, keyed on the follower
+		followerStore.forEachFollow((uidFollower, uidFollows, date) -> followsEdges.add(uidFollower, uidFollows));
+		adjacency(followsEdges, arrays, FOLLOWS);
+		arrays[TOP_USERS] = followerStore.getTopUsers();
+		Weet[] weets = weetStore.getWeets(); // Already most recent first
+		int[] weetIds = new int[weets.length];
+		int[] weetUids = new int[weets.length];
+		long[] weetDates = new long[weets.length];
+		String[] messages = new String[weets.length];
+		for (int i = 0; i < weets.length; i++) {
+			weetIds[i] = weets[i].getId();
+			weetUids[i] = weets[i].getUserId();
+			weetDates[i] = weets[i].getDateWeeted().getTime();
+			messages[i] = weets[i].getMessage();
+		}
+		arrays[WEET_IDS] = weetIds;
+		arrays[WEET_UIDS] = weetUids;
+		arrays[WEET_DATES] = weetDates;
+		heap(messages, arrays, WEET_MESSAGE_OFFSETS, WEET_MESSAGES);
+		idIndex(weetIds, arrays, WEET_ID_SORTED, WEET_ID_ROWS);
+		byUser(weetUids, arrays);
+		String[] trending = weetStore.getTrending().clone(); // A copy, as the nulls are swapped for empty strings
+		for (int i = 0; i < trending.length; i++) {
+			trending[i] = trending[i] == null ? "" : trending[i]; // A hashtag always has its '#', so empty means null
+		}
+		heap(trending, arrays, TRENDING_OFFSETS, TRENDING);
+		User[] users = userStore.getUsers(); // Already most recent first
+		int[] userIds = new int[users.length];
+		long[] userDates = new long[users.length];
+		String[] names = new String[users.length];
+		for (int i = 0; i < users.length; i++) {
+			userIds[i] = users[i].getId();
+			userDates[i] = users[i].getDateJoined().getTime();
+			names[i] = users[i].getName();
+		}
+		arrays[USER_IDS] = userIds;
+		arrays[USER_DATES] = userDates;
+		heap(names, arrays, USER_NAME_OFFSETS, USER_NAMES);
+		idIndex(userIds, arrays, USER_ID_SORTED, USER_ID_ROWS);
+		writeArrays(file, arrays);
+	}
+
+	// Method to put strings into a UTF-8 heap and an offset array, with one more offset for the end of the last string
+	private static void heap(String[] strings, Object[] arrays, int offsetArray, int heapArray) {
+		byte[][] encoded = new byte[strings.length][];
+		long total = 0;
+		for (int i = 0; i < strings.length; i++) {
+			encoded[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+			total += encoded[i].length;
+		}
+		if (total > Integer.MAX_VALUE) { // It couldn't be mapped anyway
+			throw new IllegalArgumentException("Too much text for one snapshot");
+		}
+		int[] starts = new int[strings.length + 1];
+		byte[] bytes = new byte[(int) total];
+		for (int i = 0; i < strings.length; i++) {
+			System.arraycopy(encoded[i], 0, bytes, starts[i], encoded[i].length);
+			starts[i + 1] = starts[i] + encoded[i].length;
+		}
+		arrays[offsetArray] = starts;
+		arrays[heapArray] = bytes;
+	}
+
+	// Method to make the arrays for looking up a row by id: the ids sorted, and the row each one is in
+	private static void idIndex(int[] ids, Object[] arrays, int sortedArray, int rowArray) { // O(n log n)
+		long[] pairs = new long[ids.length]; // Each id with its row in the low half, so sorting them sorts by id
+		for (int i = 0; i < ids.length; i++) {
+			pairs[i] = ((long) ids[i] << 32) | i;
+		}
+		Arrays.sort(pairs);
+		int[] sorted = new int[ids.length];
+		int[] rows = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			sorted[i] = (int) (pairs[i] >> 32);
+			rows[i] = (int) pairs[i];
+		}
+		arrays[sortedArray] = sorted;
+		arrays[rowArray] = rows;
+	}
+
+	// Method to make each user's list of weet rows, keeping them most recent first
+	private static void byUser(int[] uids, Object[] arrays) { // O(n log u)
+		int[] keys = uids.clone(); // The users with weets, sorted and without repeats
+		Arrays.sort(keys);
+		int unique = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (i == 0 || keys[i] != keys[i - 1]) {
+				keys[unique++] = keys[i];
+			}
+		}
+		keys = Arrays.copyOf(keys, unique);
+		int[] starts = new int[unique + 1]; // Count each user's weets, shifted up one to make where each list starts
+		for (int i = 0; i < uids.length; i++) {
+			starts[Arrays.binarySearch(keys, uids[i]) + 1]++;
+		}
+		for (int k = 0; k < unique; k++) {
+			starts[k + 1] += starts[k];
+		}
+		int[] next = Arrays.copyOf(starts, unique); // Where the next row goes in each list
+		int[] rows = new int[uids.length];
+		for (int i = 0; i < uids.length; i++) { // The rows are most recent first, so each list is too
+			rows[next[Arrays.binarySearch(keys, uids[i])]++] = i;
+		}
+		arrays[BY_USER_KEYS] = keys;
+		arrays[BY_USER_STARTS] = starts;
+		arrays[BY_USER_ROWS] = rows;
+	}
+
+	// Method to make the four arrays of an adjacency list from follows which come a list at a time, each list oldest first
+	private static void adjacency(Edges edges, Object[] arrays, int base) { // O(e + u log u)
+		int groups = 0; // The number of lists
+		long[] order = new long[16]; // Each list's key with its first follow in the low half, so sorting them sorts the lists by key
+		for (int i = 0; i < edges.count; i++) {
+			if (i == 0 || edges.keys[i] != edges.keys[i - 1]) { // The start of a new list
+				if (groups == order.length) {
+					order = Arrays.copyOf(order, groups * 2);
+				}
+				order[groups++] = ((long) edges.keys[i] << 32) | i;
+			}
+		}
+		order = Arrays.copyOf(order, groups);
+		Arrays.sort(order);
+		int[] keys = new int[groups];
+		int[] starts = new int[groups + 1];
+		int[] ids = new int[edges.count];
+		int[] byId = new int[edges.count];
+		int at = 0; // Where the next list goes
+		for (int g = 0; g < groups; g++) {
+			int first = (int) order[g]; // The first follow of the list
+			int last = first; // And one past its last
+			while (last < edges.count && edges.keys[last] == edges.keys[first]) {
+				last++;
+			}
+			keys[g] = edges.keys[first];
+			starts[g] = at;
+			for (int i = last - 1; i >= first; i--) { // Backwards, so the list is most recent first
+				ids[at] = edges.others[i];
+				byId[at] = edges.others[i];
+				at++;
+			}
+			Arrays.sort(byId, starts[g], at); // The copy sorted by id
+		}
+		starts[groups] = at;
+		arrays[base + KEYS] = keys;
+		arrays[base + STARTS] = starts;
+		arrays[base + IDS] = ids;
+		arrays[base + BY_ID] = byId;
+	}
+
+	// Method to get the number of elements in an array
+	private static int length(Object array) {
+		if (array instanceof int[]) {
+			return ((int[]) array).length;
+		}
+		if (array instanceof long[]) {
+			return ((long[]) array).length;
+		}
+		return ((byte[]) array).length;
+	}
+
+	// Method to round a position up to the next multiple of 8, so the longs are lined up
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	// Method to write the header and the arrays to a temporary file and rename it over the file
+	private static void writeArrays(File file, Object[] arrays) throws IOException {
+		long[] starts = new long[ARRAYS]; // Lay out the arrays one after another
+		long position = align(headerBytes());
+		for (int a = 0; a < ARRAYS; a++) {
+			starts[a] = position;
+			position = align(position + (long) length(arrays[a]) * width(a));
+		}
+		if (position > Integer.MAX_VALUE) { // One mapping can't be bigger than this
+			throw new IllegalArgumentException("Too much data for one snapshot");
+		}
+		File temp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temp)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(ARRAYS);
+			for (int a = 0; a < ARRAYS; a++) { // The table of arrays
+				out.writeLong(starts[a]);
+				out.writeInt(length(arrays[a]));
+			}
+			for (int a = 0; a < ARRAYS; a++) {
+				while (out.size() < starts[a]) { // Pad up to where the array starts
+					out.writeByte(0);
+				}
+				Object array = arrays[a];
+				if (array instanceof int[]) {
+					for (int v : (int[]) array) {
+						out.writeInt(v);
+					}
+				} else if (array instanceof long[]) {
+					for (long v : (long[]) array) {
+						out.writeLong(v);
+					}
+				} else {
+					out.write((byte[]) array);
+				}
+			}
+			out.flush();
+			stream.getFD().sync(); // It must be on disk before it replaces the old one
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); // Swap it in
+		WriteAheadLog.syncDirectory(file.getAbsoluteFile().getParentFile()); // Make sure the rename is on disk too
+	}
+
+}
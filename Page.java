@@ -0,0 +1,37 @@
+/**
+* A Page is one page of results from a paged query, along with the cursor to pass back in to get the next page.
+* The cursor is opaque to the caller, it holds the date and unique id of the last item on the page (or a position for the top users),
+* so the next page is found by seeking an ordered index straight to that point rather than working out the whole result again.
+* When there are no more results the next cursor is null.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+public class Page<T> {
+	private final T[] items; // The items on this page, in the same order as the full query
+	private final String nextCursor; // The cursor for the next page, or null if this is the last page
+
+	// Constructor for Page
+	public Page(T[] items, String nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	// Method to get the items on this page
+	public T[] getItems() {
+		return items;
+	}
+
+	// Method to get the cursor for the next page, or null if there isn't one
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	// Method to check whether there is another page after this one
+	public boolean hasMore() {
+		return nextCursor != null;
+	}
+
+}
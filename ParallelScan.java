@@ -0,0 +1,184 @@
+/**
+* The ParallelScan runs the queries which have to look at every item, e.g. searching every name or every weet for a short query, on a ForkJoinPool.
+* The array being scanned is split in half again and again until each range is below a threshold, and each range is filtered on its own thread.
+* When the array is already sorted, like the SortedSnapshot, the matches from each range are still in order, so they are just joined back together.
+* When it isn't, like the search candidates which are in the order the weets were added, each range sorts its own matches with Sorting, like the rest of the stores,
+* and the sorted halves are merged back together with a parallel merge: the middle item of the bigger half is found in the smaller half by binary search,
+* which splits both into two pairs that can be merged at the same time.
+* With p threads this takes the O(n) scan down to O(n / p), and sorting the matches to O((m / p) log m), plus the merging.
+* Matches are sorted by date and then by the unique id, most recent first, so no two items are ever tied and the merge doesn't need to be stable.
+* Below the threshold everything is done on the calling thread, as splitting small arrays costs more than it saves.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+class ParallelScan {
+	static final int DEFAULT_THRESHOLD = 4096; // Ranges smaller than this are scanned on one thread
+
+	private final ForkJoinPool pool; // The pool the scans run on
+	private final int threshold; // The size of range below which we stop splitting
+
+	// Constructor for ParallelScan
+	public ParallelScan(ForkJoinPool pool, int threshold) {
+		if (pool == null || threshold < 1) { // Check the settings make sense
+			throw new IllegalArgumentException("A pool and a positive threshold are needed");
+		}
+		this.pool = pool;
+		this.threshold = threshold;
+	}
+
+	// Method to get the items from an array which match, keeping them in the order they were in
+	@SuppressWarnings("unchecked")
+	public <T> T[] filter(Object[] items, int from, int to, Predicate<? super T> match, T[] type) {
+		Object[] matches = pool.invoke(new Filter<T>(items, from, to, match, null, null, null)); // Scan the ranges in parallel and join them up
+		return (T[]) Arrays.copyOf(matches, matches.length, type.getClass()); // Copy into an array of the right type
+	}
+
+	// Method to get the items from an array which match, sorted by date, most recent first, and then by id, highest first, like the stores
+	@SuppressWarnings("unchecked")
+	public <T> T[] filterSorted(Object[] items, int from, int to, Predicate<? super T> match, ToLongFunction<? super T> date, ToIntFunction<? super T> id, T[] type) {
+		Comparator<T> order = (a, b) -> WeetStore.compare(date.applyAsLong(b), id.applyAsInt(b), date.applyAsLong(a), id.applyAsInt(a)); // For merging the ranges
+		Object[] matches = pool.invoke(new Filter<T>(items, from, to, match, date, id, order)); // Scan and sort the ranges in parallel and merge them
+		return (T[]) Arrays.copyOf(matches, matches.length, type.getClass()); // Copy into an array of the right type
+	}
+
+	// Method to get the pool the scans run on, so the stores can sort big results on it too
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	@SuppressWarnings("serial") // Tasks are never serialised
+	class Filter<T> extends RecursiveTask<Object[]> { // Inner class for filtering one range, splitting it if it is too big
+		private final Object[] items; // The array being scanned
+		private final int from; // The first index of the range
+		private final int to; // One past the last index of the range
+		private final Predicate<? super T> match; // Which items to keep
+		private final ToLongFunction<? super T> date; // The date of each item for sorting the matches, or null to keep them in the order they were in
+		private final ToIntFunction<? super T> id; // The id of each item for sorting the matches
+		private final Comparator<? super T> order; // The same order, for merging the sorted halves
+
+		Filter(Object[] items, int from, int to, Predicate<? super T> match, ToLongFunction<? super T> date, ToIntFunction<? super T> id,
+				Comparator<? super T> order) { // Constructor
+			this.items = items;
+			this.from = from;
+			this.to = to;
+			this.match = match;
+			this.date = date;
+			this.id = id;
+			this.order = order;
+		}
+
+		@SuppressWarnings("unchecked")
+		protected Object[] compute() {
+			if (to - from <= threshold) { // If the range is small enough, scan it on this thread
+				Object[] matches = new Object[Math.min(to - from, 16)]; // Start small, the array grows if we need more room
+				int count = 0;
+				for (int i = from; i < to; i++) {
+					if (match.test((T) items[i])) { // If the item matches
+						if (count == matches.length) { // If the array is full
+							matches = Arrays.copyOf(matches, count * 2); // Double its size
+						}
+						matches[count++] = items[i]; // Keep it
+					}
+				}
+				matches = Arrays.copyOf(matches, count); // Trim to the exact size
+				if (order != null) {
+					Sorting.sortNewestFirst((T[]) matches, 0, count, date, id); // Sort this range's matches, the ranges are already split across the threads
+				}
+				return matches;
+			}
+			int middle = (from + to) >>> 1; // Split the range in half
+			Filter<T> left = new Filter<T>(items, from, middle, match, date, id, order);
+			left.fork(); // Scan the left half on another thread
+			Object[] right = new Filter<T>(items, middle, to, match, date, id, order).compute(); // Scan the right half on this one
+			Object[] leftMatches = left.join(); // Wait for the left half
+			Object[] joined = new Object[leftMatches.length + right.length]; // The matches from both halves
+			if (order == null) { // Already in order, so just put the left matches before the right
+				System.arraycopy(leftMatches, 0, joined, 0, leftMatches.length);
+				System.arraycopy(right, 0, joined, leftMatches.length, right.length);
+			} else { // Otherwise merge the sorted halves
+				new Merge<T>(leftMatches, 0, leftMatches.length, right, 0, right.length, joined, 0, order).compute();
+			}
+			return joined;
+		}
+	}
+
+	@SuppressWarnings("serial") // Tasks are never serialised
+	class Merge<T> extends RecursiveAction { // Inner class for merging two sorted ranges into an output array, splitting the work if it is too big
+		private final Object[] a; // The first sorted array
+		private final int aFrom;
+		private final int aTo;
+		private final Object[] b; // The second sorted array
+		private final int bFrom;
+		private final int bTo;
+		private final Object[] out; // Where the merged items go
+		private final int outFrom; // The index of the first merged item
+		private final Comparator<? super T> order; // How the arrays are sorted
+
+		Merge(Object[] a, int aFrom, int aTo, Object[] b, int bFrom, int bTo, Object[] out, int outFrom, Comparator<? super T> order) { // Constructor
+			this.a = a;
+			this.aFrom = aFrom;
+			this.aTo = aTo;
+			this.b = b;
+			this.bFrom = bFrom;
+			this.bTo = bTo;
+			this.out = out;
+			this.outFrom = outFrom;
+			this.order = order;
+		}
+
+		@SuppressWarnings("unchecked")
+		protected void compute() {
+			int aSize = aTo - aFrom;
+			int bSize = bTo - bFrom;
+			if (aSize + bSize <= threshold) { // If there isn't much to merge, do it on this thread
+				int i = aFrom;
+				int j = bFrom;
+				for (int k = outFrom; k < outFrom + aSize + bSize; k++) {
+					if (j == bTo || (i < aTo && order.compare((T) a[i], (T) b[j]) <= 0)) { // Take the item which comes first
+						out[k] = a[i++];
+					} else {
+						out[k] = b[j++];
+					}
+				}
+				return;
+			}
+			if (aSize < bSize) { // Always split around the middle of the bigger array
+				new Merge<T>(b, bFrom, bTo, a, aFrom, aTo, out, outFrom, order).compute();
+				return;
+			}
+			int aMiddle = (aFrom + aTo) >>> 1; // The middle of a
+			int bSplit = lowerBound(b, bFrom, bTo, (T) a[aMiddle]); // Where it would go in b
+			int outMiddle = outFrom + (aMiddle - aFrom) + (bSplit - bFrom); // Where it goes in the output
+			out[outMiddle] = a[aMiddle]; // Put it there
+			invokeAll(new Merge<T>(a, aFrom, aMiddle, b, bFrom, bSplit, out, outFrom, order), // Merge everything before it
+					new Merge<T>(a, aMiddle + 1, aTo, b, bSplit, bTo, out, outMiddle + 1, order)); // And everything after it at the same time
+		}
+
+		// Method to find the first index in a sorted range whose item doesn't come before the key
+		@SuppressWarnings("unchecked")
+		private int lowerBound(Object[] items, int lo, int hi, T key) {
+			while (lo < hi) {
+				int middle = (lo + hi) >>> 1;
+				if (order.compare((T) items[middle], key) < 0) { // If the middle item comes before the key
+					lo = middle + 1; // Search the upper half
+				} else {
+					hi = middle; // Search the lower half
+				}
+			}
+			return lo;
+		}
+	}
+
+}
@@ -0,0 +1,253 @@
+/**
+* The PersistentDateIndex is an immutable version of the DateIndex: values ordered by a date and then a unique id, where adding gives back a new index
+* and leaves the old one exactly as it was, so old versions can be read from any thread while newer ones are made.
+* It is a treap, a binary search tree on the date and id where every entry also has a priority and no entry has a higher priority than its parent.
+* The priority is a hash of the date and id, so the shape of the tree is as good as random and its depth is O(log n) on average, with nothing to rebalance.
+* Adding or removing an entry only makes new copies of the entries on the path from the root down to it, which is O(log n) small objects,
+* and every other entry is shared with the old index, so keeping a list for a user with millions of entries never means copying all of them.
+* Every entry knows the size of the tree under it, so the size of the index is O(1).
+* The entries are read most recent first with an Iterator, starting from just before any date and id, so range queries come out already sorted,
+* or from the entry at any index, which uses the sizes to skip straight to it in O(log n), so a page deep into the index costs no more than the first one.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+final class PersistentDateIndex<V> {
+	@SuppressWarnings("rawtypes")
+	private static final PersistentDateIndex EMPTY = new PersistentDateIndex<Object>(null); // Every empty index is the same
+
+	private final Entry<V> root; // The root of the treap, or null when the index is empty
+
+	static final class Entry<V> { // Inner class for one date-id-value entry, never changed once made
+		private final long date; // The date as epoch millis
+		private final int id; // The unique id, used to break ties between equal dates
+		private final V value; // The value stored against the date
+		private final long priority; // The hash of the date and id, no entry has a higher priority than its parent
+		private final Entry<V> left; // The entries which come before this one
+		private final Entry<V> right; // The entries which come after this one
+		private final int size; // The number of entries in the tree under this one, including it
+
+		Entry(long date, int id, V value, long priority, Entry<V> left, Entry<V> right) { // Constructor
+			this.date = date;
+			this.id = id;
+			this.value = value;
+			this.priority = priority;
+			this.left = left;
+			this.right = right;
+			this.size = 1 + size(left) + size(right);
+		}
+
+		// Method to get a copy of the entry with different children
+		Entry<V> with(Entry<V> left, Entry<V> right) {
+			return new Entry<V>(date, id, value, priority, left, right);
+		}
+
+		// Method to get the date as epoch millis
+		public long getDate() {
+			return this.date;
+		}
+
+		// Method to get the unique id
+		public int getId() {
+			return this.id;
+		}
+
+		// Method to get the value
+		public V getValue() {
+			return this.value;
+		}
+	}
+
+	// Constructor for PersistentDateIndex, only used for the new versions made by add and remove
+	private PersistentDateIndex(Entry<V> root) {
+		this.root = root;
+	}
+
+	// Method to get the empty index
+	@SuppressWarnings("unchecked")
+	public static <V> PersistentDateIndex<V> empty() {
+		return (PersistentDateIndex<V>) EMPTY;
+	}
+
+	// Method to get the size of a tree, 0 for an empty one
+	private static int size(Entry<?> entry) {
+		return entry == null ? 0 : entry.size;
+	}
+
+	// Method to hash the date and id into a priority, mixing the bits so nearby dates get unrelated priorities
+	private static long priority(long date, int id) {
+		long h = date * 0x9E3779B97F4A7C15L + id; // Combine them, then mix like the 64 bit finaliser of MurmurHash3
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	// Method to get the number of entries
+	public int size() { // O(1)
+		return size(root);
+	}
+
+	// Method to check whether there is an entry with a date and id
+	public boolean contains(long date, int id) { // O(log n) on average
+		Entry<V> node = root;
+		while (node != null) {
+			int c = WeetStore.compare(date, id, node.date, node.id);
+			if (c == 0) {
+				return true;
+			}
+			node = c < 0 ? node.left : node.right; // Go down the side it would be on
+		}
+		return false;
+	}
+
+	// Method to get a new index with a value added, the date and id must not be in the index already
+	public PersistentDateIndex<V> add(long date, int id, V value) { // O(log n) on average, copying the path to the new entry
+		return new PersistentDateIndex<V>(insert(root, new Entry<V>(date, id, value, priority(date, id), null, null)));
+	}
+
+	// Method to put an entry into a tree, going down until its priority is higher than the entry it would go under
+	private static <V> Entry<V> insert(Entry<V> node, Entry<V> entry) {
+		if (node == null) { // It goes at the bottom
+			return entry;
+		}
+		if (entry.priority > node.priority) { // It goes here, with the tree split around it as its children
+			return entry.with(before(node, entry.date, entry.id), after(node, entry.date, entry.id));
+		}
+		if (WeetStore.compare(entry.date, entry.id, node.date, node.id) < 0) { // Otherwise carry on down the side it is on
+			return node.with(insert(node.left, entry), node.right);
+		}
+		return node.with(node.left, insert(node.right, entry));
+	}
+
+	// Method to get the part of a tree which comes before a date and id
+	private static <V> Entry<V> before(Entry<V> node, long date, int id) { // O(log n) on average
+		if (node == null) {
+			return null;
+		}
+		if (WeetStore.compare(node.date, node.id, date, id) < 0) { // The entry and its left side are all before, some of the right side may be
+			return node.with(node.left, before(node.right, date, id));
+		}
+		return before(node.left, date, id); // Only some of the left side can be before
+	}
+
+	// Method to get the part of a tree which comes after a date and id
+	private static <V> Entry<V> after(Entry<V> node, long date, int id) { // O(log n) on average
+		if (node == null) {
+			return null;
+		}
+		if (WeetStore.compare(node.date, node.id, date, id) > 0) { // The entry and its right side are all after, some of the left side may be
+			return node.with(after(node.left, date, id), node.right);
+		}
+		return after(node.right, date, id); // Only some of the right side can be after
+	}
+
+	// Method to get a new index without the entry with a date and id, or this index if there isn't one
+	public PersistentDateIndex<V> remove(long date, int id) { // O(log n) on average, copying the path to the entry
+		return contains(date, id) ? new PersistentDateIndex<V>(remove(root, date, id)) : this;
+	}
+
+	// Method to take an entry out of a tree, joining its two children in its place
+	private static <V> Entry<V> remove(Entry<V> node, long date, int id) {
+		int c = WeetStore.compare(date, id, node.date, node.id);
+		if (c < 0) {
+			return node.with(remove(node.left, date, id), node.right);
+		}
+		if (c > 0) {
+			return node.with(node.left, remove(node.right, date, id));
+		}
+		return join(node.left, node.right);
+	}
+
+	// Method to join two trees, where everything in the first comes before everything in the second
+	private static <V> Entry<V> join(Entry<V> first, Entry<V> second) {
+		if (first == null) {
+			return second;
+		}
+		if (second == null) {
+			return first;
+		}
+		if (first.priority > second.priority) { // The higher priority root stays on top
+			return first.with(first.left, join(first.right, second));
+		}
+		return second.with(join(first, second.left), second.right);
+	}
+
+	// Method to walk every entry, most recent first
+	public Iterator<Entry<V>> iterator() {
+		return olderThan(Long.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	// Method to walk the entries which are older than a date and id, most recent first, the iterator only goes as far as it is read
+	public Iterator<Entry<V>> olderThan(long date, int id) { // O(log n) to start, then O(1) for each entry on average
+		Walk walk = new Walk();
+		Entry<V> node = root; // Go down to the date, stacking every entry which is older
+		while (node != null) {
+			if (WeetStore.compare(node.date, node.id, date, id) < 0) { // It is older, and so might be some of its right side
+				walk.push(node);
+				node = node.right;
+			} else { // Only some of its left side can be older
+				node = node.left;
+			}
+		}
+		return walk;
+	}
+
+	// Method to walk the entries from the index-th most recent, counting from 0, most recent first, e.g. to read a page of a leaderboard
+	public Iterator<Entry<V>> from(int index) { // O(log n) to start using the sizes of the trees, then O(1) for each entry on average
+		Walk walk = new Walk();
+		Entry<V> node = root; // Go down to the entry at the index, stacking it and every entry which comes after it
+		while (node != null) {
+			int newer = size(node.right); // The number of entries under this one which are more recent than it
+			if (index <= newer) { // It comes after the index, as does its left side
+				walk.push(node);
+				if (index == newer) { // It is the entry at the index
+					break;
+				}
+				node = node.right;
+			} else { // It and its right side all come before the index
+				index -= newer + 1;
+				node = node.left;
+			}
+		}
+		return walk;
+	}
+
+	final class Walk implements Iterator<Entry<V>> { // Inner class for walking the entries most recent first, from a stack of entries still to be visited
+		private Object[] stack = new Object[16]; // Each entry is visited before the ones below it on the stack, and its left side straight after it
+		private int depth = 0;
+
+		// Method to put an entry on the stack
+		void push(Entry<V> node) {
+			if (depth == stack.length) { // If the stack is full
+				stack = Arrays.copyOf(stack, depth * 2); // Double its size
+			}
+			stack[depth++] = node;
+		}
+
+		public boolean hasNext() {
+			return depth > 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		public Entry<V> next() {
+			if (depth == 0) {
+				throw new NoSuchElementException();
+			}
+			Entry<V> next = (Entry<V>) stack[--depth];
+			for (Entry<V> node = next.left; node != null; node = node.right) { // The entries just before it are down its left side
+				push(node);
+			}
+			return next;
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/**
+* The PersistentIntMap is an immutable map keyed on primitive ints, where putting a value gives back a new map and leaves the old one exactly as it was.
+* It is a hash array mapped trie: each node uses five bits of the mixed key to pick one of 32 children, and only stores the children that exist,
+* with a bitmap saying which ones are there, so a node is never bigger than it needs to be.
+* Putting a value copies just the nodes on the path from the root to the key, which is at most seven small arrays, and shares every other node with the old map.
+* The key is mixed by multiplying by an odd number, which never maps two keys to the same hash, so two keys always split apart somewhere along the path.
+* This means get and put are both O(log32 n), which is effectively constant, and an old version of the map can be read safely while newer ones are made,
+* so it is used for the copy-on-write snapshots that are read without any locks.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+final class PersistentIntMap<V> {
+	private static final int BITS = 5; // The number of bits of the hash used at each level
+	private static final int MASK = (1 << BITS) - 1; // Mask for the bits at one level
+
+	@SuppressWarnings("rawtypes")
+	private static final PersistentIntMap EMPTY = new PersistentIntMap<Object>(new Node(0, new Object[0]), 0); // Every empty map is the same
+
+	private final Node root; // The root node of the trie
+	private final int size; // The number of keys in the map
+
+	static final class Node { // Inner class for a node, its slots hold either child nodes or leaves
+		private final int bitmap; // Bit i is set if there is a child for the five bits i
+		private final Object[] slots; // The children that exist, in order of their bit
+
+		Node(int bitmap, Object[] slots) { // Constructor
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+	}
+
+	static final class Leaf { // Inner class for a key and its value
+		private final int key; // The key
+		private final Object value; // The value stored against it
+
+		Leaf(int key, Object value) { // Constructor
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	// Constructor, only used by put and empty
+	private PersistentIntMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	// Method to get the empty map
+	@SuppressWarnings("unchecked")
+	public static <V> PersistentIntMap<V> empty() {
+		return (PersistentIntMap<V>) EMPTY;
+	}
+
+	// Method to mix a key, multiplying by an odd number so no two keys get the same hash
+	private static int hash(int key) {
+		return key * 0x9E3779B9; // The golden ratio, as in the IntHashMap
+	}
+
+	// Method to get the index in a node's slots of the child for a bit, i.e. the number of children before it
+	private static int index(int bitmap, int bit) {
+		return Integer.bitCount(bitmap & (bit - 1));
+	}
+
+	// Method to get the value for a key, or null if it isn't in the map
+	@SuppressWarnings("unchecked")
+	public V get(int key) { // O(log32 n)
+		int h = hash(key); // Mix the key
+		Node node = root; // Start at the root
+		for (int shift = 0; ; shift += BITS) { // Use the next five bits at each level
+			int bit = 1 << ((h >>> shift) & MASK); // The bit for this part of the hash
+			if ((node.bitmap & bit) == 0) { // If there is no child here then the key isn't in the map
+				return null;
+			}
+			Object child = node.slots[index(node.bitmap, bit)]; // Get the child
+			if (child instanceof Leaf) { // If it is a leaf then it is either the key or a different key
+				Leaf leaf = (Leaf) child;
+				return leaf.key == key ? (V) leaf.value : null;
+			}
+			node = (Node) child; // Otherwise go down a level
+		}
+	}
+
+	// Method to check whether a key is in the map
+	public boolean containsKey(int key) {
+		return get(key) != null; // Values are never null so a null means the key is missing
+	}
+
+	// Method to get the number of keys in the map
+	public int size() {
+		return size;
+	}
+
+	// Method to get a new map with the value stored against the key, replacing any old value, this map is left as it was
+	public PersistentIntMap<V> put(int key, V value) { // O(log32 n), copying one node per level
+		if (value == null) { // A null value can't be stored, as null means the key is missing
+			throw new IllegalArgumentException("value must not be null");
+		}
+		boolean added = !containsKey(key); // Whether this adds a new key or replaces a value
+		return new PersistentIntMap<V>(put(root, hash(key), 0, new Leaf(key, value)), added ? size + 1 : size);
+	}
+
+	// Method to get a copy of a node with the leaf put in its place below it
+	private static Node put(Node node, int h, int shift, Leaf leaf) {
+		int bit = 1 << ((h >>> shift) & MASK); // The bit for this part of the hash
+		int i = index(node.bitmap, bit); // Where the child is, or would go
+		if ((node.bitmap & bit) == 0) { // If there is no child here, add the leaf
+			Object[] slots = new Object[node.slots.length + 1]; // Copy the slots with a gap for the leaf
+			System.arraycopy(node.slots, 0, slots, 0, i);
+			slots[i] = leaf;
+			System.arraycopy(node.slots, i, slots, i + 1, node.slots.length - i);
+			return new Node(node.bitmap | bit, slots);
+		}
+		Object child = node.slots[i]; // There is already a child here
+		Object replacement; // What takes its place
+		if (child instanceof Node) { // If it is a node, put the leaf further down
+			replacement = put((Node) child, h, shift + BITS, leaf);
+		} else if (((Leaf) child).key == leaf.key) { // If it is the same key, replace the value
+			replacement = leaf;
+		} else { // Otherwise two keys share these bits, so push them down a level until they split
+			Leaf other = (Leaf) child;
+			replacement = split(other, hash(other.key), leaf, h, shift + BITS);
+		}
+		Object[] slots = node.slots.clone(); // Copy the slots and swap in the replacement
+		slots[i] = replacement;
+		return new Node(node.bitmap, slots);
+	}
+
+	// Method to make a node holding two leaves whose hashes match up to the shift
+	private static Node split(Leaf a, int ha, Leaf b, int hb, int shift) {
+		int partA = (ha >>> shift) & MASK; // The five bits for each leaf at this level
+		int partB = (hb >>> shift) & MASK;
+		if (partA == partB) { // If they still match, go down another level
+			return new Node(1 << partA, new Object[] { split(a, ha, b, hb, shift + BITS) });
+		}
+		int bitmap = (1 << partA) | (1 << partB); // Otherwise they split here
+		return partA < partB ? new Node(bitmap, new Object[] { a, b }) : new Node(bitmap, new Object[] { b, a }); // In bit order, compared as parts as bit 31 is negative
+	}
+
+}
@@ -0,0 +1,178 @@
+/**
+* The ResultCache keeps the results of recent queries so a hot query, like the trending hashtags or a search for a popular term, isn't worked out again every time.
+* It is a LinkedHashMap in access order, so the least recently used result is always first, and results are dropped from the front when they go over a memory budget.
+* Each result is charged roughly what it costs to hold: the map entry and key, plus a reference for each item in the array, as the items are shared with the store.
+* A result bigger than the whole budget is never cached, so one huge query can't empty the cache.
+* The keys are Queries, made of the kind of query and its arguments, and the cache counts how many results it holds of each kind,
+* so when something is added the stores' decorators can drop exactly the results it changes, and only look through the results of kinds that it could change.
+* Every write to the store moves the version on, and a result is only cached if nothing was written while it was being worked out, so a stale result is never cached.
+* It also counts hits, misses and evictions, to see how well the cache is working.
+* Every method is synchronized, as even a get moves the entry to the back of the list.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+class ResultCache {
+	private static final long ENTRY_BYTES = 96; // Roughly what the map entry, the key and the result array's header cost
+	private static final long REFERENCE_BYTES = 8; // What each item in a result costs, the items themselves belong to the store
+
+	private final LinkedHashMap<Query, Result> results; // The cached results, least recently used first
+	private final int[] kinds; // The number of results held of each kind
+	private final long maxBytes; // The memory budget
+	private long bytes; // The memory the results are using
+	private long version; // The number of writes so far
+	private long hits; // The number of queries answered from the cache
+	private long misses; // The number of queries which had to be worked out
+	private long evictions; // The number of results dropped to stay within the budget
+
+	static final class Query { // Inner class for the key of a result, the kind of query and its arguments
+		final int kind; // Which query it is
+		final long number; // A number argument, e.g. a user id or a date, or 0 if there isn't one
+		final String text; // A text argument, e.g. a search query, or null if there isn't one
+
+		Query(int kind, long number, String text) { // Constructor
+			this.kind = kind;
+			this.number = number;
+			this.text = text;
+		}
+
+		public boolean equals(Object other) {
+			if (!(other instanceof Query)) {
+				return false;
+			}
+			Query query = (Query) other;
+			return kind == query.kind && number == query.number && (text == null ? query.text == null : text.equals(query.text));
+		}
+
+		public int hashCode() {
+			return (kind * 31 + Long.hashCode(number)) * 31 + (text == null ? 0 : text.hashCode());
+		}
+	}
+
+	static final class Result { // Inner class for a cached result, which may be null, and what it costs
+		final Object value; // The result
+		final long bytes; // Roughly how much memory it uses
+
+		Result(Object value, long bytes) { // Constructor
+			this.value = value;
+			this.bytes = bytes;
+		}
+	}
+
+	// Constructor for ResultCache, with a memory budget in bytes and the number of kinds of query
+	public ResultCache(long maxBytes, int kindCount) {
+		if (maxBytes < 0) { // Check the budget makes sense
+			throw new IllegalArgumentException("maxBytes must not be negative");
+		}
+		this.results = new LinkedHashMap<Query, Result>(16, 0.75f, true); // Access order, so a get moves the entry to the back
+		this.kinds = new int[kindCount];
+		this.maxBytes = maxBytes;
+	}
+
+	// Method to work out roughly how much memory a result with a number of items uses
+	public static long weigh(int items) {
+		return ENTRY_BYTES + REFERENCE_BYTES * items;
+	}
+
+	// Method to get the cached result for a query, or null if it isn't cached, counting the hit or miss
+	public synchronized Result get(Query query) { // O(1)
+		Result result = results.get(query); // Moves it to the back of the list if it is there
+		if (result == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return result;
+	}
+
+	// Method to get the version to pass to put, taken before working out a result
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	// Method to cache a result, unless something was written since the version was taken or it is bigger than the budget
+	public synchronized void put(Query query, Object value, long resultBytes, long since) { // O(1) plus any evictions
+		if (since != version || resultBytes > maxBytes) { // If it might be stale, or would push everything else out
+			return;
+		}
+		Result old = results.put(query, new Result(value, resultBytes));
+		if (old != null) { // If another thread cached it meanwhile, replace it
+			bytes -= old.bytes;
+		} else {
+			kinds[query.kind]++;
+		}
+		bytes += resultBytes;
+		Iterator<Map.Entry<Query, Result>> it = results.entrySet().iterator(); // The least recently used first
+		while (bytes > maxBytes) { // Drop results until we are back in budget
+			Map.Entry<Query, Result> eldest = it.next();
+			it.remove();
+			bytes -= eldest.getValue().bytes;
+			kinds[eldest.getKey().kind]--;
+			evictions++;
+		}
+	}
+
+	// Method to note that the store was written to, so results being worked out right now aren't cached
+	public synchronized void write() {
+		version++;
+	}
+
+	// Method to drop the result for one query
+	public synchronized void invalidate(Query query) { // O(1)
+		Result old = results.remove(query);
+		if (old != null) {
+			bytes -= old.bytes;
+			kinds[query.kind]--;
+		}
+	}
+
+	// Method to drop every result of a kind whose query matches
+	public synchronized void invalidate(int kind, Predicate<Query> match) { // O(c) for c cached results, or O(1) if none are of this kind
+		if (kinds[kind] == 0) { // If there are none of this kind there is nothing to look through
+			return;
+		}
+		Iterator<Map.Entry<Query, Result>> it = results.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Query, Result> entry = it.next();
+			Query query = entry.getKey();
+			if (query.kind == kind && match.test(query)) { // If the write changes this result
+				it.remove();
+				bytes -= entry.getValue().bytes;
+				kinds[kind]--;
+			}
+		}
+	}
+
+	// Method to get the number of queries answered from the cache
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	// Method to get the number of queries which weren't cached
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	// Method to get the number of results dropped to stay within the budget
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	// Method to get roughly how much memory the cached results are using
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	// Method to get the number of cached results
+	public synchronized int size() {
+		return results.size();
+	}
+
+}
@@ -0,0 +1,199 @@
+/**
+* The SortedSnapshot keeps every item added to a store in an array sorted by date, most recent first, so listing everything doesn't need a sort each time.
+* Items are added to a pending buffer in O(1), and the version goes up by one each time.
+* When the items are read and the version has changed since the last snapshot, only the pending items are sorted and then merged with the old snapshot,
+* which is O(p log p + n) for p new items, and O(n) when items arrive in date order.
+* A snapshot is never changed once it has been made, a new array is made instead, so it can be handed out as an unmodifiable list without copying it.
+* Reading when nothing has changed is just an array copy, or no work at all for the list view.
+* For the paged queries, seek binary searches the snapshot for a cursor so a page can be read from there with get.
+* A spliterator over the snapshot can be handed out for streams in the same way, without copying.
+* Every method is synchronized, as reading can merge in the pending items, so the snapshot is safe to share between threads.
+* Ties on the date are broken by the unique id, the larger id first, in the same way as the DateIndex.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+class SortedSnapshot<V> {
+	private Object[] values; // The items in the current snapshot, most recent first, never changed once made
+	private long[] dates; // The date of each item in the snapshot as epoch millis
+	private int[] ids; // The unique id of each item in the snapshot
+	private List<V> view; // Unmodifiable list view of the current snapshot, made when first asked for
+	private Object[] pendingValues; // The items added since the snapshot was made, in the order they were added
+	private long[] pendingDates; // The date of each pending item
+	private int[] pendingIds; // The unique id of each pending item
+	private int pending; // The number of pending items
+	private long version; // The number of items ever added, goes up by one with each add
+
+	// Constructor for SortedSnapshot
+	public SortedSnapshot() {
+		this.values = new Object[0]; // The first snapshot is empty
+		this.dates = new long[0];
+		this.ids = new int[0];
+		this.pendingValues = new Object[16]; // Start small, the buffer doubles as it fills up
+		this.pendingDates = new long[16];
+		this.pendingIds = new int[16];
+		this.pending = 0;
+		this.version = 0;
+	}
+
+	// Method to add an item with its date and unique id, it will be in the next snapshot
+	public synchronized void add(long date, int id, V value) { // O(1) amortised
+		if (pending == pendingValues.length) { // If the buffer is full
+			pendingValues = Arrays.copyOf(pendingValues, pending * 2); // Double its size
+			pendingDates = Arrays.copyOf(pendingDates, pending * 2);
+			pendingIds = Arrays.copyOf(pendingIds, pending * 2);
+		}
+		pendingValues[pending] = value; // Put the item on the end of the buffer
+		pendingDates[pending] = date;
+		pendingIds[pending] = id;
+		pending++; // Increase the count
+		version++; // The store has changed
+	}
+
+	// Method to get the version, which changes whenever an item is added
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	// Method to get the number of items
+	public synchronized int size() {
+		return values.length + pending;
+	}
+
+	// Method to check whether the first item comes before the second, i.e. is more recent
+	private static boolean before(long date1, int id1, long date2, int id2) {
+		return date1 > date2 || (date1 == date2 && id1 > id2); // Most recent first, then the larger id first
+	}
+
+	// Method to merge the pending items into a new snapshot, if there are any
+	private void refresh() { // O(p log p + n)
+		if (pending == 0) { // If nothing has been added the snapshot is up to date
+			return;
+		}
+		int[] order = new int[pending]; // The pending items' positions in the buffer, to be sorted
+		for (int i = 0; i < pending; i++) {
+			order[i] = i;
+		}
+		mergeSort(order, new int[pending], 0, pending); // Sort the pending items, most recent first
+		int n = values.length; // The number of items in the old snapshot
+		Object[] newValues = new Object[n + pending]; // Create the new snapshot
+		long[] newDates = new long[n + pending];
+		int[] newIds = new int[n + pending];
+		int i = 0; // Position in the old snapshot
+		int j = 0; // Position in the sorted pending items
+		for (int k = 0; k < newValues.length; k++) { // Merge the two sorted lists
+			if (j == pending || (i < n && !before(pendingDates[order[j]], pendingIds[order[j]], dates[i], ids[i]))) { // Take the old item next
+				newValues[k] = values[i];
+				newDates[k] = dates[i];
+				newIds[k] = ids[i];
+				i++;
+			} else { // Take the pending item next
+				newValues[k] = pendingValues[order[j]];
+				newDates[k] = pendingDates[order[j]];
+				newIds[k] = pendingIds[order[j]];
+				j++;
+			}
+		}
+		values = newValues; // Swap in the new snapshot, the old one is left as it was for anyone still holding it
+		dates = newDates;
+		ids = newIds;
+		view = null; // The old view is of the old snapshot
+		Arrays.fill(pendingValues, 0, pending, null); // Empty the buffer so the items can be collected later
+		pending = 0;
+	}
+
+	// Method to sort positions in the pending buffer by date, most recent first, using a stable merge sort
+	private void mergeSort(int[] order, int[] temp, int from, int to) { // O(p log p), O(p) if already in order
+		if (to - from < 2) { // One item is already sorted
+			return;
+		}
+		int middle = (from + to) >>> 1; // Split in half
+		mergeSort(order, temp, from, middle); // Sort each half
+		mergeSort(order, temp, middle, to);
+		int last = order[middle - 1]; // If the last of the first half comes before the first of the second half, they are already in order
+		int first = order[middle];
+		if (before(pendingDates[last], pendingIds[last], pendingDates[first], pendingIds[first])) {
+			return;
+		}
+		System.arraycopy(order, from, temp, from, to - from); // Copy both halves out
+		int i = from; // Position in the first half
+		int j = middle; // Position in the second half
+		for (int k = from; k < to; k++) { // Merge them back
+			if (j == to || (i < middle && !before(pendingDates[temp[j]], pendingIds[temp[j]], pendingDates[temp[i]], pendingIds[temp[i]]))) {
+				order[k] = temp[i++]; // Take from the first half
+			} else {
+				order[k] = temp[j++]; // Take from the second half
+			}
+		}
+	}
+
+	// Method to find the index of the first item after the last item of a page, or 0 if there is no cursor
+	public synchronized int seek(Cursor cursor) { // O(log n) once up to date
+		refresh(); // Merge in anything new, get uses the same snapshot
+		int lo = 0; // Binary search for the first item which comes after the cursor
+		int hi = values.length;
+		while (cursor != null && lo < hi) {
+			int middle = (lo + hi) >>> 1; // Get the middle index
+			if (before(cursor.getDate(), cursor.getId(), dates[middle], ids[middle])) { // If the middle item comes after the cursor
+				hi = middle; // Search the lower half
+			} else {
+				lo = middle + 1; // Search the upper half
+			}
+		}
+		return lo; // Return the index
+	}
+
+	// Method to get the item at an index of the snapshot, as of the last seek
+	@SuppressWarnings("unchecked")
+	public synchronized V get(int i) {
+		return (V) values[i];
+	}
+
+	// Method to get the number of items in the snapshot, as of the last seek
+	public synchronized int snapshotSize() {
+		return values.length;
+	}
+
+	// Method to get a spliterator over the snapshot from an index, as of the last seek, which can be split for parallel streams
+	public synchronized Spliterator<V> spliterator(int from) { // O(1), the snapshot array is never changed so it doesn't need copying
+		return spliterator(from, values.length);
+	}
+	
+	// Method to get a spliterator over the snapshot from one index up to another, as of the last seek
+	@SuppressWarnings("unchecked")
+	public synchronized Spliterator<V> spliterator(int from, int to) { // O(1)
+		return (Spliterator<V>) (Spliterator<?>) Spliterators.spliterator(values, from, to, Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+	}
+
+	// Method to get the snapshot array itself, most recent first, which must not be changed, for scanning without copying it
+	public synchronized Object[] array() { // O(1) once up to date
+		refresh(); // Merge in anything new
+		return values;
+	}
+
+	// Method to get a copy of every item, most recent first
+	@SuppressWarnings("unchecked")
+	public synchronized V[] toArray(V[] type) { // O(n) copy once up to date
+		refresh(); // Merge in anything new
+		return Arrays.copyOf(values, values.length, (Class<? extends V[]>) type.getClass()); // Copy it into an array of the right type
+	}
+
+	// Method to get every item as an unmodifiable list, most recent first, without copying
+	@SuppressWarnings("unchecked")
+	public synchronized List<V> view() { // O(1) once up to date
+		refresh(); // Merge in anything new
+		if (view == null) { // If this snapshot doesn't have a view yet
+			view = Collections.unmodifiableList(Arrays.asList((V[]) values)); // Wrap it, the array is never changed so no copy is needed
+		}
+		return view;
+	}
+
+}
@@ -0,0 +1,227 @@
+/**
+* The Sorting class is the one place the stores sort items by date, most recent first, with ties broken by the unique id (highest first) like the DateIndex.
+* The date and id of every item are read once into primitive arrays, so sorting never calls Date.before/after or any other method on the items.
+* The positions are then sorted with an LSD radix sort, one byte of the key at a time from the least significant, which is stable, so by the last pass
+* everything is ordered by date and then id. Each pass is O(n), there are at most twelve, and a pass is skipped when every item has the same byte,
+* which is usually most of the high bytes of the dates. There is no recursion, so it can't overflow the stack, and no input makes it slower.
+* Input which is already sorted, or sorted the wrong way round such as a bulk import in date order, is spotted first and handled in O(n).
+* Big arrays can be sorted on a ForkJoinPool: each thread radix sorts one chunk, and then the chunks are merged in pairs, with each round of merges in parallel.
+* The stores do this for search results of PARALLEL_THRESHOLD or more once setParallelScan has given them a pool.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+final class Sorting {
+	static final int PARALLEL_THRESHOLD = 1 << 16; // Arrays smaller than this are always sorted on the calling thread
+
+	// Constructor, there are only static methods
+	private Sorting() {
+	}
+
+	// Method to sort part of an array by date, most recent first, then by id, highest first
+	public static <T> void sortNewestFirst(T[] items, int from, int to, ToLongFunction<? super T> date, ToIntFunction<? super T> id) {
+		sortNewestFirst(items, from, to, date, id, null); // Sort on this thread
+	}
+
+	// Method to sort part of an array by date, most recent first, then by id, using the pool if the array is big enough
+	public static <T> void sortNewestFirst(T[] items, int from, int to, ToLongFunction<? super T> date, ToIntFunction<? super T> id, ForkJoinPool pool) {
+		int n = to - from; // The number of items
+		if (n < 2) { // Nothing to sort
+			return;
+		}
+		long[] dates = new long[n]; // Read the keys once
+		int[] ids = new int[n];
+		for (int i = 0; i < n; i++) {
+			dates[i] = date.applyAsLong(items[from + i]);
+			ids[i] = id.applyAsInt(items[from + i]);
+		}
+		boolean newestFirst = true; // Check whether it is already sorted either way round
+		boolean oldestFirst = true;
+		for (int i = 1; i < n && (newestFirst || oldestFirst); i++) {
+			int c = compare(dates, ids, i - 1, i);
+			newestFirst &= c < 0; // The earlier item comes first
+			oldestFirst &= c > 0; // The earlier item comes last
+		}
+		if (newestFirst) { // Already in order
+			return;
+		}
+		if (oldestFirst) { // In order the wrong way round, so just reverse it
+			for (int i = from, j = to - 1; i < j; i++, j--) {
+				T temp = items[i];
+				items[i] = items[j];
+				items[j] = temp;
+			}
+			return;
+		}
+		int[] order = new int[n]; // The positions of the items, to be sorted
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		if (pool != null && n >= PARALLEL_THRESHOLD && pool.getParallelism() > 1) { // If it is worth splitting up
+			pool.invoke(new ParallelSort(dates, ids, order, pool.getParallelism()));
+		} else {
+			radixSort(dates, ids, order, 0, n, new int[n]); // Otherwise sort it all on this thread
+		}
+		Object[] copy = new Object[n]; // Copy the items out
+		System.arraycopy(items, from, copy, 0, n);
+		for (int i = 0; i < n; i++) {
+			@SuppressWarnings("unchecked")
+			T item = (T) copy[order[i]];
+			items[from + i] = item; // And put them back in the sorted order
+		}
+	}
+
+	// Method to sort part of a date column and the id column beside it, oldest first, e.g. the columns of a compressed follow list, every id must be different
+	static void sortOldestFirst(long[] dates, int[] ids, int from, int to) { // O(n), the same radix sort
+		int n = to - from; // The number of entries
+		if (n < 2) { // Nothing to sort
+			return;
+		}
+		long[] keyDates = Arrays.copyOfRange(dates, from, to); // The keys, so the columns can be written over
+		int[] keyIds = Arrays.copyOfRange(ids, from, to);
+		int[] order = new int[n]; // The positions of the entries, to be sorted
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		radixSort(keyDates, keyIds, order, 0, n, new int[n]); // Most recent first
+		for (int i = 0; i < n; i++) { // Write them back the other way round
+			dates[to - 1 - i] = keyDates[order[i]];
+			ids[to - 1 - i] = keyIds[order[i]];
+		}
+	}
+
+	// Method to compare the items at two positions, returns a negative number if the first comes first, i.e. is more recent
+	private static int compare(long[] dates, int[] ids, int a, int b) {
+		if (dates[a] != dates[b]) {
+			return dates[a] > dates[b] ? -1 : 1; // The more recent date comes first
+		}
+		return ids[a] > ids[b] ? -1 : (ids[a] == ids[b] ? 0 : 1); // Then the higher id
+	}
+
+	// Method to get one byte of an item's key, where the key puts the most recent date and then the highest id first when sorted as unsigned numbers
+	private static int digit(long[] dates, int[] ids, int position, int pass) {
+		if (pass < 4) { // The first four passes are the bytes of the id, least significant first
+			int key = ~(ids[position] ^ Integer.MIN_VALUE); // Flip the sign bit so it sorts as unsigned, then invert for highest first
+			return (key >>> (pass * 8)) & 0xFF;
+		}
+		long key = ~(dates[position] ^ Long.MIN_VALUE); // The same for the date
+		return (int) (key >>> ((pass - 4) * 8)) & 0xFF;
+	}
+
+	// Method to radix sort the positions from..to of order, using temp as space of the same size
+	private static void radixSort(long[] dates, int[] ids, int[] order, int from, int to, int[] temp) { // O(n) per pass, at most 12 passes
+		int n = to - from;
+		int[] counts = new int[257]; // How many items have each byte, shifted up one to make the start of each bucket
+		int[] source = order; // The positions come from here
+		int sourceFrom = from;
+		int[] target = temp; // And go here
+		int targetFrom = 0;
+		for (int pass = 0; pass < 12; pass++) { // Id bytes then date bytes, least significant first
+			Arrays.fill(counts, 0); // Start each pass with empty counts
+			for (int i = sourceFrom; i < sourceFrom + n; i++) {
+				counts[digit(dates, ids, source[i], pass) + 1]++; // Count each byte
+			}
+			if (counts[digit(dates, ids, source[sourceFrom], pass) + 1] == n) { // If every item has the same byte this pass won't change anything
+				continue;
+			}
+			for (int b = 0; b < 256; b++) {
+				counts[b + 1] += counts[b]; // Turn the counts into where each bucket starts
+			}
+			for (int i = sourceFrom; i < sourceFrom + n; i++) { // Put each position into its bucket, in the same order as before so it is stable
+				target[targetFrom + counts[digit(dates, ids, source[i], pass)]++] = source[i];
+			}
+			int[] swap = source; // The target is now the source for the next pass
+			int swapFrom = sourceFrom;
+			source = target;
+			sourceFrom = targetFrom;
+			target = swap;
+			targetFrom = swapFrom;
+		}
+		if (source != order) { // If the sorted positions ended up in temp, copy them back
+			System.arraycopy(source, sourceFrom, order, from, n);
+		}
+	}
+
+	@SuppressWarnings("serial") // Tasks are never serialised
+	static final class ParallelSort extends RecursiveAction { // Inner class for sorting chunks on different threads and merging them in pairs
+		private final long[] dates; // The date of each item
+		private final int[] ids; // The id of each item
+		private final int[] order; // The positions being sorted
+		private final int chunks; // The number of chunks to split into
+
+		ParallelSort(long[] dates, int[] ids, int[] order, int chunks) { // Constructor
+			this.dates = dates;
+			this.ids = ids;
+			this.order = order;
+			this.chunks = chunks;
+		}
+
+		protected void compute() {
+			final int n = order.length;
+			final int[] temp = new int[n]; // Space for the radix sorts and the merges
+			final int[] bounds = new int[chunks + 1]; // Where each chunk starts
+			for (int c = 0; c <= chunks; c++) {
+				bounds[c] = (int) ((long) n * c / chunks);
+			}
+			RecursiveAction[] sorts = new RecursiveAction[chunks]; // Radix sort every chunk at the same time
+			for (int c = 0; c < chunks; c++) {
+				final int from = bounds[c];
+				final int to = bounds[c + 1];
+				sorts[c] = new RecursiveAction() {
+					protected void compute() {
+						int[] space = new int[to - from]; // Each chunk needs its own space
+						radixSort(dates, ids, order, from, to, space);
+					}
+				};
+			}
+			invokeAll(sorts);
+			int[] source = order; // Then merge neighbouring chunks in pairs, doubling the chunk size each round
+			int[] target = temp;
+			for (int width = 1; width < chunks; width *= 2) {
+				int merges = (chunks + 2 * width - 1) / (2 * width); // The number of pairs this round
+				RecursiveAction[] round = new RecursiveAction[merges];
+				for (int m = 0; m < merges; m++) {
+					final int lo = bounds[m * 2 * width]; // The first chunk of the pair
+					final int middle = bounds[Math.min(m * 2 * width + width, chunks)]; // Where the second chunk starts
+					final int hi = bounds[Math.min(m * 2 * width + 2 * width, chunks)]; // Where the pair ends
+					final int[] in = source;
+					final int[] out = target;
+					round[m] = new RecursiveAction() {
+						protected void compute() {
+							merge(in, lo, middle, hi, out);
+						}
+					};
+				}
+				invokeAll(round); // Do every merge this round at the same time
+				int[] swap = source; // The output is the input for the next round
+				source = target;
+				target = swap;
+			}
+			if (source != order) { // If the result ended up in temp, copy it back
+				System.arraycopy(source, 0, order, 0, n);
+			}
+		}
+
+		// Method to merge the sorted ranges lo..middle and middle..hi of in into the same place in out
+		private void merge(int[] in, int lo, int middle, int hi, int[] out) {
+			int i = lo;
+			int j = middle;
+			for (int k = lo; k < hi; k++) {
+				if (j == hi || (i < middle && compare(dates, ids, in[i], in[j]) <= 0)) { // Take from the first range on ties, so it stays stable
+					out[k] = in[i++];
+				} else {
+					out[k] = in[j++];
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+/**
+* The TimelineService puts together a user's home timeline, i.e. the weets made by everyone they follow, most recent first, from a WeetStore and a FollowerStore.
+* Each user's weets are already kept sorted by date in the WeetStore, so the timeline is a k-way merge of the lists of the k users they follow.
+* A max-heap holds the next weet from each list, so each weet on the page costs O(log k), and a page costs O(k log n + p log k) with no scan of the store.
+* Pages use the same cursors as the WeetStore, so each list is binary searched to the cursor and the merge starts from there.
+* The service can also fan out on write: each user who has read their timeline gets an inbox holding the most recent weets from the people they follow,
+* and every new weet is pushed into the inbox of each of its author's followers as it is added, so reading the timeline is just a copy out of the inbox.
+* Inboxes are bounded, the oldest weet is dropped when one is full, so a page which goes back further than the inbox falls back to the merge.
+* Inboxes are only made when a user first reads their timeline, so users who never look at theirs cost nothing when weets are added.
+* When fanning out, weets and follows have to be added through the service rather than the stores, otherwise the inboxes won't know about them.
+* Like the stores it isn't thread safe on its own.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.Weet;
+
+import java.util.Arrays;
+import java.util.Date;
+
+public class TimelineService {
+	private final WeetStore weetStore; // The weets
+	private final FollowerStore followerStore; // Who follows who
+	private IntHashMap<Inbox> inboxes; // Map from a user's id to their inbox, or null when not fanning out
+	private int inboxSize; // The most weets an inbox holds
+
+	static final class Inbox { // Inner class for the most recent weets on one user's timeline, sorted by date and then id, oldest first
+		private Weet[] weets; // The weets, from start to start + count
+		private long[] dates; // The date of each weet as epoch millis
+		private int start; // The index of the oldest weet, dropping the oldest just moves this on
+		private int count; // The number of weets in the inbox
+		private final int capacity; // The most weets the inbox holds
+
+		Inbox(int capacity) { // Constructor
+			this.weets = new Weet[Math.min(capacity, 16)]; // Start small, the arrays grow as weets are added
+			this.dates = new long[weets.length];
+			this.start = 0;
+			this.count = 0;
+			this.capacity = capacity;
+		}
+
+		// Method to check whether the inbox has ever been full, if it hasn't then it holds the whole timeline
+		boolean isFull() {
+			return count == capacity;
+		}
+
+		// Method to put a weet in its place, dropping the oldest if the inbox is full, returns false if the weet is older than everything in a full inbox
+		boolean add(Weet weet) { // O(1) amortised if weets arrive in date order, otherwise O(log c) to find the place plus a shift
+			long date = weet.getDateWeeted().getTime(); // Get the date as epoch millis
+			int id = weet.getId();
+			if (count == capacity) { // If the inbox is full
+				if (WeetStore.compare(date, id, dates[start], weets[start].getId()) < 0) { // If the weet is older than the oldest one kept
+					return false; // It doesn't go in
+				}
+				weets[start] = null; // Drop the oldest
+				start++;
+				count--;
+			}
+			if (start + count == weets.length) { // If there is no room at the end
+				if (start >= weets.length / 2) { // If at least half of the array is free at the start, move the weets down
+					System.arraycopy(weets, start, weets, 0, count);
+					System.arraycopy(dates, start, dates, 0, count);
+					Arrays.fill(weets, count, start + count, null); // Clear the old places so the weets can be collected later
+					start = 0;
+				} else { // Otherwise double the arrays
+					weets = Arrays.copyOf(weets, weets.length * 2);
+					dates = Arrays.copyOf(dates, dates.length * 2);
+				}
+			}
+			int end = start + count; // One past the newest weet
+			int lo = end; // Where the weet goes, the end unless it is older than the newest
+			if (count > 0 && WeetStore.compare(dates[end - 1], weets[end - 1].getId(), date, id) > 0) { // If it doesn't belong at the end
+				lo = start;
+				int hi = end;
+				while (lo < hi) { // Binary search for the first weet that comes after this one
+					int middle = (lo + hi) >>> 1;
+					if (WeetStore.compare(dates[middle], weets[middle].getId(), date, id) < 0) { // If the middle weet comes before this one
+						lo = middle + 1; // Search the upper half
+					} else {
+						hi = middle; // Search the lower half
+					}
+				}
+				System.arraycopy(weets, lo, weets, lo + 1, end - lo); // Shift the later weets up by one
+				System.arraycopy(dates, lo, dates, lo + 1, end - lo);
+			}
+			weets[lo] = weet; // Put the weet in its place
+			dates[lo] = date;
+			count++;
+			return true;
+		}
+
+		// Method to find the index of the first weet which isn't older than the cursor, so every weet from start up to it comes after the cursor
+		int end(Cursor cursor) { // O(log c)
+			int lo = start;
+			int end = start + count;
+			while (cursor != null && lo < end) { // Binary search, with no cursor every weet is on the page
+				int middle = (lo + end) >>> 1;
+				if (WeetStore.compare(dates[middle], weets[middle].getId(), cursor.getDate(), cursor.getId()) < 0) { // If the middle weet is older
+					lo = middle + 1; // Search the upper half
+				} else {
+					end = middle; // Search the lower half
+				}
+			}
+			return end;
+		}
+	}
+
+	// Constructor for TimelineService, it merges on read until fan out is turned on
+	public TimelineService(WeetStore weetStore, FollowerStore followerStore) {
+		this.weetStore = weetStore;
+		this.followerStore = followerStore;
+		this.inboxes = null; // Not fanning out
+		this.inboxSize = 0;
+	}
+
+	// Method to fan out each weet to its author's followers as it is added, keeping up to inboxSize weets for each reader, or 0 to turn it off
+	public void setFanOut(int inboxSize) {
+		if (inboxSize < 0) { // Check the size makes sense
+			throw new IllegalArgumentException("inboxSize must not be negative");
+		}
+		this.inboxSize = inboxSize;
+		this.inboxes = inboxSize == 0 ? null : new IntHashMap<Inbox>(); // Any old inboxes were a different size, so start again, they are remade as users read
+	}
+
+	// Method to add a weet to the weet store, and push it into the inbox of each of the author's followers who has one
+	public boolean addWeet(Weet weet) { // O(f log c) for f followers when fanning out
+		if (!weetStore.addWeet(weet)) { // If the weet id is already in use
+			return false; // Nothing else needs updating
+		}
+		if (inboxes != null) { // If fanning out
+			int[] followers = followerStore.getFollowers(weet.getUserId()); // Everyone who will see the weet
+			for (int i = 0; followers != null && i < followers.length; i++) {
+				Inbox inbox = inboxes.get(followers[i]);
+				if (inbox != null) { // Only users who have read their timeline have an inbox
+					inbox.add(weet);
+				}
+			}
+		}
+		return true;
+	}
+
+	// Method to add a follower to the follower store, and put the followed user's recent weets into the follower's inbox if they have one
+	public boolean addFollower(int uid1, int uid2, Date followDate) { // O(c log c) when fanning out
+		if (!followerStore.addFollower(uid1, uid2, followDate)) { // If uid1 already followed uid2
+			return false;
+		}
+		Inbox inbox = inboxes == null ? null : inboxes.get(uid1);
+		WeetStore.WeetList list = inbox == null ? null : weetStore.weetList(uid2, null, inboxSize); // The weets uid1 can now see, only as many as fit in the inbox
+		if (list != null) {
+			for (int i = list.size() - 1; i >= 0 && inbox.add(list.get(i)); i--) { // Add them most recent first, until they are too old for the inbox
+			}
+		}
+		return true;
+	}
+
+	// Method to get the most recent weets on a user's home timeline, made by the users they follow
+	public Weet[] getTimeline(int uid, int limit) {
+		return getTimeline(uid, limit, null).getItems(); // The first page
+	}
+
+	// Method to get a page of a user's home timeline after the cursor given, most recent first
+	public Page<Weet> getTimeline(int uid, int limit, String cursor) { // O(p) from the inbox, otherwise O(k log n + p log k) to merge
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		Cursor after = Cursor.decode(cursor); // Where the last page finished
+		int fetch = limit == Integer.MAX_VALUE ? limit : limit + 1; // Fetch one more than a page, to see if there is another
+		Inbox inbox = inboxes == null ? null : inbox(uid);
+		if (inbox != null) {
+			int end = inbox.end(after); // The weets from start up to end come after the cursor
+			if (end - inbox.start >= fetch || !inbox.isFull()) { // If the inbox has enough for the page, or holds the whole timeline
+				int length = Math.min(end - inbox.start, fetch);
+				Weet[] weets = new Weet[length];
+				for (int i = 0; i < length; i++) {
+					weets[i] = inbox.weets[end - 1 - i]; // Copy them across backwards so the most recent is first
+				}
+				return toPage(weets, limit);
+			}
+		}
+		return toPage(merge(uid, after, fetch), limit); // Otherwise merge the lists of the users they follow
+	}
+
+	// Method to get a user's inbox, filling a new one from the merge the first time they read their timeline
+	private Inbox inbox(int uid) {
+		Inbox inbox = inboxes.get(uid);
+		if (inbox == null) { // If they haven't got one yet
+			inbox = new Inbox(inboxSize);
+			Weet[] recent = merge(uid, null, inboxSize); // The most recent weets on their timeline
+			for (int i = recent.length - 1; i >= 0; i--) {
+				inbox.add(recent[i]); // Oldest first, so each goes on the end
+			}
+			inboxes.put(uid, inbox);
+		}
+		return inbox;
+	}
+
+	// Method to turn the weets, fetched one past the page size, into a page with a cursor if there were more
+	private static Page<Weet> toPage(Weet[] weets, int limit) {
+		if (weets.length <= limit) { // If everything fitted then this is the last page
+			return new Page<Weet>(weets, null);
+		}
+		Weet last = weets[limit - 1]; // The last weet on the page
+		return new Page<Weet>(Arrays.copyOf(weets, limit), Cursor.encode(last.getDateWeeted().getTime(), last.getId())); // The next page starts after it
+	}
+
+	// Method to merge the weets of every user a user follows which come after the cursor, most recent first, stopping at the limit
+	private Weet[] merge(int uid, Cursor after, int limit) { // O(k log n + p log k) for k users followed and p weets returned
+		int[] follows = followerStore.getFollows(uid); // The users whose weets are on the timeline
+		if (follows == null) { // If they don't follow anyone
+			return new Weet[0];
+		}
+		WeetStore.WeetList[] lists = new WeetStore.WeetList[follows.length]; // The weet list of each user followed
+		int[] next = new int[follows.length]; // The index of the next weet to take from each list, counting down to the oldest
+		int[] heap = new int[follows.length]; // Max-heap of lists, ordered by their next weet, the most recent at the root
+		int size = 0; // The number of lists in the heap
+		for (int i = 0; i < follows.length; i++) {
+			WeetStore.WeetList list = weetStore.weetList(follows[i], after, limit); // No more than limit can come from one list
+			int end = list == null ? 0 : list.end(after); // Skip the weets on earlier pages
+			if (end > 0) { // If the list has anything left
+				lists[i] = list;
+				next[i] = end - 1; // Start from its most recent weet after the cursor
+				heap[size] = i;
+				siftUp(heap, size++, lists, next);
+			}
+		}
+		Weet[] weets = new Weet[Math.min(limit, 16)]; // Start small, the array grows if we need more room
+		int counter = 0;
+		while (size > 0 && counter < limit) {
+			int top = heap[0]; // The list with the most recent weet
+			if (counter == weets.length) { // If the array is full
+				weets = Arrays.copyOf(weets, counter * 2); // Double its size
+			}
+			weets[counter++] = lists[top].get(next[top]); // Take it
+			if (--next[top] < 0) { // If the list has run out
+				heap[0] = heap[--size]; // Move the last list to the root
+			}
+			siftDown(heap, 0, size, lists, next); // Move the root down into place
+		}
+		return counter == weets.length ? weets : Arrays.copyOf(weets, counter); // Return an array of the exact size
+	}
+
+	// Method to check whether the next weet of list a is more recent than the next weet of list b
+	private static boolean newer(int a, int b, WeetStore.WeetList[] lists, int[] next) {
+		return WeetStore.compare(lists[a].dateAt(next[a]), lists[a].get(next[a]).getId(), lists[b].dateAt(next[b]), lists[b].get(next[b]).getId()) > 0;
+	}
+
+	// Method to move a list up the heap until its parent's next weet is more recent
+	private static void siftUp(int[] heap, int i, WeetStore.WeetList[] lists, int[] next) {
+		while (i > 0) {
+			int parent = (i - 1) / 2; // Get the parent's index
+			if (!newer(heap[i], heap[parent], lists, next)) { // If the parent is more recent we are done
+				break;
+			}
+			int temp = heap[i]; // Otherwise swap with the parent
+			heap[i] = heap[parent];
+			heap[parent] = temp;
+			i = parent;
+		}
+	}
+
+	// Method to move a list down the heap until both children's next weets are older
+	private static void siftDown(int[] heap, int i, int size, WeetStore.WeetList[] lists, int[] next) {
+		while (true) {
+			int newest = i; // Assume this list is the most recent
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && newer(heap[left], heap[newest], lists, next)) {
+				newest = left; // The left child is more recent
+			}
+			if (right < size && newer(heap[right], heap[newest], lists, next)) {
+				newest = right; // The right child is more recent
+			}
+			if (newest == i) { // If neither child is more recent we are done
+				break;
+			}
+			int temp = heap[i]; // Otherwise swap with the more recent child
+			heap[i] = heap[newest];
+			heap[newest] = temp;
+			i = newest;
+		}
+	}
+
+}
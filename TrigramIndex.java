@@ -0,0 +1,131 @@
+/**
+* The TrigramIndex is an inverted index from every three character sequence (trigram) to the documents that contain it, used for substring searches.
+* Each document is given a number by the store, in increasing order, and its text is split into every trigram it contains when it is added.
+* Every trigram has a postings list of the document numbers containing it, which stays sorted because documents are only ever added with larger numbers.
+* Any document containing a query must contain every trigram of the query, so intersecting those postings lists gives a small set of candidates.
+* The candidates still have to be checked with contains, as a document can have all the trigrams without having them next to each other.
+* Trigrams are hashed into an int, so two trigrams might share a postings list, but that only adds candidates which then fail the check.
+* When case folding is turned on the text and queries are lower cased first, so the same index can answer case insensitive queries.
+* Queries shorter than three characters have no trigrams, so candidates returns null and the store has to fall back to checking everything.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+
+class TrigramIndex {
+	private IntHashMap<Postings> postings; // Map from the hashed trigram to its postings list
+	private boolean foldCase; // Whether text is lower cased before being indexed
+
+	static class Postings { // Inner class for a sorted list of document numbers
+		private int[] docs; // The document numbers, in increasing order
+		private int count; // The number of documents in the list
+
+		Postings() { // Constructor
+			this.docs = new int[4]; // Start small, most trigrams are rare
+			this.count = 0;
+		}
+
+		// Method to add a document to the end of the list, ignoring it if it was the last one added
+		void add(int doc) {
+			if (count > 0 && docs[count - 1] == doc) { // The document already contains this trigram
+				return;
+			}
+			if (count == docs.length) { // If the array is full
+				docs = Arrays.copyOf(docs, count * 2); // Double its size
+			}
+			docs[count++] = doc; // Add the document and increase the count
+		}
+	}
+
+	// Constructor for TrigramIndex
+	public TrigramIndex(boolean foldCase) {
+		this.postings = new IntHashMap<Postings>(); // Create the map of postings lists
+		this.foldCase = foldCase; // Remember whether to lower case the text
+	}
+
+	// Method to hash three characters into an int
+	private static int gram(char a, char b, char c) {
+		return ((a << 16) | b) * 31 + c; // The first two characters fit exactly, the third is mixed in
+	}
+
+	// Method to lower case the text if case folding is turned on
+	private String normalise(String text) {
+		return foldCase ? text.toLowerCase() : text;
+	}
+
+	// Method to add the text of a document, doc must be larger than any document added before
+	public void add(int doc, String text) { // O(m) where m is the length of the text
+		String normalised = normalise(text); // Lower case it if needed
+		for (int i = 0; i + 2 < normalised.length(); i++) { // Go through every trigram
+			int key = gram(normalised.charAt(i), normalised.charAt(i + 1), normalised.charAt(i + 2)); // Hash the trigram
+			Postings list = postings.get(key); // Get its postings list
+			if (list == null) { // If this is the first time we've seen it
+				list = new Postings(); // Create a new list
+				postings.put(key, list); // Store it in the map
+			}
+			list.add(doc); // Add the document to the list
+		}
+	}
+
+	// Method to get the documents which might contain the query, in increasing order, or null if the query is too short to use the index
+	public int[] candidates(String query) {
+		String normalised = normalise(query); // Lower case it if needed
+		int grams = normalised.length() - 2; // The number of trigrams in the query
+		if (grams <= 0) { // If there are no trigrams then the index can't help
+			return null;
+		}
+		Postings[] lists = new Postings[grams]; // The postings list for each trigram
+		for (int i = 0; i < grams; i++) {
+			lists[i] = postings.get(gram(normalised.charAt(i), normalised.charAt(i + 1), normalised.charAt(i + 2))); // Look up the trigram
+			if (lists[i] == null) { // If no document has this trigram
+				return new int[0]; // Then no document can contain the query
+			}
+		}
+		Postings smallest = lists[0]; // Find the shortest list, as the result can't be longer than it
+		for (int i = 1; i < grams; i++) {
+			if (lists[i].count < smallest.count) {
+				smallest = lists[i];
+			}
+		}
+		int[] result = Arrays.copyOf(smallest.docs, smallest.count); // Start with the shortest list
+		int size = result.length; // The number of candidates so far
+		for (int i = 0; i < grams && size > 0; i++) { // Intersect with each of the other lists
+			if (lists[i] != smallest) {
+				size = intersect(result, size, lists[i].docs, lists[i].count); // Keep only the documents in both
+			}
+		}
+		return size == result.length ? result : Arrays.copyOf(result, size); // Return an array of the exact size
+	}
+
+	// Method to keep only the documents in a which are also in b, both sorted, returns the new size of a
+	private static int intersect(int[] a, int aSize, int[] b, int bSize) {
+		int size = 0; // The number of documents kept
+		if (bSize > aSize * 8) { // If b is much longer, binary search it for each document in a
+			int lo = 0; // Documents are increasing so we never need to look before the last match
+			for (int i = 0; i < aSize; i++) {
+				int found = Arrays.binarySearch(b, lo, bSize, a[i]); // Look for the document in b
+				if (found >= 0) { // If it is there
+					a[size++] = a[i]; // Keep it
+					lo = found + 1; // Carry on searching after it
+				} else {
+					lo = -found - 1; // Carry on searching from where it would have been
+				}
+			}
+		} else { // Otherwise walk both lists together
+			int j = 0; // Position in b
+			for (int i = 0; i < aSize && j < bSize; i++) {
+				while (j < bSize && b[j] < a[i]) { // Skip past documents in b which are smaller
+					j++;
+				}
+				if (j < bSize && b[j] == a[i]) { // If the document is in both lists
+					a[size++] = a[i]; // Keep it
+				}
+			}
+		}
+		return size; // Return the new size
+	}
+
+}
@@ -1,8 +1,18 @@
 /**
 * The UserStore is implemented by using a HashMap which uses a Key-Value Pair. The key value being the unique user ID and the value being the User Object.
-* My implementation of the HashMap does not contain the remove operation, since its not required for it, but does have a put and get operation.
-* Using an initial capacity of 128 means that the hashmap will be balanced if the user ids added are only incremementing by 1 each time.
-* Inserting a User into the hashMap has the best case O(1) and worst case O(n) which is the same for searching for a user
+* The HashMap is backed by the shared IntHashMap, which uses open addressing on primitive int keys so there is no boxing and no entry object per user.
+* The table starts small and doubles whenever it goes over its load factor, so it stays balanced however many users are added.
+* Inserting a User into the hashMap is O(1) on average which is the same for searching for a user
+* Every user is also added to a SortedSnapshot, which merges new users into a sorted array only when the users are next listed,
+* so listing all the users again when nothing has changed is just an array copy, or no copy at all through the unmodifiable list view
+* Every query can also be read lazily as a Stream straight from the snapshot, which only looks at as many users as the caller reads and copies nothing,
+* and the array queries are built from those streams so only the matching users are ever copied
+* Names are added to a TrigramIndex, so searching for a name only has to check the users whose name contains every trigram of the query rather than every user
+* Searches can be case insensitive if the store is created that way, in which case the names are lower cased before they go in the index
+* Searching every name for a query too short for the index can also be run in parallel on a ForkJoinPool using a ParallelScan, which splits the snapshot into ranges and checks them at the same time
+* The paged queries binary search the snapshot for the cursor from the last page and read one page from there, so they don't build the whole result
+* A page of a search the index can answer keeps the most recent matches after the cursor in a min-heap one bigger than the page, like the WeetStore, so no page sorts every match
+* The snapshot is ordered by the date joined, so the users who joined before a date, or between two dates, are found with a binary search for each end and read as a slice
 * Hashing the unique Id means that there is a reduced chance of collisions
 * The reason a hash map was chosen was because there's no fixed size, therefore it is scalable
 * @author_name: Rushil Gala-Shah
@@ -13,249 +23,312 @@ package uk.ac.warwick.java.cs126.services;
 
 import uk.ac.warwick.java.cs126.models.User;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class UserStore implements IUserStore {
-	private HashMap<Integer,User> userList; // Store the variable userList to type HashMap which takes Integers and Users
+	private HashMap userList; // Store the variable userList to type HashMap which maps unique ids to Users
+	private SortedSnapshot<User> snapshot; // Every user sorted by the date they joined, only re-merged when users have been added
+	private TrigramIndex nameIndex; // Inverted index from trigrams in the name to document numbers, used for searching
+	private User[] usersByDoc; // The users in the order they were added, so a document number can be turned back into a user
+	private boolean ignoreCase; // Whether searching ignores the case of the names
+	private volatile ParallelScan parallel; // Runs the queries which check every user on a ForkJoinPool, or null to run them on the calling thread
 	
-	class HashMap<K,V> { // Inner class HashMap for ADT implementation
-		private userEntry<K,V>[] table; // Array of Nodes which will contain the key (unique id) and value (the user object)
-		private int capacity = 128; // Initial Capacity of HashMap
-		private int count; // Variable for counting how many users we currently have
+	class HashMap { // Inner class HashMap for ADT implementation
+		private IntHashMap<User> table; // Open addressing map from the unique id (key) to the user object (value)
 		
-		class userEntry<K,V> { // Each Key-Value Pair object inner class
-			K key; // Key - the hashed value of the unique id
-			V value; // The user object
-			userEntry<K,V> next; // The next Key-Value Pair in the list
-			
-			// Constructor for when a new Key-Value Pair is initialized
-			public userEntry(K key, V value, userEntry<K,V> next){
-				this.key = key;
-				this.value = value;
-				this.next = next;
-			}
-			
-		}
-		
-		@SuppressWarnings("unchecked")
 		public HashMap() { // Constructor for HashMap
-			this.table = new userEntry[capacity]; // Create the initial array of nodes using the capacity given
-			this.count = 0; // Set the number of users to 0
+			this.table = new IntHashMap<User>(); // Create the table, it will resize itself as users are added
 		}
 		
 		// Adding a user object to the data store
-		public boolean put(K key, V usr) { // Worse case O(n), best case O(1)
-			if (key == null) {
-				return false; // No Key was supplied so return false
-			}
-			
-			int location = hash(key); // Hash the key so we know the location to store the Key-Value Pair
-			
-			// Construct a new Key-Value Pair Object consisting of the key and value where the next object points to null
-			userEntry<K,V> newUser = new userEntry<K,V>(key, usr, null);
-
-			if(table[location] == null) { // There are no users currently who's hashed value locates here
-				table[location] = newUser; // Add the Key-Value Pair Object to the first slot
-				count++; // Increase the counter for number of users
-				return true; // Return that the user was added successfully
-			} else {
-				userEntry<K,V> current = table[location]; // Get the first Key-Value Pair from the current pointer in the array
-				while(current.next != null){ // Traverse through the keys
-					if(current.key.equals(key)) { // If the key we are trying to store is found in the data structure
-						return false; // Return false as this probably means that the user id is not unique				
-					}
-					current = current.next; // Get the next key-value pair
-				}
-				// Keep going until we reach the end of the list of keys
-				current.next = newUser; // We are at the end of the list so assign the next space to this user (key-value pair)
-				count++; // Increase the counter for number of users
-				return true; // Return that the user was added successfully
-			}
+		public boolean put(int key, User usr) { // Average O(1)
+			return table.put(key, usr); // Returns false if the user id is not unique
 		}
 		
 		// Retrieving a user object from the data store
-		public V get(K key) { // Worse case O(n), best case O(1)
-			int location = hash(key); // Hash the key value
-			if (table[location] == null) { // If the location in the array returns null, then there are no user objects here
-				return null; // Return null as there are no user objects here
-			} else {
-				userEntry<K,V> temp = table[location]; // Get the first key-value pair object and assign it to a temporary object
-				while(temp != null) { // Traverse through the keys
-					if (temp.key.equals(key)) { // If the key is the one we are looking for, then
-						return temp.value; // Return the user object
-					}
-					temp = temp.next; // Get the next key-value pair
-				} // Keep traversring until we get to a null object
-				return null; // Reached the end of the list, the user is not here so return null
-			}
+		public User get(int key) { // Average O(1)
+			return table.get(key); // Returns null if there is no user with this id
 		}
 		
 		// Get the current number of users
 		public int getSize() {
-			return count; // Return the count variable as that keeps count of the number of users
+			return table.size(); // The table keeps count of the number of users
 		}
 		
-		// Get all the users
-		public User[] searchThrough() {
-			int maxSize = getSize(); // The number of users we have is kept count of
-			User[] users = new User[maxSize]; // Use size to set our array
-			int counter = 0; // Set a counter to 0
-			for (int i = 0; i < capacity; i++) { // For each number in the array of userEntry, go through
-				if (table[i] != null) { // If the first element is null, then we can skip this bit
-					userEntry<K,V> temp = table[i]; // Assign the head object to a temp variable
-					
-					while(temp != null) { // Traverse through the list
-						users[counter++] = (User) temp.value; // Add each non null values as users to the array we created and increase the counter
-						temp = temp.next; // Get the next object
-					}
-				} // Move on to the next i value
-			}
-			return users; // Return the array
+	}
+	
+	// Constructor for UserStore, searches are case sensitive
+	public UserStore() {
+		this(false);
+	}
+	
+	// Constructor for UserStore, choosing whether searches ignore case
+	public UserStore(boolean ignoreCase) {
+		userList = new HashMap(); // Create a new instance of the HashMap, the key being the unique id, and the value the User object
+		snapshot = new SortedSnapshot<User>(); // Create the snapshot, it starts empty
+		nameIndex = new TrigramIndex(ignoreCase); // Create the index of names, lower cased if searches ignore case
+		usersByDoc = new User[256]; // Create the array of users by document number, it grows as users are added
+		this.ignoreCase = ignoreCase;
+	}
+	
+	// Method to check whether searches ignore case
+	public boolean isIgnoreCase() {
+		return ignoreCase;
+	}
+	
+	// Method to add a user to the data store
+	public boolean addUser(User usr) {
+		if (!userList.put(usr.getId(), usr)) { // Add a user object to the data store using the unique id as the key and the user object as the value
+			return false; // Return false as the unique id is already taken
 		}
-		
-		// Get all the users who contain the query
-		public User[] name(String query) {
-			int maxSize = getSize(); // Get the maximum possible size we could have
-			User[] users = new User[maxSize]; // Create a new array with this fixed size
-			int counter = 0; // Set the counter to 0
-			for (int i = 0; i < capacity; i++) { // For each number in the array of userEntry, go through
-				if (table[i] != null) { // If the first element is null, then we can skip this bit
-					userEntry<K,V> temp = table[i]; // Assign the head object to a temp variable
-					
-					while(temp != null) { // Traverse through the list
-						User tempUser = (User) temp.value; // Grab the value and assign it to a temp User
-						String name = tempUser.getName(); // Get the name of the User from the User JavaDocs
-						if (name.contains(query)) { // If the name contains the query, then we can add it to the array
-							users[counter++] = (User) temp.value; // Add it to the array that we created and increase the counter
-						}
-						temp = temp.next; // Get the next object
-					}
-				} // Move on to the next i value
-			}
-			return users; // Return the array
+		snapshot.add(usr.getDateJoined().getTime(), usr.getId(), usr); // It will be merged into the sorted snapshot the next time the users are listed
+		int doc = userList.getSize() - 1; // The document number is the order the user was added in
+		if (doc == usersByDoc.length) { // If the array is full
+			usersByDoc = Arrays.copyOf(usersByDoc, doc * 2); // Double its size
 		}
-		
-		// Get all the users who joined before the date specified
-		public User[] dateBefore(Date dateBefore) {
-			int maxSize = getSize(); // Get the maximum possible size we could have
-			User[] users = new User[maxSize]; // Create a new array with this fixed size
-			int counter = 0; // Set the counter to 0
-			for (int i = 0; i < capacity; i++) { // For each number in the array of userEntry, go through
-				if (table[i] != null) { // If the first element is null, then we can skip this bit
-					userEntry<K,V> temp = table[i]; // Assign the head object to a temp variable
-					
-					while(temp != null) { // Traverse through the list
-						User tempUser = (User) temp.value; // Grab the value and assign it to a temp User
-						Date dateJoined = tempUser.getDateJoined(); // Get the date the User joined using the User JavaDocs
-						if (dateJoined.before(dateBefore)) { // If the date they joined is before the date specified, then we can add it to the array
-							users[counter++] = (User) temp.value; // Add it to the array that we created and increase the counter
-						}
-						temp = temp.next; // Get the next object
-					}
-				} // Move on to the next i value
-			}
-			return users; // Return the array
+		usersByDoc[doc] = usr; // Remember which user the document number is for
+		nameIndex.add(doc, usr.getName()); // Add the trigrams of the name to the search index
+		return true; // Return true as the user was added
+	}
+
+	// Method to get a specified User Object by their unique ID
+	public User getUser(int uid) {
+		return userList.get(uid); // Return the user object using their unique ID as the key
+	}
+	
+	// Method to get the array of users
+	public User[] getUsers() { // O(n) copy, plus merging in any users added since the last call
+		return snapshot.toArray(new User[0]); // The snapshot is already sorted - most recent first
+	}
+	
+	// Method to get every user as an unmodifiable list, without copying them
+	public List<User> getUsersView() { // O(1) if no users have been added since the last call
+		return snapshot.view(); // The snapshot is already sorted - most recent first
+	}
+	
+	// Method to get the array of users containing a certain string
+	public User[] getUsersContaining(String query) { // O(c) for c candidates from the index, otherwise O(n) to check every name, or O(n / p) on p threads
+		User[] users = indexed(query); // Use the trigram index if the query is long enough
+		if (users != null) {
+			return users;
 		}
-		
-		// Method to hash a key value
-		private int hash(K key){ // The hash is modded by the capacity so we can be certain there won't be an array out of bounds exception
-			return Math.abs(key.hashCode()) % capacity; // Return the positive value of the hash
+		String needle = needle(query); // Lower case it if searches ignore case
+		ParallelScan scan = parallel; // Read it once in case it is changed meanwhile
+		if (scan != null) { // If parallel scans are turned on
+			Object[] all = snapshot.array(); // Scan the snapshot array itself, the ranges stay in order so they just need joining
+			return scan.filter(all, 0, all.length, (User user) -> matches(user, needle), new User[0]);
 		}
-		
+		return streamUsers().filter(user -> matches(user, needle)).toArray(User[]::new); // The snapshot is already sorted - most recent first
 	}
 	
-	// Constructor for UserStore
-	public UserStore() {
-		userList = new HashMap<Integer, User>(); // Create a new instance of the HashMap, the key being an Integer, and the value the User object
+	// Method to get the query as it is compared with the names, lower cased if searches ignore case
+	private String needle(String query) {
+		return ignoreCase ? query.toLowerCase() : query;
 	}
 	
-	// Quick sort algorithm which is used to sort the users by date joined
-	public static void quickSort(User[] usersArray, int low, int n) {
-		int lo = low; // Set the lowest index from the parameters
-		int hi = n; // Set the number of elements to the highet index
-		int middle = low + (n - low) / 2; // Get the middle element
-		if (usersArray == null || usersArray.length == 0) { // If the array is null, or the length is 0
-			return; // Return as there is nothing to sort now
-		}
-		if (low >= n) { // If the lowest index is greater than the number of elements, then
-			return; // Return as there is nothing to sort
+	// Method to check whether a user's name contains the query, which has already been through needle
+	private boolean matches(User user, String needle) {
+		String name = user.getName();
+		return (ignoreCase ? name.toLowerCase() : name).contains(needle);
+	}
+	
+	// Method to get the users whose name contains a query using the trigram index, most recent first, or null if the query is too short for the index
+	private User[] indexed(String query) { // O(c) for c candidates
+		int[] docs = nameIndex.candidates(query); // The users whose name has every trigram of the query
+		if (docs == null) { // The query is too short for the index
+			return null;
 		}
-		User pivot = usersArray[middle]; // Place the pivot as the middle element of users
-		while (lo <= hi) { // Whilst, lo is less than or equal to high
-			while (usersArray[lo].getDateJoined().after(pivot.getDateJoined())) { // While lower element joined more recently than the pivot, then
-				lo++; // Increase the lo value && move to the next user
-			} // Do this until we get to user who joined before the pivot user
-			while (usersArray[hi].getDateJoined().before(pivot.getDateJoined())) { // While the user with the highest index joined before the pivot
-				hi--; // Decrease the hi value && go down to the next user
-			} // Do this until we come across a user who joined before the pivot user
-			if (lo <= hi) { // If lo is still less than hi
-				// Swapping Users
-				User temp = usersArray[lo]; // Assign the user at index lo to a temp user
-				usersArray[lo] = usersArray[hi]; // Move the user at index hi to the lo index
-				usersArray[hi] = temp; // Move the temp user to the high index
-				lo++; // Increase the lo index
-				hi--; // Decrease the hi index
+		String needle = needle(query);
+		User[] users = new User[docs.length]; // The result can't be bigger than the number of candidates
+		int length = 0; // Set the counter to 0
+		for (int i = 0; i < docs.length; i++) { // Check each candidate
+			User candidate = usersByDoc[docs[i]]; // Get the user from their document number
+			if (matches(candidate, needle)) { // If the name really contains the query
+				users[length++] = candidate; // Add it to the array and increase the counter
 			}
-		} // Keep doing this until lo > hi
-		// Recursively sort the two parts
-		if (low < hi) { // If the initial low index is still less than the hi index, then
-			quickSort(usersArray, low, hi); // Sort the lower side of the pivot
 		}
-		if (n > lo) { // If the initial high value is still greater than lo index, then
-			quickSort(usersArray, lo, n); // Sort the higher side of the pivot
+		ParallelScan scan = parallel; // Big results are sorted on the parallel scan's pool if there is one
+		Sorting.sortNewestFirst(users, 0, length, user -> user.getDateJoined().getTime(), User::getId, scan == null ? null : scan.getPool()); // The candidates are in the order they were added, so sort them - most recent first
+		return length == users.length ? users : Arrays.copyOf(users, length); // Return an array of the exact size
+	}
+	
+	// Method to run the queries which check every user on a ForkJoinPool, for big stores on machines with many cores, or null to turn it off
+	public void setParallelScan(ForkJoinPool pool) {
+		parallel = pool == null ? null : new ParallelScan(pool, ParallelScan.DEFAULT_THRESHOLD);
+	}
+	
+	// Method to get the array of users before a certain date
+	public User[] getUsersJoinedBefore(Date dateBefore) { // O(log n + k)
+		return streamUsersJoinedBefore(dateBefore).toArray(User[]::new); // The snapshot is already sorted - most recent first
+	}
+	
+	// Method to lazily stream every user, most recent first
+	public Stream<User> streamUsers() { // O(1) to start, each user is read as the stream asks for it
+		return StreamSupport.stream(snapshot.spliterator(snapshot.seek(null)), false); // Read straight from the snapshot, no copy
+	}
+	
+	// Method to lazily stream the users whose name contains a query, most recent first, so the caller can stop early
+	public Stream<User> streamUsersContaining(String query) {
+		User[] users = indexed(query); // Use the trigram index if the query is long enough
+		if (users != null) {
+			return Arrays.stream(users); // Stream the matches
 		}
+		String needle = needle(query); // Lower case it if searches ignore case
+		return streamUsers().filter(user -> matches(user, needle)); // Each name is only checked when the stream gets to it
+	}
+	
+	// Method to lazily stream the users who joined before a certain date, most recent first
+	public Stream<User> streamUsersJoinedBefore(Date dateBefore) { // O(log n) to start
+		int from = snapshot.seek(new Cursor(dateBefore.getTime(), Integer.MIN_VALUE)); // Binary search for the first user who joined before the date
+		return StreamSupport.stream(snapshot.spliterator(from), false); // Everyone from there on joined before it
+	}
+	
+	// Method to lazily stream the users who joined on or after one date and before another, most recent first
+	public Stream<User> streamUsersJoinedBetween(Date from, Date to) { // O(log n) to start
+		int start = snapshot.seek(new Cursor(to.getTime(), Integer.MIN_VALUE)); // Binary search for the first user who joined before the end
+		int end = snapshot.seek(new Cursor(from.getTime(), Integer.MIN_VALUE)); // And for the first user who joined before the start
+		return StreamSupport.stream(snapshot.spliterator(start, Math.max(start, end)), false); // Everyone in between
+	}
+	
+	// Method to get the array of users who joined on or after one date and before another, most recent first
+	public User[] getUsersJoinedBetween(Date from, Date to) { // O(log n + k)
+		return streamUsersJoinedBetween(from, to).toArray(User[]::new); // The snapshot is already sorted - most recent first
 	}
 	
-	// Method to count the number of non null objects
-	public int countNotNull(User[] array) {
+	// Method to get an iterator over every user, most recent first
+	public Iterator<User> iterator() {
+		return streamUsers().iterator();
+	}
+	
+	// Method to read a page from the snapshot, starting at an index and stopping before another, keeping only users whose name contains the needle if there is one
+	private Page<User> page(int from, int to, int limit, String needle) { // O(k) for k users looked at
+		User[] users = new User[Math.min(limit, 16)]; // Start small, the array grows if we need more room
 		int counter = 0; // Set the counter to 0
-		for (int i = 0; i < array.length; i++) { // Traverse through the specified array
-			if (array[i] != null) { // If the element is not null, then
-				counter++; // Increase the counter
+		for (int i = from; i < to; i++) { // Walk the snapshot, already most recent first
+			User user = snapshot.get(i);
+			if (needle != null && !matches(user, needle)) { // If the name doesn't contain the query
+				continue; // Skip it
+			}
+			if (counter == limit) { // If the page is already full then there is another page
+				User last = users[limit - 1]; // The next page starts after the last user on this one
+				return new Page<User>(users, Cursor.encode(last.getDateJoined().getTime(), last.getId()));
 			}
+			if (counter == users.length) { // If the array is full
+				users = Arrays.copyOf(users, Math.min(counter * 2, limit)); // Double its size, but no bigger than a page
+			}
+			users[counter++] = user; // Add the user and increase the counter
 		}
-		return counter; // Return the number of non-null objects
+		return new Page<User>(Arrays.copyOf(users, counter), null); // This is the last page
 	}
 	
-	// Method to add a user to the data store
-	public boolean addUser(User usr) {
-		return userList.put(usr.getId(), usr); // Add a user object to the data store using the unique id as the key and the user object as the value
+	// Method to get a page of users, most recent first
+	public Page<User> getUsers(int limit, String cursor) { // O(log n + k)
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		int from = snapshot.seek(Cursor.decode(cursor)); // Binary search for the cursor
+		return page(from, snapshot.snapshotSize(), limit, null); // And read from there
 	}
-
-	// Method to get a specified User Object by their unique ID
-	public User getUser(int uid) {
-		return userList.get(uid); // Return the user object using their unique ID as the key
+	
+	// Method to get a page of users whose name contains a query, most recent first
+	public Page<User> getUsersContaining(String query, int limit, String cursor) { // O(c log k) for c candidates from the index, otherwise O(log n + k) for k users looked at
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		Cursor after = Cursor.decode(cursor); // Where the last page finished
+		int[] docs = nameIndex.candidates(query); // Use the trigram index to find the users whose name could contain the query
+		if (docs == null) { // The query is too short for the index, so binary search the snapshot for the cursor and check each user from there
+			int from = snapshot.seek(after);
+			return page(from, snapshot.snapshotSize(), limit, needle(query));
+		}
+		String needle = needle(query);
+		User[] heap = new User[(int) Math.min((long) limit + 1, docs.length)]; // Min-heap of the most recent matches, the oldest at the root
+		int size = 0; // The number of users in the heap
+		for (int i = 0; i < docs.length; i++) { // Check each candidate
+			User candidate = usersByDoc[docs[i]]; // Get the user from their document number
+			if (after != null && WeetStore.compare(candidate.getDateJoined().getTime(), candidate.getId(), after.getDate(), after.getId()) >= 0) { // If they were on an earlier page
+				continue; // Skip them
+			}
+			if (!matches(candidate, needle)) { // If the name doesn't really contain the query
+				continue; // Skip them
+			}
+			if (size < heap.length) { // If the heap isn't full yet
+				heap[size] = candidate; // Add them to the end
+				siftUp(heap, size++); // And move them up into place
+			} else if (newer(candidate, heap[0])) { // Otherwise if they joined after the oldest in the heap
+				heap[0] = candidate; // Replace the oldest
+				siftDown(heap, 0, size); // And move them down into place
+			}
+		}
+		User[] sorted = new User[size]; // Take the users out of the heap, oldest first, filling the array from the end
+		for (int i = size - 1; i >= 0; i--) {
+			sorted[i] = heap[0]; // The root is the oldest left
+			heap[0] = heap[i]; // Move the last user to the root
+			siftDown(heap, 0, i); // And move them down into place
+		}
+		if (size <= limit) { // If everything fitted then this is the last page
+			return new Page<User>(sorted, null);
+		}
+		User last = sorted[limit - 1]; // The next page starts after the last user on this one
+		return new Page<User>(Arrays.copyOf(sorted, limit), Cursor.encode(last.getDateJoined().getTime(), last.getId()));
 	}
 	
-	// Method to get the array of users
-	public User[] getUsers() {
-		User[] usersArray = userList.searchThrough().clone(); // Use the HashMap to get all the users, as there is a method in there already
-		quickSort(usersArray, 0, usersArray.length-1); // Sort the array so that the users are ordered - most recent first
-		return usersArray; // Return the sorted array
+	// Method to check whether user a joined after user b, using the id to break ties
+	private static boolean newer(User a, User b) {
+		return WeetStore.compare(a.getDateJoined().getTime(), a.getId(), b.getDateJoined().getTime(), b.getId()) > 0;
 	}
 	
-	// Method to get the array of users containing a certain string
-	public User[] getUsersContaining(String query) {
-		User[] usersArray = userList.name(query).clone(); // Use the HashMap to generate all the users who contain the query string
-		int length = countNotNull(usersArray); // Count the number of elements in the array which aren't null
-		User[] containUsers = new User[length]; // Create a new array which takes the number of non null elements
-		for (int i = 0; i < length; i++) {
-			containUsers[i] = usersArray[i]; // Copy the users which aren't null into the new array
+	// Method to move a user up a min-heap ordered by date joined until their parent is older
+	private static void siftUp(User[] heap, int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2; // Get the parent's index
+			if (!newer(heap[parent], heap[i])) { // If the parent is older we are done
+				break;
+			}
+			User temp = heap[i]; // Otherwise swap with the parent
+			heap[i] = heap[parent];
+			heap[parent] = temp;
+			i = parent;
 		}
-		quickSort(containUsers, 0, length-1); // Sort the array so that the users are ordered - most recent first
-		return containUsers; // Return the sorted array
 	}
 	
-	// Method to get the array of users before a certain date
-	public User[] getUsersJoinedBefore(Date dateBefore) {
-		User[] usersArray = userList.dateBefore(dateBefore).clone(); // Use the HashMap to generate all the users who joined before the date
-		int length = countNotNull(usersArray); // Count the number of elements in the array which aren't null
-		User[] beforeUsers = new User[length]; // Create a new array which takes the number of non null elements
-		for (int i = 0; i < length; i++) {
-			beforeUsers[i] = usersArray[i]; // Copy the users which aren't null into the new array
+	// Method to move a user down a min-heap ordered by date joined until both children are newer
+	private static void siftDown(User[] heap, int i, int size) {
+		while (true) {
+			int oldest = i; // Assume this user is the oldest
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && newer(heap[oldest], heap[left])) {
+				oldest = left; // The left child is older
+			}
+			if (right < size && newer(heap[oldest], heap[right])) {
+				oldest = right; // The right child is older
+			}
+			if (oldest == i) { // If neither child is older we are done
+				break;
+			}
+			User temp = heap[i]; // Otherwise swap with the older child
+			heap[i] = heap[oldest];
+			heap[oldest] = temp;
+			i = oldest;
 		}
-		quickSort(beforeUsers, 0, length-1); // Sort the array so that the users are ordered - most recent first
-		return beforeUsers; // Return the sorted array
+	}
+	
+	// Method to get a page of users who joined before a certain date, most recent first
+	public Page<User> getUsersJoinedBefore(Date dateBefore, int limit, String cursor) { // O(log n + k)
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		int from = Math.max(snapshot.seek(new Cursor(dateBefore.getTime(), Integer.MIN_VALUE)), snapshot.seek(Cursor.decode(cursor))); // Start at the date or the cursor, whichever is further on
+		return page(from, snapshot.snapshotSize(), limit, null); // Read from there
+	}
+	
+	// Method to get a page of users who joined on or after one date and before another, most recent first
+	public Page<User> getUsersJoinedBetween(Date from, Date to, int limit, String cursor) { // O(log n + k)
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		int start = Math.max(snapshot.seek(new Cursor(to.getTime(), Integer.MIN_VALUE)), snapshot.seek(Cursor.decode(cursor))); // Start at the end date or the cursor, whichever is further on
+		int end = snapshot.seek(new Cursor(from.getTime(), Integer.MIN_VALUE)); // Stop at the first user who joined before the start date
+		return page(start, end, limit, null); // Read between them
 	}
 
 }
@@ -1,9 +1,20 @@
 /**
 * The WeetStore is implemented by using a HashMap which uses a Key-Value Pair. The key value being the unique weet ID and the value being the Weet Object.
-* My implementation of the HashMap does not contain the remove operation, since its not required for it, but does have a put and get operation.
-* Using an initial capacity of 128 means that the hashmap will be balanced if the weet ids added are only incremementing by 1 each time.
-* Inserting a Weet into the hashMap has the best case O(1) and worst case O(n) which is the same for searching for a weet
+* The HashMap is backed by the shared IntHashMap, which uses open addressing on primitive int keys so there is no boxing and no entry object per weet.
+* The table starts small and doubles whenever it goes over its load factor, so it stays balanced however many weets are added.
+* Inserting a Weet into the hashMap is O(1) on average which is the same for searching for a weet
 * Hashing the unique Id means that there is a reduced chance of collisions
+* A second IntHashMap indexes each user's weets in a WeetList which is kept sorted by date as weets are added, so getting a user's weets doesn't need a scan or a sort
+* Every weet is also put in a DateIndex skip list, so the weets on a day or before a date are found by seeking to the date and walking forward, already sorted
+* Every query also has a paged version which takes a limit and the cursor from the last page, and seeks straight to the cursor in the date index or the user's list,
+* so it only does work for the page. Paged searches keep the most recent matches in a small heap rather than sorting every match
+* Every query can also be read as a Stream, which walks the snapshot or the date index lazily so the caller can stop early without anything being copied
+* Searches can also be run in parallel on a ForkJoinPool using a ParallelScan, which checks ranges of the weets at the same time and merges the sorted matches
+* Messages are added to a TrigramIndex, so searching only has to check the weets which contain every trigram of the query rather than every weet
+* Hashtags are counted by a HashtagCounter as weets are added, which keeps the top 10 in a heap, so getting the trending topics doesn't look at any weets
+* Trending can instead be limited to a sliding window of time using a WindowedTrending counter, so old hashtags drop out of the list
+* or worked out approximately in a fixed amount of memory using an ApproximateTrending counter, for when there are too many different hashtags to count exactly
+* Every weet is also added to a SortedSnapshot, so listing all the weets again when nothing has changed is just an array copy, or no copy at all through a list view
 * The reason a hash map was chosen was because there's no fixed size, therefore it is scalable
 * @author_name: Rushil Gala-Shah
 * @author: 1515140
@@ -16,6 +27,13 @@ import uk.ac.warwick.java.cs126.models.Weet;
 
 import java.io.BufferedReader;
 import java.util.Date;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.io.FileReader;
 import java.text.ParseException;
 import java.io.IOException;
@@ -26,345 +44,190 @@ import java.text.SimpleDateFormat;
 
 
 public class WeetStore implements IWeetStore {
-	private HashMap<Integer, Weet> weetHashMap; // Store the variable weetHashMap to type HashMap which takes Integers and Weets
+	private HashMap weetHashMap; // Store the variable weetHashMap to type HashMap which maps unique ids to Weets
+	private IntHashMap<WeetList> weetsByUser; // Index from a user's unique id to the list of weets they made, kept in date order
+	private DateIndex<Weet> dateIndex; // Skip list of every weet, most recent first, used for the date queries
+	private TrigramIndex textIndex; // Inverted index from trigrams in the message to document numbers, used for searching
+	private Weet[] weetsByDoc; // The weets in the order they were added, so a document number can be turned back into a weet
+	private ITrendingCounter trending; // Counts the hashtags as weets are added and keeps track of the top 10
+	private SortedSnapshot<Weet> snapshot; // Every weet sorted by the date weeted, only re-merged when weets have been added
+	private volatile ParallelScan parallel; // Runs searches on a ForkJoinPool, or null to run them on the calling thread
 	
-	class HashMap<K,V> { // Inner class HashMap for ADT implementation
-		private weetEntry<K,V>[] table; // Array of Nodes which will contain the key (unique id) and value (the weet object)
-		private int capacity = 256; // Initial Capacity of HashMap
-		private int count; // Variable for counting how many weets we currently have
+	class WeetList { // Inner class WeetList which holds one user's weets sorted by the date weeted, oldest first
+		private Weet[] weets; // The weets, sorted by date weeted and then by id
+		private long[] dates; // The date of each weet as epoch millis, so comparing doesn't need the Date objects
+		private int count; // The number of weets in the list
 		
-		class weetEntry<K,V> { // Each Key-Value Pair object inner class
-			K key; // Key - the hashed value of the unique id
-			V value; // The Weet object
-			weetEntry<K,V> next; // The next Key-Value Pair in the list
-			
-			// Constructor for when a new Key-Value Pair is initialized
-			public weetEntry(K key, V value, weetEntry<K,V> next){
-				this.key = key;
-				this.value = value;
-				this.next = next;
-			}
-		}
-		
-		@SuppressWarnings("unchecked")
-		public HashMap() { // Constructor for HashMap
-			this.table = new weetEntry[capacity]; // Create the initial array of nodes using the capacity given
+		public WeetList() { // Constructor
+			this.weets = new Weet[4]; // Most users only have a few weets so start small
+			this.dates = new long[4]; // Same length as the weets array
 			this.count = 0; // Set the number of weets to 0
 		}
 		
-		// Adding a weet object to the data store
-		public boolean put(K key, V weet) { // Worse case O(n), best case O(1)
-			if (key == null) {
-				return false; // No Key was supplied so return false
+		// Method to add a weet into its place in the list
+		public void add(Weet weet) { // O(1) if weets arrive in date order, otherwise O(log n) to find the place plus a shift
+			long date = weet.getDateWeeted().getTime(); // Get the date of the weet as epoch millis
+			int id = weet.getId(); // Ties on the date are broken by the unique id
+			if (count == weets.length) { // If the arrays are full
+				weets = Arrays.copyOf(weets, count * 2); // Double the size of the weets array
+				dates = Arrays.copyOf(dates, count * 2); // Double the size of the dates array
 			}
-			
-			int location = hash(key); // Hash the key so we know the location to store the Key-Value Pair
-			
-			// Construct a new Key-Value Pair Object consisting of the key and value where the next object points to null
-			weetEntry<K,V> newWeet = new weetEntry<K,V>(key, weet, null);
-
-			if(table[location] == null) { //There are no weets currently who's hashed value locates here
-				table[location] = newWeet; // Add the Key-Value Pair Object to the first slot
-				count++; // Increase the counter for number of weets
-				return true; // Return that the weet was added successfully
-			} else {
-				weetEntry<K,V> current = table[location]; // Get the first Key-Value Pair from the current pointer in the array
-				while(current.next != null){ // Traverse through the keys
-					if(current.key.equals(key)) { // If the key we are trying to store is found in the data structure
-						return false; // Return false as this probably means that the weet id is not unique						
+			int lo = 0; // Lowest index the weet could go
+			int hi = count; // Highest index the weet could go
+			if (count > 0 && compare(dates[count - 1], weets[count - 1].getId(), date, id) > 0) { // If the weet doesn't belong at the end
+				while (lo < hi) { // Binary search for the first weet that comes after this one
+					int middle = (lo + hi) >>> 1; // Get the middle index
+					if (compare(dates[middle], weets[middle].getId(), date, id) < 0) { // If the middle weet comes before this one
+						lo = middle + 1; // Search the upper half
+					} else {
+						hi = middle; // Search the lower half
 					}
-					current = current.next; // Get the next key-value pair
 				}
-				// Keep going until we reach the end of the list of keys
-				current.next = newWeet; // We are at the end of the list so assign the next space to this weet (key-value pair)
-				count++; // Increase the counter for number of weets
-				return true; // Return that the weet was added successfully
+				System.arraycopy(weets, lo, weets, lo + 1, count - lo); // Shift the later weets up by one
+				System.arraycopy(dates, lo, dates, lo + 1, count - lo); // Shift their dates too
+			} else {
+				lo = count; // The weet goes on the end
 			}
+			weets[lo] = weet; // Put the weet in its place
+			dates[lo] = date; // Put its date next to it
+			count++; // Increase the count
 		}
 		
-		// Retrieving a weet object from the data store
-		public V get(K key) { // Worse case O(n), best case O(1)
-			int location = hash(key); // Hash the key value
-			if (table[location] == null) { // If the location in the array returns null, then there are no weet objects here
-				return null; // Return null as there are no weet objects here
-			} else {
-				weetEntry<K,V> temp = table[location]; // Get the first key-value pair object and assign it to a temporary object
-				while(temp != null) { // Traverse through the keys
-					if (temp.key.equals(key)) { // If the key is the one we are looking for, then
-						return temp.value; // Return the weet object
-					}
-					temp = temp.next; // Get the next key-value pair
-				} // Keep traversring until we get to a null object
-				return null; // Reached the end of the list, the weet is not here so return null
-			}
+		// Method to get the number of weets in the list
+		public int size() {
+			return count; // Return the count
 		}
 		
-		// Get the current number of weets
-		public int getSize() {
-			return count; // Return the count variable as that keeps count of the number of weets
+		// Method to get the weet at an index, the oldest weet is at 0
+		public Weet get(int i) {
+			return weets[i];
 		}
 		
-		// Get all the weets
-		public Weet[] getAll() {
-			int maxSize = getSize(); // The number of weets we have is kept count of
-			Weet[] weets = new Weet[maxSize]; // Use size to set our array
-			int counter = 0; // Set a counter to 0
-			for (int i = 0; i < capacity; i++) { // For each number in the array of weetEntry, go through
-				if (table[i] != null) { // If the first element is null, then we can skip this bit
-					weetEntry<K,V> temp = table[i]; // Assign the head object to a temp variable
-					while(temp != null) { // Traverse through the list
-						weets[counter++] = (Weet) temp.value; // Add each non null values as weets to the array we created and increase the counter
-						temp = temp.next; // Get the next object
-					}
-				} // Move on to the next i value
-			}
-			return weets; // Return the array
+		// Method to get the date of the weet at an index as epoch millis
+		public long dateAt(int i) {
+			return dates[i];
 		}
 		
-		// Get all the weets by a specific user
-		public Weet[] weetByUser(int uid) {
-			int maxSize = getSize(); // Get the maximum possible size we could have
-			Weet[] weets = new Weet[maxSize]; // Create a new array with this fixed size
-			int counter = 0; // Set the counter to 0
-			for (int i = 0; i < capacity; i++) { // For each number in the array of weetEntry, go through
-				if (table[i] != null) { // If the first element is null, then we can skip this bit
-					weetEntry<K,V> temp = table[i]; // Assign the head object to a temp variable
-					while(temp != null) { // Traverse through the list
-						Weet tempWeet = (Weet) temp.value; // Grab the value and assign it to a temp Weet
-						int user_id = tempWeet.getUserId(); // Get the userID of the Weet from the Weet JavaDocs
-						if (user_id == uid) { // If the user_id matches the one given in the parameters, then we can add it to the array
-							weets[counter++] = (Weet) temp.value; // Add it to the array that we created and increase the counter
-						}
-						temp = temp.next; // Get the next object
+		// Method to find the index of the first weet which isn't older than the cursor, so every weet before it comes after the cursor
+		public int end(Cursor cursor) { // O(log n)
+			int end = count; // With no cursor every weet is on the page
+			if (cursor != null) {
+				int lo = 0; // Binary search for the first weet which isn't older than the cursor
+				while (lo < end) {
+					int middle = (lo + end) >>> 1; // Get the middle index
+					if (compare(dates[middle], weets[middle].getId(), cursor.getDate(), cursor.getId()) < 0) { // If the middle weet is older
+						lo = middle + 1; // Search the upper half
+					} else {
+						end = middle; // Search the lower half
 					}
-				} // Move on to the next i value
+				}
 			}
-			return weets; // Return the array
+			return end;
 		}
 		
-		// Get all the weets who contain the query
-		public Weet[] weetContaining(String query) {
-			int maxSize = getSize(); // Get the maximum possible size we could have
-			Weet[] weets = new Weet[maxSize]; // Create a new array with this fixed size
-			int counter = 0; // Set the counter to 0
-			for (int i = 0; i < capacity; i++) { // For each number in the array of weetEntry, go through
-				if (table[i] != null) { // If the first element is null, then we can skip this bit
-					weetEntry<K,V> temp = table[i]; // Assign the head object to a temp variable
-					
-					while(temp != null) { // Traverse through the list
-						Weet tempWeet = (Weet) temp.value; // Grab the value and assign it to a temp Weet
-						String message = tempWeet.getMessage(); // Get the contents of the Weet from the Weet JavaDocs
-						if (message.contains(query)) { // If the contents contains the query, then we can add it to the array
-							weets[counter++] = (Weet) temp.value; // Add it to the array that we created and increase the counter
-						}
-						temp = temp.next; // Get the next object
-					}
-				} // Move on to the next i value
-			}
-			return weets; // Return the array
+		// Method to copy at most limit of the most recent weets which come after the cursor into a new list, so it can be read without the lock
+		WeetList copy(Cursor cursor, int limit) { // O(log n + k)
+			int end = end(cursor); // The weets before end come after the cursor
+			int start = Math.max(end - limit, 0); // Only the most recent limit of them
+			WeetList copy = new WeetList();
+			copy.weets = Arrays.copyOfRange(weets, start, Math.max(end, start + 1)); // At least one slot, so the copy can still double in size
+			copy.dates = Arrays.copyOfRange(dates, start, Math.max(end, start + 1));
+			copy.count = end - start;
+			return copy;
 		}
 		
-		// Get all the weets which happened on a certain date
-		public Weet[] weetDateOn(Date dateOn) {
-			int maxSize = getSize(); // Get the maximum possible size we could have
-			Weet[] weets = new Weet[maxSize]; // Create a new array with this fixed size
-			int counter = 0; // Set the counter to 0
-			for (int i = 0; i < capacity; i++) { // For each number in the array of weetEntry, go through
-				if (table[i] != null) { // If the first element is null, then we can skip this bit
-					weetEntry<K,V> temp = table[i]; // Assign the head object to a temp variable
-					
-					while(temp != null) { // Traverse through the list
-						Weet tempWeet = (Weet) temp.value; // Grab the value and assign it to a temp Weet
-						Date dateWeeted = tempWeet.getDateWeeted(); // Get the date of when the Weet was made from the Weet JavaDocs
-						if (dateWeeted.equals(dateOn)) { // If the dates are equal, then we can add it to the array
-							weets[counter++] = (Weet) temp.value; // Add it to the array that we created and increase the counter
-						}
-						temp = temp.next; // Get the next object
-					}
-				} // Move on to the next i value
+		// Method to get at most limit weets which come after the cursor, most recent first
+		public Weet[] after(Cursor cursor, int limit) { // O(log n + k)
+			int end = end(cursor); // The weets before end in the list are older than the cursor
+			int length = Math.min(end, limit); // The number of weets to return
+			Weet[] result = new Weet[length]; // Create an array of the exact size
+			for (int i = 0; i < length; i++) {
+				result[i] = weets[end - 1 - i]; // Copy the weets across backwards so the most recent is first
 			}
-			return weets; // Return the array
+			return result; // Return the array
 		}
 		
-		// Get all the weets which happened before a certain date
-		public Weet[] weetDateBefore(Date dateBefore) {
-			int maxSize = getSize(); // Get the maximum possible size we could have
-			Weet[] weets = new Weet[maxSize]; // Create a new array with this fixed size
-			int counter = 0; // Set the counter to 0
-			for (int i = 0; i < capacity; i++) { // For each number in the array of weetEntry, go through
-				if (table[i] != null) { // If the first element is null, then we can skip this bit
-					weetEntry<K,V> temp = table[i]; // Assign the head object to a temp variable
-					
-					while(temp != null) { // Traverse through the list
-						Weet tempWeet = (Weet) temp.value; // Grab the value and assign it to a temp Weet
-						Date dateWeeted = tempWeet.getDateWeeted(); // Get the date of when the Weet was made from the Weet JavaDocs
-						if (dateWeeted.before(dateBefore)) { // If the date of the weet is before the specified date, then we can add it to the array
-							weets[counter++] = (Weet) temp.value; // Add it to the array that we created and increase the counter
-						}
-						temp = temp.next; // Get the next object
-					}
-				} // Move on to the next i value
+		// Method to get all the weets in the list, most recent first
+		public Weet[] toArray() { // O(n) where n is the number of weets by this user
+			Weet[] result = new Weet[count]; // Create an array of the exact size
+			for (int i = 0; i < count; i++) {
+				result[i] = weets[count - 1 - i]; // Copy the weets across backwards so the most recent is first
 			}
-			return weets; // Return the array
+			return result; // Return the array
 		}
 		
-		// Get the current trending weets
-		public String[] weetGetTrending() {
-			
-			Weet[] weetArray = weetContaining("#"); // Get the array containing a '#' and assign it to the array
-			String[] getTrend = new String[10]; // Create a new array which will contain the top 10
-			int counter = 0; // Set the counter to 0
-			for (int i = 0; i < weetArray.length; i++) { // Go through the array containing '#' and nulls
-				if (weetArray[i] != null) {
-					counter++; // Count the number of non null elements
-				}
-			}
-			Weet[] trendArray = new Weet[counter]; // Create a new array with the number of elements
-			Object trending[][] = new Object[trendArray.length][2]; // Create a trending 2d array, which will contain the #, as well as the number of times it appears
-			for (int i = 0; i < counter; i++) {
-				trendArray[i] = weetArray[i]; // Put all the non null elements into the trendArray
-			}
-			
-			for(int i = 0; i < trending.length; i++) {
-				trending[i][0] = null; // Set all the strings to null
-				trending[i][1] = 0; // Set all the counters to 0
-			}
-			// Put all the topics in trending array, increasing the count if its already in there...
-			int k = 0; // Set k to 0
-			boolean found = false; // Set found to false
-			for (int i = 0; i < trendArray.length; i++) { // For every message in trending,
-				String[] temp = trendArray[i].getMessage().split("\\s+"); // Split the message into words depending on the spaces
-				for (int j = 0; j < temp.length; j++) { // For every word in the message
-					k = 0; // Reset k to 0
-					found = false; // Reset found to false
-					if (temp[j].startsWith("#")) { // If the word begins with '#', then we have a trending option
-						while (trending[k][0]!=null) { //Go through the trending array to see if its already stored
-							if (trending[k][0].equals(temp[j])) {
-								trending[k][1] = (int)trending[k][1] + 1; // If its already stored, increase the number ny 1
-								found = true; // Change found to true
-								break; // We found what we want, so lets break out
-							}
-							k++; // Increase k and keep going until we hit a null
-						}
-						if (!found) { // If we cannot find the trending word, then its a new word
-							trending[k][0] = (String) temp[j]; // Add the word to the array
-							trending[k][1] = (int) trending[k][1] + 1; // Increase the number of times it appears by 1
-						}
-					}
-				}
-			}
-			
-			sort(trending, 0, trending.length - 1);// Sort the trending array, so the larger the count, the closer to the 0 index...
-			
-			for (int i = 0; i < getTrend.length; i++) {
-				getTrend[i] = null; // Initially set it to null
-				getTrend[i] = (String) trending[i][0]; // Copy the 0th to 9th element to getTrend
-			}
-			return getTrend; // Return getTrend array which will have the top 10 trending topics
+	}
+	
+	// Method to compare two weets by date and then id, returns a negative number if the first comes before the second
+	static int compare(long date1, int id1, long date2, int id2) {
+		if (date1 != date2) { // If the dates are different then they decide the order
+			return date1 < date2 ? -1 : 1;
 		}
+		return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1); // Otherwise order by the unique id
+	}
+	
+	class HashMap { // Inner class HashMap for ADT implementation
+		private IntHashMap<Weet> table; // Open addressing map from the unique id (key) to the weet object (value)
 		
-		// quick sort a 2d array - used for trending weets
-		public void sort(Object[][] trending, int low, int n) {
-			int lo = low; // Set the lowest index from the parameters
-			int hi = n; // Set the number of elements to the highet index
-			int middle = low + (n - low) / 2; // Get the middle element
-			if (trending == null || trending.length == 0) { // If the array is null, or the length is 0
-				return; // Return as there is nothing to sort now
-			}
-			if (low >= n) { // If the lowest index is greater than the number of elements, then
-				return; // Return as there is nothing to sort
-			}
-			int pivot = (int) trending[middle][1]; // Place the pivot as the middle element of trending's number value
-			while (lo <= hi) { // Whilst, lo is less than or equal to high
-				while ((int)trending[lo][1] > pivot) { // While lower element is more than the pivot, then
-					lo++; // Increase the value && move to the next element
-				} // Do this until we get to an element which is less than the pivot
-				while ((int)trending[hi][1] < pivot) { // While higher element is less than the pivot, then
-					hi--; // Decrease the hi value && go down to the next element
-				} // Do this until we get to an element which is more than the pivot
-				if (lo <= hi) { // If lo is still less than hi
-					// Swapping elements
-					Object tempName = trending[lo][0]; // Assign the element at index lo to a temp value
-					Object tempVal = trending[lo][1]; // Assign the element at index lo to a temp value
-					trending[lo][0] = trending[hi][0]; // Move the element at index hi to the lo index
-					trending[lo][1] = trending[hi][1]; // Move the element at index hi to the lo index
-					trending[hi][0] = tempName; // Move the temp value to the high index
-					trending[hi][1] = tempVal; // Move the temp value to the high index
-					lo++; // Increase the lo index
-					hi--; // Decrease the hi index
-				}
-			} // Keep doing this until lo > hi
-			// Recursively sort the two parts
-			if (low < hi) { // If the initial low index is still less than the hi index, then
-				sort(trending, low, hi); // Sort the lower side of the pivot
-			}
-			if (n > lo) { // If the initial high value is still greater than lo index, then
-				sort(trending, lo, n); // Sort the higher side of the pivot
-			}
+		public HashMap() { // Constructor for HashMap
+			this.table = new IntHashMap<Weet>(); // Create the table, it will resize itself as weets are added
+		}
+		
+		// Adding a weet object to the data store
+		public boolean put(int key, Weet weet) { // Average O(1)
+			return table.put(key, weet); // Returns false if the weet id is not unique
+		}
+		
+		// Retrieving a weet object from the data store
+		public Weet get(int key) { // Average O(1)
+			return table.get(key); // Returns null if there is no weet with this id
 		}
 		
-		// Method to hash a key value
-		private int hash(K key){ // The hash is modded by the capacity so we can be certain there won't be an array out of bounds exception
-			return Math.abs(key.hashCode()) % capacity; // Return the positive value of the hash
+		// Get the current number of weets
+		public int getSize() {
+			return table.size(); // The table keeps count of the number of weets
 		}
+		
 	}
 	
 	// Constructor for WeetStore
 	public WeetStore() {
-		weetHashMap = new HashMap<Integer, Weet>(); // Create a new instance of the HashMap, the key being an Integer, and the value the Weet object
-	}
-	
-	// Quick sort algorithm which is used to sort the weets by the date weeted
-	public static void quickSort(Weet[] weetsArray, int low, int n) {
-		int lo = low; // Set the lowest index from the parameters
-		int hi = n; // Set the number of elements to the highet index
-		int middle = low + (n - low) / 2; // Get the middle element
-		if (weetsArray == null || weetsArray.length == 0) { // If the array is null, or the length is 0
-			return; // Return as there is nothing to sort now
-		}
-		if (low >= n) { // If the lowest index is greater than the number of elements, then
-			return; // Return as there is nothing to sort
-		}
-		Weet pivot = weetsArray[middle]; // Place the pivot as the middle element of weets
-		while (lo <= hi) { // Whilst, lo is less than or equal to high
-			while (weetsArray[lo].getDateWeeted().after(pivot.getDateWeeted())) { // While lower element weeted more recently than the pivot, then
-				lo++; // Increase the lo value && move to the next weet
-			} // Do this until we come across a weet that was weeted before the pivot weet
-			while (weetsArray[hi].getDateWeeted().before(pivot.getDateWeeted())) { // While the weet with the highest index weeted before the pivot
-				hi--; // Decrease the hi value && go down to the next weet
-			} // Do this until we come across a weet before the pivot weet
-			if (lo <= hi) { // If lo is still less than hi
-				// Swapping Weets
-				Weet temp = weetsArray[lo]; // Assign the weet at index lo to a temp weet
-				weetsArray[lo] = weetsArray[hi]; // Move the weet at index hi to the lo index
-				weetsArray[hi] = temp; // Move the temp weet to the high index
-				lo++; // Increase the lo index
-				hi--; // Decrease the hi index
-			}
-		} // Keep doing this until lo > hi
-		// Recursively sort the two parts
-		if (low < hi) { // If the initial low index is still less than the hi index, then
-			quickSort(weetsArray, low, hi); // Sort the lower side of the pivot
+		weetHashMap = new HashMap(); // Create a new instance of the HashMap, the key being the unique id, and the value the Weet object
+		weetsByUser = new IntHashMap<WeetList>(); // Create the index of weets made by each user
+		dateIndex = new DateIndex<Weet>(); // Create the index of weets by date
+		textIndex = new TrigramIndex(false); // Create the index of message contents, searches are case sensitive
+		weetsByDoc = new Weet[256]; // Create the array of weets by document number, it grows as weets are added
+		trending = new HashtagCounter(10); // Create the hashtag counter, keeping track of the top 10
+		snapshot = new SortedSnapshot<Weet>(); // Create the snapshot of every weet, it starts empty
+	}
+	
+	// Method to add a weet to the data store
+	public boolean addWeet(Weet weet) {
+		if (!weetHashMap.put(weet.getId(), weet)) { // Add a weet object to the data store using the unique id as the key and the weet object as the value
+			return false; // The weet id was not unique so nothing else needs updating
 		}
-		if (n > lo) { // If the initial high value is still greater than lo index, then
-			quickSort(weetsArray, lo, n); // Sort the higher side of the pivot
+		WeetList userWeets = weetsByUser.get(weet.getUserId()); // Get the list of weets made by this user
+		if (userWeets == null) { // If this is the user's first weet
+			userWeets = new WeetList(); // Create a new list for them
+			weetsByUser.put(weet.getUserId(), userWeets); // Add it to the index
 		}
-	}
-
-	// Method to count the number of non null objects
-	public int countNotNull(Weet[] array) {
-		int counter = 0; // Set the counter to 0
-		for (int i = 0; i < array.length; i++) { // Traverse through the specified array
-			if (array[i] != null) { // If the element is not null, then
-				counter++; // Increase the counter
-			}
+		userWeets.add(weet); // Put the weet in its place in the user's list
+		dateIndex.add(weet.getDateWeeted().getTime(), weet.getId(), weet); // Put the weet in its place in the date index
+		int doc = dateIndex.size() - 1; // The document number is the order the weet was added in
+		if (doc == weetsByDoc.length) { // If the array is full
+			weetsByDoc = Arrays.copyOf(weetsByDoc, doc * 2); // Double its size
 		}
-		return counter; // Return the number of non-null objects
+		weetsByDoc[doc] = weet; // Remember which weet the document number is for
+		textIndex.add(doc, weet.getMessage()); // Add the trigrams of the message to the search index
+		countHashtags(weet.getMessage(), weet.getDateWeeted().getTime(), trending); // Count any hashtags in the message
+		snapshot.add(weet.getDateWeeted().getTime(), weet.getId(), weet); // It will be merged into the sorted snapshot the next time the weets are listed
+		return true; // Return that the weet was added successfully
 	}
-
-	// Method to add a weet to the data store
-	public boolean addWeet(Weet weet) {
-		return weetHashMap.put(weet.getId(), weet); // Add a weet object to the data store using the unique id as the key and the weet object as the value
+	
+	// Method to get the list of weets made by a user, oldest first, or null if they haven't made any, for merging timelines
+	// Only the most recent limit weets after the cursor are read from it, which lets a subclass hand back a copy of just those
+	WeetList weetList(int uid, Cursor after, int limit) {
+		return weetsByUser.get(uid); // Nothing else changes the list while it is read, so the list itself will do
 	}
 	
 	// Method to get a specified Weet Object by their unique ID
@@ -373,64 +236,330 @@ public class WeetStore implements IWeetStore {
 	}
 	
 	// Method to get the array of weets
-	public Weet[] getWeets() {
-		Weet[] weetsArray = weetHashMap.getAll().clone(); // Use the HashMap to get all the weets, as there is a method in there already
-		quickSort(weetsArray, 0, weetsArray.length-1); // Sort the array so that the weets are ordered - most recent first
-		return weetsArray; // Return the sorted array
+	public Weet[] getWeets() { // O(n) copy, plus merging in any weets added since the last call
+		return snapshot.toArray(new Weet[0]); // The snapshot is already sorted - most recent first
+	}
+	
+	// Method to get every weet as an unmodifiable list, without copying them
+	public List<Weet> getWeetsView() { // O(1) if no weets have been added since the last call
+		return snapshot.view(); // The snapshot is already sorted - most recent first
+	}
+	
+	// Method to lazily stream every weet, most recent first
+	public Stream<Weet> streamWeets() { // O(1) to start, each weet is read as the stream asks for it
+		return StreamSupport.stream(snapshot.spliterator(snapshot.seek(null)), false); // Read straight from the snapshot, no copy
+	}
+	
+	// Method to get an iterator over every weet, most recent first
+	public Iterator<Weet> iterator() {
+		return streamWeets().iterator();
+	}
+	
+	// Method to stream the weets made by a user, most recent first
+	public Stream<Weet> streamWeetsByUser(User usr) {
+		return Arrays.stream(getWeetsByUser(usr)); // The user's list can change as weets are added, so stream a copy of it
 	}
 	
 	// Method to get an array of weets by a certain user
-	public Weet[] getWeetsByUser(User usr) {
-		int user_id = usr.getId(); // Get the unique id of the User
-		Weet[] weetsArray = weetHashMap.weetByUser(user_id); // Use the HashMap to generate all the weets made by a certain user
-		int length = countNotNull(weetsArray); // Count the number of elements in the array which aren't null
-		Weet[] userWeets = new Weet[length]; // Create a new array which takes the number of non null elements
-		for (int i = 0; i < length; i++) {
-			userWeets[i] = weetsArray[i]; // Copy the weets which aren't null into the new array
+	public Weet[] getWeetsByUser(User usr) { // O(k) where k is the number of weets by the user
+		WeetList userWeets = weetsByUser.get(usr.getId()); // Look up the user's list of weets using their unique id
+		if (userWeets == null) { // If the user hasn't made any weets
+			return new Weet[0]; // Return an empty array
 		}
-		quickSort(userWeets, 0, length-1); // Sort the array so that the weets are ordered - most recent first
-		return userWeets; // Return the sorted array
+		return userWeets.toArray(); // The list is already sorted so just copy it out - most recent first
 	}
 
 	// Method to get an array of weets which contain a query
 	public Weet[] getWeetsContaining(String query) {
-		Weet[] weetsArray = weetHashMap.weetContaining(query); // Use the HashMap to generate all the weets which contain the query string
-		int length = countNotNull(weetsArray); // Count the number of elements in the array which aren't null
-		Weet[] containWeets = new Weet[length]; // Create a new array which takes the number of non null elements
-		for (int i = 0; i < length; i++) {
-			containWeets[i] = weetsArray[i]; // Copy the weets which aren't null into the new array
+		ParallelScan scan = parallel; // Read it once in case it is changed meanwhile
+		if (scan != null) { // If parallel scans are turned on
+			int[] docs = textIndex.candidates(query); // Use the trigram index to find the weets which could contain the query
+			if (docs == null) { // The query is too short for the index, so scan the snapshot, whose ranges stay in order
+				Object[] weets = snapshot.array();
+				return scan.filter(weets, 0, weets.length, (Weet weet) -> weet.getMessage().contains(query), new Weet[0]);
+			}
+			Object[] candidates = new Object[docs.length]; // The candidates are in the order they were added
+			for (int i = 0; i < docs.length; i++) {
+				candidates[i] = weetsByDoc[docs[i]];
+			}
+			return scan.filterSorted(candidates, 0, candidates.length, (Weet weet) -> weet.getMessage().contains(query), // So each range is checked and sorted
+					(Weet weet) -> weet.getDateWeeted().getTime(), Weet::getId, new Weet[0]); // And then merged - most recent first
 		}
-		quickSort(containWeets, 0, length-1); // Sort the array so that the weets are ordered - most recent first
-		return containWeets; // Return the sorted array
+		return streamWeetsContaining(query).toArray(Weet[]::new); // Only the matches are ever copied - most recent first
+	}
+	
+	// Method to run searches on a ForkJoinPool, for big stores on machines with many cores, or null to turn it off
+	public void setParallelScan(ForkJoinPool pool) {
+		parallel = pool == null ? null : new ParallelScan(pool, ParallelScan.DEFAULT_THRESHOLD);
+	}
+	
+	// Method to stream the weets which contain a query, most recent first
+	public Stream<Weet> streamWeetsContaining(String query) {
+		int[] docs = textIndex.candidates(query); // Use the trigram index to find the weets which could contain the query
+		if (docs == null) { // The query is too short for the index
+			return streamWeets().filter(weet -> weet.getMessage().contains(query)); // Lazily walk every weet, so the caller can stop early
+		}
+		Weet[] containWeets = new Weet[docs.length]; // The result can't be bigger than the number of candidates
+		int length = 0; // Set the counter to 0
+		for (int i = 0; i < docs.length; i++) { // Check each candidate
+			Weet candidate = weetsByDoc[docs[i]]; // Get the weet from its document number
+			if (candidate.getMessage().contains(query)) { // If the contents really contains the query
+				containWeets[length++] = candidate; // Add it to the array and increase the counter
+			}
+		}
+		ParallelScan scan = parallel; // Big results are sorted on the parallel scan's pool if there is one
+		Sorting.sortNewestFirst(containWeets, 0, length, weet -> weet.getDateWeeted().getTime(), Weet::getId, scan == null ? null : scan.getPool()); // The candidates are in the order they were added, so sort them - most recent first
+		return Arrays.stream(containWeets, 0, length); // Stream the matches
+	}
+	
+	// Method to get a page of weets which contain a query, after the cursor given, most recent first
+	public Page<Weet> getWeetsContaining(String query, int limit, String cursor) { // O(c log k) for c candidates, or a walk of the date index for short queries
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		Cursor after = Cursor.decode(cursor); // Where the last page finished
+		int[] docs = textIndex.candidates(query); // Use the trigram index to find the weets which could contain the query
+		if (docs == null) { // The query is too short for the index, so walk the date index from the cursor
+			Weet[] weets = new Weet[Math.min(limit, 16) + 1]; // Start small, the array grows if we need more room
+			int counter = 0; // Set the counter to 0
+			for (DateIndex.Entry<Weet> e = dateIndex.after(after); e != null && counter <= limit; e = e.getNext()) { // Stop once we have one more than a page
+				if (e.getValue().getMessage().contains(query)) { // If the contents contains the query
+					if (counter == weets.length) { // If the array is full
+						weets = Arrays.copyOf(weets, counter * 2); // Double its size
+					}
+					weets[counter++] = e.getValue(); // Add it to the array and increase the counter
+				}
+			}
+			return toPage(weets, counter, limit); // The date index is already sorted
+		}
+		Weet[] heap = new Weet[(int) Math.min((long) limit + 1, docs.length)]; // Min-heap of the most recent matches, the oldest at the root
+		int size = 0; // The number of weets in the heap
+		for (int i = 0; i < docs.length; i++) { // Check each candidate
+			Weet candidate = weetsByDoc[docs[i]]; // Get the weet from its document number
+			if (after != null && compare(candidate.getDateWeeted().getTime(), candidate.getId(), after.getDate(), after.getId()) >= 0) { // If it was on an earlier page
+				continue; // Skip it
+			}
+			if (!candidate.getMessage().contains(query)) { // If the contents doesn't really contain the query
+				continue; // Skip it
+			}
+			if (size < heap.length) { // If the heap isn't full yet
+				heap[size] = candidate; // Add it to the end
+				siftUp(heap, size++); // And move it up into place
+			} else if (newer(candidate, heap[0])) { // Otherwise if it is more recent than the oldest in the heap
+				heap[0] = candidate; // Replace the oldest
+				siftDown(heap, 0, size); // And move it down into place
+			}
+		}
+		Weet[] sorted = new Weet[size]; // Take the weets out of the heap, oldest first, filling the array from the end
+		for (int i = size - 1; i >= 0; i--) {
+			sorted[i] = heap[0]; // The root is the oldest left
+			heap[0] = heap[i]; // Move the last weet to the root
+			siftDown(heap, 0, i); // And move it down into place
+		}
+		return toPage(sorted, size, limit); // Most recent first
+	}
+	
+	// Method to check whether weet a was made after weet b, using the id to break ties
+	private static boolean newer(Weet a, Weet b) {
+		return compare(a.getDateWeeted().getTime(), a.getId(), b.getDateWeeted().getTime(), b.getId()) > 0;
+	}
+	
+	// Method to move a weet up a min-heap ordered by date until its parent is older
+	private static void siftUp(Weet[] heap, int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2; // Get the parent's index
+			if (!newer(heap[parent], heap[i])) { // If the parent is older we are done
+				break;
+			}
+			Weet temp = heap[i]; // Otherwise swap with the parent
+			heap[i] = heap[parent];
+			heap[parent] = temp;
+			i = parent;
+		}
+	}
+	
+	// Method to move a weet down a min-heap ordered by date until both children are newer
+	private static void siftDown(Weet[] heap, int i, int size) {
+		while (true) {
+			int oldest = i; // Assume this weet is the oldest
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && newer(heap[oldest], heap[left])) {
+				oldest = left; // The left child is older
+			}
+			if (right < size && newer(heap[oldest], heap[right])) {
+				oldest = right; // The right child is older
+			}
+			if (oldest == i) { // If neither child is older we are done
+				break;
+			}
+			Weet temp = heap[i]; // Otherwise swap with the older child
+			heap[i] = heap[oldest];
+			heap[oldest] = temp;
+			i = oldest;
+		}
+	}
+	
+	// Method to turn the first count weets, fetched one past the page size, into a page with a cursor if there were more
+	private static Page<Weet> toPage(Weet[] weets, int count, int limit) {
+		if (count <= limit) { // If everything fitted then this is the last page
+			return new Page<Weet>(Arrays.copyOf(weets, count), null);
+		}
+		Weet last = weets[limit - 1]; // The last weet on the page
+		return new Page<Weet>(Arrays.copyOf(weets, limit), Cursor.encode(last.getDateWeeted().getTime(), last.getId())); // The next page starts after it
+	}
+	
+	// Method to walk the date index from an entry, collecting weets until they are older than a date or we reach the limit
+	private Weet[] collect(DateIndex.Entry<Weet> start, long oldest, int limit) { // O(k) where k is the number of weets returned
+		Weet[] weets = new Weet[Math.min(limit, 16)]; // Start small, the array grows if we need more room
+		int counter = 0; // Set the counter to 0
+		for (DateIndex.Entry<Weet> e = start; e != null && e.getDate() >= oldest && counter < limit; e = e.getNext()) { // Walk the index until we pass the oldest date
+			if (counter == weets.length) { // If the array is full
+				weets = Arrays.copyOf(weets, counter * 2); // Double its size
+			}
+			weets[counter++] = e.getValue(); // Add the weet and increase the counter
+		}
+		return counter == weets.length ? weets : Arrays.copyOf(weets, counter); // Return an array of the exact size - already most recent first
+	}
+	
+	// Method to get one page of weets from the date index, starting at the later of an entry and the cursor and stopping before a date
+	private Page<Weet> page(DateIndex.Entry<Weet> start, long oldest, int limit, String cursor) { // O(log n + k)
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		Cursor after = Cursor.decode(cursor); // Where the last page finished
+		if (after != null && start != null && compare(after.getDate(), after.getId(), start.getDate(), start.getId()) <= 0) { // If the cursor is further on than the start
+			start = dateIndex.after(after); // Start from the cursor instead
+		}
+		Weet[] weets = collect(start, oldest, limit == Integer.MAX_VALUE ? limit : limit + 1); // Fetch one more than a page, to see if there is another
+		return toPage(weets, weets.length, limit); // Cut it down to the page
+	}
+	
+	// Method to get a page of every weet, most recent first
+	public Page<Weet> getWeets(int limit, String cursor) { // O(log n + k)
+		return page(dateIndex.first(), Long.MIN_VALUE, limit, cursor); // Walk the date index from the start or the cursor
+	}
+	
+	// Method to get a page of the weets made by a user, most recent first
+	public Page<Weet> getWeetsByUser(User usr, int limit, String cursor) { // O(log k + page size)
+		Cursor.checkLimit(limit); // Check the page size makes sense
+		WeetList userWeets = weetsByUser.get(usr.getId()); // Look up the user's list of weets
+		if (userWeets == null) { // If the user hasn't made any weets
+			return new Page<Weet>(new Weet[0], null); // Return an empty page
+		}
+		Weet[] weets = userWeets.after(Cursor.decode(cursor), limit == Integer.MAX_VALUE ? limit : limit + 1); // Fetch one more than a page, to see if there is another
+		return toPage(weets, weets.length, limit); // Cut it down to the page
+	}
+	
+	// Method to get the first millisecond of the day a date is in, moved on by a number of days
+	static long startOfDay(Date date, int days) {
+		Calendar day = Calendar.getInstance(); // Use a calendar to find the start of the day
+		day.setTime(date); // Set it to the date given
+		day.set(Calendar.HOUR_OF_DAY, 0); // Go back to midnight
+		day.set(Calendar.MINUTE, 0);
+		day.set(Calendar.SECOND, 0);
+		day.set(Calendar.MILLISECOND, 0);
+		day.add(Calendar.DAY_OF_MONTH, days); // Move on by the number of days
+		return day.getTimeInMillis(); // Return it as epoch millis
 	}
 	
 	// Method to get an array of weets made on a certain date
 	public Weet[] getWeetsOn(Date dateOn) {
-		Weet[] weetsArray = weetHashMap.weetDateOn(dateOn); // Use the HashMap to generate all the weets made on a certain date
-		int length = countNotNull(weetsArray); // Count the number of elements in the array which aren't null
-		Weet[] onWeets = new Weet[length]; // Create a new array which takes the number of non null elements
-		for (int i = 0; i < length; i++) {
-			onWeets[i] = weetsArray[i]; // Copy the weets which aren't null into the new array
-		}
-		quickSort(onWeets, 0, length-1); // Sort the array so that the weets are ordered - most recent first
-		return onWeets; // Return the sorted array
+		return getWeetsOn(dateOn, Integer.MAX_VALUE); // Get every weet on that day
+	}
+	
+	// Method to get at most limit weets made on a certain date, most recent first
+	public Weet[] getWeetsOn(Date dateOn, int limit) { // O(log n + k)
+		DateIndex.Entry<Weet> start = dateIndex.seekBefore(startOfDay(dateOn, 1), Integer.MIN_VALUE); // Seek to the most recent weet before the next day
+		return collect(start, startOfDay(dateOn, 0), limit); // Collect weets until we go back past the start of the day
+	}
+	
+	// Method to lazily stream the weets made on a certain date, most recent first
+	public Stream<Weet> streamWeetsOn(Date dateOn) { // O(log n) to start
+		DateIndex.Entry<Weet> start = dateIndex.seekBefore(startOfDay(dateOn, 1), Integer.MIN_VALUE); // Seek to the most recent weet before the next day
+		return dateIndex.stream(start, startOfDay(dateOn, 0)); // Walk the date index until we go back past the start of the day
+	}
+	
+	// Method to get a page of the weets made on a certain date, most recent first
+	public Page<Weet> getWeetsOn(Date dateOn, int limit, String cursor) { // O(log n + k)
+		DateIndex.Entry<Weet> start = dateIndex.seekBefore(startOfDay(dateOn, 1), Integer.MIN_VALUE); // Seek to the most recent weet before the next day
+		return page(start, startOfDay(dateOn, 0), limit, cursor); // Page through until we go back past the start of the day
 	}
 	
 	// Method to get an array of weets before a certain date
 	public Weet[] getWeetsBefore(Date dateBefore) {
-		Weet[] weetsArray = weetHashMap.weetDateBefore(dateBefore); // Use the HashMap to generate all the weets made before a certain date
-		int length = countNotNull(weetsArray); // Count the number of elements in the array which aren't null
-		Weet[] beforeWeets = new Weet[length]; // Create a new array which takes the number of non null elements
-		for (int i = 0; i < length; i++) {
-			beforeWeets[i] = weetsArray[i]; // Copy the weets which aren't null into the new array
+		return getWeetsBefore(dateBefore, Integer.MAX_VALUE); // Get every weet before the date
+	}
+	
+	// Method to get at most limit weets before a certain date, most recent first
+	public Weet[] getWeetsBefore(Date dateBefore, int limit) { // O(log n + k)
+		DateIndex.Entry<Weet> start = dateIndex.seekBefore(dateBefore.getTime(), Integer.MIN_VALUE); // Seek to the most recent weet before the date
+		return collect(start, Long.MIN_VALUE, limit); // Everything from there on is older, so collect until we hit the limit
+	}
+	
+	// Method to lazily stream the weets before a certain date, most recent first
+	public Stream<Weet> streamWeetsBefore(Date dateBefore) { // O(log n) to start
+		DateIndex.Entry<Weet> start = dateIndex.seekBefore(dateBefore.getTime(), Integer.MIN_VALUE); // Seek to the most recent weet before the date
+		return dateIndex.stream(start, Long.MIN_VALUE); // Walk the date index from there
+	}
+	
+	// Method to get a page of the weets before a certain date, most recent first
+	public Page<Weet> getWeetsBefore(Date dateBefore, int limit, String cursor) { // O(log n + k)
+		DateIndex.Entry<Weet> start = dateIndex.seekBefore(dateBefore.getTime(), Integer.MIN_VALUE); // Seek to the most recent weet before the date
+		return page(start, Long.MIN_VALUE, limit, cursor); // Everything from there on is older
+	}
+	
+	// Method to check whether a character separates words, the same characters as \\s in a regex
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+	
+	// Method to tell a counter about every word in a message which begins with '#', e.g. a trending counter or the autocomplete hashtags
+	static void countHashtags(String message, long date, ITagCounter counter) { // O(m) where m is the length of the message
+		int i = 0; // Position in the message
+		while (i < message.length()) {
+			while (i < message.length() && isSpace(message.charAt(i))) { // Skip any spaces
+				i++;
+			}
+			int start = i; // The start of the word
+			while (i < message.length() && !isSpace(message.charAt(i))) { // Find the end of the word
+				i++;
+			}
+			if (i > start && message.charAt(start) == '#') { // If the word begins with '#', then we have a trending option
+				counter.add(message.substring(start, i), date); // Count it
+			}
 		}
-		quickSort(beforeWeets, 0, length-1); // Sort the array so that the weets are ordered - most recent first
-		return beforeWeets; // Return the sorted array
 	}
 	
 	// Method to get all trending topics in weets
-	public String[] getTrending() {
-		return weetHashMap.weetGetTrending(); // Get the trending weets using a method defined in the hashmap
+	public String[] getTrending() { // Doesn't depend on the number of weets
+		return trending.top(); // The counter keeps track of the top 10 as weets are added
+	}
+	
+	// Method to make trending only count hashtags used in the last bucketCount buckets of bucketMillis, each older bucket weighted by decay (1 for no decay)
+	public void setTrendingWindow(long bucketMillis, int bucketCount, double decay) {
+		WindowedTrending window = new WindowedTrending(bucketMillis, bucketCount, decay, 10); // Create the windowed counter
+		for (DateIndex.Entry<Weet> e = dateIndex.first(); e != null; e = e.getNext()) { // Go back through the weets from the most recent
+			if (e.getDate() < window.windowStart()) { // Once we are past the start of the window the rest are too old
+				break;
+			}
+			countHashtags(e.getValue().getMessage(), e.getDate(), window); // Count the hashtags in the weet
+		}
+		trending = window; // Use the windowed counter from now on
+	}
+	
+	// Method to make trending use a fixed amount of memory, with counts within epsilon of the total with probability 1 - delta, tracking capacity hashtags
+	public void setApproximateTrending(double epsilon, double delta, int capacity) { // O(n) as every weet has to be counted again
+		ApproximateTrending counter = new ApproximateTrending(epsilon, delta, capacity, 10); // Create the approximate counter
+		for (DateIndex.Entry<Weet> e = dateIndex.first(); e != null; e = e.getNext()) { // Go through every weet
+			countHashtags(e.getValue().getMessage(), e.getDate(), counter); // Count the hashtags in the weet
+		}
+		trending = counter; // Use it from now on
+	}
+	
+	// Method to make trending count every hashtag ever used again, which is the default
+	public void setTrendingAllTime() { // O(n) as every weet has to be counted again
+		HashtagCounter counter = new HashtagCounter(10); // Create a new counter
+		for (DateIndex.Entry<Weet> e = dateIndex.first(); e != null; e = e.getNext()) { // Go through every weet
+			countHashtags(e.getValue().getMessage(), e.getDate(), counter); // Count the hashtags in the weet
+		}
+		trending = counter; // Use it from now on
 	}
 	
 }
@@ -0,0 +1,164 @@
+/**
+* The WindowedTrending counter works out the trending hashtags over a sliding window of time, rather than over every weet ever made.
+* The window is split into a fixed number of time buckets, each holding the hashtag counts for weets made in that slice of time.
+* The buckets are kept in a ring buffer, so when a weet arrives in a newer slice the buckets which have fallen out of the window are cleared and reused.
+* The current time is taken from the most recent date weeted seen so far, which means the window also works when old weets are loaded in.
+* Weets older than the window are ignored, as they could never be counted.
+* Each bucket can optionally be weighted by a decay factor for every bucket it is behind the newest, so recent use counts for more than older use.
+* Getting the trending hashtags adds up the buckets in the window and picks the top k, so the work depends on the window and not on the whole history.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+
+class WindowedTrending implements ITrendingCounter {
+	private final long bucketMillis; // The length of time each bucket covers
+	private final Scores[] ring; // The ring buffer of buckets
+	private final double decay; // The weight of a bucket compared to the one after it, 1 means no decay
+	private final int k; // The number of hashtags to return
+	private long newest; // The number of the newest bucket, i.e. the date divided by bucketMillis
+	private boolean empty; // Whether we have seen a weet yet
+
+	static class Scores { // Inner class mapping hashtags to a score, using open addressing
+		private String[] tags; // The hashtags, a null slot is empty
+		private double[] scores; // The score of the hashtag in the same slot
+		private int count; // The number of hashtags
+
+		Scores() { // Constructor
+			this.tags = new String[16]; // Start small, the table doubles as it fills up
+			this.scores = new double[16];
+			this.count = 0;
+		}
+
+		// Method to find the slot for a hashtag, either where it is or the empty slot where it would go
+		private static int slot(String[] tags, String tag) {
+			int h = tag.hashCode() * 0x9E3779B9; // Mix the hash code
+			int mask = tags.length - 1; // The table length is a power of two
+			int slot = (h ^ (h >>> 16)) & mask; // Fold the high bits in and mask it
+			while (tags[slot] != null && !tags[slot].equals(tag)) { // Probe until we find the hashtag or an empty slot
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		// Method to add to the score of a hashtag
+		void add(String tag, double amount) {
+			int slot = slot(tags, tag); // Find the hashtag
+			if (tags[slot] == null) { // If it isn't here yet
+				tags[slot] = tag; // Add it
+				if (++count > tags.length * 3 / 4) { // Increase the count and check the load factor
+					resize(); // Too full, so double the table
+					slot = slot(tags, tag); // Find where it went
+				}
+			}
+			scores[slot] += amount; // Add to its score
+		}
+
+		// Method to double the size of the table and re-insert every hashtag
+		private void resize() {
+			String[] oldTags = tags; // Keep hold of the old arrays
+			double[] oldScores = scores;
+			tags = new String[oldTags.length * 2]; // Create arrays twice the size
+			scores = new double[oldTags.length * 2];
+			for (int i = 0; i < oldTags.length; i++) {
+				if (oldTags[i] != null) {
+					int slot = slot(tags, oldTags[i]); // Find the new home of the hashtag
+					tags[slot] = oldTags[i]; // Move it across
+					scores[slot] = oldScores[i];
+				}
+			}
+		}
+
+		// Method to empty the bucket so it can be reused
+		void clear() {
+			if (count > 0) { // Nothing to do if it is already empty
+				Arrays.fill(tags, null); // Empty every slot
+				Arrays.fill(scores, 0);
+				count = 0;
+			}
+		}
+	}
+
+	// Constructor for a window of bucketCount buckets, each covering bucketMillis, with each older bucket weighted by decay
+	public WindowedTrending(long bucketMillis, int bucketCount, double decay, int k) {
+		if (bucketMillis <= 0 || bucketCount <= 0 || decay <= 0 || decay > 1) { // Check the window makes sense
+			throw new IllegalArgumentException("The window needs a positive bucket length and count, and a decay between 0 and 1");
+		}
+		this.bucketMillis = bucketMillis;
+		this.ring = new Scores[bucketCount]; // Create the ring buffer
+		for (int i = 0; i < bucketCount; i++) {
+			ring[i] = new Scores(); // Create each bucket
+		}
+		this.decay = decay;
+		this.k = k;
+		this.empty = true; // We haven't seen any weets yet
+	}
+
+	// Method to get the slot in the ring buffer for a bucket number
+	private int ringSlot(long bucket) {
+		return (int) Math.floorMod(bucket, (long) ring.length); // floorMod so dates before 1970 still work
+	}
+
+	// Method to count one use of a hashtag in a weet made on the date given
+	public void add(String tag, long date) { // O(1) on average, plus clearing any buckets which have expired
+		long bucket = Math.floorDiv(date, bucketMillis); // Work out which bucket the date is in
+		if (empty) { // If this is the first weet
+			newest = bucket; // Its bucket is the newest
+			empty = false;
+		} else if (bucket > newest) { // If the weet is newer than any so far, the window moves forward
+			long expire = Math.min(bucket - newest, ring.length); // The number of buckets which fall out of the window
+			for (long b = bucket - expire + 1; b <= bucket; b++) {
+				ring[ringSlot(b)].clear(); // Clear them so they can be reused
+			}
+			newest = bucket; // This is now the newest bucket
+		} else if (bucket <= newest - ring.length) { // If the weet is older than the window
+			return; // Ignore it
+		}
+		ring[ringSlot(bucket)].add(tag, 1); // Count it in its bucket
+	}
+
+	// Method to get the oldest date that is still in the window, as epoch millis
+	public long windowStart() {
+		return (newest - ring.length + 1) * bucketMillis; // The start of the oldest bucket
+	}
+
+	// Method to get the top hashtags over the window, the highest score first
+	public String[] top() { // O(window size)
+		Scores total = new Scores(); // The score of each hashtag over the whole window
+		double weight = 1; // The newest bucket has full weight
+		for (int i = 0; i < ring.length; i++) { // Go back through the buckets from the newest
+			Scores bucket = ring[ringSlot(newest - i)];
+			for (int j = 0; j < bucket.tags.length; j++) {
+				if (bucket.tags[j] != null) {
+					total.add(bucket.tags[j], bucket.scores[j] * weight); // Add the weighted count
+				}
+			}
+			weight *= decay; // Each older bucket counts for less
+		}
+		String[] top = new String[k]; // The result always has k places
+		double[] topScores = new double[k]; // The scores of the hashtags in top
+		int size = 0; // The number of hashtags in top
+		for (int j = 0; j < total.tags.length; j++) { // Insert each hashtag into the sorted top k
+			if (total.tags[j] == null) {
+				continue;
+			}
+			double score = total.scores[j];
+			if (size == k && (k == 0 || score <= topScores[k - 1])) { // Not good enough to get in
+				continue;
+			}
+			int i = size < k ? size++ : k - 1; // Start from the end, dropping the last one if we are full
+			while (i > 0 && topScores[i - 1] < score) { // Move smaller scores to the right
+				top[i] = top[i - 1];
+				topScores[i] = topScores[i - 1];
+				i--;
+			}
+			top[i] = total.tags[j]; // Put the hashtag in its place
+			topScores[i] = score;
+		}
+		return top; // Return the top k
+	}
+
+}
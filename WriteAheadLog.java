@@ -0,0 +1,314 @@
+/**
+* The WriteAheadLog is an append only file of records, used by the DurableStore to save every change before it is acknowledged.
+* Each record is written as a frame: its length, a CRC32 of its bytes, and then the bytes, so a record cut short by a crash, or damaged on disk, is spotted when reading.
+* The file starts with a magic number, so reading the wrong file fails straight away rather than replaying rubbish.
+* Appending writes the frame to the end of the file, and syncing forces everything written so far to disk.
+* Syncing is a group commit: a thread that needs its record on disk waits for the sync lock, and whichever thread gets it forces every record written up to then,
+* so when many threads are writing at once one fsync covers all of them and the others find their record already on disk.
+* How often to sync is a policy: after every record, after every batch of records, or only every so often on a background thread,
+* trading how many of the most recent records a power cut can lose against how many fsyncs are done.
+* If a sync fails, on any thread, the failure is kept and thrown by every later append, commit and close, as nothing after it can be trusted to be on disk.
+* Switching away from the interval policy waits for a sync which has started to finish rather than interrupting it, as an interrupt would close the file.
+* Replaying reads the frames in order and stops at the first one which is short or fails its CRC, which is where the crash was,
+* and the caller cuts the file back to there so new records follow on from the last good one.
+* @author_name: Rushil Gala-Shah
+* @author: 1515140
+*/
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+class WriteAheadLog implements Closeable {
+	static final int HEADER_BYTES = 4; // The magic number at the start of the file
+	private static final int FRAME_BYTES = 8; // The length and CRC before each record
+	private static final int MAX_RECORD = 1 << 24; // Anything longer than this can't be a real record, so the length must be damaged
+
+	private final FileChannel channel; // The log file
+	private final int magic; // The magic number at the start of the file
+	private final Object syncLock = new Object(); // Threads take turns to sync, the others wait and usually find their record already synced
+	private final Object timerLock = new Object(); // Changes to the sync policy take turns, without holding the log's lock which the timer's syncs need
+	private long written; // The length of the file, including everything appended
+	private volatile long synced; // The length of the file known to be on disk
+	private int unsynced; // The number of records appended since the last sync
+	private int batch; // Sync after this many records, 1 for every record, or 0 to leave it to the interval
+	private ScheduledExecutorService timer; // Syncs every so often for the interval policy, or null
+	private IOException failure; // The first sync which failed, after which nothing appended can be trusted to be on disk
+
+	interface RecordReader { // Interface for reading the records back when replaying
+		void read(byte[] record) throws IOException; // Called once for each record, in the order they were appended
+	}
+
+	// Constructor for WriteAheadLog, opening the file to append after the given length, which should come from replay
+	public WriteAheadLog(File file, int magic, long validLength) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.magic = magic;
+		if (validLength < HEADER_BYTES) { // If the file is new, or too short to have a header, start it again
+			channel.truncate(0);
+			writeFully(ByteBuffer.allocate(HEADER_BYTES).putInt(0, magic), 0);
+			validLength = HEADER_BYTES;
+			channel.force(true); // Make sure the header is on disk
+			syncDirectory(file.getAbsoluteFile().getParentFile()); // And that the file is in the directory, or a power cut could lose the whole log
+		} else {
+			channel.truncate(validLength); // Cut off anything after the last good record
+			channel.force(true); // Make sure the cut is on disk before we add to it
+		}
+		this.written = validLength;
+		this.synced = validLength;
+		this.unsynced = 0;
+		this.batch = 1; // Sync every record until told otherwise
+	}
+
+	// Method to write the whole of a buffer at a position
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) { // A write can write less than was asked for
+			position += channel.write(buffer, position);
+		}
+	}
+
+	// Method to make the frame for a record
+	private static ByteBuffer frame(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length);
+		ByteBuffer buffer = ByteBuffer.allocate(FRAME_BYTES + record.length); // Length, CRC, then the record
+		buffer.putInt(record.length).putInt((int) crc.getValue()).put(record);
+		buffer.flip();
+		return buffer;
+	}
+
+	// Method to throw the first sync which failed, if one has, so a failure on the timer's thread isn't lost
+	private synchronized void checkFailure() throws IOException {
+		if (failure != null) {
+			throw new IOException("An earlier sync of the log failed", failure);
+		}
+	}
+
+	// Method to append a record, returns the length of the file once it is written, to pass to commit
+	public synchronized long append(byte[] record) throws IOException { // O(m) for m bytes, not synced yet
+		checkFailure(); // Don't add to a log whose last sync failed
+		if (record.length > MAX_RECORD) {
+			throw new IllegalArgumentException("record is too long");
+		}
+		ByteBuffer buffer = frame(record);
+		writeFully(buffer, written); // Add it to the end of the file
+		written += buffer.capacity();
+		unsynced++;
+		return written;
+	}
+
+	// Method to make sure a record appended up to a position is as safe as the policy says before it is acknowledged
+	public void commit(long position) throws IOException {
+		boolean due; // Whether this record needs a sync
+		synchronized (this) {
+			checkFailure(); // A sync which failed may have been the one meant to cover this record
+			due = batch > 0 && unsynced >= batch; // Every record, or the end of a batch
+		}
+		if (due) {
+			sync(position);
+		}
+	}
+
+	// Method to force everything appended up to a position to disk, along with anything else appended before the sync starts
+	public void sync(long position) throws IOException {
+		if (synced >= position) { // Another thread's sync already covered it
+			return;
+		}
+		synchronized (syncLock) { // Wait for any sync already going on
+			if (synced >= position) { // Which may have covered it
+				return;
+			}
+			long target; // Everything appended so far will be covered by this sync
+			synchronized (this) {
+				target = written;
+				unsynced = 0;
+			}
+			try {
+				channel.force(false); // The records are on disk once this returns
+			} catch (IOException e) {
+				synchronized (this) {
+					if (failure == null) { // Remember the first failure, for the next append or commit to throw
+						failure = e;
+					}
+				}
+				throw e;
+			}
+			synced = target;
+		}
+	}
+
+	// Method to force everything appended so far to disk
+	public void sync() throws IOException {
+		long position;
+		synchronized (this) {
+			position = written;
+		}
+		sync(position);
+	}
+
+	// Method to sync after every batch of records, 1 for every record
+	public void setBatch(int records) {
+		if (records < 1) {
+			throw new IllegalArgumentException("records must be positive");
+		}
+		synchronized (timerLock) {
+			stopTimer();
+			synchronized (this) {
+				batch = records;
+			}
+		}
+	}
+
+	// Method to sync every so many milliseconds on a background thread, rather than when records are appended
+	public void setInterval(long millis) {
+		if (millis < 1) {
+			throw new IllegalArgumentException("millis must be positive");
+		}
+		synchronized (timerLock) {
+			stopTimer();
+			ScheduledExecutorService newTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+				Thread thread = new Thread(task, "wal-sync");
+				thread.setDaemon(true); // Don't keep the program running just to sync
+				return thread;
+			});
+			newTimer.scheduleWithFixedDelay(() -> {
+				try {
+					sync();
+				} catch (IOException e) { // sync has recorded it, and the next append or commit throws it
+				}
+			}, millis, millis, TimeUnit.MILLISECONDS);
+			synchronized (this) {
+				batch = 0; // Appends no longer sync
+				timer = newTimer;
+			}
+		}
+	}
+
+	// Method to stop the interval syncs, if there are any, waiting for one which has started to finish
+	private void stopTimer() { // Called holding timerLock but not the log's lock, which a sync in progress may need
+		ScheduledExecutorService oldTimer;
+		synchronized (this) {
+			oldTimer = timer;
+			timer = null;
+		}
+		if (oldTimer == null) {
+			return;
+		}
+		oldTimer.shutdown(); // Not shutdownNow, interrupting a thread inside force would close the channel
+		try {
+			oldTimer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); // Keep the interrupt for the caller, the sync finishes on its own
+		}
+	}
+
+	// Method to empty the log, once everything in it has been saved somewhere else
+	public void reset() throws IOException {
+		synchronized (syncLock) { // No sync can be going on while the file is cut
+			synchronized (this) {
+				channel.truncate(HEADER_BYTES); // Keep just the header
+				channel.force(true);
+				written = HEADER_BYTES;
+				synced = HEADER_BYTES;
+				unsynced = 0;
+			}
+		}
+	}
+
+	// Method to get the length of the file, including anything not synced yet
+	public synchronized long size() {
+		return written;
+	}
+
+	// Method to sync everything and close the file
+	public void close() throws IOException {
+		synchronized (timerLock) {
+			stopTimer();
+		}
+		try {
+			checkFailure(); // Report a failure from the timer's thread
+			sync();
+		} finally {
+			channel.close();
+		}
+	}
+
+	// Method to force a directory's entries to disk, so a file just made or renamed in it is still there after a power cut
+	static void syncDirectory(File directory) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			if (System.getProperty("os.name").startsWith("Windows")) { // Windows can't open a directory, but NTFS journals renames anyway
+				return;
+			}
+			throw e;
+		}
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+
+	// Method to write a record as a frame to a stream, for files written in one go like a snapshot
+	static void writeFrame(DataOutputStream out, byte[] record) throws IOException {
+		ByteBuffer buffer = frame(record);
+		out.write(buffer.array(), 0, buffer.capacity());
+	}
+
+	// Method to read every good record in a file in order, returns the length of the file up to the end of the last good record, or 0 if there is no file
+	public static long replay(File file, int magic, RecordReader reader) throws IOException { // O(n) for n bytes
+		if (!file.exists()) { // Nothing to replay
+			return 0;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			long valid; // The length up to the last good record
+			try {
+				if (in.readInt() != magic) { // The wrong kind of file
+					throw new IOException(file + " is not the right kind of file");
+				}
+				valid = HEADER_BYTES;
+			} catch (EOFException e) { // Cut off before the header was written
+				return 0;
+			}
+			CRC32 crc = new CRC32();
+			while (true) {
+				byte[] record;
+				int expected;
+				try {
+					int length = in.readInt();
+					expected = in.readInt();
+					if (length < 0 || length > MAX_RECORD) { // The length is damaged
+						return valid;
+					}
+					record = new byte[length];
+					in.readFully(record);
+				} catch (EOFException e) { // The last record was cut short, or there are no more
+					return valid;
+				}
+				crc.reset();
+				crc.update(record, 0, record.length);
+				if ((int) crc.getValue() != expected) { // The record is damaged
+					return valid;
+				}
+				reader.read(record); // It is good, so pass it on
+				valid += FRAME_BYTES + record.length;
+			}
+		}
+	}
+
+}
@@ -12,11 +12,8 @@ jar xf Witter.jar
 
 cd $WORK_DIR
 
-cp UserStore.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
-
-cp WeetStore.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
-
-cp FollowerStore.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+# Copy the stores along with the shared classes they use (IntHashMap etc.)
+cp *.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
 
 rm $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/WeetStore.class
 rm $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/UserStore.class
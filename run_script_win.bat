@@ -12,11 +12,8 @@ jar xf Witter.jar
 
 cd %WORK_DIR%
 
-copy UserStore.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
-
-copy WeetStore.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
-
-copy FollowerStore.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+REM Copy the stores along with the shared classes they use (IntHashMap etc.)
+copy *.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
 
 del %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\WeetStore.class
 del %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\UserStore.class
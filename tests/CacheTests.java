@@ -0,0 +1,180 @@
+import java.util.Arrays;
+import java.util.Date;
+
+import uk.ac.warwick.java.cs126.services.CachedFollowerStore;
+import uk.ac.warwick.java.cs126.services.CachedUserStore;
+import uk.ac.warwick.java.cs126.services.CachedWeetStore;
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.UserStore;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class CacheTests {
+
+    private static final long BUDGET = 1 << 20; // The memory budget of each cache, big enough that nothing is evicted
+
+
+    /*
+     * Tests that adding a user drops the cached searches and date queries they would be in, and keeps the others
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCachedUsers()
+    {
+        // Cache some queries on a case sensitive store
+        CachedUserStore userStore = new CachedUserStore(new UserStore(), BUDGET);
+        userStore.addUser(new User("Bob", 1, new Date(1000)));
+        userStore.getUsers();
+        userStore.getUsersContaining("Ali");
+        userStore.getUsersContaining("ali");
+        userStore.getUsersJoinedBefore(new Date(3000));
+        userStore.getUsersJoinedBefore(new Date(1500));
+
+        // Add a user which only some of them should change
+        userStore.addUser(new User("Alice", 2, new Date(2000)));
+
+        // We expect the changed results to be worked out again, and the rest to still be right
+        return userStore.getUsers().length == 2
+            && ids(userStore.getUsersContaining("Ali")).equals("[2]")
+            && ids(userStore.getUsersContaining("ali")).equals("[]")
+            && ids(userStore.getUsersJoinedBefore(new Date(3000))).equals("[2, 1]")
+            && ids(userStore.getUsersJoinedBefore(new Date(1500))).equals("[1]");
+    }
+
+    /*
+     * Tests that when the store ignores case, a cached search is dropped by a new user whose name only matches it ignoring case
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCachedUsersIgnoreCase()
+    {
+        // Cache a lower case search on a store which ignores case
+        CachedUserStore userStore = new CachedUserStore(new UserStore(true), BUDGET);
+        userStore.addUser(new User("Bob", 1, new Date(1000)));
+        boolean before = userStore.getUsersContaining("ali").length == 0;
+
+        // Add a user whose name only matches ignoring case
+        userStore.addUser(new User("Alice", 2, new Date(2000)));
+
+        // We expect the search to find them, rather than the cached result from before
+        return before && ids(userStore.getUsersContaining("ali")).equals("[2]") && ids(userStore.getUsersContaining("ALI")).equals("[2]");
+    }
+
+    /*
+     * Tests that when the wrapped store isn't a UserStore, so how it matches names is unknown, a new user drops every cached search
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCachedUsersUnknownCase()
+    {
+        // Wrap a cache around a cache, which matches however the store inside it does
+        CachedUserStore userStore = new CachedUserStore(new CachedUserStore(new UserStore(true), BUDGET), BUDGET);
+        userStore.addUser(new User("Bob", 1, new Date(1000)));
+        userStore.getUsersContaining("ali");
+
+        userStore.addUser(new User("Alice", 2, new Date(2000)));
+
+        // We expect the search to be worked out again
+        return ids(userStore.getUsersContaining("ali")).equals("[2]");
+    }
+
+    /*
+     * Tests that adding a weet drops every cached result it changes, including the trending hashtags, and the same query is a hit until then
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCachedWeets()
+    {
+        CachedWeetStore weetStore = new CachedWeetStore(new WeetStore(), BUDGET);
+        User user = new User("Alice", 1, new Date(0));
+        weetStore.addWeet(new Weet(1, 1, "Hello #java", new Date(86400000L + 1000)));
+
+        // Ask every query twice, the second time should come from the cache
+        for (int i = 0; i < 2; i++) {
+            weetStore.getWeets();
+            weetStore.getWeetsByUser(user);
+            weetStore.getWeetsContaining("#java");
+            weetStore.getWeetsOn(new Date(86400000L));
+            weetStore.getWeetsBefore(new Date(3 * 86400000L));
+            weetStore.getTrending();
+        }
+        boolean hits = weetStore.getHits() == 6;
+
+        // Add a weet which changes every one of them
+        weetStore.addWeet(new Weet(2, 1, "More #java", new Date(86400000L + 2000)));
+
+        return hits
+            && ids(weetStore.getWeets()).equals("[2, 1]")
+            && ids(weetStore.getWeetsByUser(user)).equals("[2, 1]")
+            && ids(weetStore.getWeetsContaining("#java")).equals("[2, 1]")
+            && ids(weetStore.getWeetsOn(new Date(86400000L))).equals("[2, 1]")
+            && ids(weetStore.getWeetsBefore(new Date(3 * 86400000L))).equals("[2, 1]")
+            && "#java".equals(weetStore.getTrending()[0]);
+    }
+
+    /*
+     * Tests that adding a follow drops the cached lists, mutuals and top users it changes
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCachedFollowers()
+    {
+        CachedFollowerStore followerStore = new CachedFollowerStore(new FollowerStore(), BUDGET);
+        followerStore.addFollower(1, 3, new Date(1000));
+        followerStore.addFollower(2, 4, new Date(2000));
+        followerStore.addFollower(2, 3, new Date(2500));
+
+        // Cache the queries the next follow changes
+        followerStore.getFollowers(4);
+        followerStore.getFollows(1);
+        followerStore.getMutualFollowers(3, 4);
+        followerStore.getMutualFollows(1, 2);
+        followerStore.getTopUsers();
+
+        // User 1 follows user 4 as well
+        followerStore.addFollower(1, 4, new Date(3000));
+
+        return Arrays.toString(followerStore.getFollowers(4)).equals("[1, 2]")
+            && Arrays.toString(followerStore.getFollows(1)).equals("[4, 3]")
+            && Arrays.toString(followerStore.getMutualFollowers(3, 4)).equals("[1, 2]")
+            && Arrays.toString(followerStore.getMutualFollows(1, 2)).equals("[3, 4]")
+            && followerStore.getTopUsers().length == 2;
+    }
+
+    /*
+     * Tests that changing an array returned by the cache doesn't change what it gives back next time
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCachedCopies()
+    {
+        CachedUserStore userStore = new CachedUserStore(new UserStore(), BUDGET);
+        userStore.addUser(new User("Alice", 1, new Date(1000)));
+        User[] users = userStore.getUsers();
+        users[0] = null;
+
+        // We expect the cached copy to be untouched
+        return userStore.getUsers()[0] != null;
+    }
+
+    /*
+     * Turns an array of users into a list of their ids, to compare easily
+     * @return Returns the ids, e.g. [2, 1]
+     */
+    private String ids(User[] users)
+    {
+        int[] ids = new int[users == null ? 0 : users.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = users[i].getId();
+        }
+        return Arrays.toString(ids);
+    }
+
+    /*
+     * Turns an array of weets into a list of their ids, to compare easily
+     * @return Returns the ids, e.g. [2, 1]
+     */
+    private String ids(Weet[] weets)
+    {
+        int[] ids = new int[weets == null ? 0 : weets.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = weets[i].getId();
+        }
+        return Arrays.toString(ids);
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+
+class CompressedTests {
+
+    private static final int A = 1; // The two users whose followers are compared, each a compressed set of follower ids
+    private static final int B = 2;
+
+
+    /*
+     * Tests that a set of followers in one container still works as it grows past 4096 ids, when it changes from an array to a bitmap
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testPastArrayLimit()
+    {
+        FollowerStore followerStore = new FollowerStore(true);
+        TreeSet<Integer> a = new TreeSet<Integer>();
+        TreeSet<Integer> b = new TreeSet<Integer>();
+        Random random = new Random(126);
+        boolean result = true;
+
+        // Fill user A's followers one id at a time from the same 65536 ids, checking just before, at and just after the limit
+        while (a.size() < 6000) {
+            follow(followerStore, random.nextInt(65536), A, a);
+            if (a.size() >= 4094 && a.size() <= 4099) {
+                result = result && same(followerStore, a, b);
+            }
+        }
+
+        // User B stays under the limit, so the mutuals are a bitmap and an array together, then B goes over it too
+        while (b.size() < 3000) {
+            follow(followerStore, random.nextInt(65536), B, b);
+        }
+        result = result && same(followerStore, a, b);
+        while (b.size() < 5000) {
+            follow(followerStore, random.nextInt(65536), B, b);
+        }
+
+        // We expect the same as a TreeSet at every point
+        return result && same(followerStore, a, b);
+    }
+
+    /*
+     * Tests that compacting followers whose ids come in long runs gives the same answers, and that following after compacting still works
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCompactRuns()
+    {
+        FollowerStore followerStore = new FollowerStore(true);
+        TreeSet<Integer> a = new TreeSet<Integer>();
+        TreeSet<Integer> b = new TreeSet<Integer>();
+
+        // Runs of ids, some crossing from one container to the next, some negative, and some single ids between them
+        for (int uid = 60000; uid < 70000; uid++) {
+            follow(followerStore, uid, A, a);
+        }
+        for (int uid = -300; uid < 0; uid++) {
+            follow(followerStore, uid, A, a);
+        }
+        for (int uid = 100; uid < 5000; uid += 2) {
+            follow(followerStore, uid, A, a);
+        }
+        for (int uid = 65000; uid < 66000; uid++) {
+            follow(followerStore, uid, B, b);
+        }
+        for (int uid = -10; uid < 10; uid++) {
+            follow(followerStore, uid, B, b);
+        }
+        boolean result = same(followerStore, a, b);
+
+        // Compact them, which should turn the runs into run containers
+        followerStore.compact();
+        result = result && same(followerStore, a, b);
+
+        // Add ids which join runs, split them and start new ones, then compact again
+        int[] more = {59999, 70000, 65500, 50, 101, -301, 80000, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int i = 0; i < more.length; i++) {
+            follow(followerStore, more[i], A, a);
+            follow(followerStore, more[i], B, b);
+            result = result && same(followerStore, a, b);
+        }
+        followerStore.compact();
+
+        // We expect the same as a TreeSet before and after each compact
+        return result && same(followerStore, a, b);
+    }
+
+    /*
+     * Tests that random followers spread over many containers, including negative ids, give the same answers as a TreeSet and as the plain store
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testMatchesTreeSet()
+    {
+        FollowerStore followerStore = new FollowerStore(true);
+        FollowerStore plain = new FollowerStore(false);
+        TreeSet<Integer> a = new TreeSet<Integer>();
+        TreeSet<Integer> b = new TreeSet<Integer>();
+        Random random = new Random(1515140);
+        for (int i = 0; i < 20000; i++) {
+            int uid = random.nextInt(8) == 0 ? random.nextInt() : random.nextInt(400000) - 200000; // Mostly a few containers, some anywhere
+            int user = random.nextBoolean() ? A : B;
+            follow(followerStore, uid, user, user == A ? a : b);
+            plain.addFollower(uid, user, new Date(i));
+        }
+
+        // We expect the same as a TreeSet, and the mutuals in the same order as the plain store
+        return same(followerStore, a, b)
+            && Arrays.equals(followerStore.getMutualFollowers(A, B), plain.getMutualFollowers(A, B))
+            && followerStore.getNumFollowers(A) == plain.getNumFollowers(A);
+    }
+
+    /*
+     * Makes a user follow another, adding them to the TreeSet too
+     */
+    private void follow(FollowerStore followerStore, int follower, int user, TreeSet<Integer> set)
+    {
+        followerStore.addFollower(follower, user, new Date(set.size()));
+        set.add(follower);
+    }
+
+    /*
+     * Checks the store's followers of A and B against the TreeSets: which ids are in them, their sizes, and their mutuals, which are the AND of the two sets
+     * @return Returns true if they are the same
+     */
+    private boolean same(FollowerStore followerStore, TreeSet<Integer> a, TreeSet<Integer> b)
+    {
+        TreeSet<Integer> both = new TreeSet<Integer>(a);
+        both.retainAll(b);
+        boolean result = followerStore.getNumFollowers(A) == a.size() && followerStore.getNumFollowers(B) == b.size()
+            && same(followerStore.getMutualFollowers(A, B), both)
+            && same(followerStore.getMutualFollowers(A, A), a) // The AND of a set with itself is every id in it
+            && same(followerStore.getMutualFollowers(B, B), b);
+
+        // Check every id in either set, and the ids either side of them, which are often not in it
+        TreeSet<Integer> check = new TreeSet<Integer>(a);
+        check.addAll(b);
+        for (Iterator<Integer> ids = check.iterator(); ids.hasNext() && result;) {
+            int uid = ids.next();
+            for (int near = -1; near <= 1; near++) {
+                int id = uid + near;
+                result = result && followerStore.isAFollower(id, A) == a.contains(id) && followerStore.isAFollower(id, B) == b.contains(id);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Checks an array of ids is the same as a TreeSet, in the same order
+     * @return Returns true if they are the same
+     */
+    private boolean same(int[] ids, TreeSet<Integer> set)
+    {
+        if (ids == null || ids.length != set.size()) {
+            return false;
+        }
+        int i = 0;
+        for (Iterator<Integer> it = set.iterator(); it.hasNext(); i++) {
+            if (ids[i] != it.next()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
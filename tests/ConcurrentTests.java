@@ -0,0 +1,227 @@
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.warwick.java.cs126.services.ConcurrentFollowerStore;
+import uk.ac.warwick.java.cs126.services.ConcurrentUserStore;
+import uk.ac.warwick.java.cs126.services.ConcurrentWeetStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class ConcurrentTests {
+
+    private static final int WRITERS = 4; // The number of threads adding at the same time
+    private static final int READERS = 4; // The number of threads querying while they do
+    private static final int EACH = 20000; // The number of things each writer adds
+
+
+    /*
+     * Tests that users added from many threads are all there afterwards, and readers only ever see a sorted list while they are added
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testConcurrentUsers()
+    {
+        final ConcurrentUserStore userStore = new ConcurrentUserStore();
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        // Each writer adds its own ids, with dates which are mixed up between the writers
+        Runnable[] writers = new Runnable[WRITERS];
+        for (int t = 0; t < WRITERS; t++) {
+            final int writer = t;
+            writers[t] = () -> {
+                for (int i = 0; i < EACH; i++) {
+                    int uid = writer * EACH + i + 1;
+                    if (!userStore.addUser(new User("user " + uid, uid, new Date((uid * 7919L) % 100000)))) {
+                        failed.set(true); // Every id is new, so every add should work
+                    }
+                }
+            };
+        }
+
+        // Each reader checks the list is most recent first and has no gaps
+        Runnable[] readers = new Runnable[READERS];
+        for (int t = 0; t < READERS; t++) {
+            readers[t] = () -> {
+                for (int i = 0; i < 200; i++) {
+                    User[] users = userStore.getUsers();
+                    for (int j = 1; j < users.length; j++) {
+                        if (users[j] == null || !newestFirst(users[j - 1].getDateJoined(), users[j - 1].getId(), users[j].getDateJoined(), users[j].getId())) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            };
+        }
+        boolean ran = run(writers, readers);
+
+        // We expect every user to be there, once
+        boolean result = ran && !failed.get() && userStore.getUsers().length == WRITERS * EACH;
+        for (int uid = 1; uid <= WRITERS * EACH; uid++) {
+            result = result && userStore.getUser(uid) != null;
+        }
+        return result;
+    }
+
+    /*
+     * Tests that weets added from many threads are all there afterwards, and readers never see a weet in one list but not another
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testConcurrentWeets()
+    {
+        final ConcurrentWeetStore weetStore = new ConcurrentWeetStore();
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        // Each writer adds its own weet ids, spread over ten users
+        Runnable[] writers = new Runnable[WRITERS];
+        for (int t = 0; t < WRITERS; t++) {
+            final int writer = t;
+            writers[t] = () -> {
+                for (int i = 0; i < EACH; i++) {
+                    int id = writer * EACH + i + 1;
+                    if (!weetStore.addWeet(new Weet(id, id % 10, "weet #tag" + (id % 3), new Date((id * 7919L) % 100000)))) {
+                        failed.set(true);
+                    }
+                }
+            };
+        }
+
+        // Each reader checks the list of every weet is sorted, and that a weet in a user's list can also be found by id,
+        // which it must be if it was added to both at once, as weets are never taken away
+        Runnable[] readers = new Runnable[READERS];
+        for (int t = 0; t < READERS; t++) {
+            final int reader = t;
+            readers[t] = () -> {
+                for (int i = 0; i < 200; i++) {
+                    Weet[] weets = weetStore.getWeets();
+                    for (int j = 1; j < weets.length; j++) {
+                        if (weets[j] == null || !newestFirst(weets[j - 1].getDateWeeted(), weets[j - 1].getId(), weets[j].getDateWeeted(), weets[j].getId())) {
+                            failed.set(true);
+                        }
+                    }
+                    Weet[] byUser = weetStore.getWeetsByUser(new User("user", (reader + i) % 10, new Date(0)));
+                    for (int j = 0; j < byUser.length; j++) {
+                        if (weetStore.getWeet(byUser[j].getId()) == null) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            };
+        }
+        boolean ran = run(writers, readers);
+
+        // We expect every weet to be there, and in its user's list
+        boolean result = ran && !failed.get() && weetStore.getWeets().length == WRITERS * EACH;
+        int byUsers = 0;
+        for (int uid = 0; uid < 10; uid++) {
+            byUsers += weetStore.getWeetsByUser(new User("user", uid, new Date(0))).length;
+        }
+        return result && byUsers == WRITERS * EACH;
+    }
+
+    /*
+     * Tests that follows added from many threads are all there afterwards, and readers never see one side of a follow without the other
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testConcurrentFollowers()
+    {
+        final ConcurrentFollowerStore followerStore = new ConcurrentFollowerStore();
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        final int users = 100;
+
+        // Each writer adds the follows from its own users to every other user
+        Runnable[] writers = new Runnable[WRITERS];
+        for (int t = 0; t < WRITERS; t++) {
+            final int writer = t;
+            writers[t] = () -> {
+                for (int uid1 = writer + 1; uid1 <= users; uid1 += WRITERS) {
+                    for (int uid2 = 1; uid2 <= users; uid2++) {
+                        if (uid1 != uid2) {
+                            followerStore.addFollower(uid1, uid2, new Date(uid1 * 1000L + uid2));
+                        }
+                    }
+                }
+            };
+        }
+
+        // Each reader checks that a follower in one user's list follows that user from the other side too
+        Runnable[] readers = new Runnable[READERS];
+        for (int t = 0; t < READERS; t++) {
+            final int reader = t;
+            readers[t] = () -> {
+                for (int i = 0; i < 500; i++) {
+                    int uid = 1 + (reader * 31 + i) % users;
+                    int[] followers = followerStore.getFollowers(uid); // Null until the user has a follower
+                    for (int j = 0; followers != null && j < followers.length; j++) {
+                        if (!followerStore.isAFollower(followers[j], uid)) {
+                            failed.set(true);
+                        }
+                    }
+                    int[] follows = followerStore.getFollows(uid);
+                    if (follows != null && followerStore.getNumFollowers(follows[0]) == 0) {
+                        failed.set(true);
+                    }
+                }
+            };
+        }
+        boolean ran = run(writers, readers);
+
+        // We expect every user to follow, and be followed by, everyone else
+        boolean result = ran && !failed.get();
+        for (int uid = 1; uid <= users; uid++) {
+            result = result && followerStore.getNumFollowers(uid) == users - 1 && followerStore.getFollows(uid).length == users - 1;
+        }
+        return result;
+    }
+
+    /*
+     * Checks the first date and id come before the second, most recent first and then highest id first
+     * @return Returns true if they are in order
+     */
+    private boolean newestFirst(Date date1, int id1, Date date2, int id2)
+    {
+        return date1.after(date2) || (date1.equals(date2) && id1 > id2);
+    }
+
+    /*
+     * Starts every writer and reader at the same moment, so they really do overlap, and waits for them all to finish
+     * @return Returns true if none of them threw an exception
+     */
+    private boolean run(Runnable[] writers, Runnable[] readers)
+    {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicBoolean threw = new AtomicBoolean(false);
+        Thread[] threads = new Thread[writers.length + readers.length];
+        for (int t = 0; t < threads.length; t++) {
+            final Runnable task = t < writers.length ? writers[t] : readers[t - writers.length];
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await(); // Wait for the others to be ready
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+                try {
+                    task.run();
+                }
+                catch (RuntimeException e)
+                {
+                    threw.set(true); // A store which isn't thread safe can throw when it is read half way through a change
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        try {
+            for (int t = 0; t < threads.length; t++) {
+                threads[t].join();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !threw.get();
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.CopyOnWriteStore;
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class CopyOnWriteTests {
+
+    private static final String[] WORDS = {"hello", "#cs126", "#java", "Witter", "#fun"}; // Words to build weets from, some of them hashtags
+
+
+    /*
+     * Tests that a View taken from the store gives the same answers after more weets and follows are added
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testSnapshotUnchanged()
+    {
+        CopyOnWriteStore store = new CopyOnWriteStore();
+        store.addWeet(new Weet(1, 1, "Hello #java", new Date(1000)));
+        store.addWeet(new Weet(2, 2, "Hi #java", new Date(2000)));
+        store.addFollower(1, 2, new Date(3000));
+        store.addFollower(3, 2, new Date(4000));
+
+        // Take a View and remember what it says
+        CopyOnWriteStore.View view = store.snapshot();
+        long version = view.getVersion();
+        String weets = ids(view.getWeets());
+        String byUser = ids(view.getWeetsByUser(1));
+        String followers = Arrays.toString(view.getFollowers(2));
+        String top = Arrays.toString(view.getTopUsers());
+        String trending = Arrays.toString(view.getTrending());
+
+        // Write more to the store, which changes every one of those answers
+        store.addWeet(new Weet(3, 1, "Bye #cs126 #cs126", new Date(5000)));
+        store.addWeet(new Weet(4, 1, "Again #cs126", new Date(6000)));
+        store.addFollower(2, 1, new Date(7000));
+        store.addFollower(3, 1, new Date(8000));
+        store.addFollower(4, 1, new Date(9000));
+        store.addFollower(4, 2, new Date(9500));
+
+        // We expect the old View to be the same, and a new View to see the writes
+        CopyOnWriteStore.View latest = store.snapshot();
+        return view.getVersion() == version
+            && ids(view.getWeets()).equals(weets)
+            && ids(view.getWeetsByUser(1)).equals(byUser)
+            && Arrays.toString(view.getFollowers(2)).equals(followers)
+            && Arrays.toString(view.getTopUsers()).equals(top)
+            && Arrays.toString(view.getTrending()).equals(trending)
+            && view.getWeet(3) == null
+            && !view.isAFollower(2, 1)
+            && view.getNumWeets() == 2
+            && latest.getVersion() > version
+            && latest.getNumWeets() == 4
+            && latest.isAFollower(2, 1)
+            && Arrays.toString(latest.getTopUsers()).equals("[1, 2]")
+            && "#cs126".equals(latest.getTrending()[0]);
+    }
+
+    /*
+     * Tests that every query gives the same answer as a WeetStore and a FollowerStore given the same weets and follows, including ties
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testMatchesStores()
+    {
+        CopyOnWriteStore store = new CopyOnWriteStore();
+        WeetStore weetStore = new WeetStore();
+        FollowerStore followerStore = new FollowerStore();
+        Random random = new Random(126);
+        boolean result = true;
+
+        // Add the same weets and follows to all of them, with a small range of dates so there are plenty of ties
+        for (int i = 0; i < 2000; i++) {
+            String message = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            Weet weet = new Weet(random.nextInt(2500), 1 + random.nextInt(30), message, new Date(random.nextInt(20) * 43200000L));
+            result = result && store.addWeet(weet) == weetStore.addWeet(weet); // Repeated ids should be refused by both
+            int uid1 = 1 + random.nextInt(30);
+            int uid2 = 1 + random.nextInt(30);
+            Date date = new Date(random.nextInt(50) * 1000L);
+            result = result && store.addFollower(uid1, uid2, date) == followerStore.addFollower(uid1, uid2, date);
+        }
+
+        // Compare the store and a View of it with the other stores
+        CopyOnWriteStore.View view = store.snapshot();
+        result = result && ids(store.getWeets()).equals(ids(weetStore.getWeets()))
+            && ids(view.getWeets()).equals(ids(weetStore.getWeets()))
+            && Arrays.equals(store.getTrending(), weetStore.getTrending())
+            && Arrays.equals(view.getTrending(), weetStore.getTrending())
+            && Arrays.equals(store.getTopUsers(), followerStore.getTopUsers())
+            && Arrays.equals(view.getTopUsers(), followerStore.getTopUsers());
+        for (int i = 0; i < WORDS.length; i++) {
+            result = result && ids(view.getWeetsContaining(WORDS[i])).equals(ids(weetStore.getWeetsContaining(WORDS[i])));
+        }
+        for (long time = -43200000L; time <= 11 * 86400000L; time += 43200000L / 2) {
+            Date date = new Date(time);
+            result = result && ids(view.getWeetsOn(date)).equals(ids(weetStore.getWeetsOn(date)))
+                && ids(view.getWeetsBefore(date)).equals(ids(weetStore.getWeetsBefore(date)));
+        }
+        for (int uid = 0; uid <= 31; uid++) {
+            User user = new User("user", uid, new Date(0));
+            result = result && ids(view.getWeetsByUser(uid)).equals(ids(weetStore.getWeetsByUser(user)))
+                && Arrays.equals(view.getFollowers(uid), followerStore.getFollowers(uid))
+                && Arrays.equals(view.getFollows(uid), followerStore.getFollows(uid))
+                && view.getNumFollowers(uid) == followerStore.getNumFollowers(uid)
+                && view.isAFollower(uid, uid + 1) == followerStore.isAFollower(uid, uid + 1)
+                && Arrays.equals(view.getMutualFollowers(uid, uid + 1), followerStore.getMutualFollowers(uid, uid + 1))
+                && Arrays.equals(view.getMutualFollows(uid, uid + 2), followerStore.getMutualFollows(uid, uid + 2));
+        }
+        for (int id = 0; id <= 2500; id += 7) {
+            Weet a = view.getWeet(id);
+            Weet b = weetStore.getWeet(id);
+            result = result && (a == null ? b == null : b != null && a.getMessage().equals(b.getMessage()));
+        }
+
+        // We expect every answer to be the same
+        return result;
+    }
+
+    /*
+     * Turns an array of weets into a list of their ids, to compare easily
+     * @return Returns the ids, e.g. [2, 1]
+     */
+    private String ids(Weet[] weets)
+    {
+        int[] ids = new int[weets == null ? 0 : weets.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = weets[i].getId();
+        }
+        return Arrays.toString(ids);
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class DateTests {
+
+    private List<Weet> weets; // Every weet added, for the brute force scans to check
+
+
+    /*
+     * Tests getWeetsOn with weets on the first and last millisecond of a day, and just outside it on both sides
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testDayEnds()
+    {
+        long start = midnight(2016, Calendar.FEBRUARY, 10); // The start of the day, in the same time zone as the store
+        long end = midnight(2016, Calendar.FEBRUARY, 11); // The start of the next day
+        WeetStore weetStore = new WeetStore();
+        weets = new ArrayList<Weet>();
+        long[] times = {start - 1, start, start, start + 1, end - 1, end - 1, end, end + 1, start - 86400000L};
+        for (int i = 0; i < times.length; i++) {
+            add(weetStore, new Weet(i + 1, 1, "Weet", new Date(times[i])));
+        }
+
+        // Ask with every time in the day, from either end, and the days either side
+        boolean result = ids(weetStore.getWeetsOn(new Date(start))).equals("[6, 5, 4, 3, 2]")
+            && ids(weetStore.getWeetsOn(new Date(end - 1))).equals("[6, 5, 4, 3, 2]")
+            && ids(weetStore.getWeetsOn(new Date(start + 43200000L))).equals("[6, 5, 4, 3, 2]")
+            && ids(weetStore.getWeetsOn(new Date(end))).equals("[8, 7]")
+            && ids(weetStore.getWeetsOn(new Date(start - 1))).equals("[1, 9]");
+        long[] asks = {start - 1, start, start + 1, end - 1, end, end + 1};
+        for (int i = 0; i < asks.length; i++) {
+            result = result && same(weetStore, asks[i]);
+        }
+
+        // We expect only the weets in the day, the same as a scan, with getWeetsBefore not including the date itself
+        return result && ids(weetStore.getWeetsBefore(new Date(end - 1))).equals("[4, 3, 2, 1, 9]");
+    }
+
+    /*
+     * Tests that weets made at exactly the same time are all found, ordered by id, however they were added
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testEqualTimes()
+    {
+        long start = midnight(2016, Calendar.FEBRUARY, 10);
+        WeetStore weetStore = new WeetStore();
+        weets = new ArrayList<Weet>();
+        int[] ids = {5, 1, 9, 3, 7, 2, 8, 4, 6}; // Added out of order
+        for (int i = 0; i < ids.length; i++) {
+            add(weetStore, new Weet(ids[i], 1, "Weet", new Date(start + (i % 3 == 0 ? 1000 : 2000))));
+        }
+
+        // We expect the later time first, then the highest id first at each time
+        boolean result = ids(weetStore.getWeets()).equals("[9, 7, 6, 4, 2, 1, 8, 5, 3]")
+            && ids(weetStore.getWeetsOn(new Date(start))).equals("[9, 7, 6, 4, 2, 1, 8, 5, 3]")
+            && ids(weetStore.getWeetsBefore(new Date(start + 2000))).equals("[8, 5, 3]")
+            && ids(weetStore.getWeetsBefore(new Date(start + 2001))).equals("[9, 7, 6, 4, 2, 1, 8, 5, 3]");
+        return result && same(weetStore, start + 1000) && same(weetStore, start + 2000);
+    }
+
+    /*
+     * Tests random weets over a few days, many at the same time and many near midnight, against a scan of every weet
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testDatesMatchScan()
+    {
+        long start = midnight(2016, Calendar.FEBRUARY, 10);
+        Random random = new Random(126);
+        WeetStore weetStore = new WeetStore();
+        weets = new ArrayList<Weet>();
+        for (int id = 1; id <= 3000; id++) {
+            long day = start + random.nextInt(5) * 86400000L;
+            long time = random.nextBoolean() ? day + random.nextInt(5) - 2 : day + random.nextInt(86400) * 1000L; // Near midnight, or anywhere in the day
+            add(weetStore, new Weet(id, 1, "Weet", new Date(time)));
+        }
+
+        // Ask for every time near a midnight, and some in the middle of the days
+        boolean result = ids(weetStore.getWeets()).equals(ids(scan(Long.MIN_VALUE, Long.MAX_VALUE)));
+        for (int d = -1; d <= 5; d++) {
+            long day = start + d * 86400000L;
+            for (long time = day - 3; time <= day + 3; time++) {
+                result = result && same(weetStore, time);
+            }
+            result = result && same(weetStore, day + 43200000L);
+        }
+
+        // We expect the same as a scan for every date
+        return result;
+    }
+
+    /*
+     * Adds a weet to the store, remembering it for the scans
+     */
+    private void add(WeetStore weetStore, Weet weet)
+    {
+        weetStore.addWeet(weet);
+        weets.add(weet);
+    }
+
+    /*
+     * Checks getWeetsOn and getWeetsBefore for a time give the same as scanning every weet
+     * @return Returns true if they are the same
+     */
+    private boolean same(WeetStore weetStore, long time)
+    {
+        Calendar calendar = Calendar.getInstance(); // Work out the day the same way as the store, in the default time zone
+        calendar.setTimeInMillis(time);
+        long day = midnight(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH));
+        calendar.setTimeInMillis(day);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return ids(weetStore.getWeetsOn(new Date(time))).equals(ids(scan(day, calendar.getTimeInMillis())))
+            && ids(weetStore.getWeetsBefore(new Date(time))).equals(ids(scan(Long.MIN_VALUE, time)));
+    }
+
+    /*
+     * Scans every weet for the ones made at or after from and before to
+     * @return Returns them most recent first, the highest id first on a tie
+     */
+    private Weet[] scan(long from, long to)
+    {
+        List<Weet> matches = new ArrayList<Weet>();
+        for (int i = 0; i < weets.size(); i++) {
+            long time = weets.get(i).getDateWeeted().getTime();
+            if (time >= from && time < to) {
+                matches.add(weets.get(i));
+            }
+        }
+        matches.sort((a, b) -> a.getDateWeeted().equals(b.getDateWeeted()) ? Integer.compare(b.getId(), a.getId()) : b.getDateWeeted().compareTo(a.getDateWeeted()));
+        return matches.toArray(new Weet[0]);
+    }
+
+    /*
+     * Gets the start of a day in the default time zone, the same as the store uses for getWeetsOn
+     * @return Returns the time as epoch millis
+     */
+    private long midnight(int year, int month, int day)
+    {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar.getTimeInMillis();
+    }
+
+    /*
+     * Turns an array of weets into a list of their ids, to compare easily
+     * @return Returns the ids, e.g. [2, 1]
+     */
+    private String ids(Weet[] weets)
+    {
+        int[] ids = new int[weets == null ? 0 : weets.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = weets[i].getId();
+        }
+        return Arrays.toString(ids);
+    }
+}
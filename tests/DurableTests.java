@@ -0,0 +1,158 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Date;
+
+import uk.ac.warwick.java.cs126.services.DurableStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class DurableTests {
+
+
+    /*
+     * Tests that a log cut short in its last record, like a crash part way through a write, still opens with everything before it
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testTornTail()
+    {
+        try {
+            File directory = createDirectory();
+
+            // Save two weets, the second of which will be cut short
+            writeTwoWeets(directory);
+
+            // Cut the last few bytes off the log, which are the end of the second weet
+            File log = new File(directory, "witter.log");
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.setLength(file.length() - 3);
+            }
+
+            // We expect the first weet back, but not the second, and new writes to be saved after the first
+            return reopenedWithFirstWeet(directory);
+        }
+        catch (IOException e)
+        {
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    /*
+     * Tests that a record damaged on disk fails its CRC and is dropped, along with anything after it
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testBadCrc()
+    {
+        try {
+            File directory = createDirectory();
+
+            // Save two weets, the second of which will be damaged
+            writeTwoWeets(directory);
+
+            // Flip a bit in the last byte of the log, which is in the second weet's message
+            File log = new File(directory, "witter.log");
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.seek(file.length() - 1);
+                int last = file.read();
+                file.seek(file.length() - 1);
+                file.write(last ^ 1);
+            }
+
+            // We expect the same as a torn record, the length is right but the CRC isn't
+            return reopenedWithFirstWeet(directory);
+        }
+        catch (IOException e)
+        {
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    /*
+     * Tests that a checkpoint, then more writes, then reopening gives back everything from both the snapshot and the log
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCheckpointReopen()
+    {
+        try {
+            File directory = createDirectory();
+
+            // Save some of everything and compact it into a snapshot
+            DurableStore store = new DurableStore(directory);
+            store.addUser(new User("Alice", 1, new Date(1000)));
+            store.addUser(new User("Bob", 2, new Date(2000)));
+            store.addWeet(new Weet(1, 1, "Hello #cs126", new Date(3000)));
+            store.addFollower(2, 1, new Date(4000));
+            store.checkpoint();
+
+            // Then save some more, which only goes in the log
+            store.addUser(new User("Carol", 3, new Date(5000)));
+            store.addWeet(new Weet(2, 3, "Hi Alice", new Date(6000)));
+            store.addFollower(3, 1, new Date(7000));
+            store.close();
+
+            // Open it again, which loads the snapshot and replays the log on top
+            DurableStore reopened = new DurableStore(directory);
+            boolean result = reopened.getUserStore().getUsers().length == 3
+                && "Carol".equals(reopened.getUserStore().getUser(3).getName())
+                && reopened.getWeetStore().getWeets().length == 2
+                && "Hello #cs126".equals(reopened.getWeetStore().getWeet(1).getMessage())
+                && reopened.getFollowerStore().getNumFollowers(1) == 2
+                && reopened.getFollowerStore().isAFollower(2, 1)
+                && reopened.getFollowerStore().isAFollower(3, 1);
+            reopened.close();
+
+            // We expect everything from before and after the checkpoint
+            return result;
+        }
+        catch (IOException e)
+        {
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    /*
+     * Saves a user and two weets in a new store in the directory, with the second weet the last record in the log
+     */
+    private void writeTwoWeets(File directory) throws IOException
+    {
+        DurableStore store = new DurableStore(directory);
+        store.addUser(new User("Alice", 1, new Date(1000)));
+        store.addWeet(new Weet(1, 1, "First weet", new Date(2000)));
+        store.addWeet(new Weet(2, 1, "Second weet", new Date(3000)));
+        store.close();
+    }
+
+    /*
+     * Reopens the store, checks only the first weet came back, and checks a new weet is saved after it
+     * @return Returns true if everything was as expected
+     */
+    private boolean reopenedWithFirstWeet(File directory) throws IOException
+    {
+        DurableStore store = new DurableStore(directory);
+        boolean result = store.getUserStore().getUser(1) != null
+            && store.getWeetStore().getWeet(1) != null
+            && store.getWeetStore().getWeet(2) == null;
+
+        // The damaged record should have been cut off, so this follows on from the first weet
+        store.addWeet(new Weet(3, 1, "Third weet", new Date(4000)));
+        store.close();
+
+        DurableStore reopened = new DurableStore(directory);
+        result = result && reopened.getWeetStore().getWeet(3) != null && reopened.getWeetStore().getWeets().length == 2;
+        reopened.close();
+        return result;
+    }
+
+    /*
+     * Makes a new empty directory for a store, in the system's temporary directory
+     * @return Returns the directory
+     */
+    private File createDirectory() throws IOException
+    {
+        return Files.createTempDirectory("witter").toFile();
+    }
+}
@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.Page;
+import uk.ac.warwick.java.cs126.services.UserStore;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class PagingTests {
+
+    private static final String[] BAD_CURSORS = {"", ".", "abc", "1.", ".1", "1.2.3", "1.!", "o", "o-1", "ozzzzzzzzzz"}; // Cursors no store should accept
+
+    private interface Pager<T> { // A paged query, given the cursor of the page to get
+        Page<? extends T> get(String cursor);
+    }
+
+
+    /*
+     * Tests that paging through weets which all have the same time gives each weet once, ordered by id, for every page size
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testWeetsSameTime()
+    {
+        final WeetStore weetStore = new WeetStore();
+        final User user = new User("Alice", 1, new Date(0));
+        final Date day = new Date(86400000L);
+        for (int id = 1; id <= 20; id++) {
+            weetStore.addWeet(new Weet(id * 7 % 23, 1 + id % 2, "Weet #tag", new Date(86400000L + 5000))); // Same time, ids added out of order
+        }
+        weetStore.addWeet(new Weet(100, 1, "Earlier #tag", new Date(86400000L + 1000)));
+
+        // Every page size, including pages that end in the middle of the tie, should give the same as the whole query
+        boolean result = true;
+        for (int limit = 1; limit <= 22; limit++) {
+            final int size = limit;
+            result = result && ids(drain(cursor -> weetStore.getWeets(size, cursor), size)).equals(ids(weetStore.getWeets()))
+                && ids(drain(cursor -> weetStore.getWeetsByUser(user, size, cursor), size)).equals(ids(weetStore.getWeetsByUser(user)))
+                && ids(drain(cursor -> weetStore.getWeetsOn(day, size, cursor), size)).equals(ids(weetStore.getWeetsOn(day)))
+                && ids(drain(cursor -> weetStore.getWeetsBefore(new Date(86400000L * 2), size, cursor), size)).equals(ids(weetStore.getWeetsBefore(new Date(86400000L * 2))))
+                && ids(drain(cursor -> weetStore.getWeetsContaining("#tag", size, cursor), size)).equals(ids(weetStore.getWeetsContaining("#tag")));
+        }
+
+        // We expect the highest id first among the weets at the same time, and the earlier weet last
+        return result && ids(weetStore.getWeets()).startsWith("[22, 21, 20, 19,") && ids(weetStore.getWeets()).endsWith(", 100]");
+    }
+
+    /*
+     * Tests that paging through users who all joined at the same time gives each user once, ordered by id, for every page size
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testUsersSameTime()
+    {
+        final UserStore userStore = new UserStore();
+        for (int i = 1; i <= 15; i++) {
+            userStore.addUser(new User((i % 3 == 0 ? "Bob " : "Alice ") + i, i * 11 % 17, new Date(5000))); // Same time, ids added out of order
+        }
+
+        boolean result = true;
+        for (int limit = 1; limit <= 16; limit++) {
+            final int size = limit;
+            result = result && ids(drain(cursor -> userStore.getUsers(size, cursor), size)).equals(ids(userStore.getUsers()))
+                && ids(drain(cursor -> userStore.getUsersContaining("Alice", size, cursor), size)).equals(ids(userStore.getUsersContaining("Alice")))
+                && ids(drain(cursor -> userStore.getUsersContaining("i", size, cursor), size)).equals(ids(userStore.getUsersContaining("i")))
+                && ids(drain(cursor -> userStore.getUsersJoinedBefore(new Date(6000), size, cursor), size)).equals(ids(userStore.getUsersJoinedBefore(new Date(6000))))
+                && ids(drain(cursor -> userStore.getUsersJoinedBetween(new Date(0), new Date(6000), size, cursor), size)).equals(ids(userStore.getUsersJoinedBetween(new Date(0), new Date(6000))));
+        }
+
+        // We expect the highest id first
+        return result && ids(userStore.getUsers()).startsWith("[16, 15, 14,");
+    }
+
+    /*
+     * Tests that paging through followers who all followed at the same time gives each one once, in the same order as the whole list
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testFollowersSameTime()
+    {
+        boolean result = true;
+        boolean[] modes = {false, true};
+        for (int m = 0; m < modes.length; m++) {
+            final FollowerStore followerStore = new FollowerStore(modes[m]); // Both the plain and compressed lists
+            for (int i = 1; i <= 12; i++) {
+                followerStore.addFollower(i * 5 % 13, 100, new Date(3000)); // Everyone follows user 100 at the same time
+                followerStore.addFollower(100, i * 5 % 13, new Date(i % 2 == 0 ? 3000 : 2000)); // And user 100 follows them back, at two times
+            }
+            for (int limit = 1; limit <= 13; limit++) {
+                final int size = limit;
+                result = result && Arrays.toString(ints(drain(cursor -> followerStore.getFollowers(100, size, cursor), size))).equals(Arrays.toString(followerStore.getFollowers(100)))
+                    && Arrays.toString(ints(drain(cursor -> followerStore.getFollows(100, size, cursor), size))).equals(Arrays.toString(followerStore.getFollows(100)));
+            }
+            result = result && drain(cursor -> followerStore.getFollowers(50, 10, cursor), 10).isEmpty(); // Nobody follows user 50
+        }
+
+        // We expect every page size to give the whole list
+        return result;
+    }
+
+    /*
+     * Tests that the top users cursor is the place of the next user, "o" and then the place in base 36, and that one made by hand works
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testTopUsersCursor()
+    {
+        FollowerStore followerStore = new FollowerStore();
+        for (int uid = 1; uid <= 40; uid++) {
+            for (int follower = 0; follower < uid % 7; follower++) {
+                followerStore.addFollower(1000 + follower, uid, new Date(uid * 100L + follower)); // Users 1 to 40 get 0 to 6 followers each
+            }
+        }
+        int[] top = followerStore.getTopUsers();
+
+        // The first page ends after 12 users, so the cursor is the place 12, which is "oc" in base 36
+        Page<Integer> first = followerStore.getTopUsers(12, null);
+        boolean result = "oc".equals(first.getNextCursor())
+            && Arrays.toString(ints(Arrays.asList(first.getItems()))).equals(Arrays.toString(Arrays.copyOfRange(top, 0, 12)));
+
+        // A cursor made by hand starts from that place, the same as getTopUsers(offset, limit)
+        Page<Integer> middle = followerStore.getTopUsers(5, "o" + Integer.toString(20, 36));
+        result = result && Arrays.toString(ints(Arrays.asList(middle.getItems()))).equals(Arrays.toString(followerStore.getTopUsers(20, 5)))
+            && ("o" + Integer.toString(25, 36)).equals(middle.getNextCursor());
+
+        // The last page has no cursor, and a place past the end gives an empty page
+        Page<Integer> last = followerStore.getTopUsers(100, "o" + Integer.toString(30, 36));
+        Page<Integer> past = followerStore.getTopUsers(5, "o" + Integer.toString(1000, 36));
+        result = result && last.getNextCursor() == null && last.getItems().length == top.length - 30
+            && past.getNextCursor() == null && past.getItems().length == 0;
+
+        // Paging all the way through gives the whole list
+        for (int limit = 1; limit <= top.length + 1; limit++) {
+            final int size = limit;
+            result = result && Arrays.equals(ints(drain(cursor -> followerStore.getTopUsers(size, cursor), size)), top);
+        }
+
+        // We expect the smaller id first among users with the same number of followers
+        return result && top.length == 35 && top[0] == 6 && top[1] == 13 && top[2] == 20;
+    }
+
+    /*
+     * Tests that every paged query refuses cursors it didn't make, the wrong kind of cursor, and page sizes that aren't positive
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testBadCursorsAndLimits()
+    {
+        final WeetStore weetStore = new WeetStore();
+        final UserStore userStore = new UserStore();
+        final FollowerStore followerStore = new FollowerStore();
+        final User user = new User("Alice", 1, new Date(0));
+        weetStore.addWeet(new Weet(1, 1, "Hello", new Date(1000)));
+        userStore.addUser(user);
+        followerStore.addFollower(2, 1, new Date(1000));
+
+        // Every paged query, taking a page size as well as a cursor
+        List<Pager<?>> queries = new ArrayList<>();
+        final int[] limit = new int[1];
+        queries.add(cursor -> weetStore.getWeets(limit[0], cursor));
+        queries.add(cursor -> weetStore.getWeetsByUser(user, limit[0], cursor));
+        queries.add(cursor -> weetStore.getWeetsOn(new Date(0), limit[0], cursor));
+        queries.add(cursor -> weetStore.getWeetsBefore(new Date(5000), limit[0], cursor));
+        queries.add(cursor -> weetStore.getWeetsContaining("Hello", limit[0], cursor));
+        queries.add(cursor -> userStore.getUsers(limit[0], cursor));
+        queries.add(cursor -> userStore.getUsersContaining("Ali", limit[0], cursor));
+        queries.add(cursor -> userStore.getUsersJoinedBefore(new Date(5000), limit[0], cursor));
+        queries.add(cursor -> userStore.getUsersJoinedBetween(new Date(0), new Date(5000), limit[0], cursor));
+        queries.add(cursor -> followerStore.getFollowers(1, limit[0], cursor));
+        queries.add(cursor -> followerStore.getFollows(2, limit[0], cursor));
+        int dateQueries = queries.size(); // The queries before this use date cursors
+        queries.add(cursor -> followerStore.getTopUsers(limit[0], cursor));
+
+        boolean result = true;
+        for (int q = 0; q < queries.size(); q++) {
+            Pager<?> query = queries.get(q);
+
+            // A good page size with no cursor works
+            limit[0] = 10;
+            result = result && query.get(null).getItems().length == 1;
+
+            // Cursors nobody made, and the other kind of cursor, are refused
+            for (int c = 0; c < BAD_CURSORS.length; c++) {
+                result = result && refused(query, BAD_CURSORS[c]);
+            }
+            result = result && refused(query, q < dateQueries ? "o5" : "z.1");
+
+            // Page sizes of zero or less are refused
+            limit[0] = 0;
+            result = result && refused(query, null);
+            limit[0] = -1;
+            result = result && refused(query, null);
+        }
+
+        // We expect only the good query to work
+        return result;
+    }
+
+    /*
+     * Checks that a query throws an IllegalArgumentException for a cursor
+     * @return Returns true if it did
+     */
+    private boolean refused(Pager<?> query, String cursor)
+    {
+        try {
+            query.get(cursor);
+            return false;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return true;
+        }
+    }
+
+    /*
+     * Gets every page of a query, checking each is full apart from the last
+     * @return Returns the items from all the pages, or null if a page was the wrong size
+     */
+    private <T> List<T> drain(Pager<T> query, int limit)
+    {
+        List<T> items = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<? extends T> page = query.get(cursor);
+            if (page.getItems().length > limit || (page.hasMore() && page.getItems().length != limit)) {
+                return null;
+            }
+            items.addAll(Arrays.asList(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return items;
+    }
+
+    /*
+     * Turns a list of user ids into an array, to compare with the other queries
+     * @return Returns the ids, or an empty array for a null list
+     */
+    private int[] ints(List<Integer> ids)
+    {
+        int[] result = new int[ids == null ? 0 : ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
+        }
+        return result;
+    }
+
+    /*
+     * Turns a list of weets or users into a list of their ids, to compare easily
+     * @return Returns the ids, e.g. [2, 1], or "null" for a null list
+     */
+    private String ids(List<?> items)
+    {
+        if (items == null) {
+            return "null";
+        }
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Object item = items.get(i);
+            ids[i] = item instanceof Weet ? ((Weet) item).getId() : ((User) item).getId();
+        }
+        return Arrays.toString(ids);
+    }
+
+    /*
+     * Turns an array of weets or users into a list of their ids, to compare easily
+     * @return Returns the ids, e.g. [2, 1]
+     */
+    private String ids(Object[] items)
+    {
+        return ids(items == null ? null : Arrays.asList(items));
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.Page;
+import uk.ac.warwick.java.cs126.services.UserStore;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class SearchTests {
+
+    private static final String LETTERS = "abAB #\u00e9"; // Few letters, so trigrams repeat a lot, with a space, a hashtag and some non ASCII text
+
+    private List<Weet> weets; // Every weet and user added, for the brute force scans to check
+    private List<User> users;
+
+
+    /*
+     * Tests searches for queries shorter than a trigram, which the index can't answer, against a scan of every weet and user
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testShortQueries()
+    {
+        WeetStore weetStore = new WeetStore();
+        UserStore userStore = new UserStore();
+        UserStore ignoreCase = new UserStore(true);
+        fill(weetStore, userStore, ignoreCase, new String[] {"ab", "a", "", "AB", "abA", "b #a", "\u00e9\u00e9", "#"});
+
+        // Queries of no, one and two characters
+        String[] queries = {"", "a", "A", "ab", "aB", "#", "#a", " ", "\u00e9", "\u00e9\u00e9", "z"};
+        boolean result = true;
+        for (int i = 0; i < queries.length; i++) {
+            result = result && same(weetStore, userStore, ignoreCase, queries[i]);
+        }
+
+        // We expect the same as a scan for every query
+        return result;
+    }
+
+    /*
+     * Tests queries and texts which have the same trigram more than once, so the postings lists have to be intersected with themselves
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testRepeatedTrigrams()
+    {
+        WeetStore weetStore = new WeetStore();
+        UserStore userStore = new UserStore();
+        UserStore ignoreCase = new UserStore(true);
+        fill(weetStore, userStore, ignoreCase, new String[] {"aaa", "aaaa", "aaaaaa", "aa aa", "abab", "ababab", "abba", "AaAa", "aba aba", "baba"});
+
+        // Queries which repeat a trigram, which only some of the texts with that trigram contain
+        String[] queries = {"aaa", "aaaa", "aaaaa", "aaaaaaa", "aba", "abab", "ababa", "bab", "baba", "aAa", "AAAA", "a a", "aba ab"};
+        boolean result = true;
+        for (int i = 0; i < queries.length; i++) {
+            result = result && same(weetStore, userStore, ignoreCase, queries[i]);
+        }
+
+        // We expect the same as a scan for every query
+        return result;
+    }
+
+    /*
+     * Tests random queries of every length against random texts from a few letters, with plenty of weets at the same time
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testMatchesScan()
+    {
+        Random random = new Random(126);
+        String[] texts = new String[1500];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = text(random, random.nextInt(12));
+        }
+        WeetStore weetStore = new WeetStore();
+        UserStore userStore = new UserStore();
+        UserStore ignoreCase = new UserStore(true);
+        fill(weetStore, userStore, ignoreCase, texts);
+
+        boolean result = true;
+        for (int i = 0; i < 300; i++) {
+            result = result && same(weetStore, userStore, ignoreCase, text(random, random.nextInt(7)));
+        }
+
+        // We expect the same as a scan for every query
+        return result;
+    }
+
+    /*
+     * Adds a weet and a user for each text to the stores, at times with plenty of ties, remembering them for the scans
+     */
+    private void fill(WeetStore weetStore, UserStore userStore, UserStore ignoreCase, String[] texts)
+    {
+        weets = new ArrayList<Weet>();
+        users = new ArrayList<User>();
+        for (int i = 0; i < texts.length; i++) {
+            int id = (i * 7919) % 10007; // Ids added out of order
+            Date date = new Date((i % 10) * 1000L);
+            Weet weet = new Weet(id, 1, texts[i], date);
+            User user = new User(texts[i], id, date);
+            weetStore.addWeet(weet);
+            userStore.addUser(user);
+            ignoreCase.addUser(user);
+            weets.add(weet);
+            users.add(user);
+        }
+    }
+
+    /*
+     * Makes a random text from the few letters
+     * @return Returns the text
+     */
+    private String text(Random random, int length)
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return text.toString();
+    }
+
+    /*
+     * Checks that the weet and user searches for a query, whole and paged, give the same as scanning every weet and user
+     * @return Returns true if they are the same
+     */
+    private boolean same(WeetStore weetStore, UserStore userStore, UserStore ignoreCase, String query)
+    {
+        // Scan everything for the matches, then sort them most recent first, the highest id first on a tie
+        List<Weet> weetMatches = new ArrayList<Weet>();
+        for (int i = 0; i < weets.size(); i++) {
+            if (weets.get(i).getMessage().contains(query)) {
+                weetMatches.add(weets.get(i));
+            }
+        }
+        weetMatches.sort((a, b) -> a.getDateWeeted().equals(b.getDateWeeted()) ? Integer.compare(b.getId(), a.getId()) : b.getDateWeeted().compareTo(a.getDateWeeted()));
+        List<User> userMatches = new ArrayList<User>();
+        List<User> ignoreCaseMatches = new ArrayList<User>();
+        for (int i = 0; i < users.size(); i++) {
+            String name = users.get(i).getName();
+            if (name.contains(query)) {
+                userMatches.add(users.get(i));
+            }
+            if (name.toLowerCase().contains(query.toLowerCase())) {
+                ignoreCaseMatches.add(users.get(i));
+            }
+        }
+        userMatches.sort((a, b) -> a.getDateJoined().equals(b.getDateJoined()) ? Integer.compare(b.getId(), a.getId()) : b.getDateJoined().compareTo(a.getDateJoined()));
+        ignoreCaseMatches.sort((a, b) -> a.getDateJoined().equals(b.getDateJoined()) ? Integer.compare(b.getId(), a.getId()) : b.getDateJoined().compareTo(a.getDateJoined()));
+
+        // Read the pages of each search
+        List<Object> weetPages = new ArrayList<Object>();
+        List<Object> userPages = new ArrayList<Object>();
+        List<Object> ignoreCasePages = new ArrayList<Object>();
+        String cursor = null;
+        do {
+            Page<Weet> page = weetStore.getWeetsContaining(query, 7, cursor);
+            weetPages.addAll(Arrays.asList(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        do {
+            Page<User> page = userStore.getUsersContaining(query, 7, cursor);
+            userPages.addAll(Arrays.asList(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        do {
+            Page<User> page = ignoreCase.getUsersContaining(query, 7, cursor);
+            ignoreCasePages.addAll(Arrays.asList(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        return Arrays.asList(weetStore.getWeetsContaining(query)).equals(weetMatches) && weetPages.equals(weetMatches)
+            && Arrays.asList(userStore.getUsersContaining(query)).equals(userMatches) && userPages.equals(userMatches)
+            && Arrays.asList(ignoreCase.getUsersContaining(query)).equals(ignoreCaseMatches) && ignoreCasePages.equals(ignoreCaseMatches);
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.IFollowerStore;
+import uk.ac.warwick.java.cs126.services.IUserStore;
+import uk.ac.warwick.java.cs126.services.IWeetStore;
+import uk.ac.warwick.java.cs126.services.MappedSnapshot;
+import uk.ac.warwick.java.cs126.services.UserStore;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class SnapshotTests {
+
+    private static final String[] WORDS = {"hello", "Witter", "#cs126", "#java", "caf\u00e9", "ali", "Alice", "bob"}; // Words to build names and weets from, with some non ASCII text
+
+    private UserStore userStore; // The live stores the snapshot is written from
+    private WeetStore weetStore;
+    private FollowerStore followerStore;
+
+
+    /*
+     * Tests that every query on a snapshot gives the same answer as the stores it was written from
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testSnapshotMatchesStores()
+    {
+        try {
+            // Fill the stores and write a snapshot of them
+            fillStores();
+            File file = File.createTempFile("witter", ".snapshot");
+            MappedSnapshot.write(file, userStore, weetStore, followerStore);
+
+            // Open it again, which maps it rather than loading it
+            MappedSnapshot snapshot = new MappedSnapshot(file);
+            IUserStore users = snapshot.getUserStore();
+            IWeetStore weets = snapshot.getWeetStore();
+            IFollowerStore followers = snapshot.getFollowerStore();
+
+            // Compare the lists of everything, the searches and the trending hashtags
+            boolean result = sameUsers(users.getUsers(), userStore.getUsers())
+                && sameWeets(weets.getWeets(), weetStore.getWeets())
+                && Arrays.equals(weets.getTrending(), weetStore.getTrending())
+                && Arrays.equals(followers.getTopUsers(), followerStore.getTopUsers());
+            for (int i = 0; i < WORDS.length; i++) {
+                result = result && sameUsers(users.getUsersContaining(WORDS[i]), userStore.getUsersContaining(WORDS[i]))
+                    && sameWeets(weets.getWeetsContaining(WORDS[i]), weetStore.getWeetsContaining(WORDS[i]));
+            }
+
+            // Compare the date queries, including dates before and after everything
+            for (long time = -1000; time <= 40 * 86400000L; time += 86400000L / 3) {
+                Date date = new Date(time);
+                result = result && sameUsers(users.getUsersJoinedBefore(date), userStore.getUsersJoinedBefore(date))
+                    && sameWeets(weets.getWeetsBefore(date), weetStore.getWeetsBefore(date))
+                    && sameWeets(weets.getWeetsOn(date), weetStore.getWeetsOn(date));
+            }
+
+            // Compare everything about each user, including ids nobody has
+            for (int uid = 0; uid <= 45; uid++) {
+                result = result && sameUser(users.getUser(uid), userStore.getUser(uid))
+                    && Arrays.equals(followers.getFollowers(uid), followerStore.getFollowers(uid))
+                    && Arrays.equals(followers.getFollows(uid), followerStore.getFollows(uid))
+                    && followers.getNumFollowers(uid) == followerStore.getNumFollowers(uid)
+                    && Arrays.equals(followers.getMutualFollowers(uid, uid + 1), followerStore.getMutualFollowers(uid, uid + 1))
+                    && Arrays.equals(followers.getMutualFollows(uid, uid + 2), followerStore.getMutualFollows(uid, uid + 2))
+                    && followers.isAFollower(uid, uid + 1) == followerStore.isAFollower(uid, uid + 1);
+                User user = userStore.getUser(uid);
+                if (user != null) {
+                    result = result && sameWeets(weets.getWeetsByUser(user), weetStore.getWeetsByUser(user));
+                }
+            }
+
+            // Compare each weet, including ids nobody has
+            for (int id = 0; id <= 410; id++) {
+                result = result && sameWeet(weets.getWeet(id), weetStore.getWeet(id));
+            }
+
+            // We expect every answer to be the same
+            return result;
+        }
+        catch (IOException e)
+        {
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    /*
+     * Tests that a snapshot which has been cut short is refused when it is opened, rather than read past its end
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testSnapshotDamaged()
+    {
+        File file;
+        try {
+            // Write a snapshot, then cut it short
+            fillStores();
+            file = File.createTempFile("witter", ".snapshot");
+            MappedSnapshot.write(file, userStore, weetStore, followerStore);
+            try (RandomAccessFile snapshot = new RandomAccessFile(file, "rw")) {
+                snapshot.setLength(snapshot.length() - 1);
+            }
+        }
+        catch (IOException e)
+        {
+            System.out.println(e);
+            return false;
+        }
+
+        try {
+            new MappedSnapshot(file);
+            return false; // We expect it to be refused
+        }
+        catch (IOException e)
+        {
+            return true;
+        }
+    }
+
+    /*
+     * Fills new stores with users, weets and follows made from a fixed seed, so every run is the same
+     */
+    private void fillStores()
+    {
+        userStore = new UserStore();
+        weetStore = new WeetStore();
+        followerStore = new FollowerStore();
+        Random random = new Random(126);
+        for (int uid = 1; uid <= 40; uid++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + uid;
+            userStore.addUser(new User(name, uid, new Date(random.nextInt(30) * 86400000L + random.nextInt(86400000))));
+        }
+        for (int id = 1; id <= 400; id++) {
+            String message = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + id;
+            weetStore.addWeet(new Weet(id, 1 + random.nextInt(40), message, new Date(random.nextInt(30) * 86400000L + random.nextInt(1000))));
+        }
+        for (int i = 0; i < 300; i++) {
+            followerStore.addFollower(1 + random.nextInt(40), 1 + random.nextInt(40), new Date(random.nextInt(1000000)));
+        }
+    }
+
+    /*
+     * Checks two users are both null or have the same id, name and date
+     * @return Returns true if they are the same
+     */
+    private boolean sameUser(User a, User b)
+    {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getId() == b.getId() && a.getName().equals(b.getName()) && a.getDateJoined().equals(b.getDateJoined());
+    }
+
+    /*
+     * Checks two arrays of users are the same users in the same order
+     * @return Returns true if they are the same
+     */
+    private boolean sameUsers(User[] a, User[] b)
+    {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (!sameUser(a[i], b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Checks two weets are both null or have the same id, user, message and date
+     * @return Returns true if they are the same
+     */
+    private boolean sameWeet(Weet a, Weet b)
+    {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getId() == b.getId() && a.getUserId() == b.getUserId() && a.getMessage().equals(b.getMessage())
+            && a.getDateWeeted().equals(b.getDateWeeted());
+    }
+
+    /*
+     * Checks two arrays of weets are the same weets in the same order
+     * @return Returns true if they are the same
+     */
+    private boolean sameWeets(Weet[] a, Weet[] b)
+    {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (!sameWeet(a[i], b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -54,6 +54,433 @@ public class TestRunner
         // Follower Tests
         // TODO: Test IFollowerStore methods (pass and fail).
             System.out.println("--> I need to make and complete FollowerTests.java");
+
+        // Durable Store Tests
+        DurableTests d = new DurableTests();
+        System.out.println("[Testing Durable Store]");
+
+        // Check a log cut short part way through its last record opens with everything before it
+        System.out.print("--> testTornTail : \t");
+        boolean testTornTail = d.testTornTail();
+        if (testTornTail == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check a record which fails its CRC is dropped
+        System.out.print("--> testBadCrc : \t");
+        boolean testBadCrc = d.testBadCrc();
+        if (testBadCrc == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check everything comes back from the snapshot and the log after a checkpoint
+        System.out.print("--> testCheckpointReopen : \t");
+        boolean testCheckpointReopen = d.testCheckpointReopen();
+        if (testCheckpointReopen == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+
+        // Mapped Snapshot Tests
+        SnapshotTests m = new SnapshotTests();
+        System.out.println("[Testing Mapped Snapshot]");
+
+        // Check every query on a snapshot gives the same answer as the stores
+        System.out.print("--> testSnapshotMatchesStores : \t");
+        boolean testSnapshotMatchesStores = m.testSnapshotMatchesStores();
+        if (testSnapshotMatchesStores == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check a snapshot which has been cut short is refused
+        System.out.print("--> testSnapshotDamaged : \t");
+        boolean testSnapshotDamaged = m.testSnapshotDamaged();
+        if (testSnapshotDamaged == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+
+        // Concurrent Store Tests
+        ConcurrentTests c = new ConcurrentTests();
+        System.out.println("[Testing Concurrent Stores]");
+
+        // Check users added from many threads are all there, and readers see a sorted list meanwhile
+        System.out.print("--> testConcurrentUsers : \t");
+        boolean testConcurrentUsers = c.testConcurrentUsers();
+        if (testConcurrentUsers == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check weets added from many threads are all there, and readers never see half of one
+        System.out.print("--> testConcurrentWeets : \t");
+        boolean testConcurrentWeets = c.testConcurrentWeets();
+        if (testConcurrentWeets == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check follows added from many threads are all there, and readers never see one side without the other
+        System.out.print("--> testConcurrentFollowers : \t");
+        boolean testConcurrentFollowers = c.testConcurrentFollowers();
+        if (testConcurrentFollowers == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+
+        // Cached Store Tests
+        CacheTests k = new CacheTests();
+        System.out.println("[Testing Cached Stores]");
+
+        // Check a new user drops the cached results they would be in, and only those
+        System.out.print("--> testCachedUsers : \t");
+        boolean testCachedUsers = k.testCachedUsers();
+        if (testCachedUsers == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check a new user drops a search they only match ignoring case, when the store ignores case
+        System.out.print("--> testCachedUsersIgnoreCase : \t");
+        boolean testCachedUsersIgnoreCase = k.testCachedUsersIgnoreCase();
+        if (testCachedUsersIgnoreCase == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check a new user drops every search when the store might match any way
+        System.out.print("--> testCachedUsersUnknownCase : \t");
+        boolean testCachedUsersUnknownCase = k.testCachedUsersUnknownCase();
+        if (testCachedUsersUnknownCase == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check a new weet drops every cached result it changes
+        System.out.print("--> testCachedWeets : \t");
+        boolean testCachedWeets = k.testCachedWeets();
+        if (testCachedWeets == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check a new follow drops every cached result it changes
+        System.out.print("--> testCachedFollowers : \t");
+        boolean testCachedFollowers = k.testCachedFollowers();
+        if (testCachedFollowers == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check changing a returned array doesn't change the cache
+        System.out.print("--> testCachedCopies : \t");
+        boolean testCachedCopies = k.testCachedCopies();
+        if (testCachedCopies == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Copy On Write Store Tests
+        CopyOnWriteTests w = new CopyOnWriteTests();
+        System.out.println("[Testing Copy On Write Store]");
+
+        // Check a View doesn't change when more is written to the store
+        System.out.print("--> testSnapshotUnchanged : \t");
+        boolean testSnapshotUnchanged = w.testSnapshotUnchanged();
+        if (testSnapshotUnchanged == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check the store gives the same answers as a WeetStore and a FollowerStore with the same data
+        System.out.print("--> testMatchesStores : \t");
+        boolean testMatchesStores = w.testMatchesStores();
+        if (testMatchesStores == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Timeline Service Tests
+        TimelineTests t = new TimelineTests();
+        System.out.println("[Testing Timeline Service]");
+
+        // Check an inbox is made on the first read and read from afterwards
+        System.out.print("--> testInboxOnFirstRead : \t");
+        boolean testInboxOnFirstRead = t.testInboxOnFirstRead();
+        if (testInboxOnFirstRead == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check following someone puts their recent weets into the inbox
+        System.out.print("--> testFollowBackFill : \t");
+        boolean testFollowBackFill = t.testFollowBackFill();
+        if (testFollowBackFill == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check a page a full inbox can't fill comes from the merge
+        System.out.print("--> testFullInboxFallsBack : \t");
+        boolean testFullInboxFallsBack = t.testFullInboxFallsBack();
+        if (testFullInboxFallsBack == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check paging from the inbox into the merge gives every weet once
+        System.out.print("--> testPagingAcrossInbox : \t");
+        boolean testPagingAcrossInbox = t.testPagingAcrossInbox();
+        if (testPagingAcrossInbox == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check fanning out and merging give the same pages
+        System.out.print("--> testFanOutMatchesMerge : \t");
+        boolean testFanOutMatchesMerge = t.testFanOutMatchesMerge();
+        if (testFanOutMatchesMerge == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Paging Tests
+        PagingTests p = new PagingTests();
+        System.out.println("[Testing Paging]");
+
+        // Check paging weets at the same time gives each once, ordered by id
+        System.out.print("--> testWeetsSameTime : \t");
+        boolean testWeetsSameTime = p.testWeetsSameTime();
+        if (testWeetsSameTime == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check paging users who joined at the same time gives each once, ordered by id
+        System.out.print("--> testUsersSameTime : \t");
+        boolean testUsersSameTime = p.testUsersSameTime();
+        if (testUsersSameTime == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check paging follow lists at the same time gives each user once
+        System.out.print("--> testFollowersSameTime : \t");
+        boolean testFollowersSameTime = p.testFollowersSameTime();
+        if (testFollowersSameTime == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check the top users cursor is the place of the next user
+        System.out.print("--> testTopUsersCursor : \t");
+        boolean testTopUsersCursor = p.testTopUsersCursor();
+        if (testTopUsersCursor == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check every paged query refuses bad cursors and page sizes
+        System.out.print("--> testBadCursorsAndLimits : \t");
+        boolean testBadCursorsAndLimits = p.testBadCursorsAndLimits();
+        if (testBadCursorsAndLimits == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Compressed Follower Set Tests
+        CompressedTests r = new CompressedTests();
+        System.out.println("[Testing Compressed Follower Sets]");
+
+        // Check a set of followers still works as it goes past 4096 ids in one container
+        System.out.print("--> testPastArrayLimit : \t");
+        boolean testPastArrayLimit = r.testPastArrayLimit();
+        if (testPastArrayLimit == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check compacting runs of ids into run containers gives the same answers
+        System.out.print("--> testCompactRuns : \t");
+        boolean testCompactRuns = r.testCompactRuns();
+        if (testCompactRuns == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check random followers give the same answers as a TreeSet
+        System.out.print("--> testMatchesTreeSet : \t");
+        boolean testMatchesTreeSet = r.testMatchesTreeSet();
+        if (testMatchesTreeSet == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Trending Tests
+        TrendingTests h = new TrendingTests();
+        System.out.println("[Testing Trending]");
+
+        // Check hashtags drop out of the trending window once they are older than it
+        System.out.print("--> testWindowExpiry : \t");
+        boolean testWindowExpiry = h.testWindowExpiry();
+        if (testWindowExpiry == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check decay lets a more recent hashtag overtake one used more but earlier
+        System.out.print("--> testDecayRanking : \t");
+        boolean testDecayRanking = h.testDecayRanking();
+        if (testDecayRanking == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check the approximate counter finds the heavy hitters among far more hashtags than it tracks
+        System.out.print("--> testApproximateHeavyHitters : \t");
+        boolean testApproximateHeavyHitters = h.testApproximateHeavyHitters();
+        if (testApproximateHeavyHitters == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Search Tests
+        SearchTests s = new SearchTests();
+        System.out.println("[Testing Search]");
+
+        // Check queries shorter than a trigram give the same as a scan
+        System.out.print("--> testShortQueries : \t");
+        boolean testShortQueries = s.testShortQueries();
+        if (testShortQueries == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check queries and texts with repeated trigrams give the same as a scan
+        System.out.print("--> testRepeatedTrigrams : \t");
+        boolean testRepeatedTrigrams = s.testRepeatedTrigrams();
+        if (testRepeatedTrigrams == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check random queries give the same as a scan
+        System.out.print("--> testMatchesScan : \t");
+        boolean testMatchesScan = s.testMatchesScan();
+        if (testMatchesScan == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Date Tests
+        DateTests dt = new DateTests();
+        System.out.println("[Testing Dates]");
+
+        // Check getWeetsOn finds the weets at both ends of a day and none outside it
+        System.out.print("--> testDayEnds : \t");
+        boolean testDayEnds = dt.testDayEnds();
+        if (testDayEnds == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check weets at the same time are all found, ordered by id
+        System.out.print("--> testEqualTimes : \t");
+        boolean testEqualTimes = dt.testEqualTimes();
+        if (testEqualTimes == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        // Check the date queries give the same as a scan
+        System.out.print("--> testDatesMatchScan : \t");
+        boolean testDatesMatchScan = dt.testDatesMatchScan();
+        if (testDatesMatchScan == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
     
     }
 
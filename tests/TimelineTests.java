@@ -0,0 +1,193 @@
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.Page;
+import uk.ac.warwick.java.cs126.services.TimelineService;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class TimelineTests {
+
+    private WeetStore weetStore; // The stores both services read from
+    private FollowerStore followerStore;
+    private TimelineService fanOut; // The service which fans out to inboxes
+    private TimelineService merge; // The service which only ever merges, to check the other against
+
+
+    /*
+     * Tests that a user's inbox is made when they first read their timeline, holding what was there then, and is read from afterwards
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInboxOnFirstRead()
+    {
+        createServices(10);
+        fanOut.addFollower(1, 2, new Date(0));
+        fanOut.addWeet(new Weet(1, 2, "First", new Date(1000)));
+
+        // A weet added straight to the store is still seen, as there is no inbox yet and the first read merges
+        weetStore.addWeet(new Weet(2, 2, "Second", new Date(2000)));
+        boolean result = ids(fanOut.getTimeline(1, 10)).equals("[2, 1]") && ids(merge.getTimeline(1, 10)).equals("[2, 1]");
+
+        // Now there is an inbox, a weet added through the service is pushed into it, and one added behind its back isn't
+        fanOut.addWeet(new Weet(3, 2, "Third", new Date(3000)));
+        weetStore.addWeet(new Weet(4, 2, "Fourth", new Date(4000)));
+
+        // We expect the read to come from the inbox, which only knows about the weets added through the service
+        return result && ids(fanOut.getTimeline(1, 10)).equals("[3, 2, 1]") && ids(merge.getTimeline(1, 10)).equals("[4, 3, 2, 1]");
+    }
+
+    /*
+     * Tests that following someone after the inbox is made puts their recent weets into it, in date order with the weets already there
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testFollowBackFill()
+    {
+        createServices(10);
+        fanOut.addFollower(1, 2, new Date(0));
+        fanOut.addWeet(new Weet(1, 2, "From 2", new Date(1000)));
+        fanOut.addWeet(new Weet(2, 3, "From 3", new Date(2000)));
+        fanOut.addWeet(new Weet(3, 2, "From 2 again", new Date(3000)));
+        fanOut.addWeet(new Weet(4, 3, "From 3 again", new Date(3000))); // Same time as weet 3, so the id breaks the tie
+        boolean result = ids(fanOut.getTimeline(1, 10)).equals("[3, 1]"); // Makes the inbox
+
+        // Follow user 3, whose weets should be added to the inbox
+        fanOut.addFollower(1, 3, new Date(5000));
+
+        // We expect the same timeline as merging, with user 3's weets in their places
+        return result && ids(fanOut.getTimeline(1, 10)).equals("[4, 3, 2, 1]") && same(1, 10);
+    }
+
+    /*
+     * Tests that a page which needs more weets than a full inbox has left falls back to the merge and still gets them all
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testFullInboxFallsBack()
+    {
+        createServices(4);
+        fanOut.addFollower(1, 2, new Date(0));
+        for (int id = 1; id <= 10; id++) {
+            fanOut.addWeet(new Weet(id, 2, "Weet " + id, new Date(id * 1000L)));
+        }
+        boolean result = ids(fanOut.getTimeline(1, 2)).equals("[10, 9]"); // Makes the inbox, which only holds the 4 most recent
+
+        // Add a weet behind the inbox's back which is older than anything in it, only the merge can find it
+        weetStore.addWeet(new Weet(11, 2, "Old", new Date(500)));
+
+        // We expect a page bigger than the inbox to come from the merge, so it has the old weet, while a small page still fits the inbox
+        return result && ids(fanOut.getTimeline(1, 20)).equals("[10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 11]")
+            && ids(fanOut.getTimeline(1, 3)).equals("[10, 9, 8]")
+            && same(1, 20);
+    }
+
+    /*
+     * Tests that paging through a timeline gives every weet once, in order, when the pages start in the inbox and carry on in the merge
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testPagingAcrossInbox()
+    {
+        createServices(5);
+        fanOut.addFollower(1, 2, new Date(0));
+        fanOut.addFollower(1, 3, new Date(0));
+        for (int id = 1; id <= 12; id++) {
+            fanOut.addWeet(new Weet(id, 2 + id % 2, "Weet " + id, new Date((id / 3) * 1000L))); // Three weets at each time
+        }
+
+        // Page sizes which end exactly on, just before and just after the end of the inbox
+        boolean result = true;
+        for (int limit = 1; limit <= 7; limit++) {
+            result = result && drain(fanOut, 1, limit).equals("[12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1]") && same(1, limit);
+        }
+
+        // We expect every page size to give the whole timeline, the same as merging
+        return result;
+    }
+
+    /*
+     * Tests that fanning out and merging give the same pages, for many users, inbox sizes and page sizes, as weets and follows are added
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testFanOutMatchesMerge()
+    {
+        boolean result = true;
+        int[] sizes = {1, 3, 16, 100};
+        for (int s = 0; s < sizes.length; s++) {
+            createServices(sizes[s]);
+            Random random = new Random(126 + s);
+            int id = 1;
+            for (int step = 1; step <= 1500; step++) {
+                if (random.nextInt(4) == 0) {
+                    fanOut.addFollower(random.nextInt(20), random.nextInt(20), new Date(step));
+                }
+                else {
+                    fanOut.addWeet(new Weet(id++, random.nextInt(20), "Weet", new Date(random.nextInt(40) * 1000L))); // Plenty of ties, and out of order
+                }
+                if (step % 150 == 0) { // Every so often read everyone's timeline, which also makes their inboxes
+                    for (int uid = 0; uid < 20; uid++) {
+                        result = result && same(uid, 1 + random.nextInt(8));
+                    }
+                }
+            }
+        }
+
+        // We expect every page to be the same
+        return result;
+    }
+
+    /*
+     * Makes new stores, with one service fanning out to inboxes of the size given and another only merging
+     */
+    private void createServices(int inboxSize)
+    {
+        weetStore = new WeetStore();
+        followerStore = new FollowerStore();
+        fanOut = new TimelineService(weetStore, followerStore);
+        fanOut.setFanOut(inboxSize);
+        merge = new TimelineService(weetStore, followerStore);
+    }
+
+    /*
+     * Checks that both services give the same pages of a user's timeline, reading the fanned out one first so it makes its inbox
+     * @return Returns true if every page was the same
+     */
+    private boolean same(int uid, int limit)
+    {
+        return drain(fanOut, uid, limit).equals(drain(merge, uid, limit));
+    }
+
+    /*
+     * Reads every page of a user's timeline, checking each is full apart from the last
+     * @return Returns the ids of the weets from all the pages, or a message if a page was the wrong size
+     */
+    private String drain(TimelineService service, int uid, int limit)
+    {
+        StringBuilder ids = new StringBuilder();
+        String cursor = null;
+        do {
+            Page<Weet> page = service.getTimeline(uid, limit, cursor);
+            Weet[] weets = page.getItems();
+            if (page.hasMore() && weets.length != limit) {
+                return "short page";
+            }
+            for (int i = 0; i < weets.length; i++) {
+                ids.append(ids.length() == 0 ? "" : ", ").append(weets[i].getId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return "[" + ids + "]";
+    }
+
+    /*
+     * Turns an array of weets into a list of their ids, to compare easily
+     * @return Returns the ids, e.g. [2, 1]
+     */
+    private String ids(Weet[] weets)
+    {
+        int[] ids = new int[weets == null ? 0 : weets.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = weets[i].getId();
+        }
+        return Arrays.toString(ids);
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class TrendingTests {
+
+    private static final long HOUR = 3600000L; // The length of each bucket of the window
+
+    private int id; // The id of the next weet, so every weet in a test has a new one
+
+
+    /*
+     * Tests that hashtags drop out of the trending window once every weet using them is older than it, and weets older than it are ignored
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testWindowExpiry()
+    {
+        WeetStore weetStore = new WeetStore();
+        weetStore.setTrendingWindow(HOUR, 3, 1); // The last 3 hours, no decay
+        weet(weetStore, "#old", 5, 0);
+        weet(weetStore, "#new", 1, 2 * HOUR);
+
+        // Both are in the window of hours 0 to 2, and #old has been used more
+        boolean result = Arrays.toString(top(weetStore, 2)).equals("[#old, #new]");
+
+        // Move the window on to hours 1 to 3, so hour 0 falls out of it
+        weet(weetStore, "#new", 1, 3 * HOUR);
+        result = result && Arrays.toString(top(weetStore, 2)).equals("[#new, null]");
+
+        // A weet from before the window is ignored, however much it is used
+        weet(weetStore, "#late", 10, HOUR - 1);
+        result = result && Arrays.toString(top(weetStore, 2)).equals("[#new, null]");
+
+        // Turning the window on for weets already in the store only counts the ones in it
+        weetStore.setTrendingWindow(HOUR, 2, 1); // Now hours 2 to 3
+        result = result && Arrays.toString(top(weetStore, 2)).equals("[#new, null]");
+        weetStore.setTrendingAllTime();
+
+        // We expect every hashtag to count again over all time
+        return result && Arrays.toString(top(weetStore, 3)).equals("[#late, #old, #new]");
+    }
+
+    /*
+     * Tests that decay weights older buckets down, so a hashtag used less but more recently can overtake one used more but earlier
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testDecayRanking()
+    {
+        WeetStore flat = new WeetStore();
+        WeetStore decayed = new WeetStore();
+        flat.setTrendingWindow(HOUR, 4, 1); // No decay
+        decayed.setTrendingWindow(HOUR, 4, 0.5); // Each hour back counts for half as much
+
+        // #earlier is used 5 times two hours before #recent is used 3 times, so with decay it scores 5 * 0.25 against 3
+        WeetStore[] stores = {flat, decayed};
+        for (int s = 0; s < stores.length; s++) {
+            weet(stores[s], "#earlier", 5, 0);
+            weet(stores[s], "#recent", 3, 2 * HOUR);
+        }
+        boolean result = Arrays.toString(top(flat, 2)).equals("[#earlier, #recent]")
+            && Arrays.toString(top(decayed, 2)).equals("[#recent, #earlier]");
+
+        // One more hour makes #earlier weigh only 5 * 0.125, while #earlier still wins with no decay
+        for (int s = 0; s < stores.length; s++) {
+            weet(stores[s], "#other", 1, 3 * HOUR);
+        }
+
+        // We expect the decay to change the ranking, and the newest use to count in full
+        return result && Arrays.toString(top(flat, 3)).equals("[#earlier, #recent, #other]")
+            && Arrays.toString(top(decayed, 3)).equals("[#recent, #other, #earlier]");
+    }
+
+    /*
+     * Tests that the approximate counter still finds the real heavy hitters when there are far more different hashtags than it tracks
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testApproximateHeavyHitters()
+    {
+        WeetStore before = new WeetStore();
+        WeetStore after = new WeetStore();
+        before.setApproximateTrending(0.001, 0.01, 50); // Tracks 50 hashtags, turned on before the weets are added
+
+        // Five hashtags used thousands of times, mixed in with 40000 hashtags used once each
+        String[] heavy = {"#first", "#second", "#third", "#fourth", "#fifth"};
+        List<String> tags = new ArrayList<String>();
+        for (int h = 0; h < heavy.length; h++) {
+            for (int i = 0; i < 3000 - h * 400; i++) {
+                tags.add(heavy[h]);
+            }
+        }
+        for (int i = 0; i < 40000; i++) {
+            tags.add("#once" + i);
+        }
+        Collections.shuffle(tags, new Random(126));
+        for (int i = 0; i < tags.size(); i++) {
+            Weet weet = new Weet(i, 1, "Weet " + tags.get(i), new Date(i * 1000L));
+            before.addWeet(weet);
+            after.addWeet(weet);
+        }
+        after.setApproximateTrending(0.001, 0.01, 50); // And turned on after, which counts the weets already there
+
+        // Each heavy hitter is used more than the total / capacity, about 1000 times, so it must be tracked
+        // We expect them to be the top five, most used first, either way
+        String expected = Arrays.toString(heavy);
+        return Arrays.toString(top(before, 5)).equals(expected) && Arrays.toString(top(after, 5)).equals(expected);
+    }
+
+    /*
+     * Adds weets using a hashtag, all made at the same time
+     */
+    private void weet(WeetStore weetStore, String tag, int times, long date)
+    {
+        for (int i = 0; i < times; i++) {
+            weetStore.addWeet(new Weet(++id, 1, "Weet " + tag, new Date(date)));
+        }
+    }
+
+    /*
+     * Gets the first few trending hashtags
+     * @return Returns the top n hashtags, with nulls if there aren't enough
+     */
+    private String[] top(WeetStore weetStore, int n)
+    {
+        return Arrays.copyOf(weetStore.getTrending(), n);
+    }
+}